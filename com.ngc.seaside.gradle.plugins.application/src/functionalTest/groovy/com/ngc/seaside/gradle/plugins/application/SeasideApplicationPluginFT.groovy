@@ -86,8 +86,12 @@ class SeasideApplicationPluginFT {
             .findFirst()
             .orElseThrow({ new AssertionError("script does not contain JVM system properties!") })
       assertEquals("properties not correct!",
-                   "DEFAULT_JVM_OPTS=' \"-DMY_PROP=\$APP_HOME\"  \"-DappHome=\$APP_HOME\" '",
+                   "DEFAULT_JVM_OPTS='\"-DMY_PROP=\$APP_HOME\" \"-DappHome=\$APP_HOME\"'",
                    properties)
+      assertTrue("script does not use the pathing jar!",
+                 contents.contains('CLASSPATH="\$APP_HOME/lib/application-ft-1.0.0-SNAPSHOT-classpath.jar"'))
+      assertTrue("pathing jar does not exist!", Files.isRegularFile(linuxStartScript.resolve(
+            "../../lib/application-ft-1.0.0-SNAPSHOT-classpath.jar").normalize()))
 
       assumeTrue("only check file permissions on Linux", OperatingSystem.current().isLinux());
       assertEquals(
@@ -107,7 +111,7 @@ class SeasideApplicationPluginFT {
             .findFirst()
             .orElseThrow({ new AssertionError("script does not contain JVM system properties!") })
       assertEquals("properties not correct!",
-                   "set DEFAULT_JVM_OPTS= \"-DMY_PROP=%APP_HOME%\"  \"-DappHome=%APP_HOME%\" ",
+                   "set DEFAULT_JVM_OPTS=\"-DMY_PROP=%APP_HOME%\" \"-DappHome=%APP_HOME%\"",
                    properties)
    }
 }
@@ -22,6 +22,7 @@
  */
 package com.ngc.seaside.gradle.plugins.application
 
+import com.ngc.seaside.gradle.util.JvmProfile
 import org.gradle.api.Project
 import org.gradle.internal.reflect.Instantiator
 
@@ -50,6 +51,20 @@ class SeasideApplicationExtension {
     List<String> includeDistributionDirs
     Map<String, String> appSystemProperties
 
+    /**
+     * The JVM tuning profile the start scripts select options for when they are launched, or null to only use the
+     * configured JVM options
+     */
+    JvmProfile jvmProfile
+
+    void setJvmProfile(JvmProfile jvmProfile) {
+        this.jvmProfile = jvmProfile
+    }
+
+    void setJvmProfile(String jvmProfile) {
+        this.jvmProfile = jvmProfile == null ? null : JvmProfile.fromName(jvmProfile)
+    }
+
     OSType windows, unix
 
 
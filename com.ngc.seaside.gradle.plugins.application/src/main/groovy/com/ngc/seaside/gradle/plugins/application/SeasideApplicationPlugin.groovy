@@ -25,7 +25,10 @@ package com.ngc.seaside.gradle.plugins.application
 import com.ngc.seaside.gradle.api.AbstractProjectPlugin
 import org.gradle.api.Project
 import org.gradle.api.file.CopySpec
+import org.gradle.api.file.FileCollection
+import org.gradle.api.tasks.application.CreateStartScripts
 import org.gradle.api.tasks.bundling.Compression
+import org.gradle.api.tasks.bundling.Jar
 import org.gradle.internal.reflect.Instantiator
 
 import javax.inject.Inject
@@ -33,6 +36,7 @@ import javax.inject.Inject
 class SeasideApplicationPlugin extends AbstractProjectPlugin {
 
    public static final String COPY_APP_RESOURCE_TASKNAME = "copyApplicationResources"
+   public static final String PATHING_JAR_TASKNAME = "pathingJar"
    SeasideApplicationExtension applicationExtension
    final Instantiator instantiator
 
@@ -101,96 +105,19 @@ class SeasideApplicationPlugin extends AbstractProjectPlugin {
          taskResolver.findTask("distTar").dependsOn(taskResolver.findTask(COPY_APP_RESOURCE_TASKNAME))
 
          /**
-          * Modify start scripts task to allow custom start scripts
+          * Generate the start scripts from templates configured by the extension
           */
          taskResolver.findTask("startScripts") {
-            doLast {
-               // Configure how APP_HOME variable is created using user command
-               if (applicationExtension.windows.appHomeCmd != null) {
-                  String WINDOWS_APP_HOME_SCRIPT = "for %%? in (\"${applicationExtension.windows.appHomeCmd}\") do set APP_HOME=%%~f?"
-                  windowsScript.text = windowsScript.text.replaceFirst(/set APP_HOME=.*/, WINDOWS_APP_HOME_SCRIPT)
-               }
-
-               // Configure how APP_HOME variable is created using user command
-               if (applicationExtension.unix.appHomeCmd != null) {
-                  String UNIX_APP_HOME_SCRIPT = "\"`${applicationExtension.unix.appHomeCmd}`\""
-                  unixScript.text = unixScript.text.replaceFirst('(?<=APP_HOME=)((\'|\")(.*)(\'|"))(?=\n)',
-                                                                 UNIX_APP_HOME_SCRIPT)
-               }
-
-               // Add system properties set by user
-               if (applicationExtension.appSystemProperties != null) {
-                  applicationExtension.appSystemProperties.each { key, value ->
-                     String systemProp = "\"-D${key}=${value}\""
-                     project.getLogger().info("Adding $systemProp to DEFAULT_JVM_OPTS")
-
-                     // Adds system property to start scripts
-                     unixScript.text = unixScript.text.
-                           replaceFirst('(?<=DEFAULT_JVM_OPTS=)((\'|\")(.*)(\'|"))(?=\n)',
-                                        '\'$3 ' + systemProp + ' \'')
-
-                     windowsScript.text = windowsScript.text.
-                           replaceFirst('(?<=DEFAULT_JVM_OPTS=)(.*)(?=\r\n)', '$1 ' + systemProp + ' ')
-                  }
-               } else {
-                  project.getLogger().debug("seasideApplication.appSystemProperties is not set.")
-               }
-
-               // Configure appHomeVarName to point to the APP_HOME
-               if (applicationExtension.appHomeVarName != null) {
-                  project.getLogger().info("Setting " +
-                                           applicationExtension.appHomeVarName +
-                                           " to APP_HOME_VAR")
-                  String appNameProp = "\"-D" +
-                                       applicationExtension.appHomeVarName +
-                                       "=APP_HOME_VAR\""
-
-                  // Provide the app home directory has a system property.
-                  unixScript.text = unixScript.text.
-                        replaceFirst(
-                              '(?<=DEFAULT_JVM_OPTS=)((\'|\")(.*)(\'|"))(?=\n)',
-                              '\'$3 ' + appNameProp + ' \'')
-
-                  windowsScript.text = windowsScript.text.replaceFirst('(?<=DEFAULT_JVM_OPTS=)(.*)(?=\r\n)',
-                                                                       '$1 ' + appNameProp + ' ')
-
-                  windowsScript.text = windowsScript.text.replaceAll('APP_HOME_VAR', '%APP_HOME%')
-                  unixScript.text = unixScript.text.replaceAll('APP_HOME_VAR', '\\$APP_HOME')
-               } else {
-                  project.getLogger().debug("seasideApplication.appHomeVarName is not set.")
-               }
-
-               // Replace the classpath declaration with libs wildcard for Windows since the classpath was making
-               // the command too long and Windows was balking at it.
-               windowsScript.text = windowsScript.text.replaceFirst('(set CLASSPATH=)(.*)(?=\r\n)',
-                                                                    '$1' + '"%APP_HOME%\\\\lib\\\\*"')
-               unixScript.text = unixScript.text.replaceFirst('(?m)^CLASSPATH=.*?$', 'CLASSPATH="\\$(find \\$APP_HOME/lib/ -type f | paste -sd:)"')
-
-               // Override generated start script with custom windows start script
-               if (applicationExtension.windows.startScript != null) {
-                  project.getLogger().
-                        info("Overriding Windows start script with $applicationExtension.unix.startScript")
-
-                  def windowsCustomScript = new File(project.getProjectDir().path,
-                                                     String.valueOf(applicationExtension.windows.startScript))
-                  if (windowsCustomScript.exists()) {
-                     windowsScript.text = windowsCustomScript.readLines().join('\r\n')
-                  }
-               }
-
-               // Override generated start script with custom unix start script
-               if (applicationExtension.unix.startScript != null) {
-                  project.getLogger().
-                        info("Overriding Unix start script with $applicationExtension.unix.startScript")
-
-                  def unixCustomScript = new File(project.getProjectDir().path,
-                                                  String.valueOf(applicationExtension.unix.startScript))
-
-                  if (unixCustomScript.exists()) {
-                     unixScript.text = unixCustomScript.readLines().join('\n')
-                  }
-               }
-            }
+            SeasideStartScriptGenerator unixGenerator =
+                  new SeasideStartScriptGenerator(applicationExtension, project.projectDir, false)
+            SeasideStartScriptGenerator windowsGenerator =
+                  new SeasideStartScriptGenerator(applicationExtension, project.projectDir, true)
+            unixStartScriptGenerator = unixGenerator
+            windowsStartScriptGenerator = windowsGenerator
+            inputs.property('unixStartScript', { unixGenerator.inputs })
+            inputs.property('windowsStartScript', { windowsGenerator.inputs })
+            inputs.files({ [unixGenerator.customScript, windowsGenerator.customScript].findAll { it != null } })
+                  .withPropertyName('customStartScripts')
          }
          project.defaultTasks = ['build']
       }
@@ -206,6 +133,14 @@ class SeasideApplicationPlugin extends AbstractProjectPlugin {
       project.getPlugins().apply('application')
    }
 
+   /**
+    * Returns the value of the Class-Path manifest attribute that references the given files in the same directory
+    * @param classpath
+    */
+   private static String getManifestClassPath(FileCollection classpath) {
+      return classpath.files.collect { new URI(null, null, it.name, null).rawPath }.join(' ')
+   }
+
    /**
     * Create project tasks for this plugin
     * @param project
@@ -230,5 +165,26 @@ class SeasideApplicationPlugin extends AbstractProjectPlugin {
             }
          }
       }
+
+      /**
+       * Creates a jar whose manifest references the jars of the lib directory, so the start scripts have a fixed
+       * classpath that does not need to be computed or grow with the number of jars
+       */
+      CreateStartScripts startScripts = project.tasks.getByName('startScripts') as CreateStartScripts
+      FileCollection classpath = startScripts.classpath
+      Jar pathingJar = project.task(PATHING_JAR_TASKNAME, type: Jar) {
+         description = 'Creates a jar that references the classpath of the start scripts in its manifest.'
+         classifier = 'classpath'
+         preserveFileTimestamps = false
+         reproducibleFileOrder = true
+         inputs.property('classPath', { getManifestClassPath(classpath) })
+         doFirst {
+            manifest.attributes('Class-Path': getManifestClassPath(classpath))
+         }
+      } as Jar
+      startScripts.classpath = pathingJar.outputs.files
+      applicationDistribution.from(pathingJar) {
+         into "lib"
+      }
    }
 }
@@ -0,0 +1,146 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.application
+
+import com.ngc.seaside.gradle.util.JvmProfile
+import groovy.text.SimpleTemplateEngine
+import org.gradle.jvm.application.scripts.JavaAppStartScriptGenerationDetails
+import org.gradle.jvm.application.scripts.ScriptGenerator
+
+/**
+ * Generates the start scripts of an application from templates in a single pass.  The templates are based on the
+ * templates of Gradle's application plugin, with the JVM options, system properties, JVM tuning profile and the command
+ * that computes {@code APP_HOME} configured by the {@link SeasideApplicationExtension} rendered directly into the
+ * script.
+ */
+class SeasideStartScriptGenerator implements ScriptGenerator {
+
+   /**
+    * The placeholder in system property values that is replaced with a reference to the application's home directory.
+    */
+   static final String APP_HOME_PLACEHOLDER = 'APP_HOME_VAR'
+
+   private final SeasideApplicationExtension extension
+   private final File projectDir
+   private final boolean windows
+
+   /**
+    * Creates a generator for the Unix or Windows start script
+    * @param extension the extension that configures the script
+    * @param projectDir the directory custom start scripts are relative to
+    * @param windows whether to generate the Windows script
+    */
+   SeasideStartScriptGenerator(SeasideApplicationExtension extension, File projectDir, boolean windows) {
+      this.extension = extension
+      this.projectDir = projectDir
+      this.windows = windows
+   }
+
+   /**
+    * Returns the values of the extension that affect the script, for use as task inputs
+    */
+   Map<String, String> getInputs() {
+      SeasideApplicationExtension.OSType os = getOSType()
+      return [
+            appHomeCmd         : os?.appHomeCmd,
+            appHomeVarName     : extension.appHomeVarName,
+            appSystemProperties: String.valueOf(extension.appSystemProperties),
+            jvmProfile         : extension.jvmProfile?.name
+      ]
+   }
+
+   /**
+    * Returns the custom start script that replaces the generated script, or null if the script is generated
+    */
+   File getCustomScript() {
+      String startScript = getOSType()?.startScript
+      if (startScript == null) {
+         return null
+      }
+      File script = new File(projectDir, startScript)
+      return script.exists() ? script : null
+   }
+
+   @Override
+   void generateScript(JavaAppStartScriptGenerationDetails details, Writer destination) {
+      String lineSeparator = windows ? '\r\n' : '\n'
+      File customScript = getCustomScript()
+      if (customScript != null) {
+         destination.write(customScript.readLines().join(lineSeparator))
+         return
+      }
+
+      Map<String, Object> binding = [
+            applicationName      : details.applicationName,
+            optsEnvironmentVar   : details.optsEnvironmentVar,
+            exitEnvironmentVar   : details.optsEnvironmentVar.replaceFirst('_OPTS$', '_EXIT_CONSOLE'),
+            mainClassName        : details.mainClassName,
+            appNameSystemProperty: details.appNameSystemProperty,
+            appHomeRelativePath  : windows ? details.scriptRelPath.split('/').tail().collect { '..' }.join('\\')
+                                          : details.scriptRelPath.split('/').tail().collect { '..' }.join('/'),
+            appHomeCommand       : getOSType()?.appHomeCmd ?: (windows ? null : 'pwd -P'),
+            classpath            : getClasspath(details.classpath),
+            defaultJvmOpts       : getDefaultJvmOpts(details.defaultJvmOpts),
+            jvmProfileScript     : getJvmProfileScript()
+      ]
+      String template = getClass().getResource(windows ? 'windowsStartScript.txt' : 'unixStartScript.txt').text
+      String script = new SimpleTemplateEngine().createTemplate(template).make(binding).toString()
+      destination.write(script.readLines().join(lineSeparator) + lineSeparator)
+   }
+
+   private SeasideApplicationExtension.OSType getOSType() {
+      return windows ? extension.windows : extension.unix
+   }
+
+   private String getJvmProfileScript() {
+      JvmProfile profile = extension.jvmProfile
+      if (profile == null) {
+         return ''
+      }
+      return windows ? profile.windowsScript : profile.unixScript
+   }
+
+   private String getClasspath(List<String> classpath) {
+      if (windows) {
+         return classpath.collect { '%APP_HOME%\\' + it.replace('/', '\\') }.join(';')
+      }
+      return '"' + classpath.collect { '$APP_HOME/' + it }.join(':') + '"'
+   }
+
+   /**
+    * Returns the JVM options of the script, quoted so that references to APP_HOME are expanded when it runs
+    */
+   private String getDefaultJvmOpts(Iterable<String> defaultJvmOpts) {
+      List<String> options = defaultJvmOpts.collect()
+      extension.appSystemProperties?.each { key, value -> options << "-D${key}=${value}".toString() }
+      if (extension.appHomeVarName != null) {
+         options << "-D${extension.appHomeVarName}=${APP_HOME_PLACEHOLDER}".toString()
+      }
+      String appHome = windows ? '%APP_HOME%' : '$APP_HOME'
+      String quoted = options.collect {
+         String option = windows ? it : it.replace('\\', '\\\\')
+         '"' + option.replace('"', '\\"').replace(APP_HOME_PLACEHOLDER, appHome) + '"'
+      }.join(' ')
+      return windows ? quoted : "'" + quoted.replace("'", "'\"'\"'") + "'"
+   }
+}
@@ -0,0 +1,132 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares reading bundle manifests with {@link ManifestReader} against opening the bundles with {@link ZipFile}.
+ * The timings are written to standard out.
+ */
+public class ManifestReaderBenchmarkIT {
+
+   private static final int BUNDLES = 200;
+   private static final int ENTRIES_PER_BUNDLE = 2_000;
+   private static final int WARMUP_ROUNDS = 3;
+   private static final int ROUNDS = 10;
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private final List<File> bundles = new ArrayList<>();
+
+   @Before
+   public void setup() throws Throwable {
+      for (int i = 0; i < BUNDLES; i++) {
+         bundles.add(createBundle(i));
+      }
+   }
+
+   @Test
+   public void testManifestReaderAgainstZipFile() throws Throwable {
+      for (File bundle : bundles) {
+         assertEquals(readWithZipFile(bundle), ManifestReader.readManifest(bundle).get());
+      }
+
+      long zipFileNanos = time(() -> {
+         for (File bundle : bundles) {
+            readWithZipFile(bundle);
+         }
+      });
+      long manifestReaderNanos = time(() -> {
+         for (File bundle : bundles) {
+            ManifestReader.readManifest(bundle);
+         }
+      });
+
+      System.out.printf("Read %d manifests from bundles with %d entries:%n", BUNDLES, ENTRIES_PER_BUNDLE);
+      System.out.printf("  ZipFile:        %8.2f ms%n", zipFileNanos / 1e6);
+      System.out.printf("  ManifestReader: %8.2f ms%n", manifestReaderNanos / 1e6);
+   }
+
+   private static Manifest readWithZipFile(File file) throws IOException {
+      try (ZipFile zipFile = new ZipFile(file)) {
+         ZipEntry entry = zipFile.getEntry(JarFile.MANIFEST_NAME);
+         return new Manifest(zipFile.getInputStream(entry));
+      }
+   }
+
+   /**
+    * Returns the average time of a round after warming up.
+    */
+   private static long time(IORunnable runnable) throws IOException {
+      for (int i = 0; i < WARMUP_ROUNDS; i++) {
+         runnable.run();
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < ROUNDS; i++) {
+         runnable.run();
+      }
+      return (System.nanoTime() - start) / ROUNDS;
+   }
+
+   private File createBundle(int index) throws IOException {
+      Manifest manifest = new Manifest();
+      Attributes attributes = manifest.getMainAttributes();
+      attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      attributes.putValue(OsgiResolver.BUNDLE_SYMBOLIC_NAME_PROPERTY, "com.ngc.example.bundle" + index);
+      attributes.putValue(OsgiResolver.BUNDLE_VERSION_PROPERTY, "1.0." + index);
+      File file = new File(folder.getRoot(), "bundle" + index + ".jar");
+      try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file.toPath()), manifest)) {
+         for (int i = 0; i < ENTRIES_PER_BUNDLE; i++) {
+            out.putNextEntry(new ZipEntry("com/ngc/example/bundle" + index + "/Class" + i + ".class"));
+            out.write(("class " + i).getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+         }
+      }
+      return file;
+   }
+
+   private interface IORunnable {
+      void run() throws IOException;
+   }
+}
@@ -0,0 +1,177 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.ResolvedConfiguration;
+import org.gradle.api.artifacts.ResolvedDependency;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link OsgiResolver#resolveAllVersions(Configuration, java.util.function.BiConsumer)} against looking up
+ * the resolved dependencies of each dependency by scanning the first-level dependencies of a configuration. Both
+ * timings include resolving the configuration. Each path is warmed up first, so that neither benefits from dependency
+ * metadata that the other has already resolved and cached, and the paths are then measured in alternating order. The
+ * timings of each path are written to standard out.
+ */
+public class OsgiResolverBenchmarkIT {
+
+   private static final String GROUP = "com.ngc.example";
+   private static final String VERSION = "1.0.0";
+   private static final int BUNDLES = 2_000;
+   private static final int WARMUP_ITERATIONS = 2;
+   private static final int ITERATIONS = 6;
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project project;
+   private OsgiResolver resolver;
+   private int configurations;
+
+   @Before
+   public void setup() throws Throwable {
+      File repository = folder.newFolder("repository");
+      for (int i = 0; i < BUNDLES; i++) {
+         createModule(repository, "bundle" + i);
+      }
+      project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      project.getRepositories().maven(maven -> maven.setUrl(repository.toURI()));
+      resolver = new OsgiResolver(project, new DefaultVersionSelectorScheme(new DefaultVersionComparator()));
+   }
+
+   @Test
+   public void testResolveAllVersionsAgainstScanning() {
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+         scan();
+         resolveAllVersions();
+      }
+
+      List<Long> scanningNanos = new ArrayList<>();
+      List<Long> indexedNanos = new ArrayList<>();
+      for (int i = 0; i < ITERATIONS; i++) {
+         if (i % 2 == 0) {
+            scanningNanos.add(scan());
+            indexedNanos.add(resolveAllVersions());
+         } else {
+            indexedNanos.add(resolveAllVersions());
+            scanningNanos.add(scan());
+         }
+      }
+
+      System.out.printf("Resolved a configuration with %d bundles (%d warm up iterations, %d iterations):%n",
+               BUNDLES, WARMUP_ITERATIONS, ITERATIONS);
+      print("Scanning:", scanningNanos);
+      print("OsgiResolver:", indexedNanos);
+   }
+
+   private long scan() {
+      Configuration scanned = createConfiguration();
+      long start = System.nanoTime();
+      ResolvedConfiguration resolvedConfiguration = scanned.getResolvedConfiguration();
+      int scannedArtifacts = 0;
+      for (Dependency dependency : scanned.getAllDependencies()) {
+         for (ResolvedDependency resolved : resolvedConfiguration.getFirstLevelModuleDependencies(
+                  dependency::equals)) {
+            for (ResolvedArtifact artifact : resolved.getAllModuleArtifacts()) {
+               artifact.getFile();
+               scannedArtifacts++;
+            }
+         }
+      }
+      long nanos = System.nanoTime() - start;
+      assertEquals(BUNDLES, scannedArtifacts);
+      return nanos;
+   }
+
+   private long resolveAllVersions() {
+      Configuration indexed = createConfiguration();
+      AtomicInteger indexedArtifacts = new AtomicInteger();
+      resolver.resolveAllVersions(indexed, (id, file) -> indexedArtifacts.incrementAndGet());
+      long start = System.nanoTime();
+      indexed.resolve();
+      long nanos = System.nanoTime() - start;
+      assertEquals(BUNDLES, indexedArtifacts.get());
+      return nanos;
+   }
+
+   private static void print(String name, List<Long> nanos) {
+      List<Long> sorted = new ArrayList<>(nanos);
+      Collections.sort(sorted);
+      System.out.printf("  %-13s min %8.2f ms, median %8.2f ms, max %8.2f ms%n", name,
+               sorted.get(0) / 1e6, sorted.get(sorted.size() / 2) / 1e6, sorted.get(sorted.size() - 1) / 1e6);
+   }
+
+   private Configuration createConfiguration() {
+      String name = "bundles" + configurations++;
+      Configuration configuration = project.getConfigurations().create(name);
+      for (int i = 0; i < BUNDLES; i++) {
+         project.getDependencies().add(name, GROUP + ":bundle" + i + ":" + VERSION);
+      }
+      return configuration;
+   }
+
+   private static void createModule(File repository, String name) throws IOException {
+      File directory = new File(repository, GROUP.replace('.', '/') + "/" + name + "/" + VERSION);
+      Files.createDirectories(directory.toPath());
+      String pom = "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+               + "  <modelVersion>4.0.0</modelVersion>\n"
+               + "  <groupId>" + GROUP + "</groupId>\n"
+               + "  <artifactId>" + name + "</artifactId>\n"
+               + "  <version>" + VERSION + "</version>\n"
+               + "</project>\n";
+      Files.write(new File(directory, name + "-" + VERSION + ".pom").toPath(), pom.getBytes(StandardCharsets.UTF_8));
+
+      Manifest manifest = new Manifest();
+      Attributes attributes = manifest.getMainAttributes();
+      attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      attributes.putValue(OsgiResolver.BUNDLE_SYMBOLIC_NAME_PROPERTY, GROUP + "." + name);
+      attributes.putValue(OsgiResolver.BUNDLE_VERSION_PROPERTY, VERSION);
+      File jar = new File(directory, name + "-" + VERSION + ".jar");
+      // Only the manifest is needed.
+      new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest).close();
+   }
+}
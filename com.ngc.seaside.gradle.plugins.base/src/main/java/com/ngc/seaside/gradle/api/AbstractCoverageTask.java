@@ -22,8 +22,12 @@
  */
 package com.ngc.seaside.gradle.api;
 
+import com.ngc.seaside.gradle.util.ToolProvisioner;
+
 import org.gradle.api.DefaultTask;
 
+import java.io.File;
+
 public class AbstractCoverageTask extends DefaultTask {
 
    /**
@@ -38,4 +42,17 @@ public class AbstractCoverageTask extends DefaultTask {
                          .filter(file -> file.getName().endsWith(filename))
                          .getAsPath();
    }
+
+   /**
+    * Provisions a tool from its archive within the project classpath into the shared tool cache
+    *
+    * @param name     the name of the tool
+    * @param version  the version of the tool
+    * @param filename archive filename
+    * @return the provisioned tool
+    */
+   protected ToolProvisioner.Tool provisionTool(String name, String version, String filename) {
+      return ToolProvisioner.getInstance(getProject().getGradle())
+                            .provision(name, version, new File(findTheReleaseArchiveFile(filename)));
+   }
 }
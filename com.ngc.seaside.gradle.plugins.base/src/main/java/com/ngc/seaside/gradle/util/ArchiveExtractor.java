@@ -0,0 +1,177 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extracts zip archives into directories that record the archive they were extracted from. Once a directory has been
+ * completely extracted, the SHA-256 checksum of its archive is written to a marker file in it. A directory whose
+ * marker matches the checksum of the archive is not extracted again; any other content of the directory, such as
+ * the output of a different archive or of an interrupted extraction, is removed before extracting.
+ *
+ * <p>
+ * Directories that are shared by concurrent builds, such as directories in caches in the Gradle user home, are
+ * extracted with {@link #extractLocked(File, String, Path, String)}, which holds a file lock next to the directory
+ * while extracting.
+ */
+public final class ArchiveExtractor {
+
+   private static final String LOCK_FILE_EXTENSION = ".lock";
+
+   private static final Logger LOGGER = Logging.getLogger(ArchiveExtractor.class);
+
+   /**
+    * File locks are held by the JVM, so threads of the same JVM synchronize on these monitors before locking a file.
+    */
+   private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+   private ArchiveExtractor() {
+   }
+
+   /**
+    * Computes the SHA-256 checksum of the given file.
+    *
+    * @param file the file
+    * @return the checksum as a hexadecimal string
+    * @throws IOException if the file cannot be read
+    */
+   public static String checksum(File file) throws IOException {
+      Preconditions.checkNotNull(file, "file may not be null!");
+      try (HashingInputStream in = new HashingInputStream(Hashing.sha256(), Files.newInputStream(file.toPath()))) {
+         ByteStreams.exhaust(in);
+         return in.hash().toString();
+      }
+   }
+
+   /**
+    * Returns whether the given directory has been completely extracted from the archive with the given checksum.
+    *
+    * @param directory  the directory
+    * @param markerName the name of the marker file in the directory
+    * @param checksum   the checksum of the archive
+    * @return whether the directory has been extracted from the archive
+    * @throws IOException if the marker cannot be read
+    */
+   public static boolean isExtracted(Path directory, String markerName, String checksum) throws IOException {
+      Path marker = directory.resolve(markerName);
+      return Files.isRegularFile(marker)
+               && checksum.equals(new String(Files.readAllBytes(marker), StandardCharsets.UTF_8));
+   }
+
+   /**
+    * Extracts the given archive into the given directory unless the directory has already been extracted from it.
+    * The directory is not locked, so it must not be shared by concurrent builds.
+    *
+    * @param archive    the zip archive
+    * @param checksum   the checksum of the archive
+    * @param directory  the directory to extract the archive to
+    * @param markerName the name of the marker file in the directory
+    * @return whether the archive was extracted
+    * @throws java.util.zip.ZipException if an entry of the archive is not supported or is outside of the directory
+    * @throws IOException                if the archive cannot be extracted
+    */
+   public static boolean extract(File archive, String checksum, Path directory, String markerName)
+            throws IOException {
+      Preconditions.checkNotNull(archive, "archive may not be null!");
+      Preconditions.checkNotNull(checksum, "checksum may not be null!");
+      Preconditions.checkNotNull(directory, "directory may not be null!");
+      Preconditions.checkNotNull(markerName, "markerName may not be null!");
+      if (isExtracted(directory, markerName, checksum)) {
+         return false;
+      }
+      delete(directory);
+      Files.createDirectories(directory);
+      try (ZipArchive zip = ZipArchive.open(archive)) {
+         zip.extract(directory.toFile());
+      }
+      Files.write(directory.resolve(markerName), checksum.getBytes(StandardCharsets.UTF_8));
+      return true;
+   }
+
+   /**
+    * Extracts the given archive into the given directory unless the directory has already been extracted from it,
+    * holding a lock on the file {@code <directory>.lock} while extracting. Builds that extract the same directory at
+    * the same time wait for each other, and the archive is extracted only once.
+    *
+    * @param archive    the zip archive
+    * @param checksum   the checksum of the archive
+    * @param directory  the directory to extract the archive to
+    * @param markerName the name of the marker file in the directory
+    * @return whether the archive was extracted by this call
+    * @throws java.util.zip.ZipException if an entry of the archive is not supported or is outside of the directory
+    * @throws IOException                if the archive cannot be extracted
+    */
+   public static boolean extractLocked(File archive, String checksum, Path directory, String markerName)
+            throws IOException {
+      Preconditions.checkNotNull(directory, "directory may not be null!");
+      if (isExtracted(directory, markerName, checksum)) {
+         return false;
+      }
+      Path absoluteDirectory = directory.toAbsolutePath();
+      Files.createDirectories(absoluteDirectory.getParent());
+      Path lockFile = absoluteDirectory.resolveSibling(absoluteDirectory.getFileName() + LOCK_FILE_EXTENSION);
+      synchronized (MONITORS.computeIfAbsent(lockFile, key -> new Object())) {
+         try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+              FileLock ignored = channel.lock()) {
+            // Another build may have extracted the archive while this build was waiting for the lock
+            return extract(archive, checksum, absoluteDirectory, markerName);
+         }
+      }
+   }
+
+   /**
+    * Deletes the given directory. If the directory is a symbolic link, only the link is deleted.
+    *
+    * @param directory the directory to delete
+    * @throws IOException if the directory cannot be deleted
+    */
+   public static void delete(Path directory) throws IOException {
+      Preconditions.checkNotNull(directory, "directory may not be null!");
+      if (Files.isSymbolicLink(directory)) {
+         // Links to cached directories may be dangling if the cache was cleaned
+         Files.delete(directory);
+      } else if (Files.exists(directory)) {
+         LOGGER.info("Removing {}", directory);
+         FileUtils.deleteDirectory(directory.toFile());
+      }
+   }
+}
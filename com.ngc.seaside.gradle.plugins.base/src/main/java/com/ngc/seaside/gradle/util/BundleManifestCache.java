@@ -0,0 +1,259 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import com.google.common.base.Preconditions;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipException;
+
+/**
+ * A cache of the OSGi manifest headers of bundle archives. Entries are keyed by the absolute path of the archive and
+ * are only reused if the size and last modified time of the archive have not changed, so each archive is opened and
+ * parsed at most once per build.
+ *
+ * <p>
+ * The cache is held in memory while a build is running. Once the cache is {@link #attach(Gradle) attached} to a
+ * build, the entries from previous builds are loaded from {@value #CACHE_FILE_NAME} in the Gradle user home and the
+ * cache is written back there when the build finishes.
+ */
+public class BundleManifestCache {
+
+   /**
+    * The location of the persisted cache, relative to the Gradle user home.
+    */
+   public static final String CACHE_FILE_NAME = "caches/seaside/osgi-manifests.bin";
+
+   private static final int FORMAT_VERSION = 1;
+
+   private static final Logger LOGGER = Logging.getLogger(BundleManifestCache.class);
+
+   private static final BundleManifestCache INSTANCE = new BundleManifestCache();
+
+   private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+   private final Set<Gradle> builds = Collections.newSetFromMap(new IdentityHashMap<>());
+   private volatile boolean dirty;
+
+   BundleManifestCache() {
+   }
+
+   /**
+    * Returns the cache shared by all of the plugins in the current JVM.
+    *
+    * @return the shared cache
+    */
+   public static BundleManifestCache getInstance() {
+      return INSTANCE;
+   }
+
+   /**
+    * Attaches this cache to the given build. The first time a build is attached, the persisted entries are loaded
+    * from the build's Gradle user home and the cache is scheduled to be saved when the build finishes. Attaching the
+    * same build more than once has no effect.
+    *
+    * @param gradle the build
+    */
+   public void attach(Gradle gradle) {
+      Preconditions.checkNotNull(gradle, "gradle may not be null!");
+      synchronized (builds) {
+         if (!builds.add(gradle)) {
+            return;
+         }
+      }
+      File cacheFile = new File(gradle.getGradleUserHomeDir(), CACHE_FILE_NAME);
+      load(cacheFile.toPath());
+      gradle.buildFinished(__ -> {
+         save(cacheFile.toPath());
+         synchronized (builds) {
+            builds.remove(gradle);
+            if (builds.isEmpty()) {
+               entries.clear();
+            }
+         }
+      });
+   }
+
+   /**
+    * Returns the OSGi metadata of the given archive, reading the archive's manifest if the archive has not been read
+    * before or if it has changed since it was last read.
+    *
+    * @param file the archive
+    * @return the OSGi metadata of the archive
+    * @throws UncheckedIOException if the archive cannot be read
+    */
+   public OsgiBundleMetadata get(File file) {
+      File absoluteFile = file.getAbsoluteFile();
+      String path = absoluteFile.getPath();
+      long size = absoluteFile.length();
+      long lastModified = absoluteFile.lastModified();
+      Entry entry = entries.get(path);
+      if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+         return entry.metadata;
+      }
+      OsgiBundleMetadata metadata = read(absoluteFile);
+      entries.put(path, new Entry(size, lastModified, metadata));
+      dirty = true;
+      return metadata;
+   }
+
+   /**
+    * Reads the OSGi headers of the given archive's manifest in a single pass.
+    */
+   static OsgiBundleMetadata read(File file) {
+      try {
+         return ManifestReader.readManifest(file)
+                  .map(BundleManifestCache::toMetadata)
+                  .orElse(OsgiBundleMetadata.NOT_A_BUNDLE);
+      } catch (ZipException e) {
+         return OsgiBundleMetadata.NOT_A_BUNDLE;
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   static OsgiBundleMetadata toMetadata(Manifest manifest) {
+      Attributes attributes = manifest.getMainAttributes();
+      String symbolicName = OsgiResolver.getOsgiSymbolicName(manifest).orElse(null);
+      String version = attributes.getValue(OsgiResolver.BUNDLE_VERSION_PROPERTY);
+      return OsgiBundleMetadata.of(symbolicName, version);
+   }
+
+   void load(Path cacheFile) {
+      if (!Files.isRegularFile(cacheFile)) {
+         return;
+      }
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+         if (in.readInt() != FORMAT_VERSION) {
+            return;
+         }
+         int count = in.readInt();
+         for (int i = 0; i < count; i++) {
+            String path = in.readUTF();
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            OsgiBundleMetadata metadata = in.readBoolean()
+                     ? OsgiBundleMetadata.of(readNullableString(in), readNullableString(in))
+                     : OsgiBundleMetadata.NOT_A_BUNDLE;
+            entries.putIfAbsent(path, new Entry(size, lastModified, metadata));
+         }
+      } catch (IOException e) {
+         LOGGER.info("Ignoring unreadable OSGi manifest cache {}", cacheFile, e);
+      }
+   }
+
+   void save(Path cacheFile) {
+      if (!dirty) {
+         return;
+      }
+      Map<String, Entry> snapshot = new LinkedHashMap<>(entries);
+      snapshot.keySet().removeIf(path -> !new File(path).isFile());
+      Path tempFile = null;
+      try {
+         Files.createDirectories(cacheFile.getParent());
+         tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+         try (DataOutputStream out =
+                  new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+               Entry entry = e.getValue();
+               out.writeUTF(e.getKey());
+               out.writeLong(entry.size);
+               out.writeLong(entry.lastModified);
+               out.writeBoolean(entry.metadata.hasManifest());
+               if (entry.metadata.hasManifest()) {
+                  writeNullableString(out, entry.metadata.getRawSymbolicName());
+                  writeNullableString(out, entry.metadata.getRawVersion());
+               }
+            }
+         }
+         try {
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+         } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+         }
+         tempFile = null;
+         dirty = false;
+      } catch (IOException e) {
+         LOGGER.info("Unable to save OSGi manifest cache {}", cacheFile, e);
+      } finally {
+         if (tempFile != null) {
+            deleteQuietly(tempFile);
+         }
+      }
+   }
+
+   private static void deleteQuietly(Path file) {
+      try {
+         Files.deleteIfExists(file);
+      } catch (IOException e) {
+         LOGGER.debug("Unable to delete temporary OSGi manifest cache {}", file, e);
+      }
+   }
+
+   private static String readNullableString(DataInputStream in) throws IOException {
+      return in.readBoolean() ? in.readUTF() : null;
+   }
+
+   private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+      out.writeBoolean(value != null);
+      if (value != null) {
+         out.writeUTF(value);
+      }
+   }
+
+   private static class Entry {
+
+      private final long size;
+      private final long lastModified;
+      private final OsgiBundleMetadata metadata;
+
+      private Entry(long size, long lastModified, OsgiBundleMetadata metadata) {
+         this.size = size;
+         this.lastModified = lastModified;
+         this.metadata = metadata;
+      }
+   }
+}
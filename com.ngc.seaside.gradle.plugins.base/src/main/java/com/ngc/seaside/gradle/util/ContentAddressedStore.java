@@ -0,0 +1,297 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A store of files keyed by the SHA-256 digest of their content. Files that are staged into many directories, such
+ * as the bundles of distributions, are stored once and {@link #link(File, Path) linked} into each directory with hard
+ * links, falling back to copying when hard links are not supported.
+ *
+ * <p>
+ * The {@link #getInstance(Gradle) shared store} is located at {@value #STORE_DIRECTORY_NAME} in the Gradle user home,
+ * so it is shared by all builds using the same Gradle user home. Files in the store are never modified; since staged
+ * files may be links to stored files, staged files must be replaced rather than modified in place. On file systems with
+ * POSIX permissions, stored files are made read-only so that modifying a staged link fails instead of changing the
+ * stored file. The digest of a stored file is verified before it is reused, and a stored file that no longer matches
+ * its digest is replaced.
+ *
+ * <p>
+ * Stored files are not removed automatically. Files that are no longer linked anywhere can be removed with
+ * {@link #removeUnused()} while no builds are using the store. Since staged files are hard links or copies, deleting
+ * the entire store directory while no builds are running is also safe.
+ */
+public class ContentAddressedStore {
+
+   /**
+    * The location of the shared store, relative to the Gradle user home.
+    */
+   public static final String STORE_DIRECTORY_NAME = "caches/seaside/files-sha256";
+
+   private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+   private static final Logger LOGGER = Logging.getLogger(ContentAddressedStore.class);
+
+   private static final Map<Path, ContentAddressedStore> STORES = new ConcurrentHashMap<>();
+   private static final Set<Gradle> BUILDS = Collections.newSetFromMap(new IdentityHashMap<>());
+
+   private final Path root;
+   private final Map<String, Digest> digests = new ConcurrentHashMap<>();
+
+   ContentAddressedStore(Path root) {
+      this.root = root;
+   }
+
+   /**
+    * Returns the store shared by all of the builds using the Gradle user home of the given build. The store, along
+    * with the digests it has computed, is only held in memory while a build is using it; it is released when the last
+    * build using it finishes.
+    *
+    * @param gradle the build
+    * @return the shared store
+    */
+   public static ContentAddressedStore getInstance(Gradle gradle) {
+      Preconditions.checkNotNull(gradle, "gradle may not be null!");
+      Path root = gradle.getGradleUserHomeDir().toPath().resolve(STORE_DIRECTORY_NAME).toAbsolutePath();
+      synchronized (BUILDS) {
+         if (BUILDS.add(gradle)) {
+            gradle.buildFinished(__ -> {
+               synchronized (BUILDS) {
+                  BUILDS.remove(gradle);
+                  if (BUILDS.isEmpty()) {
+                     STORES.clear();
+                  }
+               }
+            });
+         }
+         return STORES.computeIfAbsent(root, ContentAddressedStore::new);
+      }
+   }
+
+   /**
+    * Adds the given file to this store if a file with the same content is not already stored.
+    *
+    * @param file the file to store
+    * @return the stored file
+    * @throws UncheckedIOException if the file cannot be read or stored
+    */
+   public Path add(File file) {
+      Preconditions.checkNotNull(file, "file may not be null!");
+      String digest = getDigest(file);
+      Path stored = root.resolve(digest.substring(0, 2)).resolve(digest);
+      boolean exists = Files.isRegularFile(stored);
+      if (exists && stored.toFile().length() == file.length() && digest.equals(getDigest(stored.toFile()))) {
+         return stored;
+      }
+      try {
+         if (exists) {
+            // The stored file was modified or truncated, for example by editing a file linked to it
+            LOGGER.warn("Replacing {} in the store, its content no longer matches its digest", stored);
+            Files.deleteIfExists(stored);
+         }
+         Files.createDirectories(stored.getParent());
+         Path temp = Files.createTempFile(stored.getParent(), digest, TEMP_FILE_EXTENSION);
+         try {
+            Files.copy(file.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            makeReadOnly(temp);
+            try {
+               Files.move(temp, stored, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+               Files.move(temp, stored, StandardCopyOption.REPLACE_EXISTING);
+            }
+         } finally {
+            Files.deleteIfExists(temp);
+         }
+      } catch (FileAlreadyExistsException e) {
+         // Another process stored the same content first
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      return stored;
+   }
+
+   /**
+    * Adds the given file to this store and creates a hard link to the stored file at the given target, replacing any
+    * existing file. If the target cannot be linked to the store, the file is copied instead.
+    *
+    * @param file the file to stage
+    * @param target the location to stage the file to
+    * @throws UncheckedIOException if the file cannot be stored or staged
+    */
+   public void link(File file, Path target) {
+      Preconditions.checkNotNull(target, "target may not be null!");
+      Path stored = add(file);
+      try {
+         Files.deleteIfExists(target);
+         try {
+            Files.createLink(target, stored);
+            return;
+         } catch (UnsupportedOperationException | IOException e) {
+            // Links are not supported by some file systems or across file systems
+            LOGGER.debug("Unable to link {} to {}, copying instead", target, stored, e);
+         }
+         Files.copy(stored, target, StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Removes the stored files that are not linked anywhere, along with any temporary files left behind by interrupted
+    * builds. Whether a stored file is linked can only be determined on file systems that report the link count of
+    * files; on other file systems, only temporary files are removed. This must not be called while other builds are
+    * using the store.
+    *
+    * @return the number of files removed
+    * @throws UncheckedIOException if the store cannot be read or a file cannot be removed
+    */
+   public int removeUnused() {
+      if (!Files.isDirectory(root)) {
+         return 0;
+      }
+      List<Path> files;
+      try (Stream<Path> stream = Files.walk(root)) {
+         files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      int removed = 0;
+      Set<Path> directories = new LinkedHashSet<>();
+      for (Path file : files) {
+         try {
+            if (file.getFileName().toString().endsWith(TEMP_FILE_EXTENSION) || getLinkCount(file) == 1) {
+               Files.delete(file);
+               digests.remove(file.toAbsolutePath().toString());
+               directories.add(file.getParent());
+               removed++;
+            }
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      }
+      for (Path directory : directories) {
+         try {
+            Files.deleteIfExists(directory);
+         } catch (DirectoryNotEmptyException e) {
+            // The directory still contains stored files that are linked
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      }
+      LOGGER.info("Removed {} unused files from {}", removed, root);
+      return removed;
+   }
+
+   /**
+    * Returns the SHA-256 digest of the given file. Digests are only computed again if the size or last modified time of
+    * the file has changed.
+    *
+    * @param file the file
+    * @return the hex-encoded digest of the file
+    * @throws UncheckedIOException if the file cannot be read
+    */
+   public String getDigest(File file) {
+      Preconditions.checkNotNull(file, "file may not be null!");
+      File absoluteFile = file.getAbsoluteFile();
+      long size = absoluteFile.length();
+      long lastModified = absoluteFile.lastModified();
+      Digest digest = digests.get(absoluteFile.getPath());
+      if (digest != null && digest.size == size && digest.lastModified == lastModified) {
+         return digest.value;
+      }
+      try {
+         String value = com.google.common.io.Files.asByteSource(absoluteFile).hash(Hashing.sha256()).toString();
+         digests.put(absoluteFile.getPath(), new Digest(size, lastModified, value));
+         return value;
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Removes the write permissions of the given file if the file system supports POSIX permissions. Read-only files
+    * cannot be deleted on Windows, which would prevent staged links from being cleaned, so the file is left writable on
+    * other file systems.
+    */
+   private static void makeReadOnly(Path file) throws IOException {
+      if (!Files.getFileStore(file).supportsFileAttributeView(PosixFileAttributeView.class)) {
+         return;
+      }
+      Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+      permissions.remove(PosixFilePermission.OWNER_WRITE);
+      permissions.remove(PosixFilePermission.GROUP_WRITE);
+      permissions.remove(PosixFilePermission.OTHERS_WRITE);
+      Files.setPosixFilePermissions(file, permissions);
+   }
+
+   /**
+    * Returns the number of hard links to the given file, or {@code -1} if the file system does not report it.
+    */
+   private static int getLinkCount(Path file) throws IOException {
+      try {
+         return ((Number) Files.getAttribute(file, "unix:nlink")).intValue();
+      } catch (UnsupportedOperationException | IllegalArgumentException e) {
+         return -1;
+      }
+   }
+
+   private static class Digest {
+
+      private final long size;
+      private final long lastModified;
+      private final String value;
+
+      private Digest(long size, long lastModified, String value) {
+         this.size = size;
+         this.lastModified = lastModified;
+         this.value = value;
+      }
+   }
+}
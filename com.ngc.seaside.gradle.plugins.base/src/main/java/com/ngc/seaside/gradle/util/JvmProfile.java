@@ -0,0 +1,137 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Resources;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * The JVM tuning profiles of generated start scripts. A start script with a profile detects the processors and memory
+ * available to it when it is launched, including the CPU quota and memory limit of its cgroup when it runs in a
+ * container, and selects heap, garbage collector and compiler options for them. The profile built into a script can be
+ * overridden by setting the {@value #PROFILE_VARIABLE} environment variable to the {@link #getName() name} of another
+ * profile, or to {@value #NONE} to pass no tuning options to the JVM.
+ *
+ * <p>
+ * The scripts set the {@value #OPTIONS_VARIABLE} variable to the selected options, which should precede any options
+ * given by the user so that the user's options take precedence.
+ */
+public enum JvmProfile {
+
+   /**
+    * Maximizes throughput for batch work and services that can tolerate longer pauses. Uses the parallel collector
+    * with a fixed heap of three quarters of the available memory.
+    */
+   THROUGHPUT,
+
+   /**
+    * Keeps garbage collection pauses short for request driven services. Uses the G1 collector with a fixed heap of
+    * three fifths of the available memory.
+    */
+   LATENCY,
+
+   /**
+    * Minimizes memory use and startup time for small containers and short-lived tools. Uses the serial collector with
+    * a heap of up to a quarter of the available memory, only the client compiler and smaller thread stacks.
+    */
+   SMALL_FOOTPRINT;
+
+   /**
+    * The environment variable that overrides the profile of a script.
+    */
+   public static final String PROFILE_VARIABLE = "JVM_PROFILE";
+
+   /**
+    * The variable that scripts set to the options of the selected profile.
+    */
+   public static final String OPTIONS_VARIABLE = "JVM_PROFILE_OPTS";
+
+   /**
+    * The value of {@value #PROFILE_VARIABLE} that disables the tuning options.
+    */
+   public static final String NONE = "none";
+
+   private static final String DEFAULT_PROFILE_TOKEN = "@DEFAULT_JVM_PROFILE@";
+
+   /**
+    * Returns the name of this profile in build scripts and the {@value #PROFILE_VARIABLE} environment variable, such as
+    * {@code small-footprint}.
+    *
+    * @return the name of this profile
+    */
+   public String getName() {
+      return name().toLowerCase(Locale.ROOT).replace('_', '-');
+   }
+
+   /**
+    * Returns the Bourne shell commands that set {@value #OPTIONS_VARIABLE} when a Unix start script is launched.
+    *
+    * @return the commands that select the JVM options of this profile
+    */
+   public String getUnixScript() {
+      return getScript("jvmProfileUnix.txt");
+   }
+
+   /**
+    * Returns the batch commands that set {@value #OPTIONS_VARIABLE} when a Windows start script is launched. Windows
+    * has no cgroups, so the options are selected for the processors and physical memory of the host. The heap is
+    * sized with the same fractions of the memory as in the {@link #getUnixScript() Unix script}.
+    *
+    * @return the commands that select the JVM options of this profile
+    */
+   public String getWindowsScript() {
+      return getScript("jvmProfileWindows.txt");
+   }
+
+   /**
+    * Returns the profile with the given name or constant name, ignoring case.
+    *
+    * @param name the name of the profile, such as {@code latency} or {@code SMALL_FOOTPRINT}
+    * @return the profile
+    * @throws IllegalArgumentException if there is no profile with the given name
+    */
+   public static JvmProfile fromName(String name) {
+      Preconditions.checkNotNull(name, "name may not be null!");
+      for (JvmProfile profile : values()) {
+         if (profile.getName().equalsIgnoreCase(name) || profile.name().equalsIgnoreCase(name)) {
+            return profile;
+         }
+      }
+      throw new IllegalArgumentException(String.format("unknown JVM profile %s!", name));
+   }
+
+   private String getScript(String resource) {
+      try {
+         return Resources.toString(JvmProfile.class.getResource(resource), StandardCharsets.UTF_8)
+               .replace(DEFAULT_PROFILE_TOKEN, getName());
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+}
@@ -0,0 +1,101 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import com.google.common.base.Preconditions;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads a single entry, usually the {@code META-INF/MANIFEST.MF}, from a zip archive without opening the archive with
+ * {@link ZipFile}.
+ *
+ * <p>
+ * {@link ZipFile} parses the entire central directory and allocates native resources every time an archive is opened,
+ * which is expensive when only the manifest of a large bundle is needed. This reader reads the end of the archive to
+ * find the end of central directory record, scans the central directory for the requested entry and then reads and
+ * inflates only that entry. ZIP64 archives and archives with prepended data are supported.
+ */
+public final class ManifestReader {
+
+   private ManifestReader() {
+   }
+
+   /**
+    * Reads the manifest of the given archive.
+    *
+    * @param file the archive
+    * @return the manifest, or {@link Optional#empty()} if the archive does not contain a manifest
+    * @throws ZipException if the file is not a zip archive or the manifest is corrupt
+    * @throws IOException if the file cannot be read
+    */
+   public static Optional<Manifest> readManifest(File file) throws IOException {
+      Optional<byte[]> bytes = readEntry(file, JarFile.MANIFEST_NAME);
+      if (!bytes.isPresent()) {
+         return Optional.empty();
+      }
+      return Optional.of(new Manifest(new ByteArrayInputStream(bytes.get())));
+   }
+
+   /**
+    * Reads the uncompressed content of the given entry of the given archive.
+    *
+    * @param file the archive
+    * @param entryName the name of the entry
+    * @return the content of the entry, or {@link Optional#empty()} if the archive does not contain the entry
+    * @throws ZipException if the file is not a zip archive or the entry is corrupt
+    * @throws IOException if the file cannot be read
+    */
+   public static Optional<byte[]> readEntry(File file, String entryName) throws IOException {
+      Preconditions.checkNotNull(file, "file may not be null!");
+      Preconditions.checkNotNull(entryName, "entryName may not be null!");
+      byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         ZipArchive.CentralDirectory directory = ZipArchive.findCentralDirectory(channel, file);
+         ByteBuffer headers = ZipArchive.read(channel, directory.position, directory.size);
+         int position = 0;
+         while (position + ZipArchive.CENTRAL_HEADER_SIZE <= headers.limit()) {
+            if (headers.getInt(position) != ZipArchive.CENTRAL_HEADER_SIGNATURE) {
+               throw new ZipException("invalid central directory header in " + file);
+            }
+            if (ZipArchive.Entry.nameEquals(headers, position, name)) {
+               ZipArchive.Entry entry = ZipArchive.Entry.parse(headers, position, directory.prefixLength, file);
+               return Optional.of(ZipArchive.readContent(channel, file, entry));
+            }
+            position += ZipArchive.Entry.headerLength(headers, position);
+         }
+         return Optional.empty();
+      }
+   }
+}
@@ -0,0 +1,136 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The OSGi headers of a bundle's manifest that are needed by the seaside plugins. Instances are immutable and are
+ * normally obtained from {@link OsgiResolver#getBundleMetadata(java.io.File)}.
+ */
+public final class OsgiBundleMetadata {
+
+   /**
+    * Metadata for a file that is not an archive or an archive without a manifest.
+    */
+   public static final OsgiBundleMetadata NOT_A_BUNDLE = new OsgiBundleMetadata(false, null, null);
+
+   private final boolean hasManifest;
+   private final String symbolicName;
+   private final String version;
+
+   private OsgiBundleMetadata(boolean hasManifest, String symbolicName, String version) {
+      this.hasManifest = hasManifest;
+      this.symbolicName = symbolicName;
+      this.version = version;
+   }
+
+   /**
+    * Creates the metadata of an archive that contains a manifest.
+    *
+    * @param symbolicName the value of the {@value OsgiResolver#BUNDLE_SYMBOLIC_NAME_PROPERTY} header without any
+    *                     directives, or {@code null} if the header is not present
+    * @param version      the value of the {@value OsgiResolver#BUNDLE_VERSION_PROPERTY} header, or {@code null} if
+    *                     the header is not present
+    * @return the metadata
+    */
+   public static OsgiBundleMetadata of(String symbolicName, String version) {
+      return new OsgiBundleMetadata(true, symbolicName, version);
+   }
+
+   /**
+    * Returns {@code true} if the archive contains a manifest.
+    *
+    * @return {@code true} if the archive contains a manifest
+    */
+   public boolean hasManifest() {
+      return hasManifest;
+   }
+
+   /**
+    * Returns {@code true} if the archive is an OSGi bundle.
+    *
+    * @return {@code true} if the archive is an OSGi bundle
+    */
+   public boolean isBundle() {
+      return symbolicName != null;
+   }
+
+   /**
+    * Returns the osgi symbolic name of the bundle, or {@link Optional#empty()} if the archive is not an OSGi bundle.
+    *
+    * @return the osgi symbolic name of the bundle
+    */
+   public Optional<String> getSymbolicName() {
+      return Optional.ofNullable(symbolicName);
+   }
+
+   /**
+    * Returns the osgi version of the bundle, or {@link Optional#empty()} if the archive does not contain a manifest.
+    * If the manifest does not declare a version, {@code 0.0.0} is returned.
+    *
+    * @return the osgi version of the bundle
+    */
+   public Optional<String> getVersion() {
+      if (!hasManifest) {
+         return Optional.empty();
+      }
+      return Optional.of(version == null ? "0.0.0" : version);
+   }
+
+   String getRawSymbolicName() {
+      return symbolicName;
+   }
+
+   String getRawVersion() {
+      return version;
+   }
+
+   @Override
+   public boolean equals(Object obj) {
+      if (this == obj) {
+         return true;
+      }
+      if (!(obj instanceof OsgiBundleMetadata)) {
+         return false;
+      }
+      OsgiBundleMetadata that = (OsgiBundleMetadata) obj;
+      return hasManifest == that.hasManifest
+               && Objects.equals(symbolicName, that.symbolicName)
+               && Objects.equals(version, that.version);
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hash(hasManifest, symbolicName, version);
+   }
+
+   @Override
+   public String toString() {
+      if (!hasManifest) {
+         return "OsgiBundleMetadata[no manifest]";
+      }
+      return "OsgiBundleMetadata[" + symbolicName + ":" + version + "]";
+   }
+}
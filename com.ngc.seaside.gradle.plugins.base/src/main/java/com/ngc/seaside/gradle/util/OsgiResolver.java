@@ -22,9 +22,12 @@
  */
 package com.ngc.seaside.gradle.util;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
 import org.apache.commons.io.FilenameUtils;
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
-import org.gradle.api.UncheckedIOException;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.ModuleDependency;
@@ -32,32 +35,49 @@ import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.ResolvedConfiguration;
+import org.gradle.api.artifacts.ResolvableDependencies;
 import org.gradle.api.artifacts.ResolvedDependency;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
-import org.gradle.api.artifacts.component.ComponentSelector;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolutionResult;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
 import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.internal.artifacts.dependencies.DefaultResolvedVersionConstraint;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelector;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.Copy;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import java.util.jar.Manifest;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
+import java.util.stream.Collectors;
 
 public class OsgiResolver {
 
@@ -77,12 +97,18 @@ public class OsgiResolver {
     */
    public static final String INCLUDE_CONFLICTING_VERSIONS_ATTRIBUTE_NAME = "includeConflictingVersions";
 
+   /**
+    * The maximum number of threads used to {@link #scan(Collection) scan} bundles.
+    */
+   private static final int MAX_SCAN_THREADS = 8;
+
    private final VersionSelectorScheme versionSelectorscheme;
    private final Project project;
 
    public OsgiResolver(Project project, VersionSelectorScheme versionSelectorscheme) {
       this.project = project;
       this.versionSelectorscheme = versionSelectorscheme;
+      BundleManifestCache.getInstance().attach(project.getGradle());
    }
 
    /**
@@ -144,18 +170,18 @@ public class OsgiResolver {
     * @return the osgi symbolic name of the given bundle
     */
    public static Optional<String> getOsgiSymbolicName(File file) {
-      try (ZipFile zipFile = new ZipFile(file)) {
-         ZipEntry entry = zipFile.getEntry("META-INF/MANIFEST.MF");
-         if (entry == null) {
-            return Optional.empty();
-         }
-         Manifest manifest = new Manifest(zipFile.getInputStream(entry));
-         return getOsgiSymbolicName(manifest);
-      } catch (ZipException e) {
-         return Optional.empty();
-      } catch (IOException e) {
-         throw new UncheckedIOException(e);
-      }
+      return getBundleMetadata(file).getSymbolicName();
+   }
+
+   /**
+    * Returns the OSGi metadata of the given file. The metadata is read from the file's manifest in a single pass and
+    * is {@link BundleManifestCache cached}, so calling this method multiple times for the same file is cheap.
+    * 
+    * @param file bundle
+    * @return the OSGi metadata of the given file
+    */
+   public static OsgiBundleMetadata getBundleMetadata(File file) {
+      return BundleManifestCache.getInstance().get(file);
    }
 
    /**
@@ -185,15 +211,7 @@ public class OsgiResolver {
     * @return the osgi version of the given bundle
     */
    public static Optional<String> getOsgiVersion(File file) {
-      try (ZipFile zipFile = new ZipFile(file)) {
-         ZipEntry entry = zipFile.getEntry("META-INF/MANIFEST.MF");
-         Manifest manifest = new Manifest(zipFile.getInputStream(entry));
-         return Optional.of(getOsgiVersion(manifest));
-      } catch (ZipException e) {
-         return Optional.empty();
-      } catch (IOException e) {
-         throw new UncheckedIOException(e);
-      }
+      return getBundleMetadata(file).getVersion();
    }
 
    /**
@@ -226,59 +244,218 @@ public class OsgiResolver {
     * @param action action for each dependency and file
     */
    public void resolveAllVersions(Configuration configuration, BiConsumer<ComponentIdentifier, File> action) {
+      configuration.getIncoming()
+               .afterResolve(dependencies -> resolveAllVersions(configuration, dependencies, action));
+   }
+
+   /**
+    * When the given configuration is resolved, this method will call the given action for all file dependencies,
+    * including duplicate modules that vary only by version, along with the OSGi metadata of each file. The metadata of
+    * all of the files is {@link #scan(Collection) scanned} concurrently before the action is called.
+    *
+    * <p>
+    * The same caveats as {@link #resolveAllVersions(Configuration, BiConsumer)} apply to this method.
+    *
+    * @param configuration configuration
+    * @param action action for each dependency, file and its OSGi metadata
+    */
+   public void resolveAllBundles(Configuration configuration, BundleAction action) {
       configuration.getIncoming().afterResolve(dependencies -> {
-         Attribute<Boolean> attribute = Attribute.of(INCLUDE_CONFLICTING_VERSIONS_ATTRIBUTE_NAME, Boolean.class);
-         final boolean shouldResolve = !configuration.getAttributes().contains(attribute)
-                  || configuration.getAttributes().getAttribute(attribute);
-         if (shouldResolve) {
-            dependencies.getResolutionResult().allDependencies(result -> {
-               // Gradle doesn't have a built-in way of including all versions of the same module dependency.
-               // This will create extra configurations with the versions of dependencies that are overwritten
-               // and resolve them separately.
-               if (result instanceof ResolvedDependencyResult) {
-                  ComponentSelector requested = result.getRequested();
-                  ResolvedComponentResult selected = ((ResolvedDependencyResult) result).getSelected();
-                  if (requested instanceof ModuleComponentSelector) {
-                     ModuleComponentSelector c = (ModuleComponentSelector) requested;
-                     DefaultResolvedVersionConstraint constraint =
-                              new DefaultResolvedVersionConstraint(c.getVersionConstraint(), versionSelectorscheme);
-                     VersionSelector selector = constraint.getPreferredSelector();
-                     if (!selector.accept(selected.getModuleVersion().getVersion())) {
-                        Configuration detached = project.getConfigurations()
-                                 .detachedConfiguration(project.getDependencies()
-                                          .module(String.format("%s:%s:%s", c.getGroup(), c.getModule(),
-                                                   c.getVersion())));
-                        resolveAllVersions(detached, action);
-                        detached.resolve();
-                     }
-                  }
-               }
-            });
+         List<Map.Entry<ComponentIdentifier, File>> files = new ArrayList<>();
+         resolveAllVersions(configuration, dependencies,
+                  (identifier, file) -> files.add(new AbstractMap.SimpleImmutableEntry<>(identifier, file)));
+         Map<File, OsgiBundleMetadata> metadata = scan(files.stream()
+                                                             .map(Map.Entry::getValue)
+                                                             .collect(Collectors.toList()));
+         for (Map.Entry<ComponentIdentifier, File> entry : files) {
+            action.execute(entry.getKey(), entry.getValue(), metadata.get(entry.getValue()));
+         }
+      });
+   }
+
+   /**
+    * Reads the OSGi metadata of the given files. The manifests are read concurrently with a bounded number of threads
+    * and {@link BundleManifestCache cached} as with {@link #getBundleMetadata(File)}.
+    *
+    * @param files bundles
+    * @return an unmodifiable map of each file to its OSGi metadata, in the iteration order of the given files
+    */
+   public static Map<File, OsgiBundleMetadata> scan(Collection<File> files) {
+      Preconditions.checkNotNull(files, "files may not be null!");
+      List<File> distinctFiles = files.stream().distinct().collect(Collectors.toList());
+      int threads = Math.min(Math.min(MAX_SCAN_THREADS, Runtime.getRuntime().availableProcessors()),
+               distinctFiles.size());
+      Map<File, OsgiBundleMetadata> metadata = new LinkedHashMap<>();
+      if (threads <= 1) {
+         for (File file : distinctFiles) {
+            metadata.put(file, getBundleMetadata(file));
+         }
+         return Collections.unmodifiableMap(metadata);
+      }
+
+      AtomicInteger threadCount = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+         Thread thread = new Thread(runnable, "osgi-bundle-scanner-" + threadCount.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+      try {
+         List<Future<OsgiBundleMetadata>> futures = new ArrayList<>(distinctFiles.size());
+         for (File file : distinctFiles) {
+            futures.add(executor.submit(() -> getBundleMetadata(file)));
+         }
+         for (int i = 0; i < distinctFiles.size(); i++) {
+            metadata.put(distinctFiles.get(i), futures.get(i).get());
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new GradleException("Interrupted while reading bundle manifests", e);
+      } catch (ExecutionException e) {
+         Throwables.throwIfUnchecked(e.getCause());
+         throw new GradleException("Unable to read bundle manifest", e.getCause());
+      } finally {
+         executor.shutdownNow();
+      }
+      return Collections.unmodifiableMap(metadata);
+   }
+
+   private void resolveAllVersions(Configuration configuration, ResolvableDependencies dependencies,
+            BiConsumer<ComponentIdentifier, File> action) {
+      Attribute<Boolean> attribute = Attribute.of(INCLUDE_CONFLICTING_VERSIONS_ATTRIBUTE_NAME, Boolean.class);
+      final boolean shouldResolve = !configuration.getAttributes().contains(attribute)
+               || configuration.getAttributes().getAttribute(attribute);
+      if (shouldResolve) {
+         resolveConflictingVersions(dependencies.getResolutionResult(), configuration.isTransitive(), action);
+      }
+      resolveDependencies(configuration, action);
+   }
+
+   /**
+    * Gradle doesn't have a built-in way of including all versions of the same module dependency. This resolves the
+    * versions of dependencies that were overwritten in the given result with extra detached configurations. All of
+    * the conflicting versions found in one round are resolved together in a single configuration; since a
+    * configuration can only contain one version of a module, other versions of the same module and any new conflicts
+    * found while resolving that configuration are deferred to the next round. Module versions that have already been
+    * resolved are never resolved again. The transitive dependencies of one member of a round may upgrade another member
+    * of the same round; such members are resolved again, each in its own configuration, so that the requested version
+    * is used instead of the upgraded one.
+    */
+   private void resolveConflictingVersions(ResolutionResult result, boolean transitive,
+            BiConsumer<ComponentIdentifier, File> action) {
+      Set<String> resolved = new HashSet<>();
+      Set<String> requested = new HashSet<>();
+      Deque<ModuleComponentSelector> pending = new ArrayDeque<>();
+      collectConflictingVersions(result, resolved, requested, pending);
+      while (!pending.isEmpty()) {
+         Map<String, ModuleComponentSelector> round = new LinkedHashMap<>();
+         for (Iterator<ModuleComponentSelector> i = pending.iterator(); i.hasNext();) {
+            ModuleComponentSelector selector = i.next();
+            if (round.putIfAbsent(selector.getGroup() + ':' + selector.getModule(), selector) == null) {
+               i.remove();
+            }
+         }
+         Configuration detached = detachedConfiguration(round.values(), transitive);
+         ResolutionResult roundResult = detached.getIncoming().getResolutionResult();
+         collectConflictingVersions(roundResult, resolved, requested, pending);
+         Set<String> upgraded = findUpgradedModules(roundResult);
+         resolveDependencies(detached,
+                  dependency -> !upgraded.contains(dependency.getGroup() + ':' + dependency.getName()),
+                  action);
+         for (String module : upgraded) {
+            Configuration alone = detachedConfiguration(Collections.singleton(round.get(module)), transitive);
+            collectConflictingVersions(alone.getIncoming().getResolutionResult(), resolved, requested, pending);
+            resolveDependencies(alone, action);
+         }
+      }
+   }
+
+   private Configuration detachedConfiguration(Collection<ModuleComponentSelector> selectors, boolean transitive) {
+      Dependency[] dependencies = selectors.stream()
+               .map(c -> project.getDependencies().create(toCoordinates(c)))
+               .toArray(Dependency[]::new);
+      Configuration detached = project.getConfigurations().detachedConfiguration(dependencies);
+      detached.setTransitive(transitive);
+      return detached;
+   }
+
+   /**
+    * Returns the modules of the first-level dependencies in the given result that were not selected at the requested
+    * version.
+    */
+   private Set<String> findUpgradedModules(ResolutionResult result) {
+      Set<String> upgraded = new HashSet<>();
+      for (DependencyResult dependency : result.getRoot().getDependencies()) {
+         if (dependency instanceof ResolvedDependencyResult
+                  && dependency.getRequested() instanceof ModuleComponentSelector) {
+            ModuleComponentSelector c = (ModuleComponentSelector) dependency.getRequested();
+            if (!isSelected(c, ((ResolvedDependencyResult) dependency).getSelected())) {
+               upgraded.add(c.getGroup() + ':' + c.getModule());
+            }
+         }
+      }
+      return upgraded;
+   }
+
+   private void collectConflictingVersions(ResolutionResult result, Set<String> resolved, Set<String> requested,
+            Deque<ModuleComponentSelector> pending) {
+      for (ResolvedComponentResult component : result.getAllComponents()) {
+         ModuleVersionIdentifier id = component.getModuleVersion();
+         if (id != null) {
+            resolved.add(id.getGroup() + ':' + id.getName() + ':' + id.getVersion());
+         }
+      }
+      result.allDependencies(dependency -> {
+         if (dependency instanceof ResolvedDependencyResult
+                  && dependency.getRequested() instanceof ModuleComponentSelector) {
+            ModuleComponentSelector c = (ModuleComponentSelector) dependency.getRequested();
+            ResolvedComponentResult selected = ((ResolvedDependencyResult) dependency).getSelected();
+            String coordinates = toCoordinates(c);
+            if (!isSelected(c, selected)
+                     && !resolved.contains(coordinates)
+                     && requested.add(coordinates)) {
+               pending.add(c);
+            }
          }
-         resolveDependencies(configuration, action);
       });
    }
 
+   private boolean isSelected(ModuleComponentSelector requested, ResolvedComponentResult selected) {
+      DefaultResolvedVersionConstraint constraint =
+               new DefaultResolvedVersionConstraint(requested.getVersionConstraint(), versionSelectorscheme);
+      VersionSelector selector = constraint.getPreferredSelector();
+      return selector.accept(selected.getModuleVersion().getVersion());
+   }
+
+   private static String toCoordinates(ModuleComponentSelector selector) {
+      return String.format("%s:%s:%s", selector.getGroup(), selector.getModule(), selector.getVersion());
+   }
+
    private static void resolveDependencies(Configuration configuration, BiConsumer<ComponentIdentifier, File> action) {
+      resolveDependencies(configuration, dependency -> true, action);
+   }
+
+   private static void resolveDependencies(Configuration configuration, Predicate<Dependency> filter,
+            BiConsumer<ComponentIdentifier, File> action) {
+      FirstLevelDependencyIndex index = new FirstLevelDependencyIndex(configuration.getResolvedConfiguration());
       for (Dependency dependency : configuration.getAllDependencies()) {
-         resolveDependency(configuration, dependency, action);
+         if (filter.test(dependency)) {
+            resolveDependency(configuration, index, dependency, action);
+         }
       }
    }
 
-   private static void resolveDependency(Configuration configuration, Dependency dependency,
-            BiConsumer<ComponentIdentifier, File> action) {
+   private static void resolveDependency(Configuration configuration, FirstLevelDependencyIndex index,
+            Dependency dependency, BiConsumer<ComponentIdentifier, File> action) {
       if (dependency instanceof ModuleDependency) {
-         resolveModuleDependency(configuration, (ModuleDependency) dependency, action);
+         resolveModuleDependency(index, (ModuleDependency) dependency, action);
       } else {
          resolveOtherDependency(configuration, dependency, action);
       }
    }
 
-   private static void resolveModuleDependency(Configuration configuration, ModuleDependency dependency,
+   private static void resolveModuleDependency(FirstLevelDependencyIndex index, ModuleDependency dependency,
             BiConsumer<ComponentIdentifier, File> action) {
-      ResolvedConfiguration resolvedConfiguration = configuration.getResolvedConfiguration();
-      for (ResolvedDependency resolved : resolvedConfiguration
-               .getFirstLevelModuleDependencies(dependency::equals)) {
+      for (ResolvedDependency resolved : index.get(dependency)) {
          for (ResolvedArtifact artifact : resolved.getAllModuleArtifacts()) {
             action.accept(artifact.getId().getComponentIdentifier(), artifact.getFile());
          }
@@ -292,6 +469,56 @@ public class OsgiResolver {
       }
    }
 
+   /**
+    * An action that is called for a resolved file and its OSGi metadata.
+    */
+   @FunctionalInterface
+   public interface BundleAction {
+
+      /**
+       * Performs this action.
+       *
+       * @param identifier the component the file was resolved from
+       * @param file       the resolved file
+       * @param metadata   the OSGi metadata of the file
+       */
+      void execute(ComponentIdentifier identifier, File file, OsgiBundleMetadata metadata);
+   }
+
+   /**
+    * Index of the first-level dependencies of a resolved configuration by module. Looking up the resolved dependencies
+    * of a {@link Dependency} with {@link ResolvedConfiguration#getFirstLevelModuleDependencies(Spec)} scans all of the
+    * first-level dependencies, which is quadratic when done for every dependency of a large configuration. This index
+    * is built once and answers most lookups directly. When a module cannot be matched unambiguously (for example, when
+    * multiple configurations of the same module are depended on or a dependency was substituted), the lookup falls
+    * back to scanning the resolved configuration.
+    */
+   private static class FirstLevelDependencyIndex {
+
+      private final ResolvedConfiguration resolvedConfiguration;
+      private final Map<String, List<ResolvedDependency>> dependencies = new HashMap<>();
+
+      private FirstLevelDependencyIndex(ResolvedConfiguration resolvedConfiguration) {
+         this.resolvedConfiguration = resolvedConfiguration;
+         for (ResolvedDependency dependency : resolvedConfiguration.getFirstLevelModuleDependencies()) {
+            dependencies.computeIfAbsent(getKey(dependency.getModuleGroup(), dependency.getModuleName()),
+                     key -> new ArrayList<>(1)).add(dependency);
+         }
+      }
+
+      Collection<ResolvedDependency> get(ModuleDependency dependency) {
+         List<ResolvedDependency> matches = dependencies.get(getKey(dependency.getGroup(), dependency.getName()));
+         if (matches != null && matches.size() == 1) {
+            return matches;
+         }
+         return resolvedConfiguration.getFirstLevelModuleDependencies(dependency::equals);
+      }
+
+      private static String getKey(String group, String name) {
+         return (group == null ? "" : group) + ':' + name;
+      }
+   }
+
    private static class UnknownFileDependencyComponentIdentifier
             implements ModuleComponentIdentifier, ModuleIdentifier {
 
@@ -0,0 +1,208 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import com.google.common.base.Preconditions;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provisions the tools that are run by builds, such as lcov, cppcheck, RATS and bats, from their release archives.
+ * Each archive is extracted once into a cache directory at {@code <tool>/<version>/<checksum>}, where the checksum is
+ * the SHA-256 checksum of the archive, and the extracted tool is shared by all projects and builds that use the cache.
+ * Builds that provision the same version of a tool from different archives therefore use different directories.
+ *
+ * <p>
+ * The {@link #getInstance(Gradle) shared provisioner} caches tools at {@value #CACHE_DIRECTORY_NAME} in the Gradle
+ * user home. Tools are extracted with {@link ArchiveExtractor#extractLocked(File, String, Path, String)}, so
+ * concurrent builds do not extract the same tool at the same time and a tool is only used once the marker file
+ * {@value #MARKER_FILE_NAME} in its directory shows it was completely extracted. Cached tools must not be modified.
+ */
+public class ToolProvisioner {
+
+   /**
+    * The location of the shared cache, relative to the Gradle user home.
+    */
+   public static final String CACHE_DIRECTORY_NAME = "caches/seaside/tools";
+
+   /**
+    * The name of the marker file written to the directory of every provisioned tool.
+    */
+   public static final String MARKER_FILE_NAME = ".provisioned.sha256";
+
+   private static final Logger LOGGER = Logging.getLogger(ToolProvisioner.class);
+
+   private static final Map<Path, ToolProvisioner> PROVISIONERS = new ConcurrentHashMap<>();
+
+   private final Path root;
+   private final Map<String, Provisioned> provisioned = new ConcurrentHashMap<>();
+
+   ToolProvisioner(Path root) {
+      this.root = root;
+   }
+
+   /**
+    * Returns the provisioner shared by all of the builds using the Gradle user home of the given build.
+    *
+    * @param gradle the build
+    * @return the shared provisioner
+    */
+   public static ToolProvisioner getInstance(Gradle gradle) {
+      Preconditions.checkNotNull(gradle, "gradle may not be null!");
+      Path root = gradle.getGradleUserHomeDir().toPath().resolve(CACHE_DIRECTORY_NAME).toAbsolutePath();
+      return PROVISIONERS.computeIfAbsent(root, ToolProvisioner::new);
+   }
+
+   /**
+    * Provisions the given version of a tool from its release archive. The archive is only extracted if the tool has
+    * not been provisioned from the same archive before. Provisioning the same archive again within the same JVM does
+    * not read the archive unless its size or last modified time has changed.
+    *
+    * @param name    the name of the tool
+    * @param version the version of the tool
+    * @param archive the zip archive of the tool
+    * @return the provisioned tool
+    * @throws GradleException       if the archive does not exist
+    * @throws UncheckedIOException if the tool cannot be extracted
+    */
+   public Tool provision(String name, String version, File archive) {
+      Preconditions.checkArgument(name != null && !name.trim().isEmpty(), "name may not be null or empty!");
+      Preconditions.checkArgument(version != null && !version.trim().isEmpty(), "version may not be null or empty!");
+      Preconditions.checkNotNull(archive, "archive may not be null!");
+      File absoluteArchive = archive.getAbsoluteFile();
+      if (!absoluteArchive.isFile()) {
+         throw new GradleException("The archive of " + name + " " + version + " does not exist: " + archive);
+      }
+      long size = absoluteArchive.length();
+      long lastModified = absoluteArchive.lastModified();
+      Provisioned previous = provisioned.get(absoluteArchive.getPath());
+      if (previous != null && previous.size == size && previous.lastModified == lastModified
+               && previous.tool.getDirectory().isDirectory()) {
+         return previous.tool;
+      }
+
+      Path directory;
+      try {
+         String checksum = ArchiveExtractor.checksum(absoluteArchive);
+         directory = root.resolve(name).resolve(version).resolve(checksum);
+         ArchiveExtractor.extractLocked(absoluteArchive, checksum, directory, MARKER_FILE_NAME);
+      } catch (IOException e) {
+         throw new UncheckedIOException("Unable to provision " + name + " " + version + " from " + archive, e);
+      }
+
+      Tool tool = new Tool(name, version, directory.toFile());
+      provisioned.put(absoluteArchive.getPath(), new Provisioned(size, lastModified, tool));
+      return tool;
+   }
+
+   /**
+    * A tool that has been provisioned into the cache.
+    */
+   public static final class Tool {
+
+      private final String name;
+      private final String version;
+      private final File directory;
+
+      private Tool(String name, String version, File directory) {
+         this.name = name;
+         this.version = version;
+         this.directory = directory;
+      }
+
+      public String getName() {
+         return name;
+      }
+
+      public String getVersion() {
+         return version;
+      }
+
+      /**
+       * Returns the directory the archive of the tool was extracted to.
+       *
+       * @return the directory of the tool
+       */
+      public File getDirectory() {
+         return directory;
+      }
+
+      /**
+       * Returns a file of the tool.
+       *
+       * @param path the path of the file relative to the directory of the tool
+       * @return the file
+       * @throws GradleException if the file does not exist
+       */
+      public File getFile(String path) {
+         File file = new File(directory, path);
+         if (!file.isFile()) {
+            throw new GradleException(name + " " + version + " does not contain " + path + " in " + directory);
+         }
+         return file;
+      }
+
+      /**
+       * Returns an executable of the tool, making the file executable if the archive did not record its mode.
+       *
+       * @param path the path of the executable relative to the directory of the tool
+       * @return the absolute path of the executable
+       * @throws GradleException if the executable does not exist
+       */
+      public String getExecutable(String path) {
+         File file = getFile(path);
+         if (!file.canExecute() && !file.setExecutable(true, false)) {
+            LOGGER.warn("Unable to make {} executable", file);
+         }
+         return file.getAbsolutePath();
+      }
+
+      @Override
+      public String toString() {
+         return name + " " + version + " (" + directory + ")";
+      }
+   }
+
+   private static class Provisioned {
+
+      private final long size;
+      private final long lastModified;
+      private final Tool tool;
+
+      private Provisioned(long size, long lastModified, Tool tool) {
+         this.size = size;
+         this.lastModified = lastModified;
+         this.tool = tool;
+      }
+   }
+}
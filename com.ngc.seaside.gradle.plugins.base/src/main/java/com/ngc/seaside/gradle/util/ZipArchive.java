@@ -0,0 +1,775 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * A read-only view of the entries of a zip archive that gives access to both the compressed and uncompressed data of
+ * each entry.
+ *
+ * <p>
+ * Unlike {@link ZipFile}, the compressed data of an entry can be {@link ZipArchiveWriter#copyEntry copied} to another
+ * archive without inflating and deflating it again. The central directory is read once when the archive is opened;
+ * ZIP64 archives and archives with prepended data are supported. The entries of an archive may be read concurrently
+ * from multiple threads.
+ */
+public final class ZipArchive implements Closeable {
+
+   static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+   static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+   static final int END_SIGNATURE = 0x06054b50;
+   static final int ZIP64_END_SIGNATURE = 0x06064b50;
+   static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+   static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+
+   static final int LOCAL_HEADER_SIZE = 30;
+   static final int CENTRAL_HEADER_SIZE = 46;
+   static final int END_SIZE = 22;
+   static final int ZIP64_END_SIZE = 56;
+   static final int ZIP64_LOCATOR_SIZE = 20;
+   static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+   static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+   static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+   static final int ENCRYPTED_FLAG = 0x1;
+   static final int DATA_DESCRIPTOR_FLAG = 0x8;
+   static final int UNIX_HOST = 3;
+
+   private final File file;
+   private final FileChannel channel;
+   private final List<Entry> entries;
+
+   private ZipArchive(File file, FileChannel channel, List<Entry> entries) {
+      this.file = file;
+      this.channel = channel;
+      this.entries = entries;
+   }
+
+   /**
+    * Opens the given archive and reads its central directory.
+    *
+    * @param file the archive
+    * @return the opened archive
+    * @throws ZipException if the file is not a zip archive
+    * @throws IOException if the file cannot be read
+    */
+   public static ZipArchive open(File file) throws IOException {
+      Preconditions.checkNotNull(file, "file may not be null!");
+      FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      try {
+         CentralDirectory directory = findCentralDirectory(channel, file);
+         ByteBuffer headers = read(channel, directory.position, directory.size);
+         List<Entry> entries = new ArrayList<>();
+         int position = 0;
+         while (position + CENTRAL_HEADER_SIZE <= headers.limit()) {
+            Entry entry = Entry.parse(headers, position, directory.prefixLength, file);
+            entries.add(entry);
+            position += entry.centralHeaderLength;
+         }
+         return new ZipArchive(file, channel, Collections.unmodifiableList(entries));
+      } catch (IOException | RuntimeException e) {
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Returns the archive file.
+    *
+    * @return the archive file
+    */
+   public File getFile() {
+      return file;
+   }
+
+   /**
+    * Returns the entries of this archive in the order of its central directory.
+    *
+    * @return the entries of this archive
+    */
+   public List<Entry> getEntries() {
+      return entries;
+   }
+
+   /**
+    * Returns a stream of the uncompressed content of the given entry. The size and CRC of the content are verified
+    * when the end of the stream is reached.
+    *
+    * @param entry an entry of this archive
+    * @return a stream of the content of the entry
+    * @throws ZipException if the entry is not supported
+    * @throws IOException if the archive cannot be read
+    */
+   public InputStream getInputStream(Entry entry) throws IOException {
+      if ((entry.flags & ENCRYPTED_FLAG) != 0) {
+         throw new ZipException("encrypted zip entries are not supported: " + file);
+      }
+      long dataPosition = getDataPosition(channel, file, entry);
+      InputStream raw = new ChannelInputStream(channel, dataPosition, entry.compressedSize);
+      InputStream content;
+      switch (entry.method) {
+         case ZipEntry.STORED:
+            content = raw;
+            break;
+         case ZipEntry.DEFLATED:
+            content = new InflaterInputStream(new PaddedInputStream(raw), new Inflater(true), 8192) {
+               @Override
+               public void close() throws IOException {
+                  super.close();
+                  inf.end();
+               }
+            };
+            break;
+         default:
+            throw new ZipException("unsupported compression method " + entry.method + " in " + file);
+      }
+      return new VerifyingInputStream(content, entry, file);
+   }
+
+   /**
+    * Extracts all of the entries of this archive into the given directory. The Unix file modes of the entries are
+    * applied if the archive records them and the file system supports them.
+    *
+    * @param destination the directory to extract the entries into
+    * @throws ZipException if an entry is not supported or would be extracted outside of the directory
+    * @throws IOException if the archive cannot be read or the entries cannot be written
+    */
+   public void extract(File destination) throws IOException {
+      Preconditions.checkNotNull(destination, "destination may not be null!");
+      Path root = destination.toPath().toAbsolutePath().normalize();
+      for (Entry entry : entries) {
+         Path target = root.resolve(entry.name).normalize();
+         if (!target.startsWith(root) || target.equals(root)) {
+            throw new ZipException("entry " + entry.name + " of " + file + " is outside of " + destination);
+         }
+         if (entry.isDirectory()) {
+            Files.createDirectories(target);
+            continue;
+         }
+         Files.createDirectories(target.getParent());
+         try (InputStream in = getInputStream(entry)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+         }
+         int mode = entry.getUnixMode() & 0777;
+         if (mode != 0) {
+            setMode(target, mode);
+         }
+      }
+   }
+
+   /**
+    * Transfers the compressed data of the given entry to the given channel.
+    */
+   void transferCompressedData(Entry entry, WritableByteChannel target) throws IOException {
+      long position = getDataPosition(channel, file, entry);
+      long remaining = entry.compressedSize;
+      if (position + remaining > channel.size()) {
+         throw new ZipException("unexpected end of zip file " + file);
+      }
+      while (remaining > 0) {
+         long count = channel.transferTo(position, remaining, target);
+         if (count <= 0) {
+            throw new ZipException("unexpected end of zip file " + file);
+         }
+         position += count;
+         remaining -= count;
+      }
+   }
+
+   @Override
+   public void close() throws IOException {
+      channel.close();
+   }
+
+   /**
+    * Sets the permissions of the given file to the given Unix mode if the file system supports it.
+    */
+   private static void setMode(Path path, int mode) throws IOException {
+      Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+      PosixFilePermission[] values = PosixFilePermission.values();
+      for (int i = 0; i < values.length; i++) {
+         // PosixFilePermission is declared in order from OWNER_READ (0400) to OTHERS_EXECUTE (0001)
+         if ((mode & (1 << (values.length - 1 - i))) != 0) {
+            permissions.add(values[i]);
+         }
+      }
+      try {
+         Files.setPosixFilePermissions(path, permissions);
+      } catch (UnsupportedOperationException e) {
+         // Permissions are not supported on this file system
+      }
+   }
+
+   /**
+    * Reads the uncompressed content of the given entry.
+    */
+   static byte[] readContent(FileChannel channel, File file, Entry entry) throws IOException {
+      if ((entry.flags & ENCRYPTED_FLAG) != 0) {
+         throw new ZipException("encrypted zip entries are not supported: " + file);
+      }
+      if (entry.size > Integer.MAX_VALUE || entry.compressedSize > Integer.MAX_VALUE) {
+         throw new ZipException("zip entry is too large: " + file);
+      }
+      long dataPosition = getDataPosition(channel, file, entry);
+      byte[] data;
+      switch (entry.method) {
+         case ZipEntry.STORED:
+            data = readBytes(channel, dataPosition, (int) entry.compressedSize, 0);
+            break;
+         case ZipEntry.DEFLATED:
+            data = inflate(readBytes(channel, dataPosition, (int) entry.compressedSize, 1), (int) entry.size, file);
+            break;
+         default:
+            throw new ZipException("unsupported compression method " + entry.method + " in " + file);
+      }
+
+      CRC32 checksum = new CRC32();
+      checksum.update(data, 0, data.length);
+      if (data.length != entry.size || checksum.getValue() != entry.crc) {
+         throw new ZipException("invalid entry size or CRC in " + file);
+      }
+      return data;
+   }
+
+   static CentralDirectory findCentralDirectory(FileChannel channel, File file) throws IOException {
+      long fileSize = channel.size();
+      if (fileSize < END_SIZE) {
+         throw new ZipException("zip file is empty or too small: " + file);
+      }
+      int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+      long tailPosition = fileSize - tailSize;
+      ByteBuffer tail = read(channel, tailPosition, tailSize);
+      int end = -1;
+      for (int i = tailSize - END_SIZE; i >= 0; i--) {
+         if (tail.getInt(i) == END_SIGNATURE && i + END_SIZE + unsignedShort(tail, i + 20) <= tailSize) {
+            end = i;
+            break;
+         }
+      }
+      if (end < 0) {
+         throw new ZipException("zip END header not found: " + file);
+      }
+      long endPosition = tailPosition + end;
+      int count = unsignedShort(tail, end + 10);
+      long size = unsignedInt(tail, end + 12);
+      long offset = unsignedInt(tail, end + 16);
+      if (count == ZIP64_MAGIC_COUNT || size == ZIP64_MAGIC || offset == ZIP64_MAGIC) {
+         return findZip64CentralDirectory(channel, file, endPosition);
+      }
+      // The central directory immediately precedes the end record; any difference from the recorded offset is data
+      // prepended to the archive, which also shifts the local headers.
+      long position = endPosition - size;
+      if (position < 0) {
+         throw new ZipException("invalid central directory size in " + file);
+      }
+      return new CentralDirectory(position, size, position - offset);
+   }
+
+   private static CentralDirectory findZip64CentralDirectory(FileChannel channel, File file, long endPosition)
+            throws IOException {
+      long locatorPosition = endPosition - ZIP64_LOCATOR_SIZE;
+      if (locatorPosition < 0) {
+         throw new ZipException("zip64 END locator not found: " + file);
+      }
+      ByteBuffer locator = read(channel, locatorPosition, ZIP64_LOCATOR_SIZE);
+      if (locator.getInt(0) != ZIP64_LOCATOR_SIGNATURE) {
+         throw new ZipException("zip64 END locator not found: " + file);
+      }
+      long zip64EndPosition = locator.getLong(8);
+      if (!isZip64End(channel, zip64EndPosition, locatorPosition)) {
+         // Prepended data shifts the recorded position; without extensible data, the ZIP64 end record immediately
+         // precedes the locator.
+         zip64EndPosition = locatorPosition - ZIP64_END_SIZE;
+         if (!isZip64End(channel, zip64EndPosition, locatorPosition)) {
+            throw new ZipException("zip64 END header not found: " + file);
+         }
+      }
+      ByteBuffer zip64End = read(channel, zip64EndPosition, ZIP64_END_SIZE);
+      long size = zip64End.getLong(40);
+      long offset = zip64End.getLong(48);
+      // As with the END record, the central directory immediately precedes the ZIP64 end record.
+      long position = zip64EndPosition - size;
+      if (size < 0 || position < 0) {
+         throw new ZipException("invalid central directory size in " + file);
+      }
+      return new CentralDirectory(position, size, position - offset);
+   }
+
+   /**
+    * Returns {@code true} if a ZIP64 end record that ends at the locator starts at the given position.
+    */
+   private static boolean isZip64End(FileChannel channel, long position, long locatorPosition) throws IOException {
+      if (position < 0 || position + ZIP64_END_SIZE > locatorPosition) {
+         return false;
+      }
+      ByteBuffer zip64End = read(channel, position, ZIP64_END_SIZE);
+      // The record size excludes the signature and the size field itself.
+      return zip64End.getInt(0) == ZIP64_END_SIGNATURE && position + 12 + zip64End.getLong(4) == locatorPosition;
+   }
+
+   private static long getDataPosition(FileChannel channel, File file, Entry entry) throws IOException {
+      ByteBuffer localHeader = read(channel, entry.localHeaderPosition, LOCAL_HEADER_SIZE);
+      if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+         throw new ZipException("invalid local header in " + file);
+      }
+      return entry.localHeaderPosition + LOCAL_HEADER_SIZE
+               + unsignedShort(localHeader, 26)
+               + unsignedShort(localHeader, 28);
+   }
+
+   private static byte[] inflate(byte[] compressed, int size, File file) throws ZipException {
+      Inflater inflater = new Inflater(true);
+      try {
+         // The input ends with an extra dummy byte, which is required by nowrap inflaters.
+         inflater.setInput(compressed);
+         byte[] data = new byte[size];
+         int length = 0;
+         while (length < size && !inflater.finished()) {
+            int count = inflater.inflate(data, length, size - length);
+            if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+               break;
+            }
+            length += count;
+         }
+         if (length != size) {
+            throw new ZipException("invalid compressed entry in " + file);
+         }
+         return data;
+      } catch (DataFormatException e) {
+         throw new ZipException("invalid compressed entry in " + file + ": " + e.getMessage());
+      } finally {
+         inflater.end();
+      }
+   }
+
+   /**
+    * Reads a region of the archive with a positional read. The regions read are small, so they are not memory-mapped;
+    * mappings are only released when they are garbage collected, which leaks address space and keeps the archive
+    * locked on Windows.
+    */
+   static ByteBuffer read(FileChannel channel, long position, long size) throws IOException {
+      if (size > Integer.MAX_VALUE || position < 0 || position + size > channel.size()) {
+         throw new ZipException("invalid zip structure");
+      }
+      return ByteBuffer.wrap(readBytes(channel, position, (int) size, 0)).order(ByteOrder.LITTLE_ENDIAN);
+   }
+
+   private static byte[] readBytes(FileChannel channel, long position, int size, int padding) throws IOException {
+      if (position < 0 || position + size > channel.size()) {
+         throw new ZipException("invalid zip structure");
+      }
+      byte[] bytes = new byte[size + padding];
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+      while (buffer.hasRemaining()) {
+         if (channel.read(buffer, position + buffer.position()) < 0) {
+            throw new ZipException("unexpected end of zip file");
+         }
+      }
+      return bytes;
+   }
+
+   static int unsignedShort(ByteBuffer buffer, int position) {
+      return buffer.getShort(position) & 0xFFFF;
+   }
+
+   static long unsignedInt(ByteBuffer buffer, int position) {
+      return buffer.getInt(position) & 0xFFFFFFFFL;
+   }
+
+   /**
+    * An entry of a zip archive as described by the archive's central directory.
+    */
+   public static final class Entry {
+
+      private final String name;
+      private final byte[] rawName;
+      private final int versionMadeBy;
+      private final int versionNeeded;
+      private final int flags;
+      private final int method;
+      private final long dosTime;
+      private final long crc;
+      private final long compressedSize;
+      private final long size;
+      private final int internalAttributes;
+      private final long externalAttributes;
+      private final long localHeaderPosition;
+      private final int centralHeaderLength;
+
+      private Entry(byte[] rawName, int versionMadeBy, int versionNeeded, int flags, int method, long dosTime,
+               long crc, long compressedSize, long size, int internalAttributes, long externalAttributes,
+               long localHeaderPosition, int centralHeaderLength) {
+         this.name = new String(rawName, StandardCharsets.UTF_8);
+         this.rawName = rawName;
+         this.versionMadeBy = versionMadeBy;
+         this.versionNeeded = versionNeeded;
+         this.flags = flags;
+         this.method = method;
+         this.dosTime = dosTime;
+         this.crc = crc;
+         this.compressedSize = compressedSize;
+         this.size = size;
+         this.internalAttributes = internalAttributes;
+         this.externalAttributes = externalAttributes;
+         this.localHeaderPosition = localHeaderPosition;
+         this.centralHeaderLength = centralHeaderLength;
+      }
+
+      /**
+       * Parses the central directory header at the given position.
+       */
+      static Entry parse(ByteBuffer headers, int position, long prefixLength, File file) throws ZipException {
+         if (headers.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+            throw new ZipException("invalid central directory header in " + file);
+         }
+         int nameLength = unsignedShort(headers, position + 28);
+         int extraLength = unsignedShort(headers, position + 30);
+         int commentLength = unsignedShort(headers, position + 32);
+         int headerLength = CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+         if (position + headerLength > headers.limit()) {
+            throw new ZipException("invalid central directory header in " + file);
+         }
+         long compressedSize = unsignedInt(headers, position + 20);
+         long size = unsignedInt(headers, position + 24);
+         long localHeaderOffset = unsignedInt(headers, position + 42);
+
+         // Values that do not fit in 32 bits are stored, in this order, in the ZIP64 extra field.
+         int extra = position + CENTRAL_HEADER_SIZE + nameLength;
+         int extraEnd = extra + extraLength;
+         while (extra + 4 <= extraEnd) {
+            int id = unsignedShort(headers, extra);
+            int length = unsignedShort(headers, extra + 2);
+            if (id == ZIP64_EXTRA_FIELD_ID) {
+               int field = extra + 4;
+               int fieldEnd = field + length;
+               if (fieldEnd > extraEnd) {
+                  throw new ZipException("invalid zip64 extra field in " + file);
+               }
+               if (size == ZIP64_MAGIC) {
+                  size = readZip64Value(headers, field, fieldEnd, file);
+                  field += 8;
+               }
+               if (compressedSize == ZIP64_MAGIC) {
+                  compressedSize = readZip64Value(headers, field, fieldEnd, file);
+                  field += 8;
+               }
+               if (localHeaderOffset == ZIP64_MAGIC) {
+                  localHeaderOffset = readZip64Value(headers, field, fieldEnd, file);
+               }
+               break;
+            }
+            extra += 4 + length;
+         }
+
+         byte[] rawName = new byte[nameLength];
+         for (int i = 0; i < nameLength; i++) {
+            rawName[i] = headers.get(position + CENTRAL_HEADER_SIZE + i);
+         }
+         return new Entry(rawName,
+                          unsignedShort(headers, position + 4),
+                          unsignedShort(headers, position + 6),
+                          unsignedShort(headers, position + 8),
+                          unsignedShort(headers, position + 10),
+                          unsignedInt(headers, position + 12),
+                          unsignedInt(headers, position + 16),
+                          compressedSize,
+                          size,
+                          unsignedShort(headers, position + 36),
+                          unsignedInt(headers, position + 38),
+                          localHeaderOffset + prefixLength,
+                          headerLength);
+      }
+
+      private static long readZip64Value(ByteBuffer headers, int position, int fieldEnd, File file)
+               throws ZipException {
+         if (position + 8 > fieldEnd) {
+            throw new ZipException("invalid zip64 extra field in " + file);
+         }
+         return headers.getLong(position);
+      }
+
+      /**
+       * Returns {@code true} if the name in the central directory header at the given position equals the given name.
+       * The rest of the header is not parsed, which makes scanning for a single entry cheap.
+       */
+      static boolean nameEquals(ByteBuffer headers, int position, byte[] name) {
+         int nameLength = unsignedShort(headers, position + 28);
+         int start = position + CENTRAL_HEADER_SIZE;
+         if (nameLength != name.length || start + nameLength > headers.limit()) {
+            return false;
+         }
+         for (int i = 0; i < nameLength; i++) {
+            if (headers.get(start + i) != name[i]) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      /**
+       * Returns the length of the central directory header at the given position.
+       */
+      static int headerLength(ByteBuffer headers, int position) {
+         return CENTRAL_HEADER_SIZE
+                  + unsignedShort(headers, position + 28)
+                  + unsignedShort(headers, position + 30)
+                  + unsignedShort(headers, position + 32);
+      }
+
+      public String getName() {
+         return name;
+      }
+
+      byte[] getRawName() {
+         return rawName;
+      }
+
+      public boolean isDirectory() {
+         return name.endsWith("/");
+      }
+
+      public int getMethod() {
+         return method;
+      }
+
+      public long getCrc() {
+         return crc;
+      }
+
+      public long getCompressedSize() {
+         return compressedSize;
+      }
+
+      public long getSize() {
+         return size;
+      }
+
+      /**
+       * Returns the Unix file mode of this entry, or 0 if the archive was not created on a Unix host and does not
+       * record a mode.
+       *
+       * @return the Unix file mode of this entry
+       */
+      public int getUnixMode() {
+         if ((versionMadeBy >> 8) != UNIX_HOST) {
+            return 0;
+         }
+         return (int) (externalAttributes >>> 16) & 0xFFFF;
+      }
+
+      int getVersionMadeBy() {
+         return versionMadeBy;
+      }
+
+      int getVersionNeeded() {
+         return versionNeeded;
+      }
+
+      int getFlags() {
+         return flags;
+      }
+
+      long getDosTime() {
+         return dosTime;
+      }
+
+      int getInternalAttributes() {
+         return internalAttributes;
+      }
+
+      long getExternalAttributes() {
+         return externalAttributes;
+      }
+
+      @Override
+      public String toString() {
+         return name;
+      }
+   }
+
+   static class CentralDirectory {
+
+      final long position;
+      final long size;
+      final long prefixLength;
+
+      private CentralDirectory(long position, long size, long prefixLength) {
+         this.position = position;
+         this.size = size;
+         this.prefixLength = prefixLength;
+      }
+   }
+
+   /**
+    * Reads a region of a file channel with positional reads so that multiple streams can share the channel.
+    */
+   private static class ChannelInputStream extends InputStream {
+
+      private final FileChannel channel;
+      private long position;
+      private long remaining;
+
+      private ChannelInputStream(FileChannel channel, long position, long length) {
+         this.channel = channel;
+         this.position = position;
+         this.remaining = length;
+      }
+
+      @Override
+      public int read() throws IOException {
+         byte[] b = new byte[1];
+         return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         if (remaining <= 0) {
+            return -1;
+         }
+         ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+         int count = channel.read(buffer, position);
+         if (count < 0) {
+            throw new ZipException("unexpected end of zip file");
+         }
+         position += count;
+         remaining -= count;
+         return count;
+      }
+   }
+
+   /**
+    * Appends the extra dummy byte required by nowrap inflaters to a stream.
+    */
+   private static class PaddedInputStream extends FilterInputStream {
+
+      private boolean padded;
+
+      private PaddedInputStream(InputStream in) {
+         super(in);
+      }
+
+      @Override
+      public int read() throws IOException {
+         byte[] b = new byte[1];
+         return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         int count = super.read(b, off, len);
+         if (count < 0 && !padded && len > 0) {
+            padded = true;
+            b[off] = 0;
+            return 1;
+         }
+         return count;
+      }
+   }
+
+   /**
+    * Verifies the size and CRC of the content of an entry when the end of the content is reached.
+    */
+   private static class VerifyingInputStream extends FilterInputStream {
+
+      private final Entry entry;
+      private final File file;
+      private final CRC32 crc = new CRC32();
+      private long count;
+      private boolean verified;
+
+      private VerifyingInputStream(InputStream in, Entry entry, File file) {
+         super(in);
+         this.entry = entry;
+         this.file = file;
+      }
+
+      @Override
+      public int read() throws IOException {
+         byte[] b = new byte[1];
+         return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         int read = super.read(b, off, len);
+         if (read > 0) {
+            crc.update(b, off, read);
+            count += read;
+         } else if (read < 0 && !verified) {
+            verified = true;
+            if (count != entry.size || crc.getValue() != entry.crc) {
+               throw new ZipException("invalid entry size or CRC for " + entry.name + " in " + file);
+            }
+         }
+         return read;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+         byte[] buffer = new byte[8192];
+         long skipped = 0;
+         while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+               break;
+            }
+            skipped += read;
+         }
+         return skipped;
+      }
+
+      @Override
+      public boolean markSupported() {
+         return false;
+      }
+   }
+}
@@ -0,0 +1,405 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a zip archive from entries of other {@link ZipArchive archives} without inflating and deflating their
+ * content.
+ *
+ * <p>
+ * The compressed data of each copied entry is transferred as-is, so its CRC, sizes, compression method, timestamp and
+ * attributes are preserved; only the name of the entry, its local header and the central directory are rewritten.
+ * ZIP64 records are written when the archive or an entry requires them.
+ */
+public final class ZipArchiveWriter implements Closeable {
+
+   private static final int VERSION_ZIP64 = 45;
+   private static final int VERSION_DEFAULT = 20;
+   private static final int UTF8_FLAG = 0x800;
+   private static final int UNIX_DIRECTORY_FLAG = 0040000;
+   private static final int UNIX_FILE_FLAG = 0100000;
+   private static final int LOCAL_HEADER_CRC_OFFSET = 14;
+
+   private final FileChannel channel;
+   private final List<CentralRecord> records = new ArrayList<>();
+   private long position;
+   private CentralRecord openEntry;
+   private boolean closed;
+
+   /**
+    * Creates a writer that writes a new archive to the given file, replacing any existing file.
+    *
+    * @param file the archive to write
+    * @throws IOException if the file cannot be created
+    */
+   public ZipArchiveWriter(File file) throws IOException {
+      Preconditions.checkNotNull(file, "file may not be null!");
+      this.channel = FileChannel.open(file.toPath(),
+                                      StandardOpenOption.CREATE,
+                                      StandardOpenOption.TRUNCATE_EXISTING,
+                                      StandardOpenOption.WRITE);
+   }
+
+   /**
+    * Copies the compressed data of the given entry of the given archive to this archive with the given name.
+    *
+    * @param source the archive containing the entry
+    * @param entry the entry to copy
+    * @param name the name of the entry in this archive
+    * @throws IOException if the entry cannot be copied
+    */
+   public void copyEntry(ZipArchive source, ZipArchive.Entry entry, String name) throws IOException {
+      Preconditions.checkNotNull(source, "source may not be null!");
+      Preconditions.checkNotNull(entry, "entry may not be null!");
+      Preconditions.checkNotNull(name, "name may not be null!");
+      Preconditions.checkState(openEntry == null, "the previous entry has not been ended!");
+      // The sizes are always known from the source's central directory, so a data descriptor is never needed
+      int flags = (entry.getFlags() & ~ZipArchive.DATA_DESCRIPTOR_FLAG) | UTF8_FLAG;
+      CentralRecord record = new CentralRecord(name.getBytes(StandardCharsets.UTF_8),
+                                               entry.getVersionMadeBy(),
+                                               entry.getVersionNeeded(),
+                                               flags,
+                                               entry.getMethod(),
+                                               entry.getDosTime(),
+                                               entry.getCrc(),
+                                               entry.getCompressedSize(),
+                                               entry.getSize(),
+                                               entry.getInternalAttributes(),
+                                               entry.getExternalAttributes(),
+                                               position);
+      writeLocalHeader(record);
+      source.transferCompressedData(entry, channel);
+      position += entry.getCompressedSize();
+      records.add(record);
+   }
+
+   /**
+    * Writes an empty directory entry with the given name.
+    *
+    * @param name the name of the directory, which should end with {@code /}
+    * @param unixMode the Unix permissions of the directory
+    * @param time the modification time of the directory in milliseconds since the epoch
+    * @throws IOException if the entry cannot be written
+    */
+   public void writeDirectory(String name, int unixMode, long time) throws IOException {
+      Preconditions.checkNotNull(name, "name may not be null!");
+      Preconditions.checkState(openEntry == null, "the previous entry has not been ended!");
+      String directoryName = name.endsWith("/") ? name : name + "/";
+      long externalAttributes = ((long) (UNIX_DIRECTORY_FLAG | (unixMode & 07777)) << 16) | 0x10;
+      CentralRecord record = new CentralRecord(directoryName.getBytes(StandardCharsets.UTF_8),
+                                               (ZipArchive.UNIX_HOST << 8) | VERSION_DEFAULT,
+                                               VERSION_DEFAULT,
+                                               UTF8_FLAG,
+                                               ZipEntry.STORED,
+                                               toDosTime(time),
+                                               0,
+                                               0,
+                                               0,
+                                               0,
+                                               externalAttributes,
+                                               position);
+      writeLocalHeader(record);
+      records.add(record);
+   }
+
+   /**
+    * Starts a deflated file entry with the given name whose compressed data is then written with
+    * {@link #writeCompressedData(byte[], int, int)}. The CRC and sizes of the entry are filled in by
+    * {@link #endEntry(long, long)}.
+    *
+    * @param name the name of the entry
+    * @param unixMode the Unix permissions of the file
+    * @param time the modification time of the file in milliseconds since the epoch
+    * @throws IOException if the header of the entry cannot be written
+    */
+   public void beginEntry(String name, int unixMode, long time) throws IOException {
+      Preconditions.checkNotNull(name, "name may not be null!");
+      Preconditions.checkState(openEntry == null, "the previous entry has not been ended!");
+      long externalAttributes = (long) (UNIX_FILE_FLAG | (unixMode & 07777)) << 16;
+      openEntry = new CentralRecord(name.getBytes(StandardCharsets.UTF_8),
+                                    (ZipArchive.UNIX_HOST << 8) | VERSION_DEFAULT,
+                                    VERSION_DEFAULT,
+                                    UTF8_FLAG,
+                                    ZipEntry.DEFLATED,
+                                    toDosTime(time),
+                                    0,
+                                    0,
+                                    0,
+                                    0,
+                                    externalAttributes,
+                                    position);
+      writeLocalHeader(openEntry);
+   }
+
+   /**
+    * Appends raw deflate data to the entry started by {@link #beginEntry(String, int, long)}.
+    *
+    * @param data the buffer containing the compressed data
+    * @param offset the offset of the data in the buffer
+    * @param length the length of the data
+    * @throws IOException if the data cannot be written
+    */
+   public void writeCompressedData(byte[] data, int offset, int length) throws IOException {
+      Preconditions.checkState(openEntry != null, "no entry has been started!");
+      ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+      while (buffer.hasRemaining()) {
+         position += channel.write(buffer);
+      }
+   }
+
+   /**
+    * Ends the entry started by {@link #beginEntry(String, int, long)} and updates its local header with the given
+    * CRC and size and the number of compressed bytes written.
+    *
+    * @param crc the CRC-32 of the uncompressed content of the entry
+    * @param size the uncompressed size of the entry
+    * @throws IOException if the local header cannot be updated or the entry requires ZIP64 sizes
+    */
+   public void endEntry(long crc, long size) throws IOException {
+      Preconditions.checkState(openEntry != null, "no entry has been started!");
+      long dataPosition = openEntry.localHeaderOffset + ZipArchive.LOCAL_HEADER_SIZE + openEntry.name.length;
+      long compressedSize = position - dataPosition;
+      if (size >= ZipArchive.ZIP64_MAGIC || compressedSize >= ZipArchive.ZIP64_MAGIC) {
+         throw new ZipException("entry " + new String(openEntry.name, StandardCharsets.UTF_8)
+                                      + " is too large to be streamed");
+      }
+      CentralRecord record = new CentralRecord(openEntry.name,
+                                               openEntry.versionMadeBy,
+                                               openEntry.versionNeeded,
+                                               openEntry.flags,
+                                               openEntry.method,
+                                               openEntry.dosTime,
+                                               crc,
+                                               compressedSize,
+                                               size,
+                                               openEntry.internalAttributes,
+                                               openEntry.externalAttributes,
+                                               openEntry.localHeaderOffset);
+      ByteBuffer sizes = buffer(12);
+      sizes.putInt((int) crc);
+      sizes.putInt((int) compressedSize);
+      sizes.putInt((int) size);
+      sizes.flip();
+      long sizesPosition = openEntry.localHeaderOffset + LOCAL_HEADER_CRC_OFFSET;
+      while (sizes.hasRemaining()) {
+         sizesPosition += channel.write(sizes, sizesPosition);
+      }
+      records.add(record);
+      openEntry = null;
+   }
+
+   @Override
+   public void close() throws IOException {
+      if (closed) {
+         return;
+      }
+      closed = true;
+      try {
+         writeCentralDirectory();
+      } finally {
+         channel.close();
+      }
+   }
+
+   private void writeLocalHeader(CentralRecord record) throws IOException {
+      boolean zip64 = record.size >= ZipArchive.ZIP64_MAGIC || record.compressedSize >= ZipArchive.ZIP64_MAGIC;
+      int extraLength = zip64 ? 20 : 0;
+      ByteBuffer header = buffer(ZipArchive.LOCAL_HEADER_SIZE + record.name.length + extraLength);
+      header.putInt(ZipArchive.LOCAL_HEADER_SIGNATURE);
+      header.putShort((short) (zip64 ? Math.max(VERSION_ZIP64, record.versionNeeded) : record.versionNeeded));
+      header.putShort((short) record.flags);
+      header.putShort((short) record.method);
+      header.putInt((int) record.dosTime);
+      header.putInt((int) record.crc);
+      header.putInt((int) (zip64 ? ZipArchive.ZIP64_MAGIC : record.compressedSize));
+      header.putInt((int) (zip64 ? ZipArchive.ZIP64_MAGIC : record.size));
+      header.putShort((short) record.name.length);
+      header.putShort((short) extraLength);
+      header.put(record.name);
+      if (zip64) {
+         header.putShort((short) ZipArchive.ZIP64_EXTRA_FIELD_ID);
+         header.putShort((short) 16);
+         header.putLong(record.size);
+         header.putLong(record.compressedSize);
+      }
+      write(header);
+   }
+
+   private void writeCentralDirectory() throws IOException {
+      long directoryPosition = position;
+      for (CentralRecord record : records) {
+         boolean zip64Size = record.size >= ZipArchive.ZIP64_MAGIC;
+         boolean zip64CompressedSize = record.compressedSize >= ZipArchive.ZIP64_MAGIC;
+         boolean zip64Offset = record.localHeaderOffset >= ZipArchive.ZIP64_MAGIC;
+         int zip64Length = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+         int extraLength = zip64Length == 0 ? 0 : 4 + zip64Length;
+         ByteBuffer header = buffer(ZipArchive.CENTRAL_HEADER_SIZE + record.name.length + extraLength);
+         header.putInt(ZipArchive.CENTRAL_HEADER_SIGNATURE);
+         header.putShort((short) record.versionMadeBy);
+         header.putShort((short) (zip64Length == 0 ? record.versionNeeded
+                  : Math.max(VERSION_ZIP64, record.versionNeeded)));
+         header.putShort((short) record.flags);
+         header.putShort((short) record.method);
+         header.putInt((int) record.dosTime);
+         header.putInt((int) record.crc);
+         header.putInt((int) (zip64CompressedSize ? ZipArchive.ZIP64_MAGIC : record.compressedSize));
+         header.putInt((int) (zip64Size ? ZipArchive.ZIP64_MAGIC : record.size));
+         header.putShort((short) record.name.length);
+         header.putShort((short) extraLength);
+         header.putShort((short) 0); // comment length
+         header.putShort((short) 0); // disk number
+         header.putShort((short) record.internalAttributes);
+         header.putInt((int) record.externalAttributes);
+         header.putInt((int) (zip64Offset ? ZipArchive.ZIP64_MAGIC : record.localHeaderOffset));
+         header.put(record.name);
+         if (zip64Length > 0) {
+            header.putShort((short) ZipArchive.ZIP64_EXTRA_FIELD_ID);
+            header.putShort((short) zip64Length);
+            if (zip64Size) {
+               header.putLong(record.size);
+            }
+            if (zip64CompressedSize) {
+               header.putLong(record.compressedSize);
+            }
+            if (zip64Offset) {
+               header.putLong(record.localHeaderOffset);
+            }
+         }
+         write(header);
+      }
+      long directorySize = position - directoryPosition;
+
+      boolean zip64 = records.size() >= ZipArchive.ZIP64_MAGIC_COUNT
+               || directorySize >= ZipArchive.ZIP64_MAGIC
+               || directoryPosition >= ZipArchive.ZIP64_MAGIC;
+      if (zip64) {
+         long zip64EndPosition = position;
+         ByteBuffer zip64End = buffer(ZipArchive.ZIP64_END_SIZE + ZipArchive.ZIP64_LOCATOR_SIZE);
+         zip64End.putInt(ZipArchive.ZIP64_END_SIGNATURE);
+         zip64End.putLong(ZipArchive.ZIP64_END_SIZE - 12);
+         zip64End.putShort((short) VERSION_ZIP64);
+         zip64End.putShort((short) VERSION_ZIP64);
+         zip64End.putInt(0);
+         zip64End.putInt(0);
+         zip64End.putLong(records.size());
+         zip64End.putLong(records.size());
+         zip64End.putLong(directorySize);
+         zip64End.putLong(directoryPosition);
+         zip64End.putInt(ZipArchive.ZIP64_LOCATOR_SIGNATURE);
+         zip64End.putInt(0);
+         zip64End.putLong(zip64EndPosition);
+         zip64End.putInt(1);
+         write(zip64End);
+      }
+
+      ByteBuffer end = buffer(ZipArchive.END_SIZE);
+      end.putInt(ZipArchive.END_SIGNATURE);
+      end.putShort((short) 0);
+      end.putShort((short) 0);
+      int count = Math.min(records.size(), ZipArchive.ZIP64_MAGIC_COUNT);
+      end.putShort((short) count);
+      end.putShort((short) count);
+      end.putInt((int) Math.min(directorySize, ZipArchive.ZIP64_MAGIC));
+      end.putInt((int) Math.min(directoryPosition, ZipArchive.ZIP64_MAGIC));
+      end.putShort((short) 0);
+      write(end);
+   }
+
+   private void write(ByteBuffer buffer) throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+         position += channel.write(buffer);
+      }
+   }
+
+   private static ByteBuffer buffer(int size) {
+      return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+   }
+
+   /**
+    * Converts the given time to the MS-DOS date and time format used by zip archives.
+    */
+   static long toDosTime(long time) {
+      LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+      if (date.getYear() < 1980) {
+         return (1 << 21) | (1 << 16);
+      }
+      return ((long) (date.getYear() - 1980) << 25)
+               | (date.getMonthValue() << 21)
+               | (date.getDayOfMonth() << 16)
+               | (date.getHour() << 11)
+               | (date.getMinute() << 5)
+               | (date.getSecond() >> 1);
+   }
+
+   private static class CentralRecord {
+
+      private final byte[] name;
+      private final int versionMadeBy;
+      private final int versionNeeded;
+      private final int flags;
+      private final int method;
+      private final long dosTime;
+      private final long crc;
+      private final long compressedSize;
+      private final long size;
+      private final int internalAttributes;
+      private final long externalAttributes;
+      private final long localHeaderOffset;
+
+      private CentralRecord(byte[] name, int versionMadeBy, int versionNeeded, int flags, int method, long dosTime,
+               long crc, long compressedSize, long size, int internalAttributes, long externalAttributes,
+               long localHeaderOffset) {
+         this.name = name;
+         this.versionMadeBy = versionMadeBy;
+         this.versionNeeded = versionNeeded;
+         this.flags = flags;
+         this.method = method;
+         this.dosTime = dosTime;
+         this.crc = crc;
+         this.compressedSize = compressedSize;
+         this.size = size;
+         this.internalAttributes = internalAttributes;
+         this.externalAttributes = externalAttributes;
+         this.localHeaderOffset = localHeaderOffset;
+      }
+   }
+}
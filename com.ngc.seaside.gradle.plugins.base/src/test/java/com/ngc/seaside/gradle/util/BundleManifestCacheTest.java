@@ -0,0 +1,132 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BundleManifestCacheTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private BundleManifestCache cache;
+
+   @Before
+   public void setup() {
+      cache = new BundleManifestCache();
+   }
+
+   @Test
+   public void testDoesReadBundleHeaders() throws Throwable {
+      File bundle = createJar("bundle.jar", "com.ngc.example;singleton:=true", "1.2.3");
+
+      OsgiBundleMetadata metadata = cache.get(bundle);
+      assertTrue(metadata.isBundle());
+      assertEquals("com.ngc.example", metadata.getSymbolicName().get());
+      assertEquals("1.2.3", metadata.getVersion().get());
+   }
+
+   @Test
+   public void testDoesHandleNonBundles() throws Throwable {
+      File plainJar = createJar("plain.jar", null, null);
+      File noManifest = folder.newFile("nomanifest.zip");
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(noManifest.toPath()))) {
+         out.putNextEntry(new ZipEntry("file.txt"));
+         out.closeEntry();
+      }
+      File notAZip = folder.newFile("file.txt");
+      Files.write(notAZip.toPath(), "text".getBytes());
+
+      OsgiBundleMetadata metadata = cache.get(plainJar);
+      assertFalse(metadata.isBundle());
+      assertEquals("0.0.0", metadata.getVersion().get());
+      assertEquals(OsgiBundleMetadata.NOT_A_BUNDLE, cache.get(noManifest));
+      assertEquals(OsgiBundleMetadata.NOT_A_BUNDLE, cache.get(notAZip));
+   }
+
+   @Test
+   public void testDoesReuseEntriesUntilArchiveChanges() throws Throwable {
+      File bundle = createJar("bundle.jar", "com.ngc.example", "1.0.0");
+      OsgiBundleMetadata first = cache.get(bundle);
+      assertSame(first, cache.get(bundle));
+
+      createJar("bundle.jar", "com.ngc.example", "1.0.0.SNAPSHOT");
+      bundle.setLastModified(bundle.lastModified() + 2000);
+      assertEquals("1.0.0.SNAPSHOT", cache.get(bundle).getVersion().get());
+   }
+
+   @Test
+   public void testDoesPersistEntries() throws Throwable {
+      File bundle = createJar("bundle.jar", "com.ngc.example", "1.0.0");
+      Path cacheFile = folder.getRoot().toPath().resolve("cache/osgi-manifests.bin");
+      OsgiBundleMetadata metadata = cache.get(bundle);
+      cache.save(cacheFile);
+      assertTrue(Files.isRegularFile(cacheFile));
+
+      // Overwrite the archive without changing its size or timestamp; the persisted entry should still be used.
+      long lastModified = bundle.lastModified();
+      Files.write(bundle.toPath(), new byte[(int) bundle.length()]);
+      assertTrue(bundle.setLastModified(lastModified));
+
+      BundleManifestCache loaded = new BundleManifestCache();
+      loaded.load(cacheFile);
+      assertEquals(metadata, loaded.get(bundle));
+      assertEquals(OsgiBundleMetadata.NOT_A_BUNDLE, new BundleManifestCache().get(bundle));
+   }
+
+   private File createJar(String name, String symbolicName, String version) throws IOException {
+      Manifest manifest = new Manifest();
+      Attributes attributes = manifest.getMainAttributes();
+      attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      if (symbolicName != null) {
+         attributes.putValue(OsgiResolver.BUNDLE_SYMBOLIC_NAME_PROPERTY, symbolicName);
+      }
+      if (version != null) {
+         attributes.putValue(OsgiResolver.BUNDLE_VERSION_PROPERTY, version);
+      }
+      File file = new File(folder.getRoot(), name);
+      try (OutputStream out = new JarOutputStream(Files.newOutputStream(file.toPath()), manifest)) {
+         out.flush();
+      }
+      return file;
+   }
+}
@@ -0,0 +1,154 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.gradle.BuildResult;
+import org.gradle.api.Action;
+import org.gradle.api.invocation.Gradle;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ContentAddressedStoreTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private ContentAddressedStore store;
+
+   @Before
+   public void setup() throws Throwable {
+      store = new ContentAddressedStore(folder.newFolder("store").toPath());
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testDoesReleaseSharedStoreWhenBuildFinishes() throws Throwable {
+      Gradle gradle = mock(Gradle.class);
+      when(gradle.getGradleUserHomeDir()).thenReturn(folder.newFolder("home"));
+
+      ContentAddressedStore shared = ContentAddressedStore.getInstance(gradle);
+      assertSame(shared, ContentAddressedStore.getInstance(gradle));
+
+      ArgumentCaptor<Action<? super BuildResult>> listener = ArgumentCaptor.forClass(Action.class);
+      verify(gradle).buildFinished(listener.capture());
+      listener.getValue().execute(mock(BuildResult.class));
+      assertNotSame(shared, ContentAddressedStore.getInstance(gradle));
+   }
+
+   @Test
+   public void testDoesStoreContentOnce() throws Throwable {
+      File file1 = createFile("file1.jar", "content");
+      File file2 = createFile("file2.jar", "content");
+      File file3 = createFile("file3.jar", "other content");
+
+      Path stored1 = store.add(file1);
+      Path stored2 = store.add(file2);
+      Path stored3 = store.add(file3);
+
+      assertEquals(stored1, stored2);
+      assertNotEquals(stored1, stored3);
+      assertArrayEquals(Files.readAllBytes(file1.toPath()), Files.readAllBytes(stored1));
+      assertEquals("ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73",
+                   stored1.getFileName().toString());
+   }
+
+   @Test
+   public void testDoesLinkStoredFiles() throws Throwable {
+      File file = createFile("file.jar", "content");
+      Path target = folder.newFolder("staged").toPath().resolve("bundle.jar");
+      Files.write(target, "old content".getBytes(StandardCharsets.UTF_8));
+
+      store.link(file, target);
+
+      assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(target));
+      if (File.separatorChar == '/') {
+         assertTrue(Files.isSameFile(store.add(file), target));
+      }
+   }
+
+   @Test
+   public void testDoesReplaceModifiedStoredFiles() throws Throwable {
+      File file = createFile("file.jar", "content");
+      Path stored = store.add(file);
+      stored.toFile().setWritable(true);
+      Files.write(stored, "CONTENT".getBytes(StandardCharsets.UTF_8));
+
+      assertEquals(stored, store.add(file));
+      assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(stored));
+   }
+
+   @Test
+   public void testDoesMakeStoredFilesReadOnly() throws Throwable {
+      assumeTrue(Files.getFileStore(folder.getRoot().toPath()).supportsFileAttributeView("posix"));
+      File file = createFile("file.jar", "content");
+      Path target = folder.newFolder("staged").toPath().resolve("bundle.jar");
+
+      store.link(file, target);
+
+      assertFalse(Files.getPosixFilePermissions(store.add(file)).contains(PosixFilePermission.OWNER_WRITE));
+      assertFalse(Files.getPosixFilePermissions(target).contains(PosixFilePermission.OWNER_WRITE));
+   }
+
+   @Test
+   public void testDoesRemoveUnusedFiles() throws Throwable {
+      assumeTrue(Files.getFileStore(folder.getRoot().toPath()).supportsFileAttributeView("unix"));
+      File linked = createFile("linked.jar", "linked content");
+      File unused = createFile("unused.jar", "unused content");
+      Path target = folder.newFolder("staged").toPath().resolve("bundle.jar");
+      store.link(linked, target);
+      Path stored = store.add(unused);
+
+      assertEquals(1, store.removeUnused());
+
+      assertFalse(Files.exists(stored));
+      assertFalse(Files.exists(stored.getParent()));
+      assertTrue(Files.isSameFile(store.add(linked), target));
+   }
+
+   private File createFile(String name, String content) throws Throwable {
+      File file = folder.newFile(name);
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+      return file;
+   }
+}
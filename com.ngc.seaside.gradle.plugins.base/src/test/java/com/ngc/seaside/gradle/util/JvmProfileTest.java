@@ -0,0 +1,86 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class JvmProfileTest {
+
+   @Test
+   public void testDoesFindProfileByName() throws Throwable {
+      assertEquals(JvmProfile.SMALL_FOOTPRINT, JvmProfile.fromName("small-footprint"));
+      assertEquals(JvmProfile.SMALL_FOOTPRINT, JvmProfile.fromName("SMALL_FOOTPRINT"));
+      assertEquals(JvmProfile.LATENCY, JvmProfile.fromName("Latency"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testDoesRejectUnknownProfile() throws Throwable {
+      JvmProfile.fromName("fast");
+   }
+
+   @Test
+   public void testDoesSelectOptionsOfProfileInUnixScript() throws Throwable {
+      assumeTrue("only run shell scripts on Unix", new File("/bin/sh").canExecute());
+      assertTrue(runUnixScript(JvmProfile.THROUGHPUT, null).matches("-XX:\\+Use(Parallel|Serial)GC .*"));
+      assertTrue(runUnixScript(JvmProfile.THROUGHPUT, "small-footprint").startsWith("-XX:+UseSerialGC"));
+      assertEquals("", runUnixScript(JvmProfile.THROUGHPUT, JvmProfile.NONE));
+   }
+
+   @Test
+   public void testDoesSetDefaultProfileInWindowsScript() throws Throwable {
+      assertTrue(JvmProfile.LATENCY.getWindowsScript().contains(
+            "if not defined JVM_PROFILE set JVM_PROFILE=latency\n"));
+   }
+
+   @Test
+   public void testDoesSizeHeapExplicitlyInWindowsScript() throws Throwable {
+      String script = JvmProfile.THROUGHPUT.getWindowsScript();
+      assertTrue(script.contains("set JVM_PROFILE_OPTS=%JVM_PROFILE_OPTS% -Xmx%JVM_MAX_HEAP%m"));
+      assertTrue(script.contains("set JVM_PROFILE_OPTS=%JVM_PROFILE_OPTS% -Xms%JVM_MIN_HEAP%m"));
+      assertFalse("MaxRAMFraction is deprecated since JDK 10", script.contains("MaxRAMFraction"));
+   }
+
+   private static String runUnixScript(JvmProfile profile, String override) throws Exception {
+      ProcessBuilder builder = new ProcessBuilder(
+            "/bin/sh", "-c", profile.getUnixScript() + "\necho \"$" + JvmProfile.OPTIONS_VARIABLE + "\"");
+      builder.environment().remove(JvmProfile.PROFILE_VARIABLE);
+      if (override != null) {
+         builder.environment().put(JvmProfile.PROFILE_VARIABLE, override);
+      }
+      Process process = builder.start();
+      try (Scanner scanner = new Scanner(process.getInputStream(), StandardCharsets.UTF_8.name())) {
+         String output = scanner.useDelimiter("\\A").hasNext() ? scanner.next().trim() : "";
+         assertEquals(0, process.waitFor());
+         return output;
+      }
+   }
+}
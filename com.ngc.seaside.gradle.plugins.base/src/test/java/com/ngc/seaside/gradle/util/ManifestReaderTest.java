@@ -0,0 +1,193 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ManifestReaderTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void testDoesReadDeflatedManifest() throws Throwable {
+      File file = createArchive("deflated.jar", ZipEntry.DEFLATED, 10);
+
+      Manifest manifest = ManifestReader.readManifest(file).get();
+      assertEquals("com.ngc.example", manifest.getMainAttributes().getValue("Bundle-SymbolicName"));
+   }
+
+   @Test
+   public void testDoesReadStoredManifest() throws Throwable {
+      File file = createArchive("stored.jar", ZipEntry.STORED, 10);
+
+      Manifest manifest = ManifestReader.readManifest(file).get();
+      assertEquals("com.ngc.example", manifest.getMainAttributes().getValue("Bundle-SymbolicName"));
+   }
+
+   @Test
+   public void testDoesReadOtherEntries() throws Throwable {
+      File file = createArchive("entries.jar", ZipEntry.DEFLATED, 10);
+
+      assertArrayEquals("content 7".getBytes(StandardCharsets.UTF_8),
+                        ManifestReader.readEntry(file, "entry7.txt").get());
+      assertFalse(ManifestReader.readEntry(file, "missing.txt").isPresent());
+   }
+
+   @Test
+   public void testDoesReturnEmptyWithoutManifest() throws Throwable {
+      File file = folder.newFile("nomanifest.zip");
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+         out.putNextEntry(new ZipEntry("file.txt"));
+         out.closeEntry();
+      }
+
+      assertEquals(Optional.empty(), ManifestReader.readManifest(file));
+   }
+
+   @Test(expected = ZipException.class)
+   public void testDoesThrowZipExceptionForNonArchives() throws Throwable {
+      File file = folder.newFile("file.txt");
+      Files.write(file.toPath(), "not a zip file".getBytes(StandardCharsets.UTF_8));
+
+      ManifestReader.readManifest(file);
+   }
+
+   @Test
+   public void testDoesReadArchiveWithPrependedData() throws Throwable {
+      File archive = createArchive("archive.jar", ZipEntry.DEFLATED, 10);
+      File file = new File(folder.getRoot(), "prepended.jar");
+      try (OutputStream out = Files.newOutputStream(file.toPath())) {
+         out.write("#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8));
+         Files.copy(archive.toPath(), out);
+      }
+
+      Manifest manifest = ManifestReader.readManifest(file).get();
+      assertEquals("com.ngc.example", manifest.getMainAttributes().getValue("Bundle-SymbolicName"));
+   }
+
+   @Test
+   public void testDoesReadZip64Archive() throws Throwable {
+      File file = createArchive("zip64.jar", ZipEntry.DEFLATED, 70_000);
+
+      Manifest manifest = ManifestReader.readManifest(file).get();
+      assertEquals("com.ngc.example", manifest.getMainAttributes().getValue("Bundle-SymbolicName"));
+   }
+
+   @Test
+   public void testDoesReadZip64ArchiveWithPrependedData() throws Throwable {
+      File archive = createArchive("archive64.jar", ZipEntry.DEFLATED, 70_000);
+      File file = new File(folder.getRoot(), "prepended64.jar");
+      try (OutputStream out = Files.newOutputStream(file.toPath())) {
+         out.write("#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8));
+         Files.copy(archive.toPath(), out);
+      }
+
+      Manifest manifest = ManifestReader.readManifest(file).get();
+      assertEquals("com.ngc.example", manifest.getMainAttributes().getValue("Bundle-SymbolicName"));
+   }
+
+   @Test(expected = ZipException.class)
+   public void testDoesThrowZipExceptionForShortZip64ExtraField() throws Throwable {
+      File file = new File(folder.getRoot(), "short64.jar");
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+         ZipEntry entry = new ZipEntry(JarFile.MANIFEST_NAME);
+         // An unknown field that is turned into a ZIP64 field below, since ZipOutputStream drops ZIP64 fields.
+         entry.setExtra(new byte[] { 0x34, 0x12, 4, 0, 0, 0, 0, 0 });
+         out.putNextEntry(entry);
+         out.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+         out.closeEntry();
+      }
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      int header = bytes.length - 4;
+      while (buffer.getInt(header) != ZipArchive.CENTRAL_HEADER_SIGNATURE) {
+         header--;
+      }
+      // The compressed size is moved to the 4 byte ZIP64 field, which is too short to hold it.
+      buffer.putInt(header + 20, (int) ZipArchive.ZIP64_MAGIC);
+      buffer.putShort(header + ZipArchive.CENTRAL_HEADER_SIZE + JarFile.MANIFEST_NAME.length(),
+                      (short) ZipArchive.ZIP64_EXTRA_FIELD_ID);
+      Files.write(file.toPath(), bytes);
+
+      ManifestReader.readManifest(file);
+   }
+
+   private File createArchive(String name, int method, int entries) throws IOException {
+      Manifest manifest = new Manifest();
+      manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      manifest.getMainAttributes().putValue("Bundle-SymbolicName", "com.ngc.example");
+      ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+      manifest.write(manifestBytes);
+
+      File file = new File(folder.getRoot(), name);
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+         out.putNextEntry(newEntry(JarFile.MANIFEST_NAME, method, manifestBytes.toByteArray()));
+         out.write(manifestBytes.toByteArray());
+         out.closeEntry();
+         for (int i = 0; i < entries; i++) {
+            byte[] content = ("content " + i).getBytes(StandardCharsets.UTF_8);
+            out.putNextEntry(newEntry("entry" + i + ".txt", method, content));
+            out.write(content);
+            out.closeEntry();
+         }
+      }
+      return file;
+   }
+
+   private static ZipEntry newEntry(String name, int method, byte[] content) {
+      ZipEntry entry = new ZipEntry(name);
+      entry.setMethod(method);
+      if (method == ZipEntry.STORED) {
+         CRC32 crc = new CRC32();
+         crc.update(content);
+         entry.setSize(content.length);
+         entry.setCompressedSize(content.length);
+         entry.setCrc(crc.getValue());
+      }
+      return entry;
+   }
+}
@@ -0,0 +1,161 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class OsgiResolverTest {
+
+   private static final String GROUP = "com.ngc.example";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void testDoesResolveVersionsUpgradedByOtherConflictingVersions() throws Throwable {
+      File repository = folder.newFolder("repository");
+      createModule(repository, "a", "1.0");
+      createModule(repository, "a", "2.0");
+      createModule(repository, "a", "3.0");
+      createModule(repository, "b", "1.0", "a:2.0");
+      createModule(repository, "b", "2.0");
+      createModule(repository, "c", "1.0", "a:1.0", "b:1.0");
+      Project project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      project.getRepositories().maven(maven -> maven.setUrl(repository.toURI()));
+      Configuration configuration = project.getConfigurations().create("bundles");
+      project.getDependencies().add(configuration.getName(), GROUP + ":a:3.0");
+      project.getDependencies().add(configuration.getName(), GROUP + ":b:2.0");
+      project.getDependencies().add(configuration.getName(), GROUP + ":c:1.0");
+
+      Set<String> resolved = new TreeSet<>();
+      new OsgiResolver(project, new DefaultVersionSelectorScheme(new DefaultVersionComparator()))
+               .resolveAllVersions(configuration, (ComponentIdentifier id, File file) -> {
+                  ModuleComponentIdentifier module = (ModuleComponentIdentifier) id;
+                  resolved.add(module.getModule() + ":" + module.getVersion());
+               });
+      configuration.resolve();
+
+      assertEquals(new TreeSet<>(Arrays.asList("a:1.0", "a:2.0", "a:3.0", "b:1.0", "b:2.0", "c:1.0")), resolved);
+   }
+
+   @Test
+   public void testDoesScanBundles() throws Throwable {
+      List<File> files = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+         files.add(createJar("bundle" + i + ".jar", "com.ngc.example.bundle" + i, "1.0." + i));
+      }
+      File plainJar = createJar("plain.jar", null, null);
+      files.add(plainJar);
+      files.add(files.get(0));
+
+      Map<File, OsgiBundleMetadata> metadata = OsgiResolver.scan(files);
+
+      assertEquals(files.subList(0, files.size() - 1), new ArrayList<>(metadata.keySet()));
+      for (int i = 0; i < 50; i++) {
+         assertEquals(OsgiBundleMetadata.of("com.ngc.example.bundle" + i, "1.0." + i), metadata.get(files.get(i)));
+      }
+      assertFalse(metadata.get(plainJar).isBundle());
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testScannedMetadataIsUnmodifiable() throws Throwable {
+      File bundle = createJar("bundle.jar", "com.ngc.example", "1.0.0");
+      OsgiResolver.scan(Arrays.asList(bundle, bundle)).clear();
+   }
+
+   private File createJar(String name, String symbolicName, String version) throws IOException {
+      Manifest manifest = new Manifest();
+      Attributes attributes = manifest.getMainAttributes();
+      attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      if (symbolicName != null) {
+         attributes.putValue(OsgiResolver.BUNDLE_SYMBOLIC_NAME_PROPERTY, symbolicName);
+      }
+      if (version != null) {
+         attributes.putValue(OsgiResolver.BUNDLE_VERSION_PROPERTY, version);
+      }
+      File file = folder.newFile(name);
+      writeJar(file, manifest);
+      return file;
+   }
+
+   private static void createModule(File repository, String name, String version, String... dependencies)
+            throws IOException {
+      File directory = new File(repository, GROUP.replace('.', '/') + "/" + name + "/" + version);
+      Files.createDirectories(directory.toPath());
+      StringBuilder pom = new StringBuilder("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n")
+               .append("  <modelVersion>4.0.0</modelVersion>\n")
+               .append("  <groupId>").append(GROUP).append("</groupId>\n")
+               .append("  <artifactId>").append(name).append("</artifactId>\n")
+               .append("  <version>").append(version).append("</version>\n")
+               .append("  <dependencies>\n");
+      for (String dependency : dependencies) {
+         String[] coordinates = dependency.split(":");
+         pom.append("    <dependency>\n")
+                  .append("      <groupId>").append(GROUP).append("</groupId>\n")
+                  .append("      <artifactId>").append(coordinates[0]).append("</artifactId>\n")
+                  .append("      <version>").append(coordinates[1]).append("</version>\n")
+                  .append("    </dependency>\n");
+      }
+      pom.append("  </dependencies>\n</project>\n");
+      Files.write(new File(directory, name + "-" + version + ".pom").toPath(),
+               pom.toString().getBytes(StandardCharsets.UTF_8));
+
+      Manifest manifest = new Manifest();
+      Attributes attributes = manifest.getMainAttributes();
+      attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      attributes.putValue(OsgiResolver.BUNDLE_SYMBOLIC_NAME_PROPERTY, GROUP + "." + name);
+      attributes.putValue(OsgiResolver.BUNDLE_VERSION_PROPERTY, version);
+      writeJar(new File(directory, name + "-" + version + ".jar"), manifest);
+   }
+
+   private static void writeJar(File file, Manifest manifest) throws IOException {
+      // Only the manifest is needed.
+      new JarOutputStream(Files.newOutputStream(file.toPath()), manifest).close();
+   }
+}
@@ -0,0 +1,145 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ToolProvisionerTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private File root;
+   private ToolProvisioner provisioner;
+
+   @Before
+   public void setup() throws Throwable {
+      root = folder.newFolder("tools");
+      provisioner = new ToolProvisioner(root.toPath());
+   }
+
+   @Test
+   public void testDoesExtractToolOnce() throws Throwable {
+      File archive = createArchive("lcov.zip", "lcov-1.12/bin/lcov", "#!/bin/sh");
+
+      ToolProvisioner.Tool tool = provisioner.provision("lcov", "1.12", archive);
+      File lcov = tool.getFile("lcov-1.12/bin/lcov");
+      assertEquals("#!/bin/sh", new String(Files.readAllBytes(lcov.toPath()), StandardCharsets.UTF_8));
+      assertTrue(new File(tool.getDirectory(), ToolProvisioner.MARKER_FILE_NAME).isFile());
+
+      assertTrue(lcov.delete());
+      assertSame(tool, provisioner.provision("lcov", "1.12", archive));
+      ToolProvisioner.Tool other = new ToolProvisioner(root.toPath()).provision("lcov", "1.12", archive);
+      assertEquals(tool.getDirectory(), other.getDirectory());
+      assertFalse("the cached tool should not have been extracted again", lcov.exists());
+   }
+
+   @Test
+   public void testDoesExtractToolAgainWhenArchiveChanges() throws Throwable {
+      File archive = createArchive("rats.zip", "rats-2.4/rats", "old");
+      ToolProvisioner.Tool previous = provisioner.provision("rats", "2.4", archive);
+
+      archive = createArchive("rats-changed.zip", "rats-2.4/rats", "new");
+      ToolProvisioner.Tool tool = provisioner.provision("rats", "2.4", archive);
+
+      assertEquals(new File(root, "rats/2.4/" + ArchiveExtractor.checksum(archive)), tool.getDirectory());
+      assertNotEquals("archives with the same version should not share a directory",
+                      previous.getDirectory(), tool.getDirectory());
+      assertEquals("new", new String(Files.readAllBytes(tool.getFile("rats-2.4/rats").toPath()),
+                                     StandardCharsets.UTF_8));
+      assertEquals("old", new String(Files.readAllBytes(previous.getFile("rats-2.4/rats").toPath()),
+                                     StandardCharsets.UTF_8));
+   }
+
+   @Test
+   public void testDoesExtractPartiallyExtractedToolAgain() throws Throwable {
+      File archive = createArchive("cppcheck.zip", "cppcheck-1.81/cppcheck", "#!/bin/sh");
+      File directory = new File(root, "cppcheck/1.81/" + ArchiveExtractor.checksum(archive));
+      File partial = new File(directory, "partial");
+      assertTrue(partial.getParentFile().mkdirs());
+      assertTrue(partial.createNewFile());
+
+      ToolProvisioner.Tool tool = provisioner.provision("cppcheck", "1.81", archive);
+
+      assertEquals(directory, tool.getDirectory());
+      assertTrue(tool.getFile("cppcheck-1.81/cppcheck").isFile());
+      assertFalse("the partially extracted content should have been removed", partial.exists());
+   }
+
+   @Test
+   public void testDoesMakeExecutables() throws Throwable {
+      File archive = createArchive("bats.zip", "bats-0.4.0/libexec/bats", "#!/bin/sh");
+
+      String bats = provisioner.provision("bats", "0.4.0", archive).getExecutable("bats-0.4.0/libexec/bats");
+
+      assertTrue(new File(bats).isAbsolute());
+      assertTrue(new File(bats).canExecute());
+   }
+
+   @Test(expected = GradleException.class)
+   public void testDoesRequireArchive() {
+      provisioner.provision("cppcheck", "1.81", new File(folder.getRoot(), "missing.zip"));
+   }
+
+   @Test(expected = GradleException.class)
+   public void testDoesRequireFilesOfTool() throws Throwable {
+      File archive = createArchive("pygments.zip", "pygments-2.2.0/setup.py", "");
+
+      provisioner.provision("pygments", "2.2.0", archive).getFile("pygments-2.2.0/missing.py");
+   }
+
+   @Test(expected = UncheckedIOException.class)
+   public void testDoesNotExtractOutsideOfCache() throws Throwable {
+      File archive = createArchive("evil.zip", "../../evil", "");
+
+      provisioner.provision("evil", "1.0", archive);
+   }
+
+   private File createArchive(String name, String entry, String content) throws Throwable {
+      File archive = folder.newFile(name);
+      try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+         zip.putNextEntry(new ZipEntry(entry));
+         zip.write(content.getBytes(StandardCharsets.UTF_8));
+         zip.closeEntry();
+      }
+      return archive;
+   }
+}
@@ -0,0 +1,209 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ZipArchiveWriterTest {
+
+   private static final byte[] TEXT = "text text text text text text text text".getBytes(StandardCharsets.UTF_8);
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   @Test
+   public void testDoesCopyCompressedEntries() throws Throwable {
+      File source = folder.newFile("source.zip");
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(source.toPath()))) {
+         out.putNextEntry(new ZipEntry("deflated.txt"));
+         out.write(TEXT);
+         out.closeEntry();
+         ZipEntry stored = new ZipEntry("stored.txt");
+         stored.setMethod(ZipEntry.STORED);
+         stored.setSize(TEXT.length);
+         CRC32 crc = new CRC32();
+         crc.update(TEXT);
+         stored.setCrc(crc.getValue());
+         out.putNextEntry(stored);
+         out.write(TEXT);
+         out.closeEntry();
+      }
+
+      File merged = folder.newFile("merged.zip");
+      try (ZipArchive archive = ZipArchive.open(source); ZipArchiveWriter writer = new ZipArchiveWriter(merged)) {
+         writer.writeDirectory("prefix/", 0755, System.currentTimeMillis());
+         for (ZipArchive.Entry entry : archive.getEntries()) {
+            writer.copyEntry(archive, entry, "prefix/" + entry.getName());
+         }
+      }
+
+      try (ZipFile original = new ZipFile(source); ZipFile zip = new ZipFile(merged)) {
+         assertTrue(zip.getEntry("prefix/").isDirectory());
+         for (String name : new String[] { "deflated.txt", "stored.txt" }) {
+            ZipEntry expected = original.getEntry(name);
+            ZipEntry actual = zip.getEntry("prefix/" + name);
+            assertNotNull(name, actual);
+            assertEquals(expected.getMethod(), actual.getMethod());
+            assertEquals(expected.getCrc(), actual.getCrc());
+            assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+            try (InputStream in = zip.getInputStream(actual)) {
+               assertEquals(new String(TEXT, StandardCharsets.UTF_8), IOUtils.toString(in, StandardCharsets.UTF_8));
+            }
+         }
+      }
+      try (ZipArchive archive = ZipArchive.open(merged)) {
+         assertEquals(040755, archive.getEntries().get(0).getUnixMode());
+         try (InputStream in = archive.getInputStream(archive.getEntries().get(1))) {
+            assertEquals(new String(TEXT, StandardCharsets.UTF_8), IOUtils.toString(in, StandardCharsets.UTF_8));
+         }
+      }
+   }
+
+   @Test
+   public void testDoesWriteStreamedEntries() throws Throwable {
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      deflater.setInput(TEXT);
+      deflater.finish();
+      byte[] compressed = new byte[TEXT.length + 64];
+      int compressedLength = deflater.deflate(compressed);
+      deflater.end();
+      CRC32 crc = new CRC32();
+      crc.update(TEXT);
+
+      File archive = folder.newFile("streamed.zip");
+      try (ZipArchiveWriter writer = new ZipArchiveWriter(archive)) {
+         writer.beginEntry("streamed.txt", 0644, System.currentTimeMillis());
+         writer.writeCompressedData(compressed, 0, 1);
+         writer.writeCompressedData(compressed, 1, compressedLength - 1);
+         writer.endEntry(crc.getValue(), TEXT.length);
+      }
+
+      try (ZipFile zip = new ZipFile(archive); InputStream in = zip.getInputStream(zip.getEntry("streamed.txt"))) {
+         assertEquals(new String(TEXT, StandardCharsets.UTF_8), IOUtils.toString(in, StandardCharsets.UTF_8));
+      }
+      try (ZipArchive zip = ZipArchive.open(archive)) {
+         ZipArchive.Entry entry = zip.getEntries().get(0);
+         assertEquals(compressedLength, entry.getCompressedSize());
+         assertEquals(0644, entry.getUnixMode() & 07777);
+      }
+   }
+
+   @Test
+   public void testDoesWriteZip64Archives() throws Throwable {
+      int count = 70_000;
+      File source = folder.newFile("source.zip");
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(source.toPath()))) {
+         for (int i = 0; i < count; i++) {
+            out.putNextEntry(new ZipEntry("file" + i));
+            out.closeEntry();
+         }
+      }
+
+      File merged = folder.newFile("merged.zip");
+      try (ZipArchive archive = ZipArchive.open(source); ZipArchiveWriter writer = new ZipArchiveWriter(merged)) {
+         for (ZipArchive.Entry entry : archive.getEntries()) {
+            writer.copyEntry(archive, entry, "copy/" + entry.getName());
+         }
+      }
+
+      try (ZipFile zip = new ZipFile(merged)) {
+         assertEquals(count, zip.size());
+         assertNotNull(zip.getEntry("copy/file" + (count - 1)));
+      }
+      try (ZipArchive archive = ZipArchive.open(merged)) {
+         assertEquals(count, archive.getEntries().size());
+      }
+   }
+
+   @Test(expected = IOException.class)
+   public void testDoesDetectCorruptEntries() throws Throwable {
+      File source = folder.newFile("source.zip");
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(source.toPath()))) {
+         ZipEntry entry = new ZipEntry("stored.txt");
+         entry.setMethod(ZipEntry.STORED);
+         entry.setSize(TEXT.length);
+         CRC32 crc = new CRC32();
+         crc.update(TEXT);
+         entry.setCrc(crc.getValue());
+         out.putNextEntry(entry);
+         out.write(TEXT);
+         out.closeEntry();
+      }
+      byte[] bytes = Files.readAllBytes(source.toPath());
+      // The content of the stored entry immediately follows its local header
+      bytes[30 + "stored.txt".length()] ^= 0xFF;
+      try (OutputStream out = Files.newOutputStream(source.toPath())) {
+         out.write(bytes);
+      }
+
+      try (ZipArchive archive = ZipArchive.open(source);
+               InputStream in = archive.getInputStream(archive.getEntries().get(0))) {
+         IOUtils.toByteArray(in);
+      }
+   }
+
+   @Test(expected = ZipException.class)
+   public void testDoesRejectEncryptedEntries() throws Throwable {
+      File source = folder.newFile("source.zip");
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(source.toPath()))) {
+         out.putNextEntry(new ZipEntry("encrypted.txt"));
+         out.write(TEXT);
+         out.closeEntry();
+      }
+      byte[] bytes = Files.readAllBytes(source.toPath());
+      // Set the encrypted flag in the general purpose flags of the local and central headers
+      bytes[6] |= ZipArchive.ENCRYPTED_FLAG;
+      for (int i = 0; i + 3 < bytes.length; i++) {
+         if (bytes[i] == 'P' && bytes[i + 1] == 'K' && bytes[i + 2] == 1 && bytes[i + 3] == 2) {
+            bytes[i + 8] |= ZipArchive.ENCRYPTED_FLAG;
+         }
+      }
+      try (OutputStream out = Files.newOutputStream(source.toPath())) {
+         out.write(bytes);
+      }
+
+      try (ZipArchive archive = ZipArchive.open(source)) {
+         archive.getInputStream(archive.getEntries().get(0)).close();
+      }
+   }
+}
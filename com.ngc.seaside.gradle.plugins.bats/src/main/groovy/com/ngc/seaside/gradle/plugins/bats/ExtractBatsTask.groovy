@@ -22,13 +22,13 @@
  */
 package com.ngc.seaside.gradle.plugins.bats
 
+import com.ngc.seaside.gradle.util.ToolProvisioner
+
 import org.gradle.api.DefaultTask
+import org.gradle.api.Project
 import org.gradle.api.artifacts.Configuration
-import org.gradle.api.file.FileTree
 import org.gradle.api.tasks.TaskAction
 
-import java.nio.file.Paths
-
 class ExtractBatsTask extends DefaultTask {
    private SeasideBatsExtension batsExtension =
             project.extensions
@@ -36,36 +36,45 @@ class ExtractBatsTask extends DefaultTask {
 
    @TaskAction
    def extractBats() {
-      def batsFiles = extractTheBatsReleaseArchive()
-      def outputDir = pathToTheDirectoryWithBatsScripts()
-
-      project.copy {
-         from batsFiles
-         into outputDir
-      }
+      provisionBats(project, batsExtension)
    }
 
-   private FileTree extractTheBatsReleaseArchive() {
-      return project.zipTree(pathToTheBatsReleaseArchive())
+   /**
+    * Provisions the bats release archive into the tool cache in the Gradle user home. The archive is only
+    * extracted the first time this version of bats is needed; every other build reuses the cached copy.
+    *
+    * @param project the project that depends on bats
+    * @param batsExtension the bats extension of the project
+    * @return the provisioned bats tool
+    */
+   static ToolProvisioner.Tool provisionBats(Project project, SeasideBatsExtension batsExtension) {
+      return ToolProvisioner.getInstance(project.gradle).provision(
+            "bats",
+            batsExtension.BATS_VERSION,
+            new File(batsReleaseArchiveFile(project)))
    }
 
-   private String pathToTheBatsReleaseArchive() {
-      return Paths.get(batsReleaseArchiveFile())
+   /**
+    * Gets the path of the bats script inside the provisioned bats tool.
+    *
+    * @param project the project that depends on bats
+    * @param batsExtension the bats extension of the project
+    * @return the absolute path of the bats script
+    */
+   static String pathToTheBatsScript(Project project, SeasideBatsExtension batsExtension) {
+      return provisionBats(project, batsExtension)
+            .getExecutable("bats-$batsExtension.BATS_VERSION/libexec/bats")
    }
 
-   private String batsReleaseArchiveFile() {
-      return projectClasspathConfiguration().filter { file ->
+   private static String batsReleaseArchiveFile(Project project) {
+      return projectClasspathConfiguration(project).filter { file ->
          return file.name.contains("bats")
       }.getAsPath()
    }
 
-   private Configuration projectClasspathConfiguration() {
+   private static Configuration projectClasspathConfiguration(Project project) {
       return project
                .configurations
                .getByName("compile")
    }
-
-   private String pathToTheDirectoryWithBatsScripts() {
-      return batsExtension.BATS_PATHS.PATH_TO_THE_DIRECTORY_WITH_BATS_SCRIPTS
-   }
 }
@@ -49,7 +49,7 @@ class RunBatsTask extends DefaultTask {
     }
 
     private String pathToTheBatsScript() {
-        return batsExtension.BATS_PATHS.PATH_TO_THE_BATS_SCRIPT
+        return ExtractBatsTask.pathToTheBatsScript(project, batsExtension)
     }
 
     private String pathToTheDirectoryWithBatsTests() {
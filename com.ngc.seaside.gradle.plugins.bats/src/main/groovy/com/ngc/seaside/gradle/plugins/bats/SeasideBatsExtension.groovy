@@ -32,26 +32,20 @@ class SeasideBatsExtension {
    String batsTestsDir
 
    SeasideBatsExtension(Project project) {
-      BATS_PATHS = new BatsPaths(project, BATS_VERSION)
+      BATS_PATHS = new BatsPaths(project)
       resultsFile = BATS_PATHS.BATS_TEST_RESULTS_FILE
       batsTestsDir = BATS_PATHS.DIRECTORY_WITH_BATS_TESTS
    }
 
+   /**
+    * The default paths used by the bats plugin. The bats script itself is not part of the project; it is provisioned
+    * into the shared tool cache, see {@link ExtractBatsTask#pathToTheBatsScript(Project, SeasideBatsExtension)}.
+    */
    private class BatsPaths {
-      final String PATH_TO_THE_BATS_SCRIPT
       final String DIRECTORY_WITH_BATS_TESTS
       final String BATS_TEST_RESULTS_FILE
-      final String PATH_TO_THE_DIRECTORY_WITH_BATS_SCRIPTS
-
-      BatsPaths(Project project, String batsVersion) {
-         PATH_TO_THE_BATS_SCRIPT = toPath(
-            project.buildDir.name,
-            "tmp",
-            "bats-scripts",
-            "bats-$batsVersion",
-            "libexec",
-            "bats")
 
+      BatsPaths(Project project) {
          DIRECTORY_WITH_BATS_TESTS = toPath(
             "src",
             "test",
@@ -62,11 +56,6 @@ class SeasideBatsExtension {
             "test-results",
             "bats-tests",
             "results.out")
-
-         PATH_TO_THE_DIRECTORY_WITH_BATS_SCRIPTS = toPath(
-            project.buildDir.name,
-            "tmp",
-            "bats-scripts")
       }
 
    }
@@ -69,7 +69,7 @@ class SeasideBatsPlugin extends AbstractProjectPlugin {
                 EXTRACT_BATS_TASK_NAME,
                 type: ExtractBatsTask,
                 group: BATS_TASK_GROUP_NAME,
-                description: "Extract the bats release archive",
+                description: "Provision the bats release archive into the shared tool cache",
                 dependsOn: "build")
 
         project.task(
@@ -44,18 +44,6 @@ class SeasideBatsExtensionTest {
       Assert.assertNotNull(extension.BATS_PATHS)
    }
 
-   @Test
-   void returnsCorrectPathToTheBatsScript() {
-      def expected = [
-            project.buildDir.name,
-            "tmp",
-            "bats-scripts",
-            "bats-${extension.BATS_VERSION}",
-            "libexec",
-            "bats" ].join(File.separator)
-      Assert.assertEquals(expected, extension.BATS_PATHS.PATH_TO_THE_BATS_SCRIPT)
-   }
-
    @Test
    void returnsCorrectPathToTheDefaultDirectoryWithTests() {
       def expected = [
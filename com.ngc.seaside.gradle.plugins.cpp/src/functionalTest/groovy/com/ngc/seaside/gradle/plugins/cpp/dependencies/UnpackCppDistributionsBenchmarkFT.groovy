@@ -0,0 +1,146 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.cpp.dependencies
+
+import static org.junit.Assume.assumeFalse
+
+import org.gradle.api.Project
+import org.gradle.api.internal.resolve.ProjectModelResolver
+import org.gradle.model.internal.registry.ModelRegistry
+import org.gradle.nativeplatform.PrebuiltLibraries
+import org.gradle.nativeplatform.Repositories
+import org.gradle.platform.base.BinaryContainer
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Measures how long {@link UnpackCppDistributionsTask} takes to configure the model of a C++ project with
+ * {@value #DEPENDENCIES} statically linked native dependencies and writes the time to standard out. The dependencies
+ * are unpacked once beforehand, and each round configures a new project whose binaries are already realized, as they
+ * are when the task runs in a build.
+ */
+class UnpackCppDistributionsBenchmarkFT {
+
+    private static final int DEPENDENCIES = 200
+    private static final int WARMUP_ROUNDS = 2
+    private static final int ROUNDS = 5
+
+    private File projectDir
+    private List<File> directories
+
+    @Before
+    void before() {
+        // The generated dependencies only contain Linux libraries.
+        assumeFalse("Current OS is Windows, skipping test.",
+                    System.getProperty("os.name").toLowerCase().startsWith("win"))
+
+        projectDir = Paths.get("build/functionalTest/cpp/dependencies/configure-benchmark").toAbsolutePath().toFile()
+        projectDir.deleteDir()
+        File libs = Files.createDirectories(projectDir.toPath().resolve("libs")).toFile()
+        List<File> zips = (0..<DEPENDENCIES).collect { createDistribution(libs, "native$it") }
+        directories = new DistributionUnpacker().unpack(zips)
+
+        // The model rules of the parent plugin that the task configures
+        new File(projectDir, "model.gradle").text = """\
+            apply plugin: 'cpp'
+            apply plugin: 'google-test-test-suite'
+
+            model {
+                repositories {
+                    libs(PrebuiltLibraries)
+                }
+                platforms {
+                    linux_x86_64 {
+                        operatingSystem 'linux'
+                        architecture 'x64'
+                    }
+                }
+                components {
+                    main(NativeLibrarySpec) {
+                        targetPlatform 'linux_x86_64'
+                    }
+                }
+                testSuites {
+                    mainTest(GoogleTestTestSuiteSpec) {
+                        testing \$.components.main
+                    }
+                }
+            }
+            """.stripIndent()
+    }
+
+    @Test
+    void measuresConfiguringDependencies() {
+        WARMUP_ROUNDS.times { configureDependencies("warmup$it") }
+        long nanos = 0
+        ROUNDS.times { nanos += configureDependencies("round$it") }
+
+        System.out.printf("Configured %d native dependencies in %.2f ms per round%n",
+                          DEPENDENCIES, nanos / ROUNDS / 1e6)
+    }
+
+    private long configureDependencies(String name) {
+        Project project = ProjectBuilder.builder()
+                .withName(name)
+                .withProjectDir(Files.createDirectories(projectDir.toPath().resolve(name)).toFile())
+                .build()
+        project.apply(from: new File(projectDir, "model.gradle"))
+        BuildingExtension building = project.extensions.create("building", BuildingExtension, project)
+        (0..<DEPENDENCIES).each { building.statically("native$it") }
+        UnpackCppDistributionsTask task = project.tasks.create("unpackCompileDependencies",
+                                                               UnpackCppDistributionsTask) {
+            componentName = 'main'
+            componentSourceSetName = 'cpp'
+        }
+        ModelRegistry model = project.services.get(ProjectModelResolver).resolveProjectModel(project.path)
+        model.find("binaries", BinaryContainer)
+
+        long start = System.nanoTime()
+        task.configureDependencies(directories)
+        long nanos = System.nanoTime() - start
+
+        PrebuiltLibraries libs = model.find("repositories", Repositories).withType(PrebuiltLibraries).getByName("libs")
+        Assert.assertEquals(DEPENDENCIES, libs.size())
+        return nanos
+    }
+
+    private static File createDistribution(File directory, String name) {
+        File file = new File(directory, "$name-1.0.0.zip")
+        new ZipOutputStream(new FileOutputStream(file)).withCloseable { zip ->
+            zip.putNextEntry(new ZipEntry("include/${name}.h"))
+            zip.write("void ${name}();\n".bytes)
+            zip.closeEntry()
+            zip.putNextEntry(new ZipEntry("lib/linux_x86_64/lib${name}.a"))
+            zip.write("!<arch>\n".bytes)
+            zip.closeEntry()
+        }
+        return file
+    }
+}
@@ -26,8 +26,8 @@ import com.google.common.base.Preconditions
 import com.ngc.seaside.gradle.api.AbstractCoverageTask
 import com.ngc.seaside.gradle.plugins.cpp.coverage.reports.GenerateCoverageXmlTask
 import com.ngc.seaside.gradle.util.FileUtil
+import com.ngc.seaside.gradle.util.ToolProvisioner
 
-import org.gradle.api.file.FileTree
 import org.gradle.api.tasks.TaskAction
 
 class GenerateCoverageDataTask extends AbstractCoverageTask {
@@ -35,10 +35,9 @@ class GenerateCoverageDataTask extends AbstractCoverageTask {
     private SeasideCppCoverageExtension cppCoverageExtension = project.extensions
             .findByType(SeasideCppCoverageExtension.class)
 
-    private final String lcovDirectoryPath = FileUtil.toPath(project.buildDir.absolutePath, "tmp", "lcov")
-    private final String lcovFolder = FileUtil.toPath(lcovDirectoryPath, "lcov-$cppCoverageExtension.LCOV_VERSION")
-    private final String lcovExecutablePath = FileUtil.toPath(lcovFolder, "bin", "lcov")
-    private final String genHtmlExecutablePath = FileUtil.toPath(lcovFolder, "bin", "genhtml")
+    private final String lcovFolder = "lcov-$cppCoverageExtension.LCOV_VERSION"
+    private String lcovExecutablePath
+    private String genHtmlExecutablePath
     private final String coverageHtmlDir = FileUtil.toPath(project.buildDir.absolutePath, "reports", "lcov", "html")
 
     /**
@@ -46,7 +45,7 @@ class GenerateCoverageDataTask extends AbstractCoverageTask {
      */
     @TaskAction
     def generateCoverageData() {
-        extractLcovTool()
+        provisionLcovTool()
 
         File coverageFile = createCoverageFile()
         if (doGenerateFilteredCoverageData(coverageFile)) {
@@ -162,11 +161,13 @@ class GenerateCoverageDataTask extends AbstractCoverageTask {
     }
 
     /**
-     * Extracts the downloaded lcov tool zip to a location where it will be ran from.
+     * Provisions the downloaded lcov tool zip into the shared tool cache where it will be ran from.
      */
-    private void extractLcovTool() {
-        String archivePath = findTheReleaseArchiveFile(cppCoverageExtension.LCOV_FILENAME)
-        FileTree lcovFiles = FileUtil.extractZipfile(project, archivePath)
-        FileUtil.copyFileTreeToDest(project, lcovFiles, lcovDirectoryPath)
+    private void provisionLcovTool() {
+        ToolProvisioner.Tool lcov = provisionTool("lcov",
+                                                  cppCoverageExtension.LCOV_VERSION,
+                                                  cppCoverageExtension.LCOV_FILENAME)
+        lcovExecutablePath = lcov.getExecutable(FileUtil.toPath(lcovFolder, "bin", "lcov"))
+        genHtmlExecutablePath = lcov.getExecutable(FileUtil.toPath(lcovFolder, "bin", "genhtml"))
     }
 }
@@ -25,8 +25,8 @@ package com.ngc.seaside.gradle.plugins.cpp.coverage.reports
 import com.google.common.base.Preconditions
 import com.ngc.seaside.gradle.plugins.cpp.coverage.SeasideCppCoverageExtension
 import com.ngc.seaside.gradle.util.FileUtil
+import com.ngc.seaside.gradle.util.ToolProvisioner
 import org.gradle.api.Project
-import org.gradle.api.file.FileTree
 
 class GenerateCoverageXmlTask {
 
@@ -37,14 +37,13 @@ class GenerateCoverageXmlTask {
         Preconditions.checkState(new File(coverageFilePath).exists(), "$coverageFilePath does not exist!")
 
 
-        String coberturaDirectoryPath = FileUtil.toPath(project.buildDir.name, "tmp", "lcov-cobertura")
-        String lcovCobertura = FileUtil.toPath(coberturaDirectoryPath,
-                                               "lcov-to-cobertura-xml-${extension.LCOV_COBERTURA_VERSION}",
-                                               "lcov_cobertura", "lcov_cobertura.py")
-
-        String archivePath = pathToTheCoberturaReleaseArchive(project, extension)
-        FileTree coberturaFiles = FileUtil.extractZipfile(project, archivePath)
-        copyFileTreeToDest(project, coberturaFiles, coberturaDirectoryPath)
+        ToolProvisioner.Tool cobertura = ToolProvisioner.getInstance(project.gradle).provision(
+                "lcov-cobertura",
+                extension.LCOV_COBERTURA_VERSION,
+                new File(pathToTheCoberturaReleaseArchive(project, extension)))
+        String lcovCobertura = cobertura.getFile(FileUtil.toPath(
+                "lcov-to-cobertura-xml-${extension.LCOV_COBERTURA_VERSION}",
+                "lcov_cobertura", "lcov_cobertura.py")).absolutePath
 
         File coverageXmlPath = createCoverageXmlFile(extension)
         def arguments = [
@@ -72,16 +71,6 @@ class GenerateCoverageXmlTask {
         return f
     }
 
-    /**
-     * Copies the extracted cobertura tool files to a location where it will be ran from.
-     * @param project the project to run this task from
-     * @param coberturaFiles {@link FileTree} containing extracted cobertura files
-     * @param coberturaDirectoryPath destination where files will be placed
-     */
-    private static void copyFileTreeToDest(Project project, FileTree coberturaFiles, String coberturaDirectoryPath) {
-        FileUtil.copyFileTreeToDest(project, coberturaFiles, coberturaDirectoryPath)
-    }
-
     /**
      * Retrieves the path to the archive file
      * @param project the project to run this task from
@@ -26,8 +26,8 @@ import com.google.common.base.Preconditions
 import com.ngc.seaside.gradle.api.AbstractCoverageTask
 import com.ngc.seaside.gradle.plugins.cpp.coverage.SeasideCppCoverageExtension
 import com.ngc.seaside.gradle.util.FileUtil
+import com.ngc.seaside.gradle.util.ToolProvisioner
 
-import org.gradle.api.file.FileTree
 import org.gradle.api.tasks.TaskAction
 
 class GenerateCppCheckReportsTask extends AbstractCoverageTask {
@@ -35,17 +35,14 @@ class GenerateCppCheckReportsTask extends AbstractCoverageTask {
     private SeasideCppCoverageExtension cppCoverageExtension =
             project.extensions.findByType(SeasideCppCoverageExtension.class)
 
-    private final String cppcheckDirectoryPath = FileUtil.toPath(project.buildDir.name, "tmp", "cppcheck")
-    private final String cppcheckFolder = FileUtil.toPath(cppcheckDirectoryPath,
-                                                          "cppcheck-$cppCoverageExtension.CPPCHECK_VERSION")
-    private final String cppcheckExecutable = FileUtil.toPath(cppcheckFolder, "cppcheck")
-    private final String cppcheckHtmlExecutable = FileUtil.toPath(cppcheckFolder, "htmlreport", "cppcheck-htmlreport")
+    private final String cppcheckFolder = "cppcheck-$cppCoverageExtension.CPPCHECK_VERSION"
     private final String cppcheckHtmlDir = FileUtil.toPath(project.buildDir.absolutePath, "reports", "cppcheck", "html")
-    private final String pygmentsDirectoryPath = FileUtil.toPath(project.buildDir.name, "tmp", "pygments")
+    private String cppcheckExecutable
+    private String cppcheckHtmlExecutable
 
     @TaskAction
     def generateCppCheckReports() {
-        extractCppCheckTool()
+        provisionCppCheckTool()
 
 
         String dir = [project.projectDir.absolutePath, "src", "main", "cpp"].join(File.separator)
@@ -81,7 +78,7 @@ class GenerateCppCheckReportsTask extends AbstractCoverageTask {
 
     private void genCppCheckHtml(File cppcheckXmlFile) {
         Preconditions.checkState(cppcheckXmlFile.exists(), "$cppcheckXmlFile.absolutePath does not exist!")
-        extractPygments()
+        ToolProvisioner.Tool pygments = provisionPygments()
         String cppcheckHtml = cppcheckHtmlExecutable
         File cppcheckHtmlDir = createCppCheckHtmlFile()
 
@@ -95,6 +92,7 @@ class GenerateCppCheckReportsTask extends AbstractCoverageTask {
         project.exec { process ->
             process.executable(cppcheckHtml)
             process.args(arguments)
+            process.environment("PYTHONPATH", pythonPath(pygments))
         }
     }
 
@@ -110,15 +108,33 @@ class GenerateCppCheckReportsTask extends AbstractCoverageTask {
         return f
     }
 
-    private void extractPygments() {
-        String archivePath = findTheReleaseArchiveFile(cppCoverageExtension.PYGMENTS_FILENAME)
-        FileTree pygmentFiles = FileUtil.extractZipfile(project, archivePath)
-        FileUtil.copyFileTreeToDest(project, pygmentFiles, pygmentsDirectoryPath)
+    private ToolProvisioner.Tool provisionPygments() {
+        return provisionTool("pygments",
+                             cppCoverageExtension.PYGMENTS_VERSION,
+                             cppCoverageExtension.PYGMENTS_FILENAME)
     }
 
-    private void extractCppCheckTool() {
-        String archivePath = findTheReleaseArchiveFile(cppCoverageExtension.CPPCHECK_FILENAME)
-        FileTree cppcheckFiles = FileUtil.extractZipfile(project, archivePath)
-        FileUtil.copyFileTreeToDest(project, cppcheckFiles, cppcheckDirectoryPath)
+    /**
+     * Puts the provisioned pygments in front of the existing python path of the environment
+     * @param pygments the provisioned pygments tool
+     * @return the python path for the cppcheck html report
+     */
+    private String pythonPath(ToolProvisioner.Tool pygments) {
+        File pygmentsFolder = new File(pygments.directory, "pygments-$cppCoverageExtension.PYGMENTS_VERSION")
+        def paths = [pygmentsFolder.isDirectory() ? pygmentsFolder.absolutePath : pygments.directory.absolutePath]
+        String existing = System.getenv("PYTHONPATH")
+        if (existing) {
+            paths << existing
+        }
+        return paths.join(File.pathSeparator)
+    }
+
+    private void provisionCppCheckTool() {
+        ToolProvisioner.Tool cppcheck = provisionTool("cppcheck",
+                                                      cppCoverageExtension.CPPCHECK_VERSION,
+                                                      cppCoverageExtension.CPPCHECK_FILENAME)
+        cppcheckExecutable = cppcheck.getExecutable(FileUtil.toPath(cppcheckFolder, "cppcheck"))
+        cppcheckHtmlExecutable = cppcheck.getExecutable(FileUtil.toPath(cppcheckFolder, "htmlreport",
+                                                                        "cppcheck-htmlreport"))
     }
 }
@@ -25,8 +25,8 @@ package com.ngc.seaside.gradle.plugins.cpp.coverage.reports
 import com.ngc.seaside.gradle.api.AbstractCoverageTask
 import com.ngc.seaside.gradle.plugins.cpp.coverage.SeasideCppCoverageExtension
 import com.ngc.seaside.gradle.util.FileUtil
+import com.ngc.seaside.gradle.util.ToolProvisioner
 
-import org.gradle.api.file.FileTree
 import org.gradle.api.tasks.TaskAction
 
 class GenerateRatsReportsTask extends AbstractCoverageTask {
@@ -34,14 +34,13 @@ class GenerateRatsReportsTask extends AbstractCoverageTask {
     private SeasideCppCoverageExtension cppCoverageExtension =
             project.extensions.findByType(SeasideCppCoverageExtension.class)
 
-    private final String ratsDirectoryPath = FileUtil.toPath(project.buildDir.name, "tmp", "rats")
-    private final String ratsFolder = FileUtil.toPath(ratsDirectoryPath, "rats-$cppCoverageExtension.RATS_VERSION")
-    private final String ratsDatabasePath = FileUtil.toPath(ratsFolder, "rats-c.xml")
-    private final String ratsExecutable = FileUtil.toPath(ratsFolder, "rats")
+    private final String ratsFolder = "rats-$cppCoverageExtension.RATS_VERSION"
+    private String ratsDatabasePath
+    private String ratsExecutable
 
     @TaskAction
     def generateRatsReports() {
-        extractRatsTool()
+        provisionRatsTool()
         def dir = [project.projectDir.absolutePath, "src", "main", "cpp"].join(File.separator)
 
 
@@ -93,9 +92,11 @@ class GenerateRatsReportsTask extends AbstractCoverageTask {
         return f
     }
 
-    private void extractRatsTool() {
-        String archivePath = findTheReleaseArchiveFile(cppCoverageExtension.RATS_FILENAME)
-        FileTree ratsFiles = FileUtil.extractZipfile(project, archivePath)
-        FileUtil.copyFileTreeToDest(project, ratsFiles, ratsDirectoryPath)
+    private void provisionRatsTool() {
+        ToolProvisioner.Tool rats = provisionTool("rats",
+                                                  cppCoverageExtension.RATS_VERSION,
+                                                  cppCoverageExtension.RATS_FILENAME)
+        ratsDatabasePath = rats.getFile(FileUtil.toPath(ratsFolder, "rats-c.xml")).absolutePath
+        ratsExecutable = rats.getExecutable(FileUtil.toPath(ratsFolder, "rats"))
     }
 }
@@ -25,6 +25,7 @@ package com.ngc.seaside.gradle.plugins.cpp.parent
 import com.ngc.seaside.gradle.api.AbstractProjectPlugin
 import com.ngc.seaside.gradle.plugins.cpp.coverage.SeasideCppCoveragePlugin
 import com.ngc.seaside.gradle.plugins.cpp.dependencies.BuildingExtension
+import com.ngc.seaside.gradle.plugins.cpp.dependencies.DistributionUnpacker
 import com.ngc.seaside.gradle.plugins.cpp.dependencies.StaticBuildConfiguration
 import com.ngc.seaside.gradle.plugins.cpp.dependencies.UnpackCppDistributionsTask
 import com.ngc.seaside.gradle.plugins.parent.SeasideParentPlugin
@@ -34,6 +35,7 @@ import com.ngc.seaside.gradle.tasks.dependencies.DownloadDependenciesTask
 import org.gradle.api.Project
 import org.gradle.api.internal.resolve.ProjectModelResolver
 import org.gradle.api.tasks.Copy
+import org.gradle.api.tasks.Sync
 import org.gradle.api.tasks.bundling.Zip
 import org.gradle.language.cpp.tasks.CppCompile
 import org.gradle.nativeplatform.NativeLibrarySpec
@@ -137,7 +139,7 @@ class SeasideCppParentPlugin extends AbstractProjectPlugin {
                         gcc(Gcc) {
                             eachPlatform {
                                 linker.withArguments { args ->
-                                    filterLinkerArgs(project.extensions.building, args)
+                                    filterLinkerArgs(extension, args)
                                 }
                             }
                         }
@@ -276,14 +278,24 @@ class SeasideCppParentPlugin extends AbstractProjectPlugin {
         project.tasks.getByName(ANALYZE_TASK_NAME).dependsOn([buildTask, coverageReportTask, sonarqubeTask])
         project.tasks.getByName(ANALYZE_TASK_NAME).setDescription('Runs build and sonarqube')
 
-        project.task('copyCompileDependencies', type: Copy) {
+        // Sync removes the archives of dependencies that were dropped while keeping the unpacked directories, which
+        // the unpack tasks remove once their archives are gone
+        project.task('copyCompileDependencies', type: Sync) {
             from project.configurations.compile
             into { "${project.buildDir}/dependencies" }
+            preserve {
+                include '*/**'
+                exclude '*.zip'
+            }
         }
 
-        project.task('copyTestCompileDependencies', type: Copy) {
+        project.task('copyTestCompileDependencies', type: Sync) {
             from project.configurations.testCompile
             into { "${project.buildDir}/testDependencies" }
+            preserve {
+                include '*/**'
+                exclude '*.zip'
+            }
         }
 
 
@@ -292,12 +304,14 @@ class SeasideCppParentPlugin extends AbstractProjectPlugin {
                      dependsOn: copyCompileDependenciesTask) {
             componentName = 'main'
             componentSourceSetName = 'cpp'
+            cacheDirectory = DistributionUnpacker.getCacheDirectory(project.gradle)
         }
 
         def copyTestCompileDependenciesTask = taskResolver.findTask("copyTestCompileDependencies")
         project.task('unpackTestCompileDependencies', type: UnpackCppDistributionsTask,
                      dependsOn: copyTestCompileDependenciesTask) {
             testDependencies = true
+            cacheDirectory = DistributionUnpacker.getCacheDirectory(project.gradle)
         }
 
         project.task('copyExportedHeaders', type: Copy) {
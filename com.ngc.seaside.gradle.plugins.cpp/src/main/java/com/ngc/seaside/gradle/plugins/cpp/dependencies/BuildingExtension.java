@@ -32,7 +32,7 @@ import groovy.lang.Closure;
  * linking arguments and headers.
  */
 public class BuildingExtension {
-   private BuildingExtensionDataStore storage = new BuildingExtensionDataStore();
+   private volatile BuildingExtensionDataStore storage = new BuildingExtensionDataStore();
    private Project project;
 
    /**
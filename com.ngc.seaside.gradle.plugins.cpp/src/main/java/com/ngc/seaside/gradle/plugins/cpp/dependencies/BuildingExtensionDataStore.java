@@ -22,21 +22,32 @@
  */
 package com.ngc.seaside.gradle.plugins.cpp.dependencies;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-
-import java.util.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * The storage of data for the {@link BuildingExtension} configuration.
+ * The storage of data for the {@link BuildingExtension} configuration.  Each {@link BuildingExtension} has its own
+ * store, so the configuration of a project is discarded with the project at the end of the build and is never seen by
+ * other projects.  The store is backed by concurrent collections, so it can be read by the tasks and model rules of the
+ * project while other projects are configured and built in parallel.
  */
 public class BuildingExtensionDataStore {
 
-   private static Multimap<String, StaticBuildConfiguration> staticDependenciesMap = ArrayListMultimap.create();
-   private static Multimap<String, SharedBuildConfiguration> sharedDependenciesMap = ArrayListMultimap.create();
-   private static Multimap<String, HeaderBuildConfiguration> headersByDependencyMap = ArrayListMultimap.create();
-   private static List<String> apiDependencies = new ArrayList<>();
-   private static Map<String, StaticBuildConfiguration.WithArgs> librariesWithLinkerArgsMap = new HashMap<>();
+   private final ConcurrentMap<String, Collection<StaticBuildConfiguration>> staticDependenciesMap =
+            new ConcurrentHashMap<>();
+   private final ConcurrentMap<String, Collection<SharedBuildConfiguration>> sharedDependenciesMap =
+            new ConcurrentHashMap<>();
+   private final ConcurrentMap<String, Collection<HeaderBuildConfiguration>> headersByDependencyMap =
+            new ConcurrentHashMap<>();
+   private final List<String> apiDependencies = new CopyOnWriteArrayList<>();
+   private final ConcurrentMap<String, StaticBuildConfiguration.WithArgs> librariesWithLinkerArgsMap =
+            new ConcurrentHashMap<>();
 
    /**
     * Add the header configuration.
@@ -44,17 +55,17 @@ public class BuildingExtensionDataStore {
     * @param headerBuildConfiguration the header configuration.
     */
    public void add(HeaderBuildConfiguration headerBuildConfiguration) {
-      headersByDependencyMap.put(headerBuildConfiguration.getDependencyName(), headerBuildConfiguration);
+      put(headersByDependencyMap, headerBuildConfiguration.getDependencyName(), headerBuildConfiguration);
    }
 
    /**
     * Get all header configurations for a given dependency.
     *
     * @param dependencyName the name of the dependency.
-    * @return the configurations or null if not found.
+    * @return the configurations or an empty collection if not found.
     */
    public Collection<HeaderBuildConfiguration> getHeaderBuildConfigurations(String dependencyName) {
-      return headersByDependencyMap.get(dependencyName);
+      return get(headersByDependencyMap, dependencyName);
    }
 
    /**
@@ -72,7 +83,7 @@ public class BuildingExtensionDataStore {
     * @return the list of dependencies or an empty list if no configured apis exists.
     */
    public List<String> getApiDependencies() {
-      return apiDependencies;
+      return Collections.unmodifiableList(apiDependencies);
    }
 
    /**
@@ -81,7 +92,7 @@ public class BuildingExtensionDataStore {
     * @param staticBuildConfiguration the static configuration
     */
    public void add(StaticBuildConfiguration staticBuildConfiguration) {
-      staticDependenciesMap.put(staticBuildConfiguration.getDependency(), staticBuildConfiguration);
+      put(staticDependenciesMap, staticBuildConfiguration.getDependency(), staticBuildConfiguration);
    }
 
    /**
@@ -90,17 +101,17 @@ public class BuildingExtensionDataStore {
     * @return the static dependencies.
     */
    public Collection<String> getStaticDependencies() {
-      return staticDependenciesMap.keySet();
+      return Collections.unmodifiableSet(staticDependenciesMap.keySet());
    }
 
    /**
     * Get the static configuration by dependency name.
     *
     * @param dependencyName the name of the dependency.
-    * @return the static dependencies or null if the dependency doesn't exists.
+    * @return the static dependencies or an empty collection if the dependency doesn't exists.
     */
    public Collection<StaticBuildConfiguration> getStaticBuildConfigurations(String dependencyName) {
-      return staticDependenciesMap.get(dependencyName);
+      return get(staticDependenciesMap, dependencyName);
    }
 
    /**
@@ -109,7 +120,7 @@ public class BuildingExtensionDataStore {
     * @param sharedBuildConfiguration the shared build configuration
     */
    public void add(SharedBuildConfiguration sharedBuildConfiguration) {
-      sharedDependenciesMap.put(sharedBuildConfiguration.getDependency(), sharedBuildConfiguration);
+      put(sharedDependenciesMap, sharedBuildConfiguration.getDependency(), sharedBuildConfiguration);
    }
 
    /**
@@ -118,17 +129,17 @@ public class BuildingExtensionDataStore {
     * @return the dependencies that have shared link configuration
     */
    public Collection<String> getSharedDependencies() {
-      return sharedDependenciesMap.keySet();
+      return Collections.unmodifiableSet(sharedDependenciesMap.keySet());
    }
 
    /**
     * Get the shared build configuration by name.
     *
     * @param dependencyName the name of the dependency.
-    * @return the shared dependency configurations or null if the dependency doesn't exist.
+    * @return the shared dependency configurations or an empty collection if the dependency doesn't exist.
     */
    public Collection<SharedBuildConfiguration> getSharedBuildConfigurations(String dependencyName) {
-      return sharedDependenciesMap.get(dependencyName);
+      return get(sharedDependenciesMap, dependencyName);
    }
 
    /**
@@ -167,6 +178,15 @@ public class BuildingExtensionDataStore {
     * @return the library names.
     */
    public Set<String> getFilesWithLinkerArgs() {
-      return librariesWithLinkerArgsMap.keySet();
+      return Collections.unmodifiableSet(librariesWithLinkerArgsMap.keySet());
+   }
+
+   private static <T> void put(ConcurrentMap<String, Collection<T>> map, String key, T value) {
+      map.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(value);
+   }
+
+   private static <T> Collection<T> get(ConcurrentMap<String, Collection<T>> map, String key) {
+      Collection<T> values = map.get(key);
+      return values == null ? Collections.emptyList() : Collections.unmodifiableCollection(values);
    }
 }
@@ -0,0 +1,246 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.cpp.dependencies;
+
+import com.google.common.base.Preconditions;
+import com.ngc.seaside.gradle.util.ArchiveExtractor;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unpacks the zip archives of C++ distributions concurrently on a bounded pool of threads.  Each archive is unpacked
+ * to a directory next to it that has the name of the archive without the {@code .zip} extension.  Once a directory
+ * has been completely unpacked, a marker file containing the SHA-256 checksum of its archive is written to it.  An
+ * archive whose checksum matches the marker of its directory is not unpacked again, and a directory with a marker
+ * whose archive no longer exists is removed.
+ *
+ * <p>
+ * If a cache directory is given, each archive is unpacked only once into the cache, in a directory named after the
+ * checksum of the archive, and the directory next to the archive is a symbolic link to the cached directory.  The
+ * {@link #getCacheDirectory(Gradle) shared cache} is located at {@value #CACHE_DIRECTORY_NAME} in the Gradle user
+ * home, so the same archive is unpacked once for all of the projects and builds using the same Gradle user home.
+ * Archives are unpacked into the cache with {@link ArchiveExtractor#extractLocked(File, String, Path, String)}, so
+ * concurrent builds do not unpack the same archive at the same time.  Cached directories are never modified after
+ * they are complete.  If symbolic links are not supported, archives are unpacked next to the archive instead.
+ */
+public class DistributionUnpacker {
+
+   /**
+    * The name of the marker file written to every unpacked directory.
+    */
+   public static final String MARKER_FILE_NAME = ".unpacked.sha256";
+
+   /**
+    * The location of the shared cache, relative to the Gradle user home.
+    */
+   public static final String CACHE_DIRECTORY_NAME = "caches/seaside/cpp-distributions-sha256";
+
+   private static final String ARCHIVE_EXTENSION = ".zip";
+
+   private static final Logger LOGGER = Logging.getLogger(DistributionUnpacker.class);
+
+   private final int threads;
+   private final File cacheDirectory;
+
+   /**
+    * Creates an unpacker that uses up to one thread per available processor.
+    */
+   public DistributionUnpacker() {
+      this(Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * Creates an unpacker that uses up to the given number of threads.
+    *
+    * @param threads the maximum number of archives to unpack at the same time
+    */
+   public DistributionUnpacker(int threads) {
+      this(threads, null);
+   }
+
+   /**
+    * Creates an unpacker that uses up to the given number of threads and unpacks archives into the given cache.
+    *
+    * @param threads        the maximum number of archives to unpack at the same time
+    * @param cacheDirectory the directory to cache unpacked archives in, or {@code null} to unpack archives next to
+    *                       the archive
+    */
+   public DistributionUnpacker(int threads, File cacheDirectory) {
+      Preconditions.checkArgument(threads > 0, "threads must be positive");
+      this.threads = threads;
+      this.cacheDirectory = cacheDirectory;
+   }
+
+   /**
+    * Returns the cache shared by all of the builds using the Gradle user home of the given build.
+    *
+    * @param gradle the build
+    * @return the shared cache directory
+    */
+   public static File getCacheDirectory(Gradle gradle) {
+      Preconditions.checkNotNull(gradle, "gradle may not be null!");
+      return new File(gradle.getGradleUserHomeDir(), CACHE_DIRECTORY_NAME);
+   }
+
+   /**
+    * Unpacks the given archives, skipping the archives that have not changed since they were last unpacked.
+    *
+    * @param archives the zip archives to unpack
+    * @return the directories the archives were unpacked to, in the same order as the archives
+    */
+   public List<File> unpack(Collection<File> archives) {
+      Preconditions.checkNotNull(archives, "archives may not be null!");
+      List<File> directories = new ArrayList<>(archives.size());
+      if (archives.isEmpty()) {
+         return directories;
+      }
+      ExecutorService executor = createExecutor(Math.min(threads, archives.size()));
+      try {
+         List<Future<File>> futures = new ArrayList<>(archives.size());
+         for (File archive : archives) {
+            futures.add(executor.submit(() -> unpack(archive)));
+         }
+         for (Future<File> future : futures) {
+            directories.add(future.get());
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new GradleException("Interrupted while unpacking distributions", e);
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         }
+         throw new GradleException("Unable to unpack distributions", cause);
+      } finally {
+         executor.shutdownNow();
+      }
+      return directories;
+   }
+
+   /**
+    * Removes the unpacked directories within the given directory whose archives no longer exist.  Only directories
+    * that contain a marker file and links to cached directories are considered, so directories that were not created
+    * by this unpacker are kept.
+    *
+    * @param directory the directory that contains the archives
+    * @return the directories that were removed
+    */
+   public List<File> removeStaleDirectories(File directory) {
+      Preconditions.checkNotNull(directory, "directory may not be null!");
+      List<File> removed = new ArrayList<>();
+      File[] children = directory.listFiles(file -> file.isDirectory() || Files.isSymbolicLink(file.toPath()));
+      if (children == null) {
+         return removed;
+      }
+      for (File child : children) {
+         File archive = new File(directory, child.getName() + ARCHIVE_EXTENSION);
+         boolean unpacked = new File(child, MARKER_FILE_NAME).isFile() || Files.isSymbolicLink(child.toPath());
+         if (unpacked && !archive.isFile()) {
+            delete(child);
+            removed.add(child);
+         }
+      }
+      return removed;
+   }
+
+   /**
+    * Gets the directory the given archive is unpacked to.
+    *
+    * @param archive the zip archive
+    * @return the directory the archive is unpacked to
+    */
+   public static File getDestination(File archive) {
+      String name = archive.getName();
+      if (name.endsWith(ARCHIVE_EXTENSION)) {
+         name = name.substring(0, name.length() - ARCHIVE_EXTENSION.length());
+      }
+      return new File(archive.getParentFile(), name);
+   }
+
+   private File unpack(File archive) {
+      File destination = getDestination(archive);
+      try {
+         String checksum = ArchiveExtractor.checksum(archive);
+         if (cacheDirectory != null) {
+            Path cached = unpackToCache(archive, checksum);
+            Path link = destination.toPath();
+            if (Files.isSymbolicLink(link) && Files.readSymbolicLink(link).equals(cached)) {
+               return destination;
+            }
+            delete(destination);
+            try {
+               Files.createSymbolicLink(link, cached);
+               return destination;
+            } catch (UnsupportedOperationException | IOException e) {
+               // Symbolic links are not supported by some file systems or require privileges on Windows
+               LOGGER.debug("Unable to link {} to {}, unpacking instead", link, cached, e);
+            }
+         }
+         ArchiveExtractor.extract(archive, checksum, destination.toPath(), MARKER_FILE_NAME);
+      } catch (IOException e) {
+         throw new UncheckedIOException("Unable to unpack " + archive, e);
+      }
+      return destination;
+   }
+
+   private Path unpackToCache(File archive, String checksum) throws IOException {
+      Path cached = cacheDirectory.toPath().resolve(checksum.substring(0, 2)).resolve(checksum).toAbsolutePath();
+      ArchiveExtractor.extractLocked(archive, checksum, cached, MARKER_FILE_NAME);
+      return cached;
+   }
+
+   private static void delete(File directory) {
+      try {
+         ArchiveExtractor.delete(directory.toPath());
+      } catch (IOException e) {
+         throw new UncheckedIOException("Unable to delete " + directory, e);
+      }
+   }
+
+   private static ExecutorService createExecutor(int threads) {
+      AtomicInteger count = new AtomicInteger();
+      return Executors.newFixedThreadPool(threads, runnable -> {
+         Thread thread = new Thread(runnable, "cpp-unpacker-" + count.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+}
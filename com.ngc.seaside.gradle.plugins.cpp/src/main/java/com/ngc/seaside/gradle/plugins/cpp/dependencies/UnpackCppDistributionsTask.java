@@ -23,9 +23,7 @@
 package com.ngc.seaside.gradle.plugins.cpp.dependencies;
 
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Project;
 import org.gradle.api.internal.resolve.ProjectModelResolver;
-import org.gradle.api.tasks.Copy;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.language.cpp.CppSourceSet;
 import org.gradle.model.internal.registry.ModelRegistry;
@@ -42,10 +40,12 @@ import org.gradle.platform.base.ComponentSpecContainer;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -53,7 +53,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * This task unpacks the dependencies and configures the cpp task.
+ * This task unpacks the dependencies and configures the cpp task.  Dependencies are unpacked with a
+ * {@link DistributionUnpacker}, so only the dependencies that changed since the last build are unpacked again.  By
+ * default, the unpacked dependencies are shared with other projects through the
+ * {@link DistributionUnpacker#getCacheDirectory(org.gradle.api.invocation.Gradle) shared cache}.
  */
 public class UnpackCppDistributionsTask extends DefaultTask {
 
@@ -90,6 +93,7 @@ public class UnpackCppDistributionsTask extends DefaultTask {
    private final static Pattern ARTIFACT_NAME_REGEX = Pattern.compile("(.+)-\\d+\\.\\d+(\\.\\d+)?(-\\w+)?");
 
    private File dependenciesDirectory;
+   private File cacheDirectory;
    private String componentName;
    private String componentSourceSetName;
    private boolean testDependencies = false;
@@ -102,7 +106,6 @@ public class UnpackCppDistributionsTask extends DefaultTask {
       if (dependenciesDirectory == null) {
          throw new IllegalArgumentException("dependenciesDirectory property not set!");
       }
-      Project project = getProject();
 
       if (dependenciesDirectory.isDirectory()) {
          if (!testDependencies && (componentName == null || componentName.trim().equals(""))) {
@@ -113,16 +116,17 @@ public class UnpackCppDistributionsTask extends DefaultTask {
          }
 
          File[] zips = dependenciesDirectory.listFiles((dir, name) -> name.endsWith(".zip"));
-         for (File zip : zips) {
-            String destFileName = zip.getName().substring(0, zip.getName().length() - 4);
-            File dest = new File(zip.getParentFile(), destFileName);
+         Arrays.sort(zips);
 
-            Copy unzipTask = project.getTasks().create("unzip" + getName() + "_" + destFileName, Copy.class);
-            unzipTask.into(dest);
-            unzipTask.from(project.zipTree(zip));
-            unzipTask.execute();
-
-            configureDependency(dest, getDependencyNameFromFileName(destFileName));
+         DistributionUnpacker unpacker =
+                  new DistributionUnpacker(Runtime.getRuntime().availableProcessors(), cacheDirectory);
+         for (File stale : unpacker.removeStaleDirectories(dependenciesDirectory)) {
+            getLogger().info("Removed stale dependency {}", stale);
+         }
+         // The archives are unpacked concurrently, but the model is only updated from this thread
+         List<File> directories = unpacker.unpack(Arrays.asList(zips));
+         if (!directories.isEmpty()) {
+            configureDependencies(directories);
          }
       }
    }
@@ -135,6 +139,20 @@ public class UnpackCppDistributionsTask extends DefaultTask {
       this.dependenciesDirectory = dependenciesDirectory;
    }
 
+   /**
+    * Gets the directory unpacked dependencies are cached in.  If this directory is {@code null}, dependencies are
+    * unpacked into the dependencies directory of this project instead of being linked from the cache.
+    *
+    * @return the cache directory or {@code null}
+    */
+   public File getCacheDirectory() {
+      return cacheDirectory;
+   }
+
+   public void setCacheDirectory(File cacheDirectory) {
+      this.cacheDirectory = cacheDirectory;
+   }
+
    public String getComponentName() {
       return componentName;
    }
@@ -160,13 +178,13 @@ public class UnpackCppDistributionsTask extends DefaultTask {
    }
 
    /**
-    * Configure the dependency within the cpp plugin. This includes creating the libs under model > repositories and
-    * adding the dependency to the components
+    * Configure the dependencies within the cpp plugin. The project model is resolved once, the libs of every
+    * dependency are created under model > repositories and the libraries of all of the dependencies are then added to
+    * the component and the google test binaries together.
     *
-    * @param directory      the base directory in which the dependency exists in its unpacked state.
-    * @param dependencyName the name of the dependency. This is usually the artifact ID.
+    * @param directories the base directories in which the dependencies exist in their unpacked state.
     */
-   private void configureDependency(File directory, String dependencyName) {
+   void configureDependencies(List<File> directories) {
       BuildingExtension buildingExtension = getProject().getExtensions().getByType(BuildingExtension.class);
 
       ModelRegistry projectModel = getServices()
@@ -176,35 +194,61 @@ public class UnpackCppDistributionsTask extends DefaultTask {
       Repositories repositories = projectModel.find("repositories", Repositories.class);
       DefaultPrebuiltLibraries libs = repositories.withType(DefaultPrebuiltLibraries.class).getByName("libs");
 
+      Set<Map<String, String>> libraries = new LinkedHashSet<>();
+      for (File directory : directories) {
+         String dependencyName = getDependencyNameFromFileName(directory.getName());
+         configureDependency(directory, dependencyName, buildingExtension, libs, libraries);
+      }
+
+      if (!libraries.isEmpty()) {
+         if (!testDependencies) {
+            addDependenciesToComponent(projectModel, libraries);
+         }
+         addDependenciesToGoogleTestBinaries(projectModel, libraries);
+      }
+   }
+
+   /**
+    * Configure the dependency within the cpp plugin. This includes creating the libs under model > repositories and
+    * collecting the libraries that should be added to the components
+    *
+    * @param directory         the base directory in which the dependency exists in its unpacked state.
+    * @param dependencyName    the name of the dependency. This is usually the artifact ID.
+    * @param buildingExtension the plugins extension (i.e. the 'building' configuration in groovy)
+    * @param libs              the PrebuiltLibraries libs (the object that the dependency gets added to)
+    * @param libraries         the libraries to add to the components, which this method adds to
+    */
+   private void configureDependency(File directory,
+                                    String dependencyName,
+                                    BuildingExtension buildingExtension,
+                                    DefaultPrebuiltLibraries libs,
+                                    Set<Map<String, String>> libraries) {
       List<File> dependencyHeaders = createHeaderFiles(directory, dependencyName, buildingExtension);
 
-      addStaticDependencies(directory, dependencyName, buildingExtension, libs, dependencyHeaders);
-      addSharedDependencies(directory, dependencyName, buildingExtension, libs, dependencyHeaders);
-      addApiDependencies(directory, dependencyName, buildingExtension, libs, dependencyHeaders);
+      addStaticDependencies(directory, dependencyName, buildingExtension, libs, dependencyHeaders, libraries);
+      addSharedDependencies(directory, dependencyName, buildingExtension, libs, dependencyHeaders, libraries);
+      addApiDependencies(dependencyName, buildingExtension, libs, dependencyHeaders, libraries);
    }
 
    /**
     * Add the dependency as an API dependency if configured that way.
     *
-    * @param directory         the base directory in which the dependency exists in its unpacked state.
     * @param dependencyName    the name of the dependency (this is derived from the directory name (minus the version)
     * @param buildingExtension the plugins extension (i.e. the 'building' configuration in groovy)
     * @param libs              the PrebuiltLibraries libs (the object that the dependency gets added to)
     * @param dependencyHeaders the headers associated with this dependency
+    * @param libraries         the libraries to add to the components, which this method adds to
     */
-   private void addApiDependencies(File directory,
-                                   String dependencyName,
+   private void addApiDependencies(String dependencyName,
                                    BuildingExtension buildingExtension,
                                    DefaultPrebuiltLibraries libs,
-                                   List<File> dependencyHeaders) {
+                                   List<File> dependencyHeaders,
+                                   Set<Map<String, String>> libraries) {
       List<String> configs = buildingExtension.getStorage().getApiDependencies();
       if (configs.contains(dependencyName)) {
          PrebuiltLibrary lib = libs.maybeCreate(dependencyName);
          lib.getHeaders().setSrcDirs(dependencyHeaders);
-         if (!testDependencies) {
-            addDependencyToComponent(dependencyName, LibraryType.API);
-         }
-         addDependencyToGoogleTestBinary(dependencyName, LibraryType.API);
+         libraries.add(createLibraryRequirement(dependencyName, LibraryType.API));
       }
    }
 
@@ -228,12 +272,14 @@ public class UnpackCppDistributionsTask extends DefaultTask {
     * @param buildingExtension the plugins extension (i.e. the 'building' configuration in groovy)
     * @param libs              the PrebuiltLibraries libs (the object that the dependency gets added to)
     * @param dependencyHeaders the headers associated with this dependency
+    * @param libraries         the libraries to add to the components, which this method adds to
     */
    private void addStaticDependencies(File directory,
                                       String dependencyName,
                                       BuildingExtension buildingExtension,
                                       DefaultPrebuiltLibraries libs,
-                                      List<File> dependencyHeaders) {
+                                      List<File> dependencyHeaders,
+                                      Set<Map<String, String>> libraries) {
       Collection<StaticBuildConfiguration>
                configs = buildingExtension.getStorage().getStaticBuildConfigurations(dependencyName);
 
@@ -260,10 +306,7 @@ public class UnpackCppDistributionsTask extends DefaultTask {
                         addLinkerArgs(obj.getAbsolutePath(), config.getWithArgs(), buildingExtension);
                      }
 
-                     if (!testDependencies) {
-                        addDependencyToComponent(lib.getName(), LibraryType.STATIC);
-                     }
-                     addDependencyToGoogleTestBinary(lib.getName(), LibraryType.STATIC);
+                     libraries.add(createLibraryRequirement(lib.getName(), LibraryType.STATIC));
                   }
                }
             }
@@ -286,10 +329,7 @@ public class UnpackCppDistributionsTask extends DefaultTask {
                   if (config.getWithArgs() != null) {
                      addLinkerArgs(obj.getAbsolutePath(), config.getWithArgs(), buildingExtension);
                   }
-                  if (!testDependencies) {
-                     addDependencyToComponent(dependencyName, LibraryType.STATIC);
-                  }
-                  addDependencyToGoogleTestBinary(dependencyName, LibraryType.STATIC);
+                  libraries.add(createLibraryRequirement(dependencyName, LibraryType.STATIC));
                }
             }
          }
@@ -304,12 +344,14 @@ public class UnpackCppDistributionsTask extends DefaultTask {
     * @param buildingExtension the plugins extension (i.e. the 'building' configuration in groovy)
     * @param libs              the PrebuiltLibraries libs (the object that the dependency gets added to)
     * @param dependencyHeaders the headers associated with this dependency
+    * @param libraries         the libraries to add to the components, which this method adds to
     */
    private void addSharedDependencies(File directory,
                                       String dependencyName,
                                       BuildingExtension buildingExtension,
                                       DefaultPrebuiltLibraries libs,
-                                      List<File> dependencyHeaders) {
+                                      List<File> dependencyHeaders,
+                                      Set<Map<String, String>> libraries) {
 
       Collection<SharedBuildConfiguration>
                configs =
@@ -332,10 +374,7 @@ public class UnpackCppDistributionsTask extends DefaultTask {
                      deps.add(obj);
                      bin.setSharedLibraryFile(obj);
 
-                     if (!testDependencies) {
-                        addDependencyToComponent(lib.getName(), LibraryType.SHARED);
-                     }
-                     addDependencyToGoogleTestBinary(lib.getName(), LibraryType.SHARED);
+                     libraries.add(createLibraryRequirement(lib.getName(), LibraryType.SHARED));
                   }
                }
             }
@@ -353,10 +392,7 @@ public class UnpackCppDistributionsTask extends DefaultTask {
                   deps.add(obj);
                   bin.setSharedLibraryFile(obj);
 
-                  if (!testDependencies) {
-                     addDependencyToComponent(dependencyName, LibraryType.SHARED);
-                  }
-                  addDependencyToGoogleTestBinary(dependencyName, LibraryType.SHARED);
+                  libraries.add(createLibraryRequirement(dependencyName, LibraryType.SHARED));
                }
             }
          }
@@ -434,15 +470,26 @@ public class UnpackCppDistributionsTask extends DefaultTask {
    }
 
    /**
-    * Add the dependency to the components cpp plugin configuration.
+    * Create the requirement of a component or binary on a library.
     *
     * @param dependencyName the name of the dependency or library
     * @param type           the type being added.
+    * @return the library requirement
     */
-   private void addDependencyToComponent(String dependencyName, LibraryType type) {
-      ModelRegistry projectModel = getServices()
-               .get(ProjectModelResolver.class)
-               .resolveProjectModel(getProject().getPath());
+   private static Map<String, String> createLibraryRequirement(String dependencyName, LibraryType type) {
+      Map<String, String> map = new HashMap<>();
+      map.put("library", dependencyName);
+      map.put("linkage", type.getName()); // api = header only, other options are shared or static.
+      return map;
+   }
+
+   /**
+    * Add the dependencies to the components cpp plugin configuration.
+    *
+    * @param projectModel the model of the project
+    * @param libraries    the libraries being added
+    */
+   private void addDependenciesToComponent(ModelRegistry projectModel, Collection<Map<String, String>> libraries) {
       NativeLibrarySpec component = projectModel
                .find("components", ComponentSpecContainer.class)
                .withType(NativeLibrarySpec.class)
@@ -452,30 +499,23 @@ public class UnpackCppDistributionsTask extends DefaultTask {
                .withType(CppSourceSet.class)
                .get(getComponentSourceSetName());
 
-      Map<String, String> map = new HashMap<>();
-      map.put("library", dependencyName);
-      map.put("linkage", type.getName()); // api = header only, other options are shared or static.
-      cppSourceSet.lib(map);
+      // The source set adds all of the libraries of an iterable at once
+      cppSourceSet.lib(new ArrayList<>(libraries));
    }
 
    /**
-    * Add the dependency to the google test binary.
+    * Add the dependencies to the google test binaries.
     *
-    * @param dependencyName the name of the dependency or library.
-    * @param type           the type being added.
+    * @param projectModel the model of the project
+    * @param libraries    the libraries being added
     */
-   private void addDependencyToGoogleTestBinary(String dependencyName, LibraryType type) {
-      ModelRegistry projectModel = getServices()
-               .get(ProjectModelResolver.class)
-               .resolveProjectModel(getProject().getPath());
-
+   private void addDependenciesToGoogleTestBinaries(ModelRegistry projectModel,
+                                                   Collection<Map<String, String>> libraries) {
       for (GoogleTestTestSuiteBinarySpec binary :
                projectModel.find("binaries", BinaryContainer.class).withType(GoogleTestTestSuiteBinarySpec.class)) {
-
-         Map<String, String> map = new HashMap<>();
-         map.put("library", dependencyName);
-         map.put("linkage", type.getName());
-         binary.lib(map);
+         for (Map<String, String> library : libraries) {
+            binary.lib(library);
+         }
       }
    }
 
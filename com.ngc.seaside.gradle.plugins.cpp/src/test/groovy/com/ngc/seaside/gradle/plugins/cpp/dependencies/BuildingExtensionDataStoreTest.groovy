@@ -0,0 +1,96 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.cpp.dependencies
+
+import org.gradle.api.Project
+import org.junit.Assert
+import org.junit.Test
+import org.mockito.Mockito
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+class BuildingExtensionDataStoreTest {
+
+   private Project project = Mockito.mock(Project)
+
+   @Test
+   void storesAreIndependent() {
+      def first = new BuildingExtensionDataStore()
+      def second = new BuildingExtensionDataStore()
+
+      first.add(staticConfiguration('boost'))
+      first.addApi('celix')
+      first.addLinkArgs('libboost.a', new StaticBuildConfiguration.WithArgs())
+
+      Assert.assertEquals(['boost'] as Set, first.staticDependencies as Set)
+      Assert.assertEquals(['celix'], first.apiDependencies)
+      Assert.assertTrue(first.hasLinkArgs('libboost.a'))
+      Assert.assertTrue(second.staticDependencies.isEmpty())
+      Assert.assertTrue(second.apiDependencies.isEmpty())
+      Assert.assertFalse(second.hasLinkArgs('libboost.a'))
+   }
+
+   @Test
+   void returnsEmptyCollectionsForUnknownDependencies() {
+      def store = new BuildingExtensionDataStore()
+
+      Assert.assertTrue(store.getStaticBuildConfigurations('missing').isEmpty())
+      Assert.assertTrue(store.getSharedBuildConfigurations('missing').isEmpty())
+      Assert.assertTrue(store.getHeaderBuildConfigurations('missing').isEmpty())
+      Assert.assertNull(store.getLinkerArgs('missing'))
+   }
+
+   @Test
+   void supportsConcurrentUpdates() {
+      def store = new BuildingExtensionDataStore()
+      def executor = Executors.newFixedThreadPool(8)
+      try {
+         def futures = (0..<8).collect { thread ->
+            executor.submit({
+               (0..<250).each {
+                  store.add(staticConfiguration("dependency${it % 10}"))
+                  store.add(new SharedBuildConfiguration(project).with { c -> c.dependency("shared$thread"); c })
+                  store.addApi("api$thread-$it")
+                  store.addLinkArgs("lib$thread-$it", new StaticBuildConfiguration.WithArgs())
+               }
+            } as Callable<Void>)
+         }
+         futures*.get()
+      } finally {
+         executor.shutdownNow()
+      }
+
+      Assert.assertEquals(10, store.staticDependencies.size())
+      Assert.assertEquals(8 * 250, store.staticDependencies.sum { store.getStaticBuildConfigurations(it).size() })
+      Assert.assertEquals(8, store.sharedDependencies.size())
+      Assert.assertEquals(8 * 250, store.apiDependencies.size())
+      Assert.assertEquals(8 * 250, store.filesWithLinkerArgs.size())
+   }
+
+   private StaticBuildConfiguration staticConfiguration(String dependency) {
+      def configuration = new StaticBuildConfiguration(project)
+      configuration.dependency(dependency)
+      return configuration
+   }
+}
@@ -0,0 +1,164 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.cpp.dependencies
+
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import java.nio.file.Files
+import java.nio.file.LinkOption
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class DistributionUnpackerTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder()
+
+   private DistributionUnpacker unpacker = new DistributionUnpacker(2)
+   private File directory
+
+   @Before
+   void before() {
+      directory = folder.newFolder('dependencies')
+   }
+
+   @Test
+   void unpacksArchivesConcurrently() {
+      def archives = (1..5).collect { createZip("lib$it-1.0", ["include/lib${it}.h": "lib$it"]) }
+
+      def directories = unpacker.unpack(archives)
+
+      Assert.assertEquals((1..5).collect { new File(directory, "lib$it-1.0") }, directories)
+      (1..5).each {
+         Assert.assertEquals("lib$it".toString(), new File(directory, "lib$it-1.0/include/lib${it}.h").text)
+         Assert.assertTrue(new File(directory, "lib$it-1.0/$DistributionUnpacker.MARKER_FILE_NAME").isFile())
+      }
+   }
+
+   @Test
+   void skipsArchivesThatHaveNotChanged() {
+      def archive = createZip('foo-1.0', ['include/foo.h': 'foo'])
+      unpacker.unpack([archive])
+      def extra = new File(directory, 'foo-1.0/extra.txt')
+      extra.text = 'extra'
+
+      unpacker.unpack([archive])
+
+      Assert.assertTrue('archive should not have been unpacked again', extra.isFile())
+   }
+
+   @Test
+   void unpacksArchivesThatHaveChanged() {
+      def archive = createZip('foo-1.0', ['include/foo.h': 'foo', 'include/old.h': 'old'])
+      unpacker.unpack([archive])
+
+      createZip('foo-1.0', ['include/foo.h': 'new foo'])
+      unpacker.unpack([archive])
+
+      Assert.assertEquals('new foo', new File(directory, 'foo-1.0/include/foo.h').text)
+      Assert.assertFalse('output of the old archive should have been removed',
+                         new File(directory, 'foo-1.0/include/old.h').exists())
+   }
+
+   @Test
+   void removesDirectoriesOfDroppedArchives() {
+      def foo = createZip('foo-1.0', ['include/foo.h': 'foo'])
+      def bar = createZip('bar-1.0', ['include/bar.h': 'bar'])
+      unpacker.unpack([foo, bar])
+      def unrelated = new File(directory, 'unrelated')
+      unrelated.mkdirs()
+      bar.delete()
+
+      def removed = unpacker.removeStaleDirectories(directory)
+
+      Assert.assertEquals([new File(directory, 'bar-1.0')], removed)
+      Assert.assertFalse(new File(directory, 'bar-1.0').exists())
+      Assert.assertTrue(new File(directory, 'foo-1.0/include/foo.h').isFile())
+      Assert.assertTrue('directories without a marker should be kept', unrelated.isDirectory())
+   }
+
+   @Test(expected = RuntimeException)
+   void rejectsEntriesOutsideOfTheDestination() {
+      unpacker.unpack([createZip('evil-1.0', ['../evil.h': 'evil'])])
+   }
+
+   @Test
+   void sharesCachedArchivesBetweenDirectories() {
+      def cache = folder.newFolder('cache')
+      def cachingUnpacker = new DistributionUnpacker(4, cache)
+      def archives = (1..4).collect {
+         def projectDirectory = folder.newFolder("project$it")
+         createZip(projectDirectory, 'foo-1.0', ['include/foo.h': 'foo'])
+      }
+
+      def directories = cachingUnpacker.unpack(archives)
+
+      def cached = cache.listFiles().collectMany { it.listFiles().findAll { it.isDirectory() } }
+      Assert.assertEquals('archive should have been unpacked once', 1, cached.size())
+      directories.each {
+         Assert.assertTrue(Files.isSymbolicLink(it.toPath()))
+         Assert.assertEquals(cached[0].toPath(), Files.readSymbolicLink(it.toPath()))
+         Assert.assertEquals('foo', new File(it, 'include/foo.h').text)
+      }
+   }
+
+   @Test
+   void relinksChangedArchivesAndRemovesLinksOfDroppedArchives() {
+      def cachingUnpacker = new DistributionUnpacker(2, folder.newFolder('cache'))
+      def archive = createZip('foo-1.0', ['include/foo.h': 'foo'])
+      def link = cachingUnpacker.unpack([archive])[0]
+      def original = Files.readSymbolicLink(link.toPath())
+
+      createZip('foo-1.0', ['include/foo.h': 'new foo'])
+      cachingUnpacker.unpack([archive])
+
+      Assert.assertNotEquals(original, Files.readSymbolicLink(link.toPath()))
+      Assert.assertEquals('new foo', new File(link, 'include/foo.h').text)
+      Assert.assertEquals('foo', original.resolve('include/foo.h').text)
+
+      archive.delete()
+      Assert.assertEquals([link], cachingUnpacker.removeStaleDirectories(directory))
+      Assert.assertFalse(Files.exists(link.toPath(), LinkOption.NOFOLLOW_LINKS))
+      Assert.assertTrue('cached directory should be kept', Files.isDirectory(original))
+   }
+
+   private File createZip(String name, Map<String, String> entries) {
+      return createZip(directory, name, entries)
+   }
+
+   private static File createZip(File directory, String name, Map<String, String> entries) {
+      def zip = new File(directory, "${name}.zip")
+      new ZipOutputStream(new FileOutputStream(zip)).withCloseable { out ->
+         entries.each { path, content ->
+            out.putNextEntry(new ZipEntry(path))
+            out.write(content.bytes)
+            out.closeEntry()
+         }
+      }
+      return zip
+   }
+}
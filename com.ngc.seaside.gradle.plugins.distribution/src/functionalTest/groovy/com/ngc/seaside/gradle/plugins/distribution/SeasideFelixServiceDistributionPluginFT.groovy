@@ -84,6 +84,7 @@ class SeasideFelixServiceDistributionPluginFT {
       assertTrue(Files.isDirectory(unzippedDir.resolve(PLATFORM_DIRECTORY)))
       assertTrue(Files.list(unzippedDir.resolve(PLATFORM_DIRECTORY)).count() >= DEFAULT_PLATFORM_DEPENDENCIES.size())
       assertTrue(Files.isRegularFile(unzippedDir.resolve(CONFIG_DIRECTORY).resolve('config.properties')))
+      assertFalse(Files.exists(unzippedDir.resolve(CONFIG_DIRECTORY).resolve(ResolveBundlesTask.START_PLAN_FILE_NAME)))
       assertTrue(Files.isDirectory(unzippedDir.resolve(BUNDLES_DIRECTORY)))
       assertTrue(Files.list(unzippedDir.resolve(BUNDLES_DIRECTORY)).count() >= DEFAULT_BUNDLE_DEPENDENCIES.size())
       Set<String> bundles = Files.list(unzippedDir.resolve(BUNDLES_DIRECTORY))
@@ -26,11 +26,10 @@ import com.ngc.seaside.gradle.api.AbstractProjectPlugin
 import com.ngc.seaside.gradle.plugins.ci.SeasideCiPlugin
 import com.ngc.seaside.gradle.plugins.repository.SeasideRepositoryPlugin
 import org.gradle.api.Project
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.ResolvedArtifact
 import org.gradle.api.file.CopySpec
 import org.gradle.api.tasks.Copy
-import org.gradle.api.tasks.bundling.Compression
-import org.gradle.api.tasks.bundling.Tar
-import org.gradle.api.tasks.bundling.Zip
 
 /**
  * The seaside distribution plugin provides calls to common task, sets up the default dependencies for BLoCS and OSGi
@@ -158,15 +157,6 @@ class SeasideServiceDistributionPlugin extends AbstractProjectPlugin {
          into { "${distributionExtension.distributionDir}/platform" }
       }
 
-      project.task('tar', type: Tar) {
-         from { "${distributionExtension.distributionDir}" }
-         compression = Compression.GZIP
-      }
-
-      project.task('zip', type: Zip) {
-         from { "${distributionExtension.distributionDir}" }
-      }
-
       project.task('copyThirdPartyBundles', type: Copy) {
          from project.configurations.getByName("thirdParty")
          into { "${distributionExtension.distributionDir}/bundles" }
@@ -174,26 +164,33 @@ class SeasideServiceDistributionPlugin extends AbstractProjectPlugin {
 
       project.task('copyBlocsBundles', type: Copy) {
          from project.configurations.getByName("blocs") {
-            rename { name ->
-               def artifacts = project.configurations.blocs.resolvedConfiguration.resolvedArtifacts
-               def artifact = artifacts.find { it.file.name == name }
-               "${artifact.moduleVersion.id.group}.${artifact.name}-${artifact.moduleVersion.id.version}.${artifact.extension}"
-            }
+            rename bundleRenamer(project.configurations.getByName("blocs"))
          }
          into { "${distributionExtension.distributionDir}/bundles" }
       }
 
       project.task('copyBundles', type: Copy) {
          from project.configurations.getByName("bundles") {
-            rename { name ->
-               def artifacts = project.configurations.bundles.resolvedConfiguration.resolvedArtifacts
-               def artifact = artifacts.find { it.file.name == name }
-               "${artifact.moduleVersion.id.group}.${artifact.name}-${artifact.moduleVersion.id.version}.${artifact.extension}"
-            }
+            rename bundleRenamer(project.configurations.getByName("bundles"))
          }
          into { "${distributionExtension.distributionDir}/bundles" }
       }
 
+      def copyTasks = [taskResolver.findTask("copyResources"),
+                       taskResolver.findTask("copyPlatformBundles"),
+                       taskResolver.findTask("copyThirdPartyBundles"),
+                       taskResolver.findTask("copyBlocsBundles"),
+                       taskResolver.findTask("copyBundles")]
+
+      // The archives are compressed in parallel and have constant timestamps, so they are reproducible
+      project.task('tar', type: ParallelTarTask, dependsOn: copyTasks) {
+         from { "${distributionExtension.distributionDir}" }
+      }
+
+      project.task('zip', type: ParallelZipTask, dependsOn: copyTasks) {
+         from { "${distributionExtension.distributionDir}" }
+      }
+
       project.task('buildDist', dependsOn: [taskResolver.findTask("copyResources"),
                                             taskResolver.findTask("copyPlatformBundles"),
                                             taskResolver.findTask("copyThirdPartyBundles"),
@@ -204,6 +201,27 @@ class SeasideServiceDistributionPlugin extends AbstractProjectPlugin {
       taskResolver.findTask("assemble").dependsOn(taskResolver.findTask("buildDist"))
    }
 
+   /**
+    * Returns a closure that renames the artifact files of the given configuration so the group id is included in the
+    * filename. The resolved artifacts are indexed by filename the first time the closure is called, so each rename is
+    * a map lookup.
+    * @param configuration the configuration whose artifacts are renamed
+    * @return the rename closure
+    */
+   static Closure<String> bundleRenamer(Configuration configuration) {
+      Map<String, ResolvedArtifact> artifacts = null
+      return { String name ->
+         if (artifacts == null) {
+            artifacts = [:]
+            configuration.resolvedConfiguration.resolvedArtifacts.each { artifact ->
+               artifacts.putIfAbsent(artifact.file.name, artifact)
+            }
+         }
+         def artifact = artifacts[name]
+         "${artifact.moduleVersion.id.group}.${artifact.name}-${artifact.moduleVersion.id.version}.${artifact.extension}"
+      }
+   }
+
    /**
     * Applies additional plugins to the project the project
     * @param project
@@ -0,0 +1,176 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.gradle.api.GradleException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a single raw deflate stream by splitting it into fixed-size blocks that are deflated concurrently, in
+ * the style of pigz. Each block is primed with the last 32 KiB of the data before it and ends on a byte boundary with
+ * a sync flush, so the concatenated blocks form one valid deflate stream. Since the block boundaries and the
+ * dictionaries only depend on the data, the output is the same regardless of how the blocks are scheduled.
+ *
+ * <p>
+ * Blocks are taken in order with {@link #takeBlock()}; callers bound their memory by taking blocks whenever
+ * {@link #getPendingBlocks()} grows too large.
+ */
+final class BlockCompressor {
+
+   static final int BLOCK_SIZE = 128 * 1024;
+   private static final int DICTIONARY_SIZE = 32 * 1024;
+
+   private final ExecutorService executor;
+   private final int level;
+   private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+   private final CRC32 crc = new CRC32();
+   private byte[] block = new byte[BLOCK_SIZE];
+   private int blockLength;
+   private byte[] dictionary;
+   private long size;
+   private boolean finished;
+
+   /**
+    * Creates a new compressor.
+    *
+    * @param executor the executor that deflates the blocks
+    * @param level the deflate compression level
+    */
+   BlockCompressor(ExecutorService executor, int level) {
+      this.executor = executor;
+      this.level = level;
+   }
+
+   /**
+    * Adds the given data to the stream.
+    */
+   void write(byte[] data, int offset, int length) {
+      crc.update(data, offset, length);
+      size += length;
+      while (length > 0) {
+         int count = Math.min(length, BLOCK_SIZE - blockLength);
+         System.arraycopy(data, offset, block, blockLength, count);
+         blockLength += count;
+         offset += count;
+         length -= count;
+         if (blockLength == BLOCK_SIZE) {
+            submit(false);
+         }
+      }
+   }
+
+   /**
+    * Submits the final block of the stream.
+    */
+   void finish() {
+      if (!finished) {
+         submit(true);
+         finished = true;
+      }
+   }
+
+   boolean isFinished() {
+      return finished;
+   }
+
+   int getPendingBlocks() {
+      return pending.size();
+   }
+
+   /**
+    * Waits for the oldest pending block to be compressed and returns it.
+    */
+   byte[] takeBlock() {
+      Future<byte[]> next = pending.removeFirst();
+      try {
+         return next.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new GradleException("Interrupted while compressing", e);
+      } catch (ExecutionException e) {
+         throw new GradleException("Failed to compress", e.getCause());
+      }
+   }
+
+   /**
+    * Returns the CRC-32 of the data written so far.
+    */
+   long getCrc() {
+      return crc.getValue();
+   }
+
+   /**
+    * Returns the number of uncompressed bytes written so far.
+    */
+   long getSize() {
+      return size;
+   }
+
+   private void submit(boolean last) {
+      byte[] data = block;
+      int length = blockLength;
+      byte[] preset = dictionary;
+      pending.addLast(executor.submit(() -> deflate(data, length, preset, last)));
+      if (length >= DICTIONARY_SIZE) {
+         dictionary = Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+      }
+      block = new byte[BLOCK_SIZE];
+      blockLength = 0;
+   }
+
+   private byte[] deflate(byte[] data, int length, byte[] preset, boolean last) throws IOException {
+      Deflater deflater = new Deflater(level, true);
+      try (ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64)) {
+         if (preset != null) {
+            deflater.setDictionary(preset);
+         }
+         deflater.setInput(data, 0, length);
+         byte[] buffer = new byte[16 * 1024];
+         if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+               out.write(buffer, 0, deflater.deflate(buffer));
+            }
+         } else {
+            int count;
+            do {
+               count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+               out.write(buffer, 0, count);
+            } while (count == buffer.length);
+         }
+         return out.toByteArray();
+      } finally {
+         deflater.end();
+      }
+   }
+}
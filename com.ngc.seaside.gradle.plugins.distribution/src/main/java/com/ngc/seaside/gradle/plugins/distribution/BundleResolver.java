@@ -0,0 +1,440 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.ngc.seaside.gradle.util.ManifestReader;
+
+import org.apache.felix.framework.Felix;
+import org.apache.felix.framework.Logger;
+import org.apache.felix.framework.util.FelixConstants;
+import org.apache.felix.framework.util.Util;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.Manifest;
+
+/**
+ * Resolves a set of OSGi bundles with the Felix framework and computes the start level of each bundle so that a bundle
+ * starts after the bundles that satisfy its requirements.
+ *
+ * <p>
+ * The bundles are installed in a Felix framework that is initialized with the
+ * {@link #addConfiguration(Properties) configuration} of the distribution but never started, so no bundle activator
+ * runs. The framework resolves the bundles the same way as when the distribution starts, including the system
+ * packages and capabilities of the Java platform, {@code uses} constraints, generic capabilities and singletons. If the
+ * configuration does not set the system packages, Felix uses the packages of the Java platform running the build,
+ * which may differ from the Java platform the bundles run on.
+ *
+ * <p>
+ * Only the start levels are kept. Felix does not persist wiring, so it resolves the bundles again when the
+ * distribution starts.
+ */
+final class BundleResolver {
+
+   static final String BUNDLE_SYMBOLIC_NAME = Constants.BUNDLE_SYMBOLICNAME;
+   static final String BUNDLE_VERSION = Constants.BUNDLE_VERSION;
+   static final String BUNDLE_MANIFEST_VERSION = Constants.BUNDLE_MANIFESTVERSION;
+
+   /**
+    * The name of a class that is never found. Loading it resolves a bundle and reports why it cannot be resolved.
+    */
+   private static final String UNRESOLVED_PROBE_CLASS = BundleResolver.class.getName() + "$Unresolved";
+
+   /**
+    * The symbolic names of the Felix framework jars, which provide the system bundle rather than being installed.
+    */
+   private static final Set<String> FRAMEWORK_SYMBOLIC_NAMES = Collections.unmodifiableSet(new HashSet<>(
+         Arrays.asList("org.apache.felix.main", "org.apache.felix.framework")));
+
+   private static final long STOP_TIMEOUT_MILLIS = 30_000;
+
+   private final File storageDirectory;
+   private final org.gradle.api.logging.Logger logger;
+   private final List<File> bundles = new ArrayList<>();
+   private final List<File> providers = new ArrayList<>();
+   private final Map<String, Object> configuration = new HashMap<>();
+
+   /**
+    * Constructor.
+    *
+    * @param storageDirectory the directory of the bundle cache of the framework, which is deleted first
+    * @param logger the logger of the framework messages
+    */
+   BundleResolver(File storageDirectory, org.gradle.api.logging.Logger logger) {
+      this.storageDirectory = storageDirectory;
+      this.logger = logger;
+   }
+
+   /**
+    * Adds a bundle to be resolved and started.
+    *
+    * @param file the bundle
+    * @return {@code true} if the file is a bundle and was added
+    * @throws IOException if the bundle cannot be read
+    */
+   boolean addBundle(File file) throws IOException {
+      if (!getSymbolicName(file).isPresent()) {
+         return false;
+      }
+      bundles.add(file);
+      return true;
+   }
+
+   /**
+    * Adds a bundle that may satisfy the requirements of the {@link #addBundle(File) resolved bundles}, but is
+    * installed and started by other means, such as the platform bundles of the distribution. The Felix framework
+    * itself is ignored.
+    *
+    * @param file the bundle
+    * @throws IOException if the bundle cannot be read
+    */
+   void addProvider(File file) throws IOException {
+      Optional<String> symbolicName = getSymbolicName(file);
+      if (symbolicName.isPresent() && !FRAMEWORK_SYMBOLIC_NAMES.contains(symbolicName.get())) {
+         providers.add(file);
+      }
+   }
+
+   /**
+    * Adds framework properties, typically from {@code config.properties}. Variables in the values are substituted the
+    * same way as the Felix launcher does.
+    *
+    * @param properties the framework properties
+    */
+   void addConfiguration(Properties properties) {
+      for (String name : properties.stringPropertyNames()) {
+         configuration.put(name, Util.substVars(properties.getProperty(name), name, null, properties));
+      }
+   }
+
+   /**
+    * Returns {@code true} if the {@link #addConfiguration(Properties) configuration} does not set the system
+    * packages, so the packages of the Java platform running the build are used instead.
+    */
+   boolean isUsingBuildPlatformPackages() {
+      return !configuration.containsKey(Constants.FRAMEWORK_SYSTEMPACKAGES);
+   }
+
+   /**
+    * Resolves the bundles.
+    *
+    * @param firstStartLevel the start level of the bundles that do not depend on other resolved bundles
+    * @return the start level of each resolved bundle
+    * @throws UnresolvedBundlesException if a bundle cannot be resolved
+    */
+   Map<File, StartLevel> resolve(int firstStartLevel) throws UnresolvedBundlesException {
+      List<String> failures = new ArrayList<>();
+      Map<File, StartLevel> startLevels = resolve(firstStartLevel, failures);
+      if (!failures.isEmpty()) {
+         throw new UnresolvedBundlesException(failures);
+      }
+      return startLevels;
+   }
+
+   /**
+    * Resolves the bundles, adding the reasons bundles cannot be resolved to the given list instead of failing. Bundles
+    * that cannot be resolved get the first start level, and bundles that cannot be installed are left out.
+    *
+    * @param firstStartLevel the start level of the bundles that do not depend on other resolved bundles
+    * @param failures the list to add the reasons bundles cannot be resolved to
+    * @return the start level of each bundle
+    */
+   Map<File, StartLevel> resolve(int firstStartLevel, List<String> failures) {
+      Felix framework = new Felix(createFrameworkConfiguration());
+      try {
+         framework.init();
+         try {
+            return resolve(framework, firstStartLevel, failures);
+         } finally {
+            framework.stop();
+            framework.waitForStop(STOP_TIMEOUT_MILLIS);
+         }
+      } catch (BundleException e) {
+         throw new IllegalStateException("Unable to run the Felix framework: " + e.getMessage(), e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted while stopping the Felix framework", e);
+      }
+   }
+
+   private Map<File, StartLevel> resolve(Felix framework, int firstStartLevel, List<String> failures) {
+      Map<Bundle, File> installed = new LinkedHashMap<>();
+      for (File file : providers) {
+         install(framework, file, failures, false).ifPresent(bundle -> installed.put(bundle, file));
+      }
+      for (File file : bundles) {
+         install(framework, file, failures, true).ifPresent(bundle -> installed.put(bundle, file));
+      }
+      framework.adapt(FrameworkWiring.class).resolveBundles(installed.keySet());
+
+      Map<File, Set<File>> wires = new LinkedHashMap<>();
+      Map<File, File> hosts = new HashMap<>();
+      Set<File> resolvedBundles = new HashSet<>(bundles);
+      for (Map.Entry<Bundle, File> entry : installed.entrySet()) {
+         Bundle bundle = entry.getKey();
+         File file = entry.getValue();
+         if (!resolvedBundles.contains(file)) {
+            continue;
+         }
+         BundleWiring wiring = bundle.adapt(BundleWiring.class);
+         if (wiring == null) {
+            failures.add(file.getName() + ": " + getResolutionFailure(bundle));
+            continue;
+         }
+         boolean fragment = (wiring.getRevision().getTypes() & BundleRevision.TYPE_FRAGMENT) != 0;
+         Set<File> dependencies = new HashSet<>();
+         for (BundleWire wire : wiring.getRequiredWires(null)) {
+            File provider = installed.get(wire.getProvider().getBundle());
+            if (fragment) {
+               hosts.put(file, provider);
+            } else if (provider != null) {
+               dependencies.add(provider);
+            }
+         }
+         if (!fragment) {
+            // Only the resolved bundles are started by the plan; the providers are already started when they start
+            dependencies.retainAll(resolvedBundles);
+            dependencies.remove(file);
+            wires.put(file, dependencies);
+         }
+      }
+
+      Map<File, Integer> levels = new StartLevelCalculator(wires, firstStartLevel).calculate();
+      Map<File, StartLevel> startLevels = new LinkedHashMap<>();
+      for (File file : bundles) {
+         if (!installed.containsValue(file)) {
+            continue;
+         }
+         if (hosts.containsKey(file)) {
+            startLevels.put(file, new StartLevel(levels.getOrDefault(hosts.get(file), firstStartLevel), true));
+         } else {
+            startLevels.put(file, new StartLevel(levels.getOrDefault(file, firstStartLevel), false));
+         }
+      }
+      return startLevels;
+   }
+
+   private Map<String, Object> createFrameworkConfiguration() {
+      Map<String, Object> frameworkConfiguration = new HashMap<>(configuration);
+      frameworkConfiguration.put(Constants.FRAMEWORK_STORAGE, storageDirectory.getAbsolutePath());
+      frameworkConfiguration.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+      // Do not install a security manager or URL handlers in the JVM running the build
+      frameworkConfiguration.remove(Constants.FRAMEWORK_SECURITY);
+      frameworkConfiguration.put(FelixConstants.SERVICE_URLHANDLERS_PROP, Boolean.FALSE.toString());
+      frameworkConfiguration.put(FelixConstants.LOG_LOGGER_PROP, new FrameworkLogger(logger));
+      frameworkConfiguration.put(FelixConstants.LOG_LEVEL_PROP, Integer.toString(Logger.LOG_DEBUG));
+      return frameworkConfiguration;
+   }
+
+   private static Optional<Bundle> install(Felix framework, File file, List<String> failures, boolean resolved) {
+      try {
+         // Referenced bundles are not copied into the bundle cache
+         String location = "reference:" + file.toURI();
+         return Optional.of(framework.getBundleContext().installBundle(location));
+      } catch (BundleException e) {
+         if (resolved) {
+            // The framework wraps the reason an invalid manifest is rejected
+            Throwable cause = e.getCause();
+            failures.add(file.getName() + ": " + e.getMessage() + (cause == null ? "" : " " + cause.getMessage()));
+         }
+         return Optional.empty();
+      }
+   }
+
+   /**
+    * Returns why the given bundle cannot be resolved. The framework does not report why bundles cannot be resolved
+    * when it resolves several bundles at once, so the bundle is resolved again on its own.
+    */
+   private static String getResolutionFailure(Bundle bundle) {
+      try {
+         bundle.loadClass(UNRESOLVED_PROBE_CLASS);
+      } catch (ClassNotFoundException e) {
+         if (e.getCause() instanceof BundleException) {
+            return e.getCause().getMessage();
+         }
+      }
+      return "Unable to resolve " + bundle;
+   }
+
+   private static Optional<String> getSymbolicName(File file) throws IOException {
+      Optional<Manifest> manifest = ManifestReader.readManifest(file);
+      return manifest.map(m -> m.getMainAttributes().getValue(BUNDLE_SYMBOLIC_NAME))
+            .map(header -> header.split(";", 2)[0].trim());
+   }
+
+   /**
+    * The start level of a resolved bundle.
+    */
+   static final class StartLevel {
+
+      private final int level;
+      private final boolean fragment;
+
+      StartLevel(int level, boolean fragment) {
+         this.level = level;
+         this.fragment = fragment;
+      }
+
+      int getLevel() {
+         return level;
+      }
+
+      /**
+       * Returns {@code true} if the bundle is a fragment, which is installed but cannot be started.
+       */
+      boolean isFragment() {
+         return fragment;
+      }
+   }
+
+   /**
+    * Thrown when bundles cannot be resolved.
+    */
+   static final class UnresolvedBundlesException extends Exception {
+
+      private final List<String> failures;
+
+      UnresolvedBundlesException(List<String> failures) {
+         super(failures.size() + " unresolved bundle(s):" + System.lineSeparator() + "   "
+                  + String.join(System.lineSeparator() + "   ", failures));
+         this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+      }
+
+      List<String> getFailures() {
+         return failures;
+      }
+   }
+
+   /**
+    * Forwards the messages of the framework to the log of the build.
+    */
+   private static final class FrameworkLogger extends Logger {
+
+      private final org.gradle.api.logging.Logger logger;
+
+      private FrameworkLogger(org.gradle.api.logging.Logger logger) {
+         this.logger = logger;
+      }
+
+      @Override
+      protected void doLog(Bundle bundle, ServiceReference sr, int level, String msg, Throwable throwable) {
+         doLog(level, bundle == null ? msg : bundle + ": " + msg, throwable);
+      }
+
+      @Override
+      protected void doLog(int level, String msg, Throwable throwable) {
+         if (level <= LOG_WARNING) {
+            logger.info(msg, throwable);
+         } else {
+            logger.debug(msg, throwable);
+         }
+      }
+   }
+
+   /**
+    * Assigns each bundle a start level one greater than the highest start level of the bundles it depends on.
+    * Bundles that depend on each other in a cycle get the same start level.
+    */
+   private static final class StartLevelCalculator {
+
+      private final Map<File, Set<File>> wires;
+      private final int firstStartLevel;
+      private final Map<File, Integer> index = new HashMap<>();
+      private final Map<File, Integer> lowLink = new HashMap<>();
+      private final List<File> stack = new ArrayList<>();
+      private final Set<File> onStack = new HashSet<>();
+      private final Map<File, Integer> levels = new HashMap<>();
+
+      private StartLevelCalculator(Map<File, Set<File>> wires, int firstStartLevel) {
+         this.wires = wires;
+         this.firstStartLevel = firstStartLevel;
+      }
+
+      private Map<File, Integer> calculate() {
+         for (File bundle : wires.keySet()) {
+            if (!index.containsKey(bundle)) {
+               visit(bundle);
+            }
+         }
+         return levels;
+      }
+
+      /**
+       * Visits the given bundle with Tarjan's algorithm. Strongly connected components are completed after all of the
+       * components they depend on, so their start levels can be computed when they are completed.
+       */
+      private void visit(File bundle) {
+         index.put(bundle, index.size());
+         lowLink.put(bundle, index.get(bundle));
+         stack.add(bundle);
+         onStack.add(bundle);
+         for (File dependency : wires.getOrDefault(bundle, Collections.emptySet())) {
+            if (!index.containsKey(dependency)) {
+               visit(dependency);
+               lowLink.put(bundle, Math.min(lowLink.get(bundle), lowLink.get(dependency)));
+            } else if (onStack.contains(dependency)) {
+               lowLink.put(bundle, Math.min(lowLink.get(bundle), index.get(dependency)));
+            }
+         }
+         if (lowLink.get(bundle).equals(index.get(bundle))) {
+            List<File> component = new ArrayList<>();
+            File member;
+            do {
+               member = stack.remove(stack.size() - 1);
+               onStack.remove(member);
+               component.add(member);
+            } while (!member.equals(bundle));
+            int level = firstStartLevel;
+            for (File componentBundle : component) {
+               for (File dependency : wires.getOrDefault(componentBundle, Collections.emptySet())) {
+                  if (!component.contains(dependency)) {
+                     level = Math.max(level, levels.getOrDefault(dependency, firstStartLevel - 1) + 1);
+                  }
+               }
+            }
+            for (File componentBundle : component) {
+               levels.put(componentBundle, level);
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,440 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.ngc.seaside.gradle.util.ContentAddressedStore;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.internal.file.archive.ZipCopyAction;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates a class data sharing archive for a Felix distribution. The distribution is assembled in the temporary
+ * directory of the task and started in a training run, with the {@link #getJvmArguments() JVM arguments} and
+ * {@link #getProgramArguments() program arguments} of the distribution, that records the classes it loads. Felix does
+ * not exit by itself, so the training run is stopped once it has not loaded any classes for the
+ * {@link #getTrainingQuietPeriod() quiet period}, which happens once the framework has reached its final start level
+ * and the bundles have started. The recorded classes are then dumped into the archive. The training run is stopped
+ * after the {@link #getTrainingTimeout() training timeout} even if it is still loading classes. The archive is only
+ * created again when the bundles, platform files, configuration or arguments of the distribution change.
+ *
+ * <p>
+ * The archive stores the classes of the Java runtime and of the class path, which is the Felix main jar, so the
+ * framework and its resolver start from the archive. The classes of the bundles are defined by the class loaders of
+ * Felix and cannot be archived. The JVM only uses archived class path classes if the class path is the same path as
+ * when the archive was created and the jar has the same size and modification time. The archive is therefore created
+ * with the main jar on the relative path {@code platform/<main jar>}, and the start scripts run the JVM from the home
+ * directory of the distribution with the same relative path. The main jar of the training run is given the
+ * modification time it has in the distribution zip, see {@link #isPreserveFileTimestamps()}, which it also has once
+ * the zip is extracted in the time zone it was built in.
+ *
+ * <p>
+ * Archiving class path classes requires Java 10 or later. The archive is only valid for the Java runtime it was
+ * created with; the start scripts pass {@code -Xshare:auto} so that the JVM starts without the archive if it does not
+ * match the runtime or the main jar.
+ */
+public class ClassDataSharingArchiveTask extends DefaultTask {
+
+   /**
+    * The name of the archive in the platform directory of the distribution.
+    */
+   public static final String ARCHIVE_FILE_NAME = "felix.jsa";
+
+   /**
+    * The default number of seconds the training run may take before it is stopped.
+    */
+   public static final int DEFAULT_TRAINING_TIMEOUT = 60;
+
+   /**
+    * The default number of seconds without loading classes after which the training run is stopped.
+    */
+   public static final int DEFAULT_TRAINING_QUIET_PERIOD = 5;
+
+   static final String FELIX_MAIN_JAR_PREFIX = "org.apache.felix.main-";
+
+   private static final String JAVA_VERSION_PROPERTY = "JAVA_VERSION=";
+
+   private static final long STOP_TIMEOUT_SECONDS = 30;
+   private static final long POLL_INTERVAL_MILLIS = 250;
+
+   private final DirectoryProperty bundlesDirectory;
+   private final ConfigurableFileCollection platformFiles;
+   private final ConfigurableFileCollection configFiles;
+   private final RegularFileProperty archiveFile;
+   private final ListProperty<String> jvmArguments;
+   private final ListProperty<String> programArguments;
+   private String javaHome = System.getProperty("java.home");
+   private int trainingTimeout = DEFAULT_TRAINING_TIMEOUT;
+   private int trainingQuietPeriod = DEFAULT_TRAINING_QUIET_PERIOD;
+   private boolean preserveFileTimestamps = true;
+
+   /**
+    * Constructor.
+    */
+   public ClassDataSharingArchiveTask() {
+      this.bundlesDirectory = newInputDirectory();
+      this.platformFiles = getProject().files();
+      this.configFiles = getProject().files();
+      this.archiveFile = newOutputFile();
+      this.jvmArguments = getProject().getObjects().listProperty(String.class);
+      this.programArguments = getProject().getObjects().listProperty(String.class);
+   }
+
+   /**
+    * Returns the property of the directory of the staged bundles of the distribution.
+    *
+    * @return the property of the bundles directory
+    */
+   @InputDirectory
+   public DirectoryProperty getBundlesDirectory() {
+      return bundlesDirectory;
+   }
+
+   /**
+    * Returns the platform files of the distribution, which must include the Felix main jar.
+    *
+    * @return the platform files
+    */
+   @InputFiles
+   public ConfigurableFileCollection getPlatformFiles() {
+      return platformFiles;
+   }
+
+   /**
+    * Returns the framework configuration files of the distribution, such as the {@code config.properties} file and
+    * the start plan.
+    *
+    * @return the framework configuration files
+    */
+   @InputFiles
+   public ConfigurableFileCollection getConfigFiles() {
+      return configFiles;
+   }
+
+   /**
+    * Returns the property of the class data sharing archive to create.
+    *
+    * @return the property of the archive
+    */
+   @OutputFile
+   public RegularFileProperty getArchiveFile() {
+      return archiveFile;
+   }
+
+   /**
+    * Returns the JVM arguments the distribution is started with, such as its system properties. The arguments are
+    * passed to the training run so that it loads the same classes as the distribution.
+    *
+    * @return the JVM arguments
+    */
+   @Input
+   public ListProperty<String> getJvmArguments() {
+      return jvmArguments;
+   }
+
+   /**
+    * Returns the program arguments the distribution is started with, which are passed to Felix in the training run.
+    *
+    * @return the program arguments
+    */
+   @Input
+   public ListProperty<String> getProgramArguments() {
+      return programArguments;
+   }
+
+   /**
+    * Returns the home directory of the Java runtime used to create the archive. The default is the runtime running
+    * Gradle.
+    *
+    * @return the Java home directory
+    */
+   @Input
+   public String getJavaHome() {
+      return javaHome;
+   }
+
+   public void setJavaHome(Object javaHome) {
+      this.javaHome = getProject().file(javaHome).getAbsolutePath();
+   }
+
+   /**
+    * Returns the number of seconds the training run may take before it is stopped. The default is
+    * {@value #DEFAULT_TRAINING_TIMEOUT}.
+    *
+    * @return the training timeout in seconds
+    */
+   @Internal
+   public int getTrainingTimeout() {
+      return trainingTimeout;
+   }
+
+   public void setTrainingTimeout(int trainingTimeout) {
+      this.trainingTimeout = trainingTimeout;
+   }
+
+   /**
+    * Returns the number of seconds the training run may go without loading any classes before it is stopped. The
+    * default is {@value #DEFAULT_TRAINING_QUIET_PERIOD}.
+    *
+    * @return the quiet period in seconds
+    */
+   @Internal
+   public int getTrainingQuietPeriod() {
+      return trainingQuietPeriod;
+   }
+
+   public void setTrainingQuietPeriod(int trainingQuietPeriod) {
+      this.trainingQuietPeriod = trainingQuietPeriod;
+   }
+
+   /**
+    * Returns whether the distribution zip preserves the modification times of its files. If so, the main jar of the
+    * training run has the modification time of the platform file, rounded down to the two second precision of zip
+    * entries; otherwise it has the constant time of zip entries. The default is {@code true}, as for zip tasks.
+    *
+    * @return whether the distribution zip preserves the modification times of its files
+    */
+   @Input
+   public boolean isPreserveFileTimestamps() {
+      return preserveFileTimestamps;
+   }
+
+   public void setPreserveFileTimestamps(boolean preserveFileTimestamps) {
+      this.preserveFileTimestamps = preserveFileTimestamps;
+   }
+
+   @TaskAction
+   public void createArchive() {
+      Path temporaryDirectory = getTemporaryDir().toPath();
+      Path home = temporaryDirectory.resolve("home");
+      Path classList = temporaryDirectory.resolve("classes.lst");
+      File archive = archiveFile.get().getAsFile();
+      try {
+         getProject().delete(home.toFile());
+         Files.deleteIfExists(classList);
+         Files.deleteIfExists(archive.toPath());
+         Files.createDirectories(archive.getParentFile().toPath());
+         checkJavaVersion();
+         // The class path is relative to the home directory, as in the start scripts
+         String mainJar = home.relativize(createTrainingHome(home)).toString();
+
+         String java = new File(javaHome, "bin/java").getAbsolutePath();
+         List<String> training = new ArrayList<>(Arrays.asList(
+               java,
+               "-XX:DumpLoadedClassList=" + classList,
+               "-DNG_FW_HOME=" + home,
+               "-Dgosh.args=--nointeractive",
+               "-Djavax.xml.accessExternalSchema=all"));
+         Path config = home.resolve(SeasideFelixServiceDistributionPlugin.CONFIG_DIRECTORY);
+         addFileProperty(training, "felix.config.properties", config.resolve("config.properties"));
+         addFileProperty(training, "felix.system.properties", config.resolve(ResolveBundlesTask.START_PLAN_FILE_NAME));
+         training.addAll(jvmArguments.get());
+         Path platform = home.resolve(SeasideFelixServiceDistributionPlugin.PLATFORM_DIRECTORY);
+         training.addAll(Arrays.asList("-jar", mainJar, platform.resolve("cache").toString(), "-b",
+                                       platform.toString()));
+         training.addAll(programArguments.get());
+         train(training, home, classList, temporaryDirectory.resolve("training.log").toFile());
+
+         if (!Files.isRegularFile(classList) || Files.size(classList) == 0) {
+            throw new GradleException("The training run of the distribution did not record any classes; see "
+                     + temporaryDirectory.resolve("training.log"));
+         }
+         dump(Arrays.asList(
+               java,
+               "-Xshare:dump",
+               "-XX:SharedClassListFile=" + classList,
+               "-XX:SharedArchiveFile=" + archive.getAbsolutePath(),
+               "-cp",
+               mainJar),
+              home, temporaryDirectory.resolve("dump.log").toFile());
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Requires a Java runtime that can archive the classes of the class path, if its version can be determined from the
+    * {@code release} file of the runtime.
+    */
+   private void checkJavaVersion() throws IOException {
+      Path release = new File(javaHome, "release").toPath();
+      if (!Files.isRegularFile(release)) {
+         return;
+      }
+      for (String line : Files.readAllLines(release, StandardCharsets.UTF_8)) {
+         if (line.startsWith(JAVA_VERSION_PROPERTY)) {
+            String version = line.substring(JAVA_VERSION_PROPERTY.length()).replace("\"", "");
+            if (version.startsWith("1.") || version.equals("9") || version.startsWith("9.")) {
+               throw new GradleException("Class data sharing of the Felix distribution requires Java 10 or later, but "
+                        + javaHome + " is Java " + version);
+            }
+         }
+      }
+   }
+
+   /**
+    * Assembles the distribution in the given directory with the same layout as the distribution zip.
+    *
+    * @return the Felix main jar
+    */
+   private Path createTrainingHome(Path home) throws IOException {
+      ContentAddressedStore store = ContentAddressedStore.getInstance(getProject().getGradle());
+      Path platform = home.resolve(SeasideFelixServiceDistributionPlugin.PLATFORM_DIRECTORY);
+      Path config = home.resolve(SeasideFelixServiceDistributionPlugin.CONFIG_DIRECTORY);
+      Path bundles = home.resolve(SeasideFelixServiceDistributionPlugin.BUNDLES_DIRECTORY);
+      Files.createDirectories(platform);
+      Files.createDirectories(config);
+      Files.createDirectories(bundles);
+
+      Path mainJar = null;
+      for (File file : platformFiles) {
+         if (file.isFile()) {
+            Path target = platform.resolve(file.getName());
+            if (file.getName().startsWith(FELIX_MAIN_JAR_PREFIX) && file.getName().endsWith(".jar")) {
+               // The archive records the modification time of the main jar, so the jar is copied rather than linked
+               // and is given the time it has in the distribution zip
+               Files.copy(file.toPath(), target);
+               long time = preserveFileTimestamps ? file.lastModified() / 2000 * 2000
+                        : ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES;
+               Files.setLastModifiedTime(target, FileTime.fromMillis(time));
+               mainJar = target;
+            } else {
+               store.link(file, target);
+            }
+         }
+      }
+      if (mainJar == null) {
+         throw new GradleException("The platform files do not contain the Felix main jar");
+      }
+      for (File file : configFiles) {
+         if (file.isFile()) {
+            Files.copy(file.toPath(), config.resolve(file.getName()));
+         }
+      }
+      File[] files = bundlesDirectory.get().getAsFile().listFiles(File::isFile);
+      if (files != null) {
+         for (File file : files) {
+            store.link(file, bundles.resolve(file.getName()));
+         }
+      }
+      return mainJar;
+   }
+
+   /**
+    * Runs the distribution until it exits, stops loading classes for the quiet period or the training timeout
+    * expires. The class list is written as classes are loaded, so the distribution is stopped once it has not grown
+    * for the quiet period.
+    */
+   private void train(List<String> command, Path home, Path classList, File log) throws IOException {
+      getLogger().info("Starting the training run of the distribution: {}", command);
+      Process process = start(command, home, log);
+      try {
+         long start = System.nanoTime();
+         long deadline = start + TimeUnit.SECONDS.toNanos(trainingTimeout);
+         long quietPeriod = TimeUnit.SECONDS.toNanos(trainingQuietPeriod);
+         long lastSize = 0;
+         long lastChange = start;
+         while (!process.waitFor(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+            long now = System.nanoTime();
+            long size = Files.isRegularFile(classList) ? Files.size(classList) : 0;
+            if (size != lastSize) {
+               lastSize = size;
+               lastChange = now;
+            } else if (size > 0 && now - lastChange >= quietPeriod) {
+               getLogger().info("Stopping the training run, no classes were loaded for {} seconds",
+                                trainingQuietPeriod);
+               stop(process);
+               break;
+            }
+            if (now - deadline >= 0) {
+               getLogger().info("Stopping the training run after {} seconds", trainingTimeout);
+               stop(process);
+               break;
+            }
+         }
+      } catch (InterruptedException e) {
+         process.destroyForcibly();
+         Thread.currentThread().interrupt();
+         throw new GradleException("Interrupted while training the distribution", e);
+      }
+   }
+
+   private static void stop(Process process) throws InterruptedException {
+      process.destroy();
+      if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+         process.destroyForcibly().waitFor();
+      }
+   }
+
+   private void dump(List<String> command, Path home, File log) throws IOException {
+      getLogger().info("Creating the class data sharing archive: {}", command);
+      Process process = start(command, home, log);
+      try {
+         if (process.waitFor() != 0) {
+            throw new GradleException("Unable to create the class data sharing archive; see " + log);
+         }
+      } catch (InterruptedException e) {
+         process.destroyForcibly();
+         Thread.currentThread().interrupt();
+         throw new GradleException("Interrupted while creating the class data sharing archive", e);
+      }
+   }
+
+   private static void addFileProperty(List<String> command, String property, Path file) {
+      if (Files.isRegularFile(file)) {
+         command.add("-D" + property + "=" + file.toUri());
+      }
+   }
+
+   private static Process start(List<String> command, Path home, File log) throws IOException {
+      Process process = new ProcessBuilder(command)
+               .directory(home.toFile())
+               .redirectErrorStream(true)
+               .redirectOutput(log)
+               .start();
+      process.getOutputStream().close();
+      return process;
+   }
+}
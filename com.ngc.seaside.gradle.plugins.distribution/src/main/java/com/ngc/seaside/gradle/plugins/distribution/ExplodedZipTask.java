@@ -0,0 +1,194 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.ngc.seaside.gradle.util.ZipArchiveWriter;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.internal.file.archive.ZipCopyAction;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.WorkResults;
+import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A {@link Zip} task that also writes the contents of the archive to an exploded directory. Each file is read once
+ * from its source and written to both the archive and the {@link #getExplodedDirectory() exploded directory} at the
+ * same time, so the archive never needs to be unzipped after it is created.
+ *
+ * <p>
+ * The archive is written with {@link ZipArchiveWriter} rather than Gradle's own zip action. Entries are always
+ * deflated; an {@link ZipEntryCompression#STORED entry compression} of {@code STORED} writes them without compression.
+ */
+public class ExplodedZipTask extends Zip {
+
+   /**
+    * The size of the buffer of compressed data of an entry.
+    */
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   private final DirectoryProperty explodedDirectory;
+
+   /**
+    * Constructor.
+    */
+   public ExplodedZipTask() {
+      this.explodedDirectory = newOutputDirectory();
+   }
+
+   /**
+    * Returns the property of the directory the contents of the archive are written to. Any existing contents of the
+    * directory are removed when the archive is created.
+    *
+    * @return the property of the exploded directory
+    */
+   @OutputDirectory
+   public DirectoryProperty getExplodedDirectory() {
+      return explodedDirectory;
+   }
+
+   @Override
+   protected CopyAction createCopyAction() {
+      File archive = getArchivePath();
+      File directory = explodedDirectory.get().getAsFile();
+      int level = getEntryCompression() == ZipEntryCompression.STORED ? Deflater.NO_COMPRESSION
+               : Deflater.DEFAULT_COMPRESSION;
+      boolean preserveFileTimestamps = isPreserveFileTimestamps();
+      return stream -> {
+         try {
+            FileUtils.deleteDirectory(directory);
+            Files.createDirectories(directory.toPath());
+            Files.createDirectories(archive.getParentFile().toPath());
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+         try (ZipArchiveWriter writer = new ZipArchiveWriter(archive)) {
+            stream.process(details -> {
+               File target = details.getRelativePath().getFile(directory);
+               long time = preserveFileTimestamps ? details.getLastModified()
+                        : ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES;
+               try {
+                  if (details.isDirectory()) {
+                     writer.writeDirectory(details.getRelativePath().getPathString() + '/', details.getMode(), time);
+                     Files.createDirectories(target.toPath());
+                  } else {
+                     Files.createDirectories(target.getParentFile().toPath());
+                     writeFile(writer, details, target, time, level);
+                  }
+               } catch (IOException e) {
+                  throw new UncheckedIOException("Unable to add " + details.getRelativePath() + " to " + archive, e);
+               }
+               setMode(target, details.getMode());
+            });
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+         return WorkResults.didWork(true);
+      };
+   }
+
+   /**
+    * Reads the given file once, deflating it into a new entry of the archive and copying it to the given target.
+    */
+   private static void writeFile(ZipArchiveWriter writer, FileCopyDetails details, File target, long time,
+            int level) throws IOException {
+      writer.beginEntry(details.getRelativePath().getPathString(), details.getMode(), time);
+      CRC32 crc = new CRC32();
+      Deflater deflater = new Deflater(level, true);
+      try {
+         OutputStream compressed = new DeflaterOutputStream(new CompressedDataStream(writer), deflater, BUFFER_SIZE);
+         try (OutputStream out = new TeeOutputStream(new CheckedOutputStream(compressed, crc),
+                                                     Files.newOutputStream(target.toPath()))) {
+            details.copyTo(out);
+         }
+         writer.endEntry(crc.getValue(), deflater.getBytesRead());
+      } finally {
+         deflater.end();
+      }
+   }
+
+   /**
+    * Sets the permissions of the given file to the given Unix mode if the file system supports it.
+    *
+    * @param file file
+    * @param mode Unix mode
+    */
+   protected static void setMode(File file, int mode) {
+      Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+      PosixFilePermission[] values = PosixFilePermission.values();
+      for (int i = 0; i < values.length; i++) {
+         // PosixFilePermission is declared in order from OWNER_READ (0400) to OTHERS_EXECUTE (0001)
+         if ((mode & (1 << (values.length - 1 - i))) != 0) {
+            permissions.add(values[i]);
+         }
+      }
+      Path path = file.toPath();
+      try {
+         Files.setPosixFilePermissions(path, permissions);
+      } catch (UnsupportedOperationException e) {
+         // Permissions are not supported on this file system
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Passes the data written to it to the open entry of a writer as compressed data.
+    */
+   private static class CompressedDataStream extends OutputStream {
+
+      private final ZipArchiveWriter writer;
+
+      private CompressedDataStream(ZipArchiveWriter writer) {
+         this.writer = writer;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+         write(new byte[] { (byte) b }, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+         writer.writeCompressedData(b, off, len);
+      }
+   }
+}
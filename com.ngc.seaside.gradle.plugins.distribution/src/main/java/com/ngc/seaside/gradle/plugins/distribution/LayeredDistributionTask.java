@@ -0,0 +1,340 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.ngc.seaside.gradle.util.ContentAddressedStore;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Splits an exploded distribution into layers so that a deployment only needs to transfer and unpack the layers that
+ * changed. Each layer is written to the destination directory as a reproducible gzipped tar archive named
+ * {@code <layer>.tar.gz}, together with a {@value #INDEX_FILE_NAME} file that lists the layers in order with the
+ * SHA-256 digest and size of each archive. A layer's digest only changes when the contents of its files change.
+ *
+ * <p>
+ * Layers are declared with {@link #layer(String, String...)} and contain the files under the given paths; a file
+ * belongs to the layer with the longest path that contains it, and the empty path contains all files. Layers declared
+ * with {@link #contentLayer(String, String, Object)} contain the files of a directory that have the same contents as
+ * some other files, such as the bundles of a configuration; these layers take precedence over the paths.
+ * The archive of a layer includes the parent directories of its files, so each layer can be unpacked on its own.
+ */
+public class LayeredDistributionTask extends DefaultTask {
+
+   /**
+    * The name of the file in the destination directory that lists the layers and their digests.
+    */
+   public static final String INDEX_FILE_NAME = "layers.properties";
+
+   /**
+    * The extension of the layer archives.
+    */
+   public static final String LAYER_EXTENSION = "tar.gz";
+
+   private final DirectoryProperty distributionDirectory;
+   private final DirectoryProperty destinationDirectory;
+   private final Map<String, List<String>> layerPaths = new LinkedHashMap<>();
+   private final Map<String, String> layerContentDirectories = new LinkedHashMap<>();
+   private final Map<String, ConfigurableFileCollection> layerContents = new LinkedHashMap<>();
+   private String pathPrefix = "";
+   private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+   /**
+    * Constructor.
+    */
+   public LayeredDistributionTask() {
+      this.distributionDirectory = newInputDirectory();
+      this.destinationDirectory = newOutputDirectory();
+   }
+
+   /**
+    * Declares a layer that contains the files under the given paths of the distribution. The paths are relative to
+    * the distribution directory and use forward slashes; a path ending with a slash is a directory.
+    *
+    * @param name the name of the layer
+    * @param paths the paths of the files in the layer
+    * @return this
+    */
+   public LayeredDistributionTask layer(String name, String... paths) {
+      checkName(name);
+      layerPaths.computeIfAbsent(name, __ -> new ArrayList<>()).addAll(Arrays.asList(paths));
+      return this;
+   }
+
+   /**
+    * Declares a layer that contains the files directly in the given directory of the distribution that have the same
+    * contents as one of the given files. The files are evaluated with {@link org.gradle.api.Project#files(Object...)}.
+    *
+    * @param name the name of the layer
+    * @param directory the directory of the files in the layer, relative to the distribution directory
+    * @param contents the files whose copies are in the layer
+    * @return this
+    */
+   public LayeredDistributionTask contentLayer(String name, String directory, Object contents) {
+      checkName(name);
+      Preconditions.checkNotNull(directory, "directory may not be null!");
+      layerContentDirectories.put(name, directory.endsWith("/") ? directory : directory + "/");
+      layerContents.computeIfAbsent(name, __ -> getProject().files()).from(contents);
+      layerPaths.computeIfAbsent(name, __ -> new ArrayList<>());
+      return this;
+   }
+
+   /**
+    * Returns the property of the exploded distribution to split into layers.
+    *
+    * @return the property of the distribution directory
+    */
+   @InputDirectory
+   public DirectoryProperty getDistributionDirectory() {
+      return distributionDirectory;
+   }
+
+   /**
+    * Returns the property of the directory the layers and the {@value #INDEX_FILE_NAME} file are written to. Any
+    * existing contents of the directory are removed when the layers are created.
+    *
+    * @return the property of the destination directory
+    */
+   @OutputDirectory
+   public DirectoryProperty getDestinationDirectory() {
+      return destinationDirectory;
+   }
+
+   /**
+    * Returns the layers in order with the paths of the files they contain.
+    *
+    * @return the paths of the layers
+    */
+   @Input
+   public Map<String, List<String>> getLayerPaths() {
+      return Collections.unmodifiableMap(layerPaths);
+   }
+
+   /**
+    * Returns the directories of the layers declared with {@link #contentLayer(String, String, Object)}.
+    *
+    * @return the content directories of the layers
+    */
+   @Input
+   public Map<String, String> getLayerContentDirectories() {
+      return Collections.unmodifiableMap(layerContentDirectories);
+   }
+
+   /**
+    * Returns the files whose copies are in the layers declared with {@link #contentLayer(String, String, Object)}.
+    *
+    * @return the contents of the layers
+    */
+   @InputFiles
+   public FileCollection getLayerContents() {
+      return getProject().files(layerContents.values());
+   }
+
+   /**
+    * Returns the directory the files of the layers are placed in, relative to the root of the layer archives. The
+    * default is an empty string, which places the files at the root.
+    *
+    * @return the directory of the files in the layers
+    */
+   @Input
+   public String getPathPrefix() {
+      return pathPrefix;
+   }
+
+   public void setPathPrefix(String pathPrefix) {
+      Preconditions.checkNotNull(pathPrefix, "pathPrefix may not be null!");
+      this.pathPrefix = pathPrefix.isEmpty() || pathPrefix.endsWith("/") ? pathPrefix : pathPrefix + "/";
+   }
+
+   /**
+    * Returns the deflate compression level of the layers.
+    *
+    * @return the compression level
+    */
+   @Input
+   public int getCompressionLevel() {
+      return compressionLevel;
+   }
+
+   public void setCompressionLevel(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+   }
+
+   @TaskAction
+   public void createLayers() {
+      Path distribution = distributionDirectory.get().getAsFile().toPath();
+      Path destination = destinationDirectory.get().getAsFile().toPath();
+      ParallelArchiver archiver = new ParallelArchiver(compressionLevel, Runtime.getRuntime().availableProcessors());
+      try {
+         FileUtils.cleanDirectory(destination.toFile());
+         Map<String, Set<String>> entries = assignEntries(distribution);
+         Map<String, String> digests = new LinkedHashMap<>();
+         for (Map.Entry<String, Set<String>> layer : entries.entrySet()) {
+            Path archive = destination.resolve(layer.getKey() + "." + LAYER_EXTENSION);
+            archiver.archiveTar(distribution, pathPrefix, layer.getValue()::contains, archive);
+            digests.put(layer.getKey(),
+                        com.google.common.io.Files.asByteSource(archive.toFile()).hash(Hashing.sha256()).toString());
+         }
+         writeIndex(destination, digests);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Assigns each file and directory of the distribution to a layer.
+    *
+    * @return the relative paths of the entries of each layer, including the parent directories of its files
+    */
+   private Map<String, Set<String>> assignEntries(Path distribution) throws IOException {
+      Map<String, Set<String>> entries = new LinkedHashMap<>();
+      layerPaths.keySet().forEach(layer -> entries.put(layer, new HashSet<>()));
+      Map<String, String> contentLayers = getContentLayers();
+      ContentAddressedStore store = ContentAddressedStore.getInstance(getProject().getGradle());
+      List<String> unassigned = new ArrayList<>();
+
+      List<Path> paths;
+      try (Stream<Path> stream = Files.walk(distribution)) {
+         paths = stream.filter(path -> !path.equals(distribution)).collect(Collectors.toList());
+      }
+      for (Path path : paths) {
+         String name = distribution.relativize(path).toString().replace(File.separatorChar, '/');
+         String layer = null;
+         if (Files.isDirectory(path)) {
+            name += "/";
+         } else {
+            String parent = name.substring(0, name.lastIndexOf('/') + 1);
+            String digest = layerContentDirectories.containsValue(parent) ? store.getDigest(path.toFile()) : null;
+            layer = digest == null ? null : contentLayers.get(parent + digest);
+         }
+         if (layer == null) {
+            layer = getLayer(name);
+         }
+         if (layer == null) {
+            unassigned.add(name);
+            continue;
+         }
+         Set<String> layerEntries = entries.get(layer);
+         layerEntries.add(name);
+         // The parent directories are included so that the layer can be unpacked on its own
+         for (int i = name.lastIndexOf('/', name.length() - 2); i > 0; i = name.lastIndexOf('/', i - 1)) {
+            layerEntries.add(name.substring(0, i + 1));
+         }
+      }
+      if (!unassigned.isEmpty()) {
+         Collections.sort(unassigned);
+         throw new GradleException("The following files of the distribution are not in a layer: " + unassigned);
+      }
+      return entries;
+   }
+
+   /**
+    * Returns the layers declared with {@link #contentLayer(String, String, Object)} by the directory and digest of
+    * their files.
+    */
+   private Map<String, String> getContentLayers() {
+      ContentAddressedStore store = ContentAddressedStore.getInstance(getProject().getGradle());
+      Map<String, String> contentLayers = new LinkedHashMap<>();
+      layerContents.forEach((layer, contents) -> {
+         String directory = layerContentDirectories.get(layer);
+         for (File file : contents) {
+            if (file.isFile()) {
+               contentLayers.putIfAbsent(directory + store.getDigest(file), layer);
+            }
+         }
+      });
+      return contentLayers;
+   }
+
+   /**
+    * Returns the layer with the longest path that contains the given entry, or {@code null} if no layer contains it.
+    */
+   private String getLayer(String name) {
+      String layer = null;
+      int length = -1;
+      for (Map.Entry<String, List<String>> entry : layerPaths.entrySet()) {
+         for (String path : entry.getValue()) {
+            boolean contains = path.isEmpty() || name.equals(path) || (path.endsWith("/") && name.startsWith(path));
+            if (contains && path.length() > length) {
+               layer = entry.getKey();
+               length = path.length();
+            }
+         }
+      }
+      return layer;
+   }
+
+   private static void writeIndex(Path destination, Map<String, String> digests) throws IOException {
+      Map<String, String> properties = new TreeMap<>();
+      for (Map.Entry<String, String> entry : digests.entrySet()) {
+         String archive = entry.getKey() + "." + LAYER_EXTENSION;
+         properties.put(entry.getKey() + ".file", archive);
+         properties.put(entry.getKey() + ".digest", "sha256:" + entry.getValue());
+         properties.put(entry.getKey() + ".size", Long.toString(Files.size(destination.resolve(archive))));
+      }
+      try (Writer writer = Files.newBufferedWriter(destination.resolve(INDEX_FILE_NAME), StandardCharsets.UTF_8)) {
+         writer.write("# The layers of the distribution in the order they are unpacked\n");
+         writer.write("layers=" + String.join(",", digests.keySet()) + "\n");
+         for (Map.Entry<String, String> property : properties.entrySet()) {
+            writer.write(property.getKey() + "=" + property.getValue() + "\n");
+         }
+      }
+   }
+
+   private static void checkName(String name) {
+      Preconditions.checkNotNull(name, "name may not be null!");
+      Preconditions.checkArgument(name.matches("[A-Za-z0-9._-]+"), "invalid layer name: %s", name);
+   }
+}
@@ -0,0 +1,434 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+
+/**
+ * A {@link LayeredDistributionTask} that also writes the layers as an OCI image in the
+ * <a href="https://github.com/opencontainers/image-spec/blob/main/image-layout.md">image layout</a> format, packaged
+ * as a tar archive. No container engine is needed to create the image; it can be loaded or pushed with tools such as
+ * {@code skopeo copy oci-archive:<file> ...} or {@code podman load}.
+ *
+ * <p>
+ * The layers and the image configuration are reproducible, so an unchanged layer has the same digest in every build
+ * and is only stored once by registries and nodes. The layers of an optional {@link #getBaseImage() base image}, such
+ * as a Java runtime image, are placed before the layers of the distribution, and its configuration is extended with the
+ * {@link #getEntrypoint() entrypoint}, {@link #getCommand() command} and {@link #getWorkingDirectory() working
+ * directory} of this task.
+ */
+public class OciImageTask extends LayeredDistributionTask {
+
+   static final String MANIFEST_MEDIA_TYPE = "application/vnd.oci.image.manifest.v1+json";
+   static final String INDEX_MEDIA_TYPE = "application/vnd.oci.image.index.v1+json";
+   static final String CONFIG_MEDIA_TYPE = "application/vnd.oci.image.config.v1+json";
+   static final String LAYER_MEDIA_TYPE = "application/vnd.oci.image.layer.v1.tar+gzip";
+   static final String REF_NAME_ANNOTATION = "org.opencontainers.image.ref.name";
+
+   private static final String BLOBS_DIRECTORY = "blobs/sha256/";
+   private static final int FILE_MODE = 0644;
+   private static final int DIRECTORY_MODE = 0755;
+
+   private final DirectoryProperty baseImage;
+   private final RegularFileProperty imageFile;
+   private String tag = "latest";
+   private String architecture = "amd64";
+   private List<String> entrypoint = new ArrayList<>();
+   private List<String> command = new ArrayList<>();
+   private String workingDirectory = "";
+
+   /**
+    * Constructor.
+    */
+   public OciImageTask() {
+      this.baseImage = newInputDirectory();
+      this.imageFile = newOutputFile();
+   }
+
+   /**
+    * Returns the property of the directory of an image in the OCI image layout format whose layers the image is
+    * based on. The base image is optional; if its layout contains more than one image, the image for the
+    * {@link #getArchitecture() architecture} of this image is used.
+    *
+    * @return the property of the base image directory
+    */
+   @Optional
+   @InputDirectory
+   public DirectoryProperty getBaseImage() {
+      return baseImage;
+   }
+
+   /**
+    * Returns the property of the image archive to create.
+    *
+    * @return the property of the image archive
+    */
+   @OutputFile
+   public RegularFileProperty getImageFile() {
+      return imageFile;
+   }
+
+   /**
+    * Returns the tag of the image in the image layout. The default is {@code latest}.
+    *
+    * @return the tag of the image
+    */
+   @Input
+   public String getTag() {
+      return tag;
+   }
+
+   public void setTag(String tag) {
+      this.tag = Preconditions.checkNotNull(tag, "tag may not be null!");
+   }
+
+   /**
+    * Returns the CPU architecture of the image if it has no base image. The default is {@code amd64}.
+    *
+    * @return the architecture of the image
+    */
+   @Input
+   public String getArchitecture() {
+      return architecture;
+   }
+
+   public void setArchitecture(String architecture) {
+      this.architecture = Preconditions.checkNotNull(architecture, "architecture may not be null!");
+   }
+
+   /**
+    * Returns the command that is run when a container of the image starts.
+    *
+    * @return the entrypoint of the image
+    */
+   @Input
+   public List<String> getEntrypoint() {
+      return entrypoint;
+   }
+
+   public void setEntrypoint(List<String> entrypoint) {
+      this.entrypoint = new ArrayList<>(entrypoint);
+   }
+
+   /**
+    * Returns the default arguments of the {@link #getEntrypoint() entrypoint}.
+    *
+    * @return the command of the image
+    */
+   @Input
+   public List<String> getCommand() {
+      return command;
+   }
+
+   public void setCommand(List<String> command) {
+      this.command = new ArrayList<>(command);
+   }
+
+   /**
+    * Returns the working directory of containers of the image, or an empty string to use the working directory of the
+    * base image.
+    *
+    * @return the working directory of the image
+    */
+   @Input
+   public String getWorkingDirectory() {
+      return workingDirectory;
+   }
+
+   public void setWorkingDirectory(String workingDirectory) {
+      this.workingDirectory = Preconditions.checkNotNull(workingDirectory, "workingDirectory may not be null!");
+   }
+
+   @Override
+   @TaskAction
+   public void createLayers() {
+      super.createLayers();
+      try {
+         createImage();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private void createImage() throws IOException {
+      Path layersDirectory = getDestinationDirectory().get().getAsFile().toPath();
+      Properties index = new Properties();
+      try (InputStream in = Files.newInputStream(layersDirectory.resolve(INDEX_FILE_NAME))) {
+         index.load(in);
+      }
+
+      Map<String, Object> baseManifest = Collections.emptyMap();
+      Map<String, Object> baseConfig = Collections.emptyMap();
+      Path baseDirectory = baseImage.isPresent() ? baseImage.get().getAsFile().toPath() : null;
+      if (baseDirectory != null) {
+         baseManifest = readBaseManifest(baseDirectory);
+         baseConfig = readJson(blob(baseDirectory, getDigest(baseManifest.get("config"))));
+      }
+
+      // The blobs of the image by their digest, in the order they are written
+      Map<String, Object> blobs = new LinkedHashMap<>();
+      List<Object> layers = new ArrayList<>(getList(baseManifest, "layers"));
+      for (Object layer : layers) {
+         String digest = getDigest(layer);
+         blobs.put(digest, blob(baseDirectory, digest));
+      }
+      List<Object> diffIds = new ArrayList<>(getList(getMap(baseConfig, "rootfs"), "diff_ids"));
+      List<Object> history = new ArrayList<>(getList(baseConfig, "history"));
+      for (String layer : index.getProperty("layers").split(",")) {
+         Path file = layersDirectory.resolve(index.getProperty(layer + ".file"));
+         String digest = index.getProperty(layer + ".digest");
+         layers.add(descriptor(LAYER_MEDIA_TYPE, digest, Files.size(file), null));
+         blobs.put(digest, file);
+         diffIds.add(getUncompressedDigest(file));
+         history.add(Collections.singletonMap("created_by", "seaside distribution layer " + layer));
+      }
+
+      Map<String, Object> config = new LinkedHashMap<>(baseConfig);
+      config.remove("created");
+      config.putIfAbsent("architecture", architecture);
+      config.putIfAbsent("os", "linux");
+      Map<String, Object> containerConfig = new LinkedHashMap<>(getMap(baseConfig, "config"));
+      if (!entrypoint.isEmpty()) {
+         containerConfig.put("Entrypoint", entrypoint);
+         containerConfig.put("Cmd", command);
+      }
+      if (!workingDirectory.isEmpty()) {
+         containerConfig.put("WorkingDir", workingDirectory);
+      }
+      config.put("config", containerConfig);
+      Map<String, Object> rootfs = new LinkedHashMap<>();
+      rootfs.put("type", "layers");
+      rootfs.put("diff_ids", diffIds);
+      config.put("rootfs", rootfs);
+      config.put("history", history);
+      byte[] configBytes = toJson(config);
+      String configDigest = sha256(configBytes);
+      blobs.put(configDigest, configBytes);
+
+      Map<String, Object> manifest = new LinkedHashMap<>();
+      manifest.put("schemaVersion", 2);
+      manifest.put("mediaType", MANIFEST_MEDIA_TYPE);
+      manifest.put("config", descriptor(CONFIG_MEDIA_TYPE, configDigest, configBytes.length, null));
+      manifest.put("layers", layers);
+      byte[] manifestBytes = toJson(manifest);
+      String manifestDigest = sha256(manifestBytes);
+      blobs.put(manifestDigest, manifestBytes);
+
+      Map<String, Object> imageIndex = new LinkedHashMap<>();
+      imageIndex.put("schemaVersion", 2);
+      imageIndex.put("mediaType", INDEX_MEDIA_TYPE);
+      imageIndex.put("manifests", Collections.singletonList(
+            descriptor(MANIFEST_MEDIA_TYPE, manifestDigest, manifestBytes.length,
+                       Collections.singletonMap(REF_NAME_ANNOTATION, tag))));
+
+      writeImage(toJson(imageIndex), blobs);
+   }
+
+   /**
+    * Writes the image layout as a tar archive; the blobs are either files or byte arrays.
+    */
+   private void writeImage(byte[] imageIndex, Map<String, Object> blobs) throws IOException {
+      File file = imageFile.get().getAsFile();
+      Files.createDirectories(file.getParentFile().toPath());
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+         long size = 0;
+         size += writeTarEntry(out, "oci-layout", "{\"imageLayoutVersion\":\"1.0.0\"}".getBytes(
+               StandardCharsets.UTF_8));
+         size += writeTarEntry(out, "index.json", imageIndex);
+         size += writeTarEntry(out, "blobs/", null);
+         size += writeTarEntry(out, BLOBS_DIRECTORY, null);
+         for (Map.Entry<String, Object> blob : blobs.entrySet()) {
+            String name = BLOBS_DIRECTORY + blob.getKey().substring("sha256:".length());
+            if (blob.getValue() instanceof Path) {
+               Path path = (Path) blob.getValue();
+               long length = Files.size(path);
+               out.write(ParallelArchiver.createTarHeader(name.getBytes(StandardCharsets.UTF_8), FILE_MODE, length,
+                                                          '0'));
+               Files.copy(path, out);
+               size += ParallelArchiver.TAR_BLOCK_SIZE + length + writeTarPadding(out, length);
+            } else {
+               size += writeTarEntry(out, name, (byte[]) blob.getValue());
+            }
+         }
+         // A tar archive ends with two empty blocks and is padded to a whole record
+         long end = ParallelArchiver.TAR_RECORD_SIZE - size % ParallelArchiver.TAR_RECORD_SIZE;
+         if (end < 2 * ParallelArchiver.TAR_BLOCK_SIZE) {
+            end += ParallelArchiver.TAR_RECORD_SIZE;
+         }
+         out.write(new byte[(int) end]);
+      }
+   }
+
+   /**
+    * Writes a file entry with the given content, or a directory entry if the content is {@code null}.
+    *
+    * @return the number of bytes written
+    */
+   private static long writeTarEntry(OutputStream out, String name, byte[] content) throws IOException {
+      byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+      if (content == null) {
+         out.write(ParallelArchiver.createTarHeader(nameBytes, DIRECTORY_MODE, 0, '5'));
+         return ParallelArchiver.TAR_BLOCK_SIZE;
+      }
+      out.write(ParallelArchiver.createTarHeader(nameBytes, FILE_MODE, content.length, '0'));
+      out.write(content);
+      return ParallelArchiver.TAR_BLOCK_SIZE + content.length + writeTarPadding(out, content.length);
+   }
+
+   private static long writeTarPadding(OutputStream out, long size) throws IOException {
+      int remainder = (int) (size % ParallelArchiver.TAR_BLOCK_SIZE);
+      if (remainder == 0) {
+         return 0;
+      }
+      out.write(new byte[ParallelArchiver.TAR_BLOCK_SIZE - remainder]);
+      return ParallelArchiver.TAR_BLOCK_SIZE - remainder;
+   }
+
+   /**
+    * Returns the manifest of the base image, selecting the manifest for the architecture of this image from any
+    * image indexes.
+    */
+   private Map<String, Object> readBaseManifest(Path directory) throws IOException {
+      Map<String, Object> index = readJson(directory.resolve("index.json"));
+      while (true) {
+         List<Object> manifests = getList(index, "manifests");
+         Object selected = null;
+         for (Object manifest : manifests) {
+            Map<String, Object> platform = getMap(manifest, "platform");
+            if (manifests.size() == 1 || (architecture.equals(platform.get("architecture"))
+                     && "linux".equals(platform.get("os")))) {
+               selected = manifest;
+               break;
+            }
+         }
+         if (selected == null) {
+            throw new GradleException("The base image " + directory + " does not contain an image for linux/"
+                     + architecture);
+         }
+         Map<String, Object> content = readJson(blob(directory, getDigest(selected)));
+         if (!INDEX_MEDIA_TYPE.equals(getMap(selected, null).get("mediaType"))
+                  && !INDEX_MEDIA_TYPE.equals(content.get("mediaType"))) {
+            return content;
+         }
+         index = content;
+      }
+   }
+
+   private static Map<String, Object> descriptor(String mediaType, String digest, long size,
+            Map<String, String> annotations) {
+      Map<String, Object> descriptor = new LinkedHashMap<>();
+      descriptor.put("mediaType", mediaType);
+      descriptor.put("digest", digest);
+      descriptor.put("size", size);
+      if (annotations != null) {
+         descriptor.put("annotations", annotations);
+      }
+      return descriptor;
+   }
+
+   private static Path blob(Path directory, String digest) {
+      if (!digest.matches("sha256:[0-9a-f]{64}")) {
+         throw new GradleException("Unsupported digest in base image: " + digest);
+      }
+      return directory.resolve(BLOBS_DIRECTORY + digest.substring("sha256:".length()));
+   }
+
+   private static String getDigest(Object descriptor) {
+      Object digest = getMap(descriptor, null).get("digest");
+      if (digest == null) {
+         throw new GradleException("Invalid descriptor in base image: " + descriptor);
+      }
+      return digest.toString();
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, Object> getMap(Object object, String key) {
+      Object value = key == null ? object : object instanceof Map ? ((Map<String, Object>) object).get(key) : null;
+      return value instanceof Map ? (Map<String, Object>) value : Collections.emptyMap();
+   }
+
+   @SuppressWarnings("unchecked")
+   private static List<Object> getList(Map<String, Object> map, String key) {
+      Object value = map.get(key);
+      return value instanceof List ? (List<Object>) value : Collections.emptyList();
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, Object> readJson(Path file) throws IOException {
+      try (InputStream in = Files.newInputStream(file)) {
+         return (Map<String, Object>) new JsonSlurper().parse(in, StandardCharsets.UTF_8.name());
+      }
+   }
+
+   private static byte[] toJson(Object value) {
+      return JsonOutput.toJson(value).getBytes(StandardCharsets.UTF_8);
+   }
+
+   private static String sha256(byte[] bytes) {
+      return "sha256:" + Hashing.sha256().hashBytes(bytes);
+   }
+
+   private static String getUncompressedDigest(Path layer) throws IOException {
+      Hasher hasher = Hashing.sha256().newHasher();
+      byte[] buffer = new byte[64 * 1024];
+      try (InputStream in = new GZIPInputStream(Files.newInputStream(layer), buffer.length)) {
+         int read;
+         while ((read = in.read(buffer)) >= 0) {
+            hasher.putBytes(buffer, 0, read);
+         }
+      }
+      return "sha256:" + hasher.hash();
+   }
+}
@@ -0,0 +1,540 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.google.common.base.Preconditions;
+import com.ngc.seaside.gradle.util.ZipArchiveWriter;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.file.archive.ZipCopyAction;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.tasks.WorkResults;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Creates gzipped tar archives and zip archives whose contents are compressed concurrently by {@link BlockCompressor}s:
+ * a tar stream is compressed as one block-parallel gzip stream, and the entries of a zip archive are deflated in
+ * parallel with each other. An archive is created from a directory, from the files of a copy task, or by adding
+ * entries one at a time with a {@link Writer}.
+ *
+ * <p>
+ * The archives are reproducible: the files are added in sorted order with constant timestamps and owners, and the
+ * compressed data only depends on the contents of the files and the compression level.
+ */
+final class ParallelArchiver {
+
+   /**
+    * The modification time of the tar entries in seconds since the epoch, 1980-02-01T00:00:00Z.
+    */
+   private static final long TAR_ENTRY_TIME = 318211200L;
+   static final int TAR_BLOCK_SIZE = 512;
+   static final int TAR_RECORD_SIZE = 20 * TAR_BLOCK_SIZE;
+   static final int TAR_NAME_LENGTH = 100;
+   private static final long TAR_MAX_SIZE = 077777777777L;
+   private static final String TAR_LONG_LINK_NAME = "././@LongLink";
+   private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0};
+   private static final int DEFAULT_FILE_MODE = 0644;
+   private static final int DEFAULT_DIRECTORY_MODE = 0755;
+
+   private final int level;
+   private final int threads;
+
+   /**
+    * Creates a new archiver.
+    *
+    * @param level the deflate compression level
+    * @param threads the number of threads that compress the archives
+    */
+   ParallelArchiver(int level, int threads) {
+      this.level = level;
+      this.threads = Math.max(1, threads);
+   }
+
+   /**
+    * Creates a gzipped tar archive of the files of the given directory that are accepted by a filter; see
+    * {@link #archive(Path, String, Predicate, Writer)}.
+    *
+    * @param directory the directory to archive
+    * @param prefix the directory of the files in the archive, ending with a slash, or an empty string
+    * @param filter the filter of the relative paths to archive
+    * @param tarFile the gzipped tar archive to create
+    * @throws IOException if the directory cannot be read or the archive cannot be written
+    */
+   void archiveTar(Path directory, String prefix, Predicate<String> filter, Path tarFile) throws IOException {
+      try (Writer writer = openTar(tarFile)) {
+         archive(directory, prefix, filter, writer);
+      }
+   }
+
+   /**
+    * Creates a zip archive of the files of the given directory that are accepted by a filter; see
+    * {@link #archive(Path, String, Predicate, Writer)}.
+    *
+    * @param directory the directory to archive
+    * @param prefix the directory of the files in the archive, ending with a slash, or an empty string
+    * @param filter the filter of the relative paths to archive
+    * @param zipFile the zip archive to create
+    * @throws IOException if the directory cannot be read or the archive cannot be written
+    */
+   void archiveZip(Path directory, String prefix, Predicate<String> filter, Path zipFile) throws IOException {
+      try (Writer writer = openZip(zipFile)) {
+         archive(directory, prefix, filter, writer);
+      }
+   }
+
+   /**
+    * Opens a gzipped tar archive so that entries can be added to it one at a time. The archive is only complete once
+    * the writer is {@link Writer#finish() finished}; the writer must be closed in any case.
+    *
+    * @param tarFile the gzipped tar archive to create
+    * @return the writer of the archive
+    * @throws IOException if the archive cannot be created
+    */
+   Writer openTar(Path tarFile) throws IOException {
+      Preconditions.checkNotNull(tarFile, "tarFile may not be null!");
+      return open(tarFile, null);
+   }
+
+   /**
+    * Opens a zip archive so that entries can be added to it one at a time. The archive is only complete once the
+    * writer is {@link Writer#finish() finished}; the writer must be closed in any case.
+    *
+    * @param zipFile the zip archive to create
+    * @return the writer of the archive
+    * @throws IOException if the archive cannot be created
+    */
+   Writer openZip(Path zipFile) throws IOException {
+      Preconditions.checkNotNull(zipFile, "zipFile may not be null!");
+      return open(null, zipFile);
+   }
+
+   /**
+    * Returns a copy action that adds the files of a copy task to a gzipped tar archive, in the order they are
+    * processed.
+    *
+    * @param tarFile the gzipped tar archive to create
+    * @return the copy action
+    */
+   CopyAction createTarCopyAction(File tarFile) {
+      Preconditions.checkNotNull(tarFile, "tarFile may not be null!");
+      return createCopyAction(tarFile, () -> openTar(tarFile.toPath()));
+   }
+
+   /**
+    * Returns a copy action that adds the files of a copy task to a zip archive, in the order they are processed.
+    *
+    * @param zipFile the zip archive to create
+    * @return the copy action
+    */
+   CopyAction createZipCopyAction(File zipFile) {
+      Preconditions.checkNotNull(zipFile, "zipFile may not be null!");
+      return createCopyAction(zipFile, () -> openZip(zipFile.toPath()));
+   }
+
+   /**
+    * Archives the files of the given directory that are accepted by a filter. The filter is given the path of each
+    * file relative to the directory; the paths of directories end with a slash. The contents of directories that are
+    * not accepted are skipped. The files are placed in the given directory of the archive, whose parent directories
+    * are also added to the archive.
+    */
+   private static void archive(Path directory, String prefix, Predicate<String> filter, Writer writer)
+            throws IOException {
+      for (int i = prefix.indexOf('/'); i >= 0; i = prefix.indexOf('/', i + 1)) {
+         writer.addDirectory(prefix.substring(0, i + 1), DEFAULT_DIRECTORY_MODE);
+      }
+      addChildren(writer, directory, prefix, prefix, filter);
+      writer.finish();
+   }
+
+   private Writer open(Path tarFile, Path zipFile) throws IOException {
+      ExecutorService executor = createExecutor();
+      OutputStream tar = null;
+      try {
+         tar = tarFile == null ? null : new BufferedOutputStream(Files.newOutputStream(tarFile));
+         ZipArchiveWriter zip = zipFile == null ? null : new ZipArchiveWriter(zipFile.toFile());
+         return new Writer(executor, tar, zip);
+      } catch (IOException | RuntimeException e) {
+         if (tar != null) {
+            tar.close();
+         }
+         executor.shutdownNow();
+         throw e;
+      }
+   }
+
+   private static CopyAction createCopyAction(File archive, WriterFactory factory) {
+      return stream -> {
+         try {
+            Files.createDirectories(archive.getParentFile().toPath());
+            try (Writer writer = factory.open()) {
+               stream.process(details -> {
+                  String name = details.getRelativePath().getPathString();
+                  try {
+                     if (details.isDirectory()) {
+                        writer.addDirectory(name + '/', details.getMode());
+                     } else {
+                        try (InputStream in = details.open()) {
+                           writer.addFile(name, details.getMode(), details.getSize(), in);
+                        }
+                     }
+                  } catch (IOException e) {
+                     throw new UncheckedIOException("Unable to add " + name + " to " + archive, e);
+                  }
+               });
+               writer.finish();
+            }
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+         return WorkResults.didWork(true);
+      };
+   }
+
+   private ExecutorService createExecutor() {
+      AtomicInteger threadCount = new AtomicInteger();
+      return Executors.newFixedThreadPool(threads, runnable -> {
+         Thread thread = new Thread(runnable, "distribution-compressor-" + threadCount.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   private static void addChildren(Writer writer, Path directory, String rootPrefix, String prefix,
+            Predicate<String> filter) throws IOException {
+      List<Path> children;
+      try (Stream<Path> stream = Files.list(directory)) {
+         children = stream.sorted(Comparator.comparing(path -> path.getFileName().toString()))
+               .collect(Collectors.toList());
+      }
+      for (Path child : children) {
+         String name = prefix + child.getFileName();
+         String relativeName = name.substring(rootPrefix.length());
+         if (Files.isDirectory(child)) {
+            if (filter.test(relativeName + "/")) {
+               writer.addDirectory(name + "/", getMode(child, DEFAULT_DIRECTORY_MODE));
+               addChildren(writer, child, rootPrefix, name + "/", filter);
+            }
+         } else if (filter.test(relativeName)) {
+            try (InputStream in = Files.newInputStream(child)) {
+               writer.addFile(name, getMode(child, DEFAULT_FILE_MODE), Files.size(child), in);
+            } catch (IOException e) {
+               throw new IOException("Unable to archive " + child + ": " + e.getMessage(), e);
+            }
+         }
+      }
+   }
+
+   /**
+    * Opens the writer of an archive.
+    */
+   @FunctionalInterface
+   private interface WriterFactory {
+
+      Writer open() throws IOException;
+   }
+
+   /**
+    * Adds entries to a gzipped tar archive or a zip archive.
+    */
+   class Writer implements Closeable {
+
+      private final ExecutorService executor;
+      private final OutputStream tar;
+      private final ZipArchiveWriter zip;
+      private final BlockCompressor tarCompressor;
+      private final Deque<PendingZipEntry> zipEntries = new ArrayDeque<>();
+      private final int maxPendingBlocks = threads * 4;
+      private final byte[] buffer = new byte[BlockCompressor.BLOCK_SIZE];
+
+      private Writer(ExecutorService executor, OutputStream tar, ZipArchiveWriter zip) throws IOException {
+         this.executor = executor;
+         this.tar = tar;
+         this.zip = zip;
+         this.tarCompressor = tar == null ? null : new BlockCompressor(executor, level);
+         if (tar != null) {
+            tar.write(GZIP_HEADER);
+         }
+      }
+
+      /**
+       * Adds a directory to the archive.
+       *
+       * @param name the name of the directory in the archive, ending with a slash
+       * @param mode the Unix permissions of the directory
+       * @throws IOException if the archive cannot be written
+       */
+      void addDirectory(String name, int mode) throws IOException {
+         writeTarHeader(name, mode, 0, '5');
+         if (zip != null) {
+            zipEntries.addLast(new PendingZipEntry(name, mode, null));
+         }
+      }
+
+      /**
+       * Adds a file to the archive, reading its content from the given stream. The stream is not closed.
+       *
+       * @param name the name of the file in the archive
+       * @param mode the Unix permissions of the file
+       * @param size the number of bytes in the stream
+       * @param in the content of the file
+       * @throws IOException if the content cannot be read, does not have the given size or the archive cannot be
+       *                     written
+       */
+      void addFile(String name, int mode, long size, InputStream in) throws IOException {
+         writeTarHeader(name, mode, size, '0');
+         BlockCompressor zipCompressor = null;
+         if (zip != null) {
+            zipCompressor = new BlockCompressor(executor, level);
+            zipEntries.addLast(new PendingZipEntry(name, mode, zipCompressor));
+         }
+         long read = 0;
+         int count;
+         while ((count = in.read(buffer)) >= 0) {
+            read += count;
+            if (tarCompressor != null) {
+               tarCompressor.write(buffer, 0, count);
+            }
+            if (zipCompressor != null) {
+               zipCompressor.write(buffer, 0, count);
+            }
+            drain(false);
+         }
+         if (read != size) {
+            throw new IOException(name + " changed while it was archived");
+         }
+         writeTarPadding(size);
+         if (zipCompressor != null) {
+            zipCompressor.finish();
+         }
+         drain(false);
+      }
+
+      /**
+       * Writes the remaining compressed data and the end of the archive.
+       *
+       * @throws IOException if the archive cannot be written
+       */
+      void finish() throws IOException {
+         if (tarCompressor != null) {
+            // A tar archive ends with two empty blocks and is padded to a whole record
+            byte[] end = new byte[TAR_RECORD_SIZE - (int) (tarCompressor.getSize() % TAR_RECORD_SIZE)];
+            if (end.length < 2 * TAR_BLOCK_SIZE) {
+               end = new byte[end.length + TAR_RECORD_SIZE];
+            }
+            tarCompressor.write(end, 0, end.length);
+            tarCompressor.finish();
+         }
+         drain(true);
+
+         if (tarCompressor != null) {
+            byte[] trailer = new byte[8];
+            putLittleEndianInt(trailer, 0, tarCompressor.getCrc());
+            putLittleEndianInt(trailer, 4, tarCompressor.getSize());
+            tar.write(trailer);
+         }
+      }
+
+      @Override
+      public void close() throws IOException {
+         try (OutputStream ignored1 = tar; ZipArchiveWriter ignored2 = zip) {
+            // Closes the archive; only one of the streams is open
+         } finally {
+            executor.shutdownNow();
+         }
+      }
+
+      /**
+       * Writes the compressed blocks that are pending, waiting for them only when there are too many in memory or
+       * when all blocks should be written.
+       */
+      private void drain(boolean all) throws IOException {
+         while (tarCompressor != null && tarCompressor.getPendingBlocks() > (all ? 0 : maxPendingBlocks)) {
+            tar.write(tarCompressor.takeBlock());
+         }
+         while (!zipEntries.isEmpty() && (all || getPendingZipBlocks() > maxPendingBlocks)) {
+            PendingZipEntry entry = zipEntries.getFirst();
+            if (entry.compressor == null) {
+               zip.writeDirectory(entry.name, entry.mode, ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES);
+               zipEntries.removeFirst();
+               continue;
+            }
+            if (!entry.started) {
+               zip.beginEntry(entry.name, entry.mode, ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES);
+               entry.started = true;
+            }
+            if (entry.compressor.getPendingBlocks() > 0) {
+               byte[] block = entry.compressor.takeBlock();
+               zip.writeCompressedData(block, 0, block.length);
+            }
+            if (entry.compressor.isFinished() && entry.compressor.getPendingBlocks() == 0) {
+               zip.endEntry(entry.compressor.getCrc(), entry.compressor.getSize());
+               zipEntries.removeFirst();
+            }
+         }
+      }
+
+      private int getPendingZipBlocks() {
+         int pending = 0;
+         for (PendingZipEntry entry : zipEntries) {
+            if (entry.compressor != null) {
+               pending += entry.compressor.getPendingBlocks();
+            }
+         }
+         return pending;
+      }
+
+      private void writeTarHeader(String name, int mode, long size, char type) throws IOException {
+         if (tarCompressor == null) {
+            return;
+         }
+         if (size > TAR_MAX_SIZE) {
+            throw new IOException(name + " is too large to be added to a tar archive");
+         }
+         byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+         if (nameBytes.length > TAR_NAME_LENGTH) {
+            // GNU tar stores long names in a separate entry that precedes the entry it names
+            byte[] longName = new byte[nameBytes.length + 1];
+            System.arraycopy(nameBytes, 0, longName, 0, nameBytes.length);
+            writeTarHeader(TAR_LONG_LINK_NAME.getBytes(StandardCharsets.US_ASCII), 0, longName.length, 'L');
+            tarCompressor.write(longName, 0, longName.length);
+            writeTarPadding(longName.length);
+         }
+         writeTarHeader(nameBytes, mode, size, type);
+      }
+
+      private void writeTarHeader(byte[] name, int mode, long size, char type) {
+         byte[] header = createTarHeader(name, mode, size, type);
+         tarCompressor.write(header, 0, header.length);
+      }
+
+      private void writeTarPadding(long size) {
+         if (tarCompressor == null) {
+            return;
+         }
+         int remainder = (int) (size % TAR_BLOCK_SIZE);
+         if (remainder != 0) {
+            byte[] padding = new byte[TAR_BLOCK_SIZE - remainder];
+            tarCompressor.write(padding, 0, padding.length);
+         }
+      }
+   }
+
+   private static class PendingZipEntry {
+
+      private final String name;
+      private final int mode;
+      private final BlockCompressor compressor;
+      private boolean started;
+
+      private PendingZipEntry(String name, int mode, BlockCompressor compressor) {
+         this.name = name;
+         this.mode = mode;
+         this.compressor = compressor;
+      }
+   }
+
+   /**
+    * Creates the header of a tar entry in the GNU format with the owner, group and modification time used for all
+    * entries of the archives.
+    *
+    * @param name the name of the entry, which is truncated to {@value #TAR_NAME_LENGTH} bytes
+    * @param mode the Unix permissions of the entry
+    * @param size the size of the entry
+    * @param type the type flag of the entry
+    * @return the header block
+    */
+   static byte[] createTarHeader(byte[] name, int mode, long size, char type) {
+      byte[] header = new byte[TAR_BLOCK_SIZE];
+      System.arraycopy(name, 0, header, 0, Math.min(name.length, TAR_NAME_LENGTH));
+      putOctal(header, 100, 8, mode);
+      putOctal(header, 108, 8, 0);
+      putOctal(header, 116, 8, 0);
+      putOctal(header, 124, 12, size);
+      putOctal(header, 136, 12, TAR_ENTRY_TIME);
+      header[156] = (byte) type;
+      byte[] magic = "ustar  ".getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(magic, 0, header, 257, magic.length);
+      // The checksum is computed with the checksum field filled with spaces
+      for (int i = 148; i < 156; i++) {
+         header[i] = ' ';
+      }
+      long checksum = 0;
+      for (byte b : header) {
+         checksum += b & 0xff;
+      }
+      putOctal(header, 148, 7, checksum);
+      return header;
+   }
+
+   private static int getMode(Path path, int defaultMode) throws IOException {
+      PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+      if (view == null) {
+         return defaultMode;
+      }
+      int mode = 0;
+      for (PosixFilePermission permission : view.readAttributes().permissions()) {
+         mode |= 1 << (8 - permission.ordinal());
+      }
+      return mode;
+   }
+
+   /**
+    * Writes the given value as a zero-padded octal number terminated by a NUL in a field of the given length.
+    */
+   private static void putOctal(byte[] header, int offset, int length, long value) {
+      String octal = Long.toOctalString(value);
+      int digits = length - 1;
+      for (int i = 0; i < digits; i++) {
+         int index = octal.length() - digits + i;
+         header[offset + i] = (byte) (index < 0 ? '0' : octal.charAt(index));
+      }
+      header[offset + digits] = 0;
+   }
+
+   private static void putLittleEndianInt(byte[] bytes, int offset, long value) {
+      for (int i = 0; i < 4; i++) {
+         bytes[offset + i] = (byte) (value >>> (8 * i));
+      }
+   }
+}
@@ -0,0 +1,61 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.tasks.bundling.Compression;
+import org.gradle.api.tasks.bundling.Tar;
+
+import java.util.zip.Deflater;
+
+/**
+ * A {@link Tar} task that compresses the archive on all available processors as one block-parallel gzip stream; see
+ * {@link ParallelArchiver}. Since the task is a {@link Tar} task, it can be configured and published like any other
+ * tar task.
+ *
+ * <p>
+ * The task defaults to {@link Compression#GZIP gzip} compression, constant file timestamps and a reproducible file
+ * order, in which case the archive is byte-for-byte reproducible for the same files. With any other compression, or if
+ * file timestamps are preserved, the archive is written by Gradle's own tar action instead.
+ */
+public class ParallelTarTask extends Tar {
+
+   /**
+    * Constructor.
+    */
+   public ParallelTarTask() {
+      setCompression(Compression.GZIP);
+      setPreserveFileTimestamps(false);
+      setReproducibleFileOrder(true);
+   }
+
+   @Override
+   protected CopyAction createCopyAction() {
+      if (getCompression() != Compression.GZIP || isPreserveFileTimestamps()) {
+         return super.createCopyAction();
+      }
+      ParallelArchiver archiver = new ParallelArchiver(Deflater.DEFAULT_COMPRESSION,
+                                                       Runtime.getRuntime().availableProcessors());
+      return archiver.createTarCopyAction(getArchivePath());
+   }
+}
@@ -0,0 +1,60 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+
+import java.util.zip.Deflater;
+
+/**
+ * A {@link Zip} task that deflates the entries of the archive in parallel with each other on all available
+ * processors; see {@link ParallelArchiver}. Since the task is a {@link Zip} task, it can be configured and published
+ * like any other zip task.
+ *
+ * <p>
+ * The task defaults to constant file timestamps and a reproducible file order, in which case the archive is
+ * byte-for-byte reproducible for the same files. If entries are {@link ZipEntryCompression#STORED stored} or file
+ * timestamps are preserved, the archive is written by Gradle's own zip action instead.
+ */
+public class ParallelZipTask extends Zip {
+
+   /**
+    * Constructor.
+    */
+   public ParallelZipTask() {
+      setPreserveFileTimestamps(false);
+      setReproducibleFileOrder(true);
+   }
+
+   @Override
+   protected CopyAction createCopyAction() {
+      if (getEntryCompression() != ZipEntryCompression.DEFLATED || isPreserveFileTimestamps()) {
+         return super.createCopyAction();
+      }
+      ParallelArchiver archiver = new ParallelArchiver(Deflater.DEFAULT_COMPRESSION,
+                                                       Runtime.getRuntime().availableProcessors());
+      return archiver.createZipCopyAction(getArchivePath());
+   }
+}
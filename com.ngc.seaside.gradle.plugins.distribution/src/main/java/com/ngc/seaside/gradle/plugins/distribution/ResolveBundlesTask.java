@@ -0,0 +1,278 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Resolves the staged bundles of a Felix distribution with the Felix framework and writes a start-order plan that
+ * installs and starts each bundle after the bundles that satisfy its requirements. The bundles are resolved against
+ * each other, the {@link #getPlatformFiles() platform bundles} and the system bundle configured by the
+ * {@link #getConfigFiles() framework configuration}; see {@link BundleResolver}. By default, the build fails if a
+ * bundle cannot be resolved.
+ *
+ * <p>
+ * The start plan is a properties file with the {@code felix.auto.install.<level>}, {@code felix.auto.start.<level>}
+ * and {@code org.osgi.framework.startlevel.beginning} framework properties. The start scripts pass it to Felix with
+ * the {@code felix.system.properties} property, and Felix copies these framework properties into its configuration.
+ * The beginning start level is never lowered below the one of the framework configuration. The plan only orders the
+ * installation and start of the bundles; Felix still resolves the bundles when the distribution starts.
+ */
+public class ResolveBundlesTask extends DefaultTask {
+
+   /**
+    * The name of the start plan in the configuration directory of the distribution.
+    */
+   public static final String START_PLAN_FILE_NAME = "start-plan.properties";
+
+   /**
+    * The first start level of the bundles in the start plan. The platform bundles are started at the default start
+    * level of 1, before any of the bundles in the plan.
+    */
+   public static final int FIRST_START_LEVEL = 2;
+
+   /**
+    * The location of the bundles directory when the distribution is started, using the {@code NG_FW_HOME} system
+    * property set by the start scripts.
+    */
+   static final String BUNDLE_LOCATION_PREFIX =
+         "file:${NG_FW_HOME}/" + SeasideFelixServiceDistributionPlugin.BUNDLES_DIRECTORY + "/";
+
+   private static final String SYSTEM_PACKAGES_PROPERTY = "org.osgi.framework.system.packages";
+   private static final String BEGINNING_START_LEVEL_PROPERTY = "org.osgi.framework.startlevel.beginning";
+
+   private final DirectoryProperty bundlesDirectory;
+   private final ConfigurableFileCollection platformFiles;
+   private final ConfigurableFileCollection configFiles;
+   private final RegularFileProperty startPlanFile;
+   private boolean failOnUnresolved = true;
+
+   /**
+    * Constructor.
+    */
+   public ResolveBundlesTask() {
+      this.bundlesDirectory = newInputDirectory();
+      this.platformFiles = getProject().files();
+      this.configFiles = getProject().files();
+      this.startPlanFile = newOutputFile();
+   }
+
+   /**
+    * Returns the property of the directory of the staged bundles to resolve.
+    *
+    * @return the property of the bundles directory
+    */
+   @InputDirectory
+   public DirectoryProperty getBundlesDirectory() {
+      return bundlesDirectory;
+   }
+
+   /**
+    * Returns the platform files of the distribution. Bundles among these files may satisfy the requirements of the
+    * staged bundles but are not included in the start plan.
+    *
+    * @return the platform files
+    */
+   @InputFiles
+   public ConfigurableFileCollection getPlatformFiles() {
+      return platformFiles;
+   }
+
+   /**
+    * Returns the framework configuration files of the distribution. The system packages declared by these files are
+    * available to the staged bundles.
+    *
+    * @return the framework configuration files
+    */
+   @InputFiles
+   public ConfigurableFileCollection getConfigFiles() {
+      return configFiles;
+   }
+
+   /**
+    * Returns the property of the start plan to write.
+    *
+    * @return the property of the start plan
+    */
+   @OutputFile
+   public RegularFileProperty getStartPlanFile() {
+      return startPlanFile;
+   }
+
+   /**
+    * Returns whether the build fails if a bundle cannot be resolved or has an invalid manifest. Otherwise, the
+    * failures are logged and the bundles that could not be resolved are started first. The default is {@code true}.
+    *
+    * @return whether the build fails if a bundle cannot be resolved
+    */
+   @Input
+   public boolean isFailOnUnresolved() {
+      return failOnUnresolved;
+   }
+
+   public void setFailOnUnresolved(boolean failOnUnresolved) {
+      this.failOnUnresolved = failOnUnresolved;
+   }
+
+   @TaskAction
+   public void resolveBundles() {
+      BundleResolver resolver = new BundleResolver(new File(getTemporaryDir(), "cache"), getLogger());
+      int beginningStartLevel = 0;
+      try {
+         File[] bundles = bundlesDirectory.get().getAsFile().listFiles(File::isFile);
+         if (bundles != null) {
+            Arrays.sort(bundles);
+            for (File bundle : bundles) {
+               addBundle(resolver, bundle, false);
+            }
+         }
+         for (File file : platformFiles) {
+            if (file.isFile()) {
+               addBundle(resolver, file, true);
+            }
+         }
+         for (File file : configFiles) {
+            if (file.isFile() && file.getName().endsWith(".properties")) {
+               beginningStartLevel = Math.max(beginningStartLevel, readConfig(resolver, file));
+            }
+         }
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+
+      if (resolver.isUsingBuildPlatformPackages()) {
+         getLogger().info("{} is not configured; resolving against the packages of the Java platform running the "
+                  + "build", SYSTEM_PACKAGES_PROPERTY);
+      }
+
+      Map<File, BundleResolver.StartLevel> startLevels;
+      if (failOnUnresolved) {
+         try {
+            startLevels = resolver.resolve(FIRST_START_LEVEL);
+         } catch (BundleResolver.UnresolvedBundlesException e) {
+            throw new GradleException("Unable to resolve the bundles of the distribution: " + e.getMessage(), e);
+         }
+      } else {
+         List<String> failures = new ArrayList<>();
+         startLevels = resolver.resolve(FIRST_START_LEVEL, failures);
+         if (!failures.isEmpty()) {
+            getLogger().warn("{} unresolved bundle(s) in the distribution:{}   {}",
+                             failures.size(), System.lineSeparator(),
+                             String.join(System.lineSeparator() + "   ", failures));
+         }
+      }
+      writeStartPlan(startLevels, beginningStartLevel);
+   }
+
+   private void addBundle(BundleResolver resolver, File file, boolean provider) throws IOException {
+      if (provider) {
+         resolver.addProvider(file);
+      } else if (!resolver.addBundle(file)) {
+         getLogger().info("{} is not a bundle and will not be started", file);
+      }
+   }
+
+   /**
+    * Adds the framework properties of the given framework configuration file to the resolver and returns its
+    * beginning start level, or 0 if it does not set one.
+    */
+   private int readConfig(BundleResolver resolver, File file) throws IOException {
+      Properties properties = new Properties();
+      try (InputStream in = Files.newInputStream(file.toPath())) {
+         properties.load(in);
+      }
+      resolver.addConfiguration(properties);
+      String beginningStartLevel = properties.getProperty(BEGINNING_START_LEVEL_PROPERTY);
+      if (beginningStartLevel != null) {
+         try {
+            return Integer.parseInt(beginningStartLevel.trim());
+         } catch (NumberFormatException e) {
+            getLogger().warn("Ignoring invalid {} in {}: {}", BEGINNING_START_LEVEL_PROPERTY, file,
+                             beginningStartLevel);
+         }
+      }
+      return 0;
+   }
+
+   private void writeStartPlan(Map<File, BundleResolver.StartLevel> startLevels, int configuredStartLevel) {
+      Map<Integer, List<String>> installs = new TreeMap<>();
+      Map<Integer, List<String>> starts = new TreeMap<>();
+      int beginningStartLevel = configuredStartLevel;
+      for (Map.Entry<File, BundleResolver.StartLevel> entry : startLevels.entrySet()) {
+         BundleResolver.StartLevel startLevel = entry.getValue();
+         String location = '"' + BUNDLE_LOCATION_PREFIX + entry.getKey().getName() + '"';
+         Map<Integer, List<String>> plan = startLevel.isFragment() ? installs : starts;
+         plan.computeIfAbsent(startLevel.getLevel(), level -> new ArrayList<>()).add(location);
+         beginningStartLevel = Math.max(beginningStartLevel, startLevel.getLevel());
+      }
+
+      File file = startPlanFile.get().getAsFile();
+      try {
+         Files.createDirectories(file.getParentFile().toPath());
+         try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.ISO_8859_1)) {
+            writer.write("# The start order of the bundles of the distribution, computed when it was built\n");
+            if (beginningStartLevel > 0) {
+               writer.write(BEGINNING_START_LEVEL_PROPERTY + "=" + beginningStartLevel + "\n");
+            }
+            writeLocations(writer, "felix.auto.install.", installs);
+            writeLocations(writer, "felix.auto.start.", starts);
+         }
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private static void writeLocations(Writer writer, String prefix, Map<Integer, List<String>> locations)
+            throws IOException {
+      for (Map.Entry<Integer, List<String>> entry : locations.entrySet()) {
+         writer.write(prefix + entry.getKey() + "=");
+         for (String location : entry.getValue()) {
+            writer.write(" \\\n   " + location.replace("\\", "\\\\"));
+         }
+         writer.write("\n");
+      }
+   }
+}
@@ -22,22 +22,37 @@
  */
 package com.ngc.seaside.gradle.plugins.distribution;
 
-import org.apache.commons.io.FileUtils;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.Hashing;
+import com.ngc.seaside.gradle.util.ContentAddressedStore;
+
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.file.CopySpec;
 import org.gradle.api.tasks.Copy;
 import org.gradle.execution.commandline.TaskConfigurationException;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.JarURLConnection;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 import groovy.lang.Closure;
 
@@ -45,6 +60,12 @@ import groovy.lang.Closure;
  * A task extending the {@link Copy} task that includes copying non-file resources, including an {@link InputStream}
  * resource, a {@link URL} resource, and resources from {@link Class#getResource(String) classes} or
  * {@link ClassLoader#getResource(String) class loaders}.
+ *
+ * <p>
+ * Resources are only written to files when the task's inputs are resolved, and they are written to a cache
+ * at {@value #CACHE_DIRECTORY_NAME} in the root project's build directory. Resources from a plugin jar are cached by
+ * the checksum of the jar, so each resource is written once per plugin version rather than once per project. Resources
+ * from jars that are not local files, such as nested or remote jars, are cached by their content.
  */
 public class ResourceCopyTask extends Copy {
 
@@ -53,6 +74,12 @@ public class ResourceCopyTask extends Copy {
    public static final String CLASS_KEY = "class";
    public static final String CLASS_LOADER_KEY = "loader";
 
+   /**
+    * The location of the resource cache shared by all projects of a build, relative to the build directory of the root
+    * project.
+    */
+   public static final String CACHE_DIRECTORY_NAME = "tmp/seaside-resources";
+
    /**
     * Specifies the resource to copy.
     * 
@@ -128,45 +155,117 @@ public class ResourceCopyTask extends Copy {
       ClassLoader loader = getClassLoader(options.get(CLASS_LOADER_KEY));
       Optional<Class<?>> cls = getClass(options.get(CLASS_KEY), loader);
       String name = getResourceName(options.get(NAME_KEY), resource);
-      Path resourceDir;
-      Path resourceFile;
-      try (InputStream inputStream = getInputStream(resource, cls, loader)) {
-         resourceDir = Files.createTempDirectory(null);
-         resourceFile = resourceDir.resolve(name);
-         Files.copy(inputStream, resourceFile, StandardCopyOption.REPLACE_EXISTING);
+      checkResourceType(resource);
+      Supplier<File> resourceFile = Suppliers.memoize(() -> materialize(resource, cls, loader, name));
+      super.from((Callable<File>) resourceFile::get, configureAction);
+      return this;
+   }
+
+   /**
+    * Writes the given resource to the shared resource cache of the build, if it is not already cached, and returns
+    * the cached file. Resources from local jars are keyed by the checksum of the jar and the entry name, so the jar is
+    * never read beyond its checksum once its resources are cached; other resources are keyed by their content.
+    */
+   private File materialize(Object resource, Optional<Class<?>> cls, ClassLoader loader, String name) {
+      Path cacheDirectory = getProject().getRootProject().getBuildDir().toPath().resolve(CACHE_DIRECTORY_NAME);
+      try {
+         URL url = getUrl(resource, cls, loader);
+         byte[] content = null;
+         String key;
+         JarURLConnection connection = getJarConnection(url);
+         File jar = getLocalJar(connection);
+         if (jar != null) {
+            String jarDigest = ContentAddressedStore.getInstance(getProject().getGradle()).getDigest(jar);
+            key = Hashing.sha256().hashString(jarDigest + "!/" + connection.getEntryName(), StandardCharsets.UTF_8)
+                     .toString();
+         } else {
+            try (InputStream inputStream = url == null ? (InputStream) resource : url.openStream()) {
+               content = IOUtils.toByteArray(inputStream);
+            }
+            key = Hashing.sha256().hashBytes(content).toString();
+         }
+
+         Path resourceFile = cacheDirectory.resolve(key).resolve(name);
+         if (Files.isRegularFile(resourceFile)) {
+            return resourceFile.toFile();
+         }
+         if (content == null) {
+            try (InputStream inputStream = url.openStream()) {
+               content = IOUtils.toByteArray(inputStream);
+            }
+         }
+         Files.createDirectories(resourceFile.getParent());
+         Path temp = Files.createTempFile(resourceFile.getParent(), name, ".tmp");
+         try {
+            Files.write(temp, content);
+            try {
+               Files.move(temp, resourceFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+               Files.move(temp, resourceFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+         } catch (FileAlreadyExistsException e) {
+            // Another project cached the same resource first
+         } finally {
+            Files.deleteIfExists(temp);
+         }
+         return resourceFile.toFile();
       } catch (IOException e) {
-         throw new TaskConfigurationException(getPath(), "Unable to create file " + name + " from resource", e);
+         throw new UncheckedIOException("Unable to create file " + name + " from resource", e);
+      }
+   }
+
+   private static JarURLConnection getJarConnection(URL url) throws IOException {
+      if (url == null || !"jar".equals(url.getProtocol())) {
+         return null;
+      }
+      URLConnection connection = url.openConnection();
+      return connection instanceof JarURLConnection ? (JarURLConnection) connection : null;
+   }
+
+   /**
+    * Returns the jar file of the given connection, or {@code null} if the jar is not a local file.
+    */
+   private static File getLocalJar(JarURLConnection connection) {
+      if (connection == null || !"file".equals(connection.getJarFileURL().getProtocol())) {
+         return null;
+      }
+      try {
+         File jar = new File(connection.getJarFileURL().toURI());
+         return jar.isFile() ? jar : null;
+      } catch (URISyntaxException | IllegalArgumentException e) {
+         return null;
       }
-      super.from(resourceFile, configureAction);
-      this.doLast(__ -> FileUtils.deleteQuietly(resourceDir.toFile()));
-      return this;
    }
 
-   private InputStream getInputStream(Object resource, Optional<Class<?>> cls, ClassLoader classLoader) {
+   private void checkResourceType(Object resource) {
       if (resource == null) {
          throw new TaskConfigurationException(getPath(), "fromResource requires a resource", null);
       }
+      if (!(resource instanceof InputStream || resource instanceof URL || resource instanceof URI
+               || resource instanceof CharSequence)) {
+         throw new TaskConfigurationException(getPath(), "Invalid resource type: " + resource.getClass(), null);
+      }
+   }
+
+   /**
+    * Returns the URL of the given resource, or {@code null} if the resource is an {@link InputStream}.
+    */
+   private URL getUrl(Object resource, Optional<Class<?>> cls, ClassLoader classLoader) throws IOException {
       if (resource instanceof InputStream) {
-         return (InputStream) resource;
+         return null;
       }
-      try {
-         if (resource instanceof URL) {
-            return ((URL) resource).openStream();
-         }
-         if (resource instanceof URI) {
-            return ((URI) resource).toURL().openStream();
-         }
-      } catch (IOException e) {
-         throw new TaskConfigurationException(getPath(), "Unable to get resource", e);
+      if (resource instanceof URL) {
+         return (URL) resource;
       }
-      if (resource instanceof CharSequence) {
-         String resourceString = resource.toString();
-         if (cls.isPresent()) {
-            return cls.get().getResourceAsStream(resourceString);
-         }
-         return classLoader.getResourceAsStream(resourceString);
+      if (resource instanceof URI) {
+         return ((URI) resource).toURL();
+      }
+      String resourceString = resource.toString();
+      URL url = cls.isPresent() ? cls.get().getResource(resourceString) : classLoader.getResource(resourceString);
+      if (url == null) {
+         throw new FileNotFoundException("Resource " + resourceString + " not found");
       }
-      throw new TaskConfigurationException(getPath(), "Invalid resource type: " + resource.getClass(), null);
+      return url;
    }
 
    private String getResourceName(Object nameObject, Object resource) {
@@ -22,6 +22,8 @@
  */
 package com.ngc.seaside.gradle.plugins.distribution;
 
+import com.ngc.seaside.gradle.util.JvmProfile;
+
 import org.gradle.api.Action;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
@@ -45,8 +47,9 @@ import groovy.lang.Closure;
 /**
  * Extension of the {@link SeasideFelixServiceDistributionPlugin}. This extension allows you to change the distribution
  * name, the {@code config.properties} file, add system properties and program arguments to the distribution executable,
- * modify the scripts used for starting the distribution, and adding more configurations for determining the
- * distribution's bundles.
+ * modify the scripts used for starting the distribution, adding more configurations for determining the
+ * distribution's bundles, enabling class data sharing, starting the bundles with a start plan, creating layered
+ * archives, setting the base of the distribution's OCI image, and tuning the JVM for the host it runs on.
  */
 public class SeasideFelixServiceDistributionExtension {
 
@@ -60,6 +63,11 @@ public class SeasideFelixServiceDistributionExtension {
    private Set<Configuration> bundleConfigurations = new LinkedHashSet<>();
    private final ScriptConfiguration scriptConfiguration;
    private final SetProperty<String> blacklist;
+   private boolean classDataSharing;
+   private boolean startPlan;
+   private boolean layered;
+   private Object baseImage;
+   private JvmProfile jvmProfile;
 
    public SeasideFelixServiceDistributionExtension(Project project) {
       this.project = project;
@@ -319,6 +327,41 @@ public class SeasideFelixServiceDistributionExtension {
                                   .collect(Collectors.joining(" "));
    }
 
+   /**
+    * Returns the JVM arguments as a single string. If {@link #isClassDataSharing() class data sharing} is enabled, the
+    * arguments include the options for using the archive at the given path; the path is written to the start script
+    * as is, so it may reference the variables of the script.
+    *
+    * @param sharedArchivePath the path of the class data sharing archive in the start script
+    * @return the JVM arguments as a single string
+    */
+   public String getJvmArgumentsString(String sharedArchivePath) {
+      String systemProperties = getJvmArgumentsString();
+      if (!classDataSharing) {
+         return systemProperties;
+      }
+      String sharingArguments = "-XX:SharedArchiveFile=" + sharedArchivePath + " -Xshare:auto";
+      return systemProperties.isEmpty() ? sharingArguments : sharingArguments + " " + systemProperties;
+   }
+
+   /**
+    * Returns the JVM arguments as a single string. If the {@link #isStartPlan() start plan} is used, the arguments
+    * include the property that loads the start plan at the given path; as with the class data sharing archive, the
+    * path is written to the start script as is.
+    *
+    * @param sharedArchivePath the path of the class data sharing archive in the start script
+    * @param startPlanPath the URL of the start plan in the start script
+    * @return the JVM arguments as a single string
+    */
+   public String getJvmArgumentsString(String sharedArchivePath, String startPlanPath) {
+      String arguments = getJvmArgumentsString(sharedArchivePath);
+      if (!startPlan) {
+         return arguments;
+      }
+      String startPlanArgument = "-Dfelix.system.properties=" + startPlanPath;
+      return arguments.isEmpty() ? startPlanArgument : startPlanArgument + " " + arguments;
+   }
+
    /**
     * Returns the list of program arguments as a single string.
     * 
@@ -329,6 +372,136 @@ public class SeasideFelixServiceDistributionExtension {
                              .collect(Collectors.joining(" "));
    }
 
+   /**
+    * Returns whether the distribution includes a class data sharing archive of the classes loaded when it starts. The
+    * archive is created by a training run of the distribution when it is built and used by the start scripts to
+    * reduce the startup time of the distribution. It contains the classes of the Java runtime and of the Felix
+    * framework, but not the classes of the bundles; see {@link ClassDataSharingArchiveTask}. The start scripts run
+    * the JVM from the home directory of the distribution when the archive is used. Requires Java 10 or later. The
+    * default is {@code false}.
+    *
+    * @return whether the distribution includes a class data sharing archive
+    */
+   public boolean isClassDataSharing() {
+      return classDataSharing;
+   }
+
+   /**
+    * Sets whether the distribution includes a class data sharing archive of the classes loaded when it starts.
+    *
+    * @param classDataSharing whether the distribution includes a class data sharing archive
+    * @return this
+    */
+   public SeasideFelixServiceDistributionExtension setClassDataSharing(boolean classDataSharing) {
+      this.classDataSharing = classDataSharing;
+      return this;
+   }
+
+   /**
+    * Returns whether the bundles of the distribution are started by a start-order plan. The plan starts each bundle
+    * after the bundles that satisfy its requirements when the bundles are resolved by Felix as the distribution is
+    * built, and the start scripts load the plan with the {@code felix.system.properties} property. Felix still
+    * resolves the bundles when the distribution starts. The plan installs and starts the staged bundles itself and
+    * sets {@code org.osgi.framework.startlevel.beginning}, so it should not be used with a service that deploys the
+    * bundles directory, such as the BLoCS auto-deployment service. The bundles are resolved by the {@code check} task
+    * whether or not the plan is used. The default is {@code false}.
+    *
+    * @return whether the bundles are started by a start plan
+    * @see ResolveBundlesTask
+    */
+   public boolean isStartPlan() {
+      return startPlan;
+   }
+
+   /**
+    * Sets whether the bundles of the distribution are resolved when it is built and started by a start plan.
+    *
+    * @param startPlan whether the bundles are started by a start plan
+    * @return this
+    */
+   public SeasideFelixServiceDistributionExtension setStartPlan(boolean startPlan) {
+      this.startPlan = startPlan;
+      return this;
+   }
+
+   /**
+    * Returns whether the distribution is also split into layered archives when it is built, so that deployments only
+    * need to transfer the layers that changed. The default is {@code false}.
+    *
+    * @return whether layered archives of the distribution are created
+    * @see LayeredDistributionTask
+    */
+   public boolean isLayered() {
+      return layered;
+   }
+
+   /**
+    * Sets whether the distribution is also split into layered archives when it is built.
+    *
+    * @param layered whether layered archives of the distribution are created
+    * @return this
+    */
+   public SeasideFelixServiceDistributionExtension setLayered(boolean layered) {
+      this.layered = layered;
+      return this;
+   }
+
+   /**
+    * Returns the JVM tuning profile the start scripts select heap, garbage collector and compiler options for when they
+    * are launched, based on the processors and memory available to them. The default is {@code null}, which only
+    * passes the configured JVM arguments.
+    *
+    * @return the JVM tuning profile of the start scripts, or {@code null}
+    */
+   public JvmProfile getJvmProfile() {
+      return jvmProfile;
+   }
+
+   /**
+    * Sets the JVM tuning profile of the start scripts.
+    *
+    * @param jvmProfile the JVM tuning profile, or {@code null} to not tune the JVM
+    * @return this
+    */
+   public SeasideFelixServiceDistributionExtension setJvmProfile(JvmProfile jvmProfile) {
+      this.jvmProfile = jvmProfile;
+      return this;
+   }
+
+   /**
+    * Sets the JVM tuning profile of the start scripts by its name, such as {@code throughput}, {@code latency} or
+    * {@code small-footprint}.
+    *
+    * @param jvmProfile the name of the JVM tuning profile
+    * @return this
+    */
+   public SeasideFelixServiceDistributionExtension setJvmProfile(String jvmProfile) {
+      return setJvmProfile(JvmProfile.fromName(jvmProfile));
+   }
+
+   /**
+    * Returns the base image of the OCI image of the distribution, or {@code null} if the image has no base image.
+    *
+    * @return the base image of the distribution image
+    * @see OciImageTask
+    */
+   public Object getBaseImage() {
+      return baseImage;
+   }
+
+   /**
+    * Sets the base image of the OCI image of the distribution, which usually provides the Java runtime. The base image
+    * is a directory in the OCI image layout format, such as one created by {@code skopeo copy docker://<image>
+    * oci:<directory>}, and is evaluated with {@link Project#file(Object)}.
+    *
+    * @param baseImage the directory of the base image
+    * @return this
+    */
+   public SeasideFelixServiceDistributionExtension setBaseImage(Object baseImage) {
+      this.baseImage = baseImage;
+      return this;
+   }
+
    /**
     * Gets the GAVs of components that should not be included in the distribution.
     *
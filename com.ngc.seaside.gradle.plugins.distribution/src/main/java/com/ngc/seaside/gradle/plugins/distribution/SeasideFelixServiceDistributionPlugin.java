@@ -26,9 +26,9 @@ import com.ngc.seaside.gradle.api.AbstractProjectPlugin;
 import com.ngc.seaside.gradle.plugins.ci.SeasideCiExtension;
 import com.ngc.seaside.gradle.plugins.ci.SeasideCiPlugin;
 import com.ngc.seaside.gradle.plugins.repository.SeasideRepositoryPlugin;
-import com.ngc.seaside.gradle.util.OsgiResolver;
+import com.ngc.seaside.gradle.util.ContentAddressedStore;
+import com.ngc.seaside.gradle.util.JvmProfile;
 
-import org.apache.commons.io.FilenameUtils;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
@@ -40,29 +40,25 @@ import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.file.CopySpec;
 import org.gradle.api.file.DuplicatesStrategy;
 import org.gradle.api.file.FileCopyDetails;
-import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
 import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.plugins.PluginContainer;
 import org.gradle.api.publish.PublishingExtension;
 import org.gradle.api.publish.maven.MavenPublication;
 import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
-import org.gradle.api.tasks.AbstractCopyTask;
 import org.gradle.api.tasks.TaskContainer;
-import org.gradle.api.tasks.bundling.Zip;
 import org.gradle.language.base.plugins.LifecycleBasePlugin;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-
-import javax.inject.Inject;
+import java.util.stream.Collectors;
 
 /**
  * Plugin for creating an OSGi service distribution that can be deployed with Apache Felix.
@@ -83,6 +79,26 @@ import javax.inject.Inject;
  * </ul>
  *
  * <p>
+ * If {@link SeasideFelixServiceDistributionExtension#setClassDataSharing(boolean) class data sharing} is enabled, the
+ * platform directory also contains a class data sharing archive created by the
+ * {@value #CLASS_DATA_SHARING_ARCHIVE_TASK} task, and the start scripts pass it to the JVM. The archive only matches
+ * the Felix main jar on the relative path it was created with, so the start scripts then change to the home directory
+ * of the distribution before starting the JVM. Custom start scripts must expand the
+ * {@value #CLASS_DATA_SHARING_SCRIPT_IDENTIFIER} variable after they locate the main jar to do the same.
+ *
+ * <p>
+ * If a {@link SeasideFelixServiceDistributionExtension#setJvmProfile(JvmProfile) JVM profile} is set, the start
+ * scripts select heap, garbage collector and compiler options for the processors and memory available to them when
+ * they are launched.
+ *
+ * <p>
+ * If {@link SeasideFelixServiceDistributionExtension#setLayered(boolean) layered archives} are enabled, the
+ * {@value #LAYERED_DISTRIBUTION_TASK} task also splits the distribution into platform, core bundle, application bundle
+ * and configuration layers with a {@link LayeredDistributionTask}. The {@value #IMAGE_TASK} task creates an OCI image
+ * of the same layers, with the distribution installed in the {@value #IMAGE_INSTALL_DIRECTORY} directory, that can be
+ * based on a {@link SeasideFelixServiceDistributionExtension#setBaseImage(Object) base image} such as a Java runtime.
+ *
+ * <p>
  * This plugin provides the following configurations:
  * <ul>
  * <li>{@value #BUNDLES_CONFIG_NAME} - bundles dependencies. This is the primary configuration used to add bundles
@@ -138,6 +154,8 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
    public static final String CORE_BUNDLES_CONFIG_NAME = "coreBundles";
    public static final String JVM_PROPERTIES_SCRIPT_IDENTIFIER = "FELIX_JVM_PROPERTIES";
    public static final String PROGRAM_ARGUMENTS_SCRIPT_IDENTIFIER = "FELIX_PROGRAM_ARGUMENTS";
+   public static final String JVM_PROFILE_SCRIPT_IDENTIFIER = "FELIX_JVM_PROFILE";
+   public static final String CLASS_DATA_SHARING_SCRIPT_IDENTIFIER = "FELIX_CLASS_DATA_SHARING";
    public static final String BIN_DIRECTORY = "bin";
    public static final String PLATFORM_DIRECTORY = "platform";
    public static final String CONFIG_DIRECTORY = PLATFORM_DIRECTORY + "/configuration";
@@ -174,6 +192,15 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
          "com.ngc.blocs:service.thread.impl.common.threadservice:$blocsCoreVersion"));
 
    public static final String ZIP_DISTRIBUTION_TASK = "createFelixDistribution";
+   public static final String STAGE_BUNDLES_TASK = "stageFelixBundles";
+   public static final String CLEAN_BUNDLE_STORE_TASK = "cleanFelixBundleStore";
+   public static final String RESOLVE_BUNDLES_TASK = "resolveFelixBundles";
+   public static final String CLASS_DATA_SHARING_ARCHIVE_TASK = "createFelixClassDataSharingArchive";
+   public static final String LAYERED_DISTRIBUTION_TASK = "createFelixDistributionLayers";
+   public static final String LAYERS_DIRECTORY = "layers";
+   public static final String IMAGE_TASK = "createFelixImage";
+   public static final String IMAGE_LAYERS_DIRECTORY = "image-layers";
+   public static final String IMAGE_INSTALL_DIRECTORY = "opt";
 
    /**
     * If a bundle configuration contains a {@link Boolean} attribute with the given name, and it is set to {@code true},
@@ -187,12 +214,23 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
     */
    private static final int UNIX_EXECUTABLE_PERMISSIONS = 493;
 
-   private final VersionSelectorScheme versionSelectorscheme;
+   /**
+    * The commands that run the JVM of the Linux start script from the home directory of the distribution with the
+    * relative path of the Felix main jar, which the class data sharing archive was created with.
+    */
+   private static final String LINUX_CLASS_DATA_SHARING_SCRIPT =
+         "# The class data sharing archive only matches the main jar on the relative path it was created with\n"
+         + "cd \"$NG_FW_HOME\"\n"
+         + "MAIN_JAR=\"" + PLATFORM_DIRECTORY + "/${MAIN_JAR##*/}\"";
 
-   @Inject
-   public SeasideFelixServiceDistributionPlugin(VersionSelectorScheme versionSelectorscheme) {
-      this.versionSelectorscheme = versionSelectorscheme;
-   }
+   /**
+    * The commands that run the JVM of the Windows start script from the home directory of the distribution with the
+    * relative path of the Felix main jar, which the class data sharing archive was created with.
+    */
+   private static final String WINDOWS_CLASS_DATA_SHARING_SCRIPT =
+         "rem The class data sharing archive only matches the main jar on the relative path it was created with\n"
+         + "cd /d \"%NG_FW_HOME%\"\n"
+         + "for %%j in (\"%MAIN_JAR%\") do set MAIN_JAR=" + PLATFORM_DIRECTORY + "\\%%~nxj";
 
    @Override
    protected void doApply(Project project) {
@@ -295,29 +333,36 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
       ResourceCopyTask createConfig = tasks.create("createConfigProperties", ResourceCopyTask.class, taskAction);
 
       project.afterEvaluate(__ -> {
-         String jvmArguments = extension.getJvmArgumentsString();
-         String programArguments = extension.getProgramArgumentsString();
-         Map<String, String> templateProperties = new LinkedHashMap<>();
-         templateProperties.put(JVM_PROPERTIES_SCRIPT_IDENTIFIER, jvmArguments);
-         templateProperties.put(PROGRAM_ARGUMENTS_SCRIPT_IDENTIFIER, programArguments);
+         String archivePath = PLATFORM_DIRECTORY + "/" + ClassDataSharingArchiveTask.ARCHIVE_FILE_NAME;
+         String startPlanPath = CONFIG_DIRECTORY + "/" + ResolveBundlesTask.START_PLAN_FILE_NAME;
+         JvmProfile jvmProfile = extension.getJvmProfile();
+         Action<CopySpec> windowsCopyAction = scriptCopyAction(
+               extension.getJvmArgumentsString("\"%NG_FW_HOME%/" + archivePath + "\"",
+                                               "\"file:%NG_FW_HOME%/" + startPlanPath + "\""),
+               extension.getProgramArgumentsString(),
+               jvmProfile == null ? "set " + JvmProfile.OPTIONS_VARIABLE + "=" : jvmProfile.getWindowsScript(),
+               extension.isClassDataSharing() ? WINDOWS_CLASS_DATA_SHARING_SCRIPT : "");
+         Action<CopySpec> linuxCopyAction = scriptCopyAction(
+               extension.getJvmArgumentsString("$NG_FW_HOME/" + archivePath, "file:$NG_FW_HOME/" + startPlanPath),
+               extension.getProgramArgumentsString(),
+               jvmProfile == null ? JvmProfile.OPTIONS_VARIABLE + "=\"\"" : jvmProfile.getUnixScript(),
+               extension.isClassDataSharing() ? LINUX_CLASS_DATA_SHARING_SCRIPT : "");
          File windowsScript = extension.getScripts().getWindowsScript();
-         Action<CopySpec> copyAction =
-               spec -> spec.expand(templateProperties).eachFile(this::setExecuteBitOnShellScripts);
 
          if (windowsScript == null) {
             createWindowsScript.fromResource(
                   Collections.singletonMap(ResourceCopyTask.RESOURCE_KEY, getClass().getResource("start.bat")),
-                  copyAction);
+                  windowsCopyAction);
          } else {
-            createWindowsScript.from(windowsScript, copyAction);
+            createWindowsScript.from(windowsScript, windowsCopyAction);
          }
          File linuxScript = extension.getScripts().getLinuxScript();
          if (linuxScript == null) {
             createLinuxScript.fromResource(
                   Collections.singletonMap(ResourceCopyTask.RESOURCE_KEY, getClass().getResource("start.sh")),
-                  copyAction);
+                  linuxCopyAction);
          } else {
-            createLinuxScript.from(linuxScript, copyAction);
+            createLinuxScript.from(linuxScript, linuxCopyAction);
          }
          File configFile = extension.getConfigFile();
          if (configFile == null) {
@@ -348,9 +393,60 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
                   uploadArchives.getLogger().warn("The upload archives task will be deprecated with the Gradle maven plugin.");
                });
 
-      tasks.create(ZIP_DISTRIBUTION_TASK, Zip.class, task -> {
+      StageBundlesTask stageBundles = tasks.create(STAGE_BUNDLES_TASK, StageBundlesTask.class, task -> {
+         task.setDescription("Stages the OSGi bundles of the bundle configurations");
+         task.getBlacklist().set(extension.getBlacklist());
+         task.getDestinationDirectory().set(project.getLayout().getBuildDirectory().dir("felix/" + BUNDLES_DIRECTORY));
+         project.afterEvaluate(__ -> extension.getBundleConfigurations().forEach(task::bundleConfiguration));
+      });
+
+      tasks.create(CLEAN_BUNDLE_STORE_TASK, task -> {
+         task.setDescription("Removes the bundles that are no longer staged anywhere from the shared bundle store");
+         task.doLast(__ -> {
+            int removed = ContentAddressedStore.getInstance(project.getGradle()).removeUnused();
+            task.getLogger().lifecycle("Removed {} unused files from the bundle store", removed);
+         });
+      });
+
+      ResolveBundlesTask resolveBundles = tasks.create(RESOLVE_BUNDLES_TASK, ResolveBundlesTask.class, task -> {
+         task.setDescription("Resolves the staged OSGi bundles and computes the order they are started in");
+         task.dependsOn(stageBundles, createConfig);
+         task.getBundlesDirectory().set(stageBundles.getDestinationDirectory());
+         task.getPlatformFiles().from(project.getConfigurations().getByName(PLATFORM_CONFIG_NAME));
+         task.getConfigFiles().from(project.fileTree(createConfig.getDestinationDir()));
+         task.getStartPlanFile().set(project.getLayout().getBuildDirectory()
+                                           .file("felix/" + ResolveBundlesTask.START_PLAN_FILE_NAME));
+         tasks.getByName(LifecycleBasePlugin.CHECK_TASK_NAME).dependsOn(task);
+      });
+
+      ClassDataSharingArchiveTask createSharingArchive =
+            tasks.create(CLASS_DATA_SHARING_ARCHIVE_TASK, ClassDataSharingArchiveTask.class, task -> {
+         task.setDescription("Creates a class data sharing archive from a training run of the distribution");
+         task.dependsOn(stageBundles, createConfig);
+         task.getBundlesDirectory().set(stageBundles.getDestinationDirectory());
+         task.getPlatformFiles().from(project.getConfigurations().getByName(PLATFORM_CONFIG_NAME));
+         task.getConfigFiles().from(project.fileTree(createConfig.getDestinationDir()));
+         task.getArchiveFile().set(project.getLayout().getBuildDirectory()
+                                         .file("felix/" + ClassDataSharingArchiveTask.ARCHIVE_FILE_NAME));
+         task.getJvmArguments().set(project.provider(() -> extension.getSystemProperties()
+               .entrySet()
+               .stream()
+               .map(entry -> "-D" + entry.getKey() + "=" + entry.getValue())
+               .collect(Collectors.toList())));
+         task.getProgramArguments().set(project.provider(() -> new ArrayList<>(extension.getProgramArgs())));
+         task.onlyIf(__ -> extension.isClassDataSharing());
+         project.afterEvaluate(__ -> {
+            if (extension.isStartPlan()) {
+               // The training run starts the bundles the same way as the distribution
+               task.dependsOn(resolveBundles);
+               task.getConfigFiles().from(resolveBundles);
+            }
+         });
+      });
+
+      ExplodedZipTask zipDistribution = tasks.create(ZIP_DISTRIBUTION_TASK, ExplodedZipTask.class, task -> {
          task.setDescription("Creates the distribution zip");
-         task.dependsOn(createWindowsScript, createLinuxScript, createConfig);
+         task.dependsOn(createWindowsScript, createLinuxScript, createConfig, stageBundles);
          tasks.getByName(LifecycleBasePlugin.BUILD_TASK_NAME).dependsOn(task);
          task.setDestinationDir(new File(project.getBuildDir(), DISTRIBUTION_DIRECTORY));
          task.setIncludeEmptyDirs(true);
@@ -360,6 +456,9 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
             File skeleton = task.getTemporaryDir();
             createDistributionSkeleton(skeleton.toPath());
             task.setArchiveName(extension.getDistributionName());
+            String archiveName = task.getArchiveName();
+            archiveName = archiveName.substring(0, archiveName.length() - task.getExtension().length() - 1);
+            task.getExplodedDirectory().set(new File(task.getDestinationDir(), archiveName));
             task.from(skeleton);
             task.from(createWindowsScript.getDestinationDir(), spec -> spec.into(BIN_DIRECTORY));
             task.from(createLinuxScript.getDestinationDir(), spec -> spec.into(BIN_DIRECTORY));
@@ -367,23 +466,84 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
             task.from(project.getConfigurations().getByName(PLATFORM_CONFIG_NAME),
                       spec -> spec.into(PLATFORM_DIRECTORY));
             task.from(project.file(RUNTIME_RESOURCES_DIRECTORY), spec -> spec.into(RESOURCES_DIRECTORY));
-            for (Configuration configuration : extension.getBundleConfigurations()) {
-               copyBundleConfigurations(task, configuration);
+            task.from(stageBundles, spec -> {
+               spec.into(BUNDLES_DIRECTORY);
+               // Staged bundles are read-only links into the shared store
+               spec.setFileMode(0644);
+            });
+            if (extension.isStartPlan()) {
+               task.dependsOn(resolveBundles);
+               task.from(resolveBundles, spec -> spec.into(CONFIG_DIRECTORY));
+            }
+            if (extension.isClassDataSharing()) {
+               createSharingArchive.setPreserveFileTimestamps(task.isPreserveFileTimestamps());
+               task.dependsOn(createSharingArchive);
+               task.from(createSharingArchive, spec -> spec.into(PLATFORM_DIRECTORY));
             }
          });
 
-         // Unzip the distribution
-         task.doLast(___ -> {
-            project.copy(spec -> {
-               String archiveName = task.getArchiveName();
-               archiveName = archiveName.substring(0, archiveName.length() - task.getExtension().length() - 1);
-               spec.from(project.zipTree(task.getArchivePath()));
-               spec.into(project.getBuildDir() + "/" + DISTRIBUTION_DIRECTORY + "/" + archiveName);
-            });
+      });
+
+      createLayersTask(project, zipDistribution);
+      createImageTask(project, zipDistribution);
+   }
+
+   private void createLayersTask(Project project, ExplodedZipTask zipDistribution) {
+      SeasideFelixServiceDistributionExtension extension = project.getExtensions()
+            .getByType(SeasideFelixServiceDistributionExtension.class);
+      project.getTasks().create(LAYERED_DISTRIBUTION_TASK, LayeredDistributionTask.class, task -> {
+         task.setDescription("Splits the distribution into layers that can be deployed separately");
+         configureLayers(project, task, zipDistribution);
+         task.getDestinationDirectory().set(
+               project.getLayout().getBuildDirectory().dir(DISTRIBUTION_DIRECTORY + "/" + LAYERS_DIRECTORY));
+         task.onlyIf(__ -> extension.isLayered());
+         project.afterEvaluate(__ -> {
+            if (extension.isLayered()) {
+               project.getTasks().getByName(LifecycleBasePlugin.BUILD_TASK_NAME).dependsOn(task);
+            }
+         });
+      });
+   }
+
+   private void createImageTask(Project project, ExplodedZipTask zipDistribution) {
+      SeasideFelixServiceDistributionExtension extension = project.getExtensions()
+            .getByType(SeasideFelixServiceDistributionExtension.class);
+      project.getTasks().create(IMAGE_TASK, OciImageTask.class, task -> {
+         task.setDescription("Creates an OCI image of the distribution");
+         configureLayers(project, task, zipDistribution);
+         task.getDestinationDirectory().set(
+               project.getLayout().getBuildDirectory().dir(DISTRIBUTION_DIRECTORY + "/" + IMAGE_LAYERS_DIRECTORY));
+         String home = IMAGE_INSTALL_DIRECTORY + "/" + project.getName();
+         task.setPathPrefix(home);
+         task.setWorkingDirectory("/" + home);
+         task.setEntrypoint(Arrays.asList("/bin/bash", "/" + home + "/" + BIN_DIRECTORY + "/start.sh"));
+         task.setCommand(Collections.singletonList("-Dgosh.args=--nointeractive"));
+         task.setTag(String.valueOf(project.getVersion()));
+         task.getImageFile().set(project.getLayout().getBuildDirectory().file(project.provider(
+               () -> DISTRIBUTION_DIRECTORY + "/" + extension.getDistributionName() + "-oci.tar")));
+         project.afterEvaluate(__ -> {
+            if (extension.getBaseImage() != null) {
+               task.getBaseImage().set(project.file(extension.getBaseImage()));
+            }
          });
       });
    }
 
+   /**
+    * Splits the distribution into platform, core bundle, application bundle and configuration layers.
+    */
+   private static void configureLayers(Project project, LayeredDistributionTask task,
+            ExplodedZipTask zipDistribution) {
+      task.dependsOn(zipDistribution);
+      task.getDistributionDirectory().set(zipDistribution.getExplodedDirectory());
+      task.layer("platform", PLATFORM_DIRECTORY + "/");
+      task.contentLayer("core", BUNDLES_DIRECTORY, project.getConfigurations().getByName(CORE_BUNDLES_CONFIG_NAME));
+      // The class data sharing archive changes with the bundles, so it is deployed with them
+      task.layer("application", BUNDLES_DIRECTORY + "/",
+                 PLATFORM_DIRECTORY + "/" + ClassDataSharingArchiveTask.ARCHIVE_FILE_NAME);
+      task.layer("configuration", "", CONFIG_DIRECTORY + "/");
+   }
+
    /**
     * Creates the folder structure of the distribution. This is necessary so that if, for example, there are no
     * resources to be copied, the resources folder is still created.
@@ -402,42 +562,6 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
       }
    }
 
-   /**
-    * Adds copy commands to the given task for the given configuration. This method ensures that only OSGi-compliant
-    * files are copied. It ensures that correctly-versioned dependencies are copied. The names of the copied files
-    * are also deconflicted by adding the group id to the filenames.
-    *
-    * @param task          copy task
-    * @param configuration configuration
-    */
-   private void copyBundleConfigurations(AbstractCopyTask task, Configuration configuration) {
-      Project project = task.getProject();
-      SeasideFelixServiceDistributionExtension extension = project.getExtensions()
-            .getByType(SeasideFelixServiceDistributionExtension.class);
-
-      OsgiResolver osgiResolver = new OsgiResolver(project, versionSelectorscheme);
-      osgiResolver.resolveAllVersions(configuration, (identifier, file) -> {
-         Optional<String> symbolicName = OsgiResolver.getOsgiSymbolicName(file);
-         if (symbolicName.isPresent() && !extension.getBlacklist().get().contains(identifier.getDisplayName())) {
-            String version = OsgiResolver.getOsgiVersion(file).get();
-            String filename = symbolicName.get() + "_" + version;
-            task.from(file, spec -> {
-               spec.into(BUNDLES_DIRECTORY);
-               spec.rename(__ -> filename + "." + FilenameUtils.getExtension(file.getName()));
-            });
-         } else if (!symbolicName.isPresent()) {
-            project.getLogger().info("Excluding file {} from dependency '{}': not an OSGi bundle",
-                                     file,
-                                     identifier.getDisplayName());
-         } else {
-            project.getLogger().info("Excluding file {} from dependency '{}': component is blacklisted",
-                                     file,
-                                     identifier.getDisplayName());
-         }
-      });
-      task.getInputs().file(configuration);
-   }
-
    private void createArchives(Project project) {
       Task zipDistribution = project.getTasks().getByName(ZIP_DISTRIBUTION_TASK);
       PluginContainer plugins = project.getPlugins();
@@ -454,6 +578,16 @@ public class SeasideFelixServiceDistributionPlugin extends AbstractProjectPlugin
       });
    }
 
+   private Action<CopySpec> scriptCopyAction(String jvmArguments, String programArguments, String jvmProfileScript,
+            String classDataSharingScript) {
+      Map<String, String> templateProperties = new LinkedHashMap<>();
+      templateProperties.put(JVM_PROPERTIES_SCRIPT_IDENTIFIER, jvmArguments);
+      templateProperties.put(PROGRAM_ARGUMENTS_SCRIPT_IDENTIFIER, programArguments);
+      templateProperties.put(JVM_PROFILE_SCRIPT_IDENTIFIER, jvmProfileScript);
+      templateProperties.put(CLASS_DATA_SHARING_SCRIPT_IDENTIFIER, classDataSharingScript);
+      return spec -> spec.expand(templateProperties).eachFile(this::setExecuteBitOnShellScripts);
+   }
+
    private void setExecuteBitOnShellScripts(FileCopyDetails f) {
       if (f.getName().endsWith(".sh")) {
          f.setMode(UNIX_EXECUTABLE_PERMISSIONS);
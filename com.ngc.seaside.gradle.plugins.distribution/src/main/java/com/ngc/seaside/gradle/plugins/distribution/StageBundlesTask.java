@@ -0,0 +1,243 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.google.common.base.Preconditions;
+import com.ngc.seaside.gradle.util.ContentAddressedStore;
+import com.ngc.seaside.gradle.util.OsgiBundleMetadata;
+import com.ngc.seaside.gradle.util.OsgiResolver;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import javax.inject.Inject;
+
+/**
+ * Stages the OSGi bundles of bundle configurations into a directory, naming each bundle
+ * {@code symbolicName_version.jar}. Files that are not OSGi bundles and components that are
+ * {@link #getBlacklist() blacklisted} are not staged.
+ *
+ * <p>
+ * All versions of a bundle are staged when there are version conflicts, as with
+ * {@link OsgiResolver#resolveAllVersions}. This task is incremental: when only some of the bundles change, only those
+ * bundles are staged again and the bundles that are no longer dependencies are removed from the staging directory.
+ *
+ * <p>
+ * Bundles are staged as links into the shared {@link ContentAddressedStore}, so a bundle used by many distributions
+ * is only stored once.
+ */
+public class StageBundlesTask extends DefaultTask {
+
+   /**
+    * The name of the file in the task's temporary directory that records which source file each staged bundle was
+    * copied from.
+    */
+   private static final String INDEX_FILE_NAME = "staged-bundles.properties";
+
+   private final OsgiResolver osgiResolver;
+   private final Set<Configuration> configurations = new LinkedHashSet<>();
+   private final Map<File, ResolvedBundle> bundles = new LinkedHashMap<>();
+   private final SetProperty<String> blacklist;
+   private final DirectoryProperty destinationDirectory;
+
+   @Inject
+   public StageBundlesTask(VersionSelectorScheme versionSelectorScheme) {
+      this.osgiResolver = new OsgiResolver(getProject(), versionSelectorScheme);
+      this.blacklist = getProject().getObjects().setProperty(String.class);
+      this.destinationDirectory = newOutputDirectory();
+   }
+
+   /**
+    * Adds the given configuration to the configurations whose bundles are staged. This must be called before the
+    * configuration is resolved.
+    *
+    * @param configuration bundle configuration
+    */
+   public void bundleConfiguration(Configuration configuration) {
+      Preconditions.checkNotNull(configuration, "configuration may not be null!");
+      if (configurations.add(configuration)) {
+         osgiResolver.resolveAllBundles(configuration, (identifier, file, metadata) -> {
+            bundles.put(file, new ResolvedBundle(identifier.getDisplayName(), metadata));
+         });
+      }
+   }
+
+   /**
+    * Returns the files of the bundle configurations, including all versions of conflicting dependencies.
+    *
+    * @return the files of the bundle configurations
+    */
+   @InputFiles
+   public FileCollection getBundles() {
+      return getProject().files((Callable<Set<File>>) () -> {
+         for (Configuration configuration : configurations) {
+            configuration.getResolvedConfiguration();
+         }
+         return new LinkedHashSet<>(bundles.keySet());
+      });
+   }
+
+   /**
+    * Returns the property of the components that should not be staged, in the {@code group:name:version} format.
+    *
+    * @return the property of the blacklisted components
+    */
+   @Input
+   public SetProperty<String> getBlacklist() {
+      return blacklist;
+   }
+
+   /**
+    * Returns the property of the directory the bundles are staged in.
+    *
+    * @return the property of the staging directory
+    */
+   @OutputDirectory
+   public DirectoryProperty getDestinationDirectory() {
+      return destinationDirectory;
+   }
+
+   @TaskAction
+   public void stageBundles(IncrementalTaskInputs inputs) {
+      Path directory = destinationDirectory.get().getAsFile().toPath();
+      File indexFile = new File(getTemporaryDir(), INDEX_FILE_NAME);
+      Properties index = new Properties();
+      Set<String> blacklisted = blacklist.get();
+
+      if (inputs.isIncremental() && indexFile.isFile()) {
+         readIndex(indexFile, index);
+         inputs.outOfDate(details -> stage(details.getFile(), directory, index, blacklisted));
+         inputs.removed(details -> unstage(details.getFile(), directory, index));
+      } else {
+         try {
+            FileUtils.cleanDirectory(directory.toFile());
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+         for (File file : getBundles()) {
+            stage(file, directory, index, blacklisted);
+         }
+      }
+
+      writeIndex(indexFile, index);
+   }
+
+   private void stage(File file, Path directory, Properties index, Set<String> blacklisted) {
+      unstage(file, directory, index);
+      ResolvedBundle bundle = bundles.get(file);
+      if (bundle == null) {
+         return;
+      }
+      OsgiBundleMetadata metadata = bundle.metadata;
+      if (!metadata.isBundle()) {
+         getLogger().info("Excluding file {} from dependency '{}': not an OSGi bundle", file, bundle.displayName);
+         return;
+      }
+      if (blacklisted.contains(bundle.displayName)) {
+         getLogger().info("Excluding file {} from dependency '{}': component is blacklisted", file,
+                          bundle.displayName);
+         return;
+      }
+      String name = metadata.getSymbolicName().get() + "_" + metadata.getVersion().get() + "."
+               + FilenameUtils.getExtension(file.getName());
+      ContentAddressedStore.getInstance(getProject().getGradle()).link(file, directory.resolve(name));
+      index.setProperty(file.getAbsolutePath(), name);
+   }
+
+   private void unstage(File file, Path directory, Properties index) {
+      String name = (String) index.remove(file.getAbsolutePath());
+      if (name == null) {
+         return;
+      }
+      // Another file may have been staged with the same name, in which case it replaced this one; stage the other file
+      // again, since the staged file may be this one's
+      File owner = index.stringPropertyNames()
+               .stream()
+               .filter(path -> name.equals(index.getProperty(path)))
+               .map(File::new)
+               .filter(File::isFile)
+               .findFirst()
+               .orElse(null);
+      if (owner != null) {
+         ContentAddressedStore.getInstance(getProject().getGradle()).link(owner, directory.resolve(name));
+         return;
+      }
+      try {
+         Files.deleteIfExists(directory.resolve(name));
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private static void readIndex(File indexFile, Properties index) {
+      try (InputStream in = Files.newInputStream(indexFile.toPath())) {
+         index.load(in);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private static void writeIndex(File indexFile, Properties index) {
+      try (OutputStream out = Files.newOutputStream(indexFile.toPath())) {
+         index.store(out, null);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private static class ResolvedBundle {
+
+      private final String displayName;
+      private final OsgiBundleMetadata metadata;
+
+      private ResolvedBundle(String displayName, OsgiBundleMetadata metadata) {
+         this.displayName = displayName;
+         this.metadata = metadata;
+      }
+   }
+}
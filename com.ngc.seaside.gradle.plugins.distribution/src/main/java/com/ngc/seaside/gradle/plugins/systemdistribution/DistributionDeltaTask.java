@@ -0,0 +1,312 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.systemdistribution;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.ngc.seaside.gradle.util.ZipArchive;
+import com.ngc.seaside.gradle.util.ZipArchiveWriter;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.internal.file.archive.ZipCopyAction;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Creates a delta package that upgrades an installed distribution from a previous version of its archive to the
+ * current one. The entries of the two archives are compared by the CRC and size recorded in their central
+ * directories, so neither archive is extracted. Entries in {@link #versionedDirectory(String) versioned directories},
+ * such as the directories of the sub-distributions of a system distribution, are compared by their path in the
+ * directory regardless of its version, and the installed directory is renamed when the version changes.
+ *
+ * <p>
+ * The delta package is a zip with the following contents:
+ * <ul>
+ * <li>{@value #FILES_DIRECTORY}/ - the entries that were added or changed, copied from the current archive without
+ * being compressed again</li>
+ * <li>{@value #RENAMED_FILE_NAME} - the versioned directories of the previous archive and the directories they are
+ * renamed to, one pair per line</li>
+ * <li>{@value #REMOVED_FILE_NAME} - the entries of the previous archive that are not in the current one, one per
+ * line, with their versioned directories already renamed</li>
+ * <li>{@value #BASE_CHECKSUMS_FILE_NAME} - the SHA-256 checksums of the changed and removed files of the previous
+ * archive, used to verify the installed distribution before it is upgraded</li>
+ * <li>{@value #CHECKSUMS_FILE_NAME} - the SHA-256 checksums of the added and changed files, used to verify the upgraded
+ * distribution</li>
+ * <li>{@value #APPLY_SCRIPT_NAME} - a script that verifies and upgrades the distribution in the directory given as its
+ * argument</li>
+ * </ul>
+ */
+public class DistributionDeltaTask extends DefaultTask {
+
+   public static final String FILES_DIRECTORY = "files";
+   public static final String REMOVED_FILE_NAME = "removed.txt";
+   public static final String RENAMED_FILE_NAME = "renamed.txt";
+   public static final String BASE_CHECKSUMS_FILE_NAME = "base.sha256";
+   public static final String CHECKSUMS_FILE_NAME = "checksums.sha256";
+   public static final String APPLY_SCRIPT_NAME = "apply-delta.sh";
+
+   /**
+    * The placeholder of the version in the name of a {@link #versionedDirectory(String) versioned directory}.
+    */
+   public static final String VERSION_PLACEHOLDER = "*";
+
+   private static final int FILE_MODE = 0644;
+   private static final int SCRIPT_MODE = 0755;
+
+   private final RegularFileProperty previousArchive;
+   private final RegularFileProperty archive;
+   private final RegularFileProperty deltaFile;
+   private final List<String> versionedDirectories = new ArrayList<>();
+
+   /**
+    * Constructor.
+    */
+   public DistributionDeltaTask() {
+      this.previousArchive = newInputFile();
+      this.archive = newInputFile();
+      this.deltaFile = newOutputFile();
+   }
+
+   /**
+    * Returns the property of the archive of the previous version of the distribution.
+    *
+    * @return the property of the previous archive
+    */
+   @InputFile
+   public RegularFileProperty getPreviousArchive() {
+      return previousArchive;
+   }
+
+   /**
+    * Returns the property of the archive of the current version of the distribution.
+    *
+    * @return the property of the current archive
+    */
+   @InputFile
+   public RegularFileProperty getArchive() {
+      return archive;
+   }
+
+   /**
+    * Returns the property of the delta package to create.
+    *
+    * @return the property of the delta package
+    */
+   @OutputFile
+   public RegularFileProperty getDeltaFile() {
+      return deltaFile;
+   }
+
+   /**
+    * Adds a top-level directory whose name contains the version of its contents, given with
+    * {@value #VERSION_PLACEHOLDER} in place of the version, such as {@code com.ngc.example.distribution-*}. A
+    * directory of the previous archive matches the directory of the current archive with the same name except for
+    * the version, which must start with a digit.
+    *
+    * @param name the name of the directory with the placeholder in place of its version
+    */
+   public void versionedDirectory(String name) {
+      Preconditions.checkNotNull(name, "name may not be null!");
+      Preconditions.checkArgument(name.contains(VERSION_PLACEHOLDER), "name must contain %s!", VERSION_PLACEHOLDER);
+      versionedDirectories.add(name);
+   }
+
+   /**
+    * Returns the names of the versioned directories, with the placeholder in place of their version.
+    *
+    * @return the names of the versioned directories
+    */
+   @Input
+   public List<String> getVersionedDirectories() {
+      return Collections.unmodifiableList(versionedDirectories);
+   }
+
+   @TaskAction
+   public void createDelta() {
+      File file = deltaFile.get().getAsFile();
+      try (ZipArchive previous = ZipArchive.open(previousArchive.get().getAsFile());
+           ZipArchive current = ZipArchive.open(archive.get().getAsFile())) {
+         Map<String, ZipArchive.Entry> previousEntries = new LinkedHashMap<>();
+         for (ZipArchive.Entry entry : previous.getEntries()) {
+            previousEntries.put(getPath(entry.getName()), entry);
+         }
+         List<ZipArchive.Entry> changed = new ArrayList<>();
+         Set<String> replaced = new HashSet<>();
+         Map<String, String> renamed = new TreeMap<>();
+         for (ZipArchive.Entry entry : current.getEntries()) {
+            ZipArchive.Entry previousEntry = previousEntries.remove(getPath(entry.getName()));
+            if (previousEntry != null) {
+               String previousDirectory = getTopLevelDirectory(previousEntry.getName());
+               String directory = getTopLevelDirectory(entry.getName());
+               if (!previousDirectory.equals(directory)) {
+                  renamed.put(previousDirectory, directory);
+               }
+            }
+            if (previousEntry == null || isChanged(previousEntry, entry)) {
+               changed.add(entry);
+               if (previousEntry != null) {
+                  replaced.add(previousEntry.getName());
+               }
+            }
+         }
+         // The entries that remain were removed; files are listed before the directories that contain them
+         Set<String> removedEntries = new HashSet<>();
+         List<String> removed = new ArrayList<>();
+         for (ZipArchive.Entry entry : previousEntries.values()) {
+            removedEntries.add(entry.getName());
+            String directory = getTopLevelDirectory(entry.getName());
+            // The directories are renamed before the removed entries are deleted
+            removed.add(renamed.getOrDefault(directory, directory) + entry.getName().substring(directory.length()));
+         }
+         Collections.sort(removed, Collections.reverseOrder());
+
+         StringBuilder baseChecksums = new StringBuilder();
+         for (ZipArchive.Entry entry : previous.getEntries()) {
+            String name = entry.getName();
+            if (!entry.isDirectory() && (removedEntries.contains(name) || replaced.contains(name))) {
+               appendChecksum(baseChecksums, previous, entry);
+            }
+         }
+         StringBuilder checksums = new StringBuilder();
+         for (ZipArchive.Entry entry : changed) {
+            if (!entry.isDirectory()) {
+               appendChecksum(checksums, current, entry);
+            }
+         }
+
+         Files.createDirectories(file.getParentFile().toPath());
+         try (ZipArchiveWriter writer = new ZipArchiveWriter(file)) {
+            writeFile(writer, APPLY_SCRIPT_NAME, SCRIPT_MODE, readApplyScript());
+            writeFile(writer, BASE_CHECKSUMS_FILE_NAME, FILE_MODE, baseChecksums.toString());
+            writeFile(writer, CHECKSUMS_FILE_NAME, FILE_MODE, checksums.toString());
+            writeFile(writer, RENAMED_FILE_NAME, FILE_MODE, renamed.entrySet().stream()
+                  .map(entry -> entry.getKey() + " " + entry.getValue() + "\n")
+                  .collect(Collectors.joining()));
+            writeFile(writer, REMOVED_FILE_NAME, FILE_MODE,
+                      removed.isEmpty() ? "" : String.join("\n", removed) + "\n");
+            for (ZipArchive.Entry entry : changed) {
+               writer.copyEntry(current, entry, FILES_DIRECTORY + "/" + entry.getName());
+            }
+         }
+         getLogger().info("{} entries added or changed and {} entries removed", changed.size(), removed.size());
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Returns the name of the given entry with the version of its versioned directory replaced by the placeholder, so
+    * the entries of two versions of the directory have the same path.
+    */
+   private String getPath(String name) {
+      String directory = getTopLevelDirectory(name);
+      for (String versionedDirectory : versionedDirectories) {
+         int placeholder = versionedDirectory.indexOf(VERSION_PLACEHOLDER);
+         String prefix = versionedDirectory.substring(0, placeholder);
+         String suffix = versionedDirectory.substring(placeholder + VERSION_PLACEHOLDER.length());
+         if (directory.length() > prefix.length() + suffix.length()
+                  && directory.startsWith(prefix)
+                  && directory.endsWith(suffix)
+                  && Character.isDigit(directory.charAt(prefix.length()))) {
+            return versionedDirectory + name.substring(directory.length());
+         }
+      }
+      return name;
+   }
+
+   /**
+    * Returns the name of the top-level directory of the given entry, or the name itself if it is not in a directory.
+    */
+   private static String getTopLevelDirectory(String name) {
+      int index = name.indexOf('/');
+      return index < 0 ? name : name.substring(0, index);
+   }
+
+   private static boolean isChanged(ZipArchive.Entry previous, ZipArchive.Entry current) {
+      return previous.isDirectory() != current.isDirectory()
+               || previous.getCrc() != current.getCrc()
+               || previous.getSize() != current.getSize()
+               || previous.getUnixMode() != current.getUnixMode();
+   }
+
+   private static void appendChecksum(StringBuilder checksums, ZipArchive archive, ZipArchive.Entry entry)
+            throws IOException {
+      Hasher hasher = Hashing.sha256().newHasher();
+      byte[] buffer = new byte[8192];
+      try (InputStream in = archive.getInputStream(entry)) {
+         int read;
+         while ((read = in.read(buffer)) >= 0) {
+            hasher.putBytes(buffer, 0, read);
+         }
+      }
+      // The format of the sha256sum command
+      checksums.append(hasher.hash()).append("  ").append(entry.getName()).append('\n');
+   }
+
+   private static String readApplyScript() throws IOException {
+      try (InputStream in = DistributionDeltaTask.class.getResourceAsStream(APPLY_SCRIPT_NAME)) {
+         return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+      }
+   }
+
+   private static void writeFile(ZipArchiveWriter writer, String name, int mode, String content) throws IOException {
+      byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+      CRC32 crc = new CRC32();
+      crc.update(bytes);
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+         out.write(bytes);
+      } finally {
+         deflater.end();
+      }
+      writer.beginEntry(name, mode, ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES);
+      writer.writeCompressedData(compressed.toByteArray(), 0, compressed.size());
+      writer.endEntry(crc.getValue(), bytes.length);
+   }
+}
@@ -31,7 +31,8 @@ import groovy.lang.Closure;
 
 /**
  * Extension of the {@link SeasideSystemDistributionPlugin}. This extension allows you to change the distribution
- * name and modify the scripts used for starting the distribution.
+ * name, modify the scripts used for starting the distribution, create layered archives of the distribution and create
+ * delta packages from a previous version of the distribution.
  */
 public class SeasideSystemDistributionExtension {
 
@@ -40,6 +41,8 @@ public class SeasideSystemDistributionExtension {
    private final Project project;
    private final ScriptConfiguration scriptConfiguration;
    private String distributionName;
+   private boolean layered;
+   private Object previousDistribution;
    
    public SeasideSystemDistributionExtension(Project project) {
       this.project = project;
@@ -100,4 +103,49 @@ public class SeasideSystemDistributionExtension {
       this.distributionName = distributionName;
       return this;
    }
+
+   /**
+    * Returns whether the distribution is also split into layered archives when it is built, so that deployments only
+    * need to transfer the layers that changed. The default is {@code false}.
+    *
+    * @return whether layered archives of the distribution are created
+    * @see com.ngc.seaside.gradle.plugins.distribution.LayeredDistributionTask
+    */
+   public boolean isLayered() {
+      return layered;
+   }
+
+   /**
+    * Sets whether the distribution is also split into layered archives when it is built.
+    *
+    * @param layered whether layered archives of the distribution are created
+    * @return this
+    */
+   public SeasideSystemDistributionExtension setLayered(boolean layered) {
+      this.layered = layered;
+      return this;
+   }
+
+   /**
+    * Returns the archive of the previous version of the distribution, or {@code null} if no delta package is created.
+    *
+    * @return the archive of the previous version of the distribution
+    * @see DistributionDeltaTask
+    */
+   public Object getPreviousDistribution() {
+      return previousDistribution;
+   }
+
+   /**
+    * Sets the archive of the previous version of the distribution. When set, a delta package that upgrades an
+    * installation of the previous version to this one is created when the distribution is built. The archive is
+    * evaluated with {@link Project#files(Object...)}, so it may be a file or a configuration with a single file.
+    *
+    * @param previousDistribution the archive of the previous version of the distribution
+    * @return this
+    */
+   public SeasideSystemDistributionExtension setPreviousDistribution(Object previousDistribution) {
+      this.previousDistribution = previousDistribution;
+      return this;
+   }
 }
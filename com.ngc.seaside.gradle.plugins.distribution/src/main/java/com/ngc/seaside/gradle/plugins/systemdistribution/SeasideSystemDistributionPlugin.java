@@ -23,7 +23,9 @@
 package com.ngc.seaside.gradle.plugins.systemdistribution;
 
 import com.ngc.seaside.gradle.api.AbstractProjectPlugin;
+import com.ngc.seaside.gradle.plugins.distribution.LayeredDistributionTask;
 import com.ngc.seaside.gradle.plugins.distribution.ResourceCopyTask;
+import com.ngc.seaside.gradle.plugins.distribution.SeasideFelixServiceDistributionPlugin;
 
 import org.gradle.api.Action;
 import org.gradle.api.Project;
@@ -40,11 +42,12 @@ import org.gradle.api.publish.PublishingExtension;
 import org.gradle.api.publish.maven.MavenPublication;
 import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
 import org.gradle.api.tasks.TaskContainer;
-import org.gradle.api.tasks.bundling.Zip;
 import org.gradle.language.base.plugins.LifecycleBasePlugin;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Plugin for creating a distribution composed of sub-distributions.
@@ -65,6 +68,17 @@ import java.util.Collections;
  * the extension.
  *
  * <p>
+ * If {@link SeasideSystemDistributionExtension#setLayered(boolean) layered archives} are enabled, the
+ * {@value #LAYERED_DISTRIBUTION_TASK} task also splits the distribution into layers with a
+ * {@link LayeredDistributionTask}: the platform directories of the sub-distributions, their bundle directories, and the
+ * configuration with all remaining files.
+ *
+ * <p>
+ * If a {@link SeasideSystemDistributionExtension#setPreviousDistribution(Object) previous distribution} is set, the
+ * {@value #DELTA_DISTRIBUTION_TASK} task also creates a delta package with a {@link DistributionDeltaTask} that
+ * upgrades an installation of the previous distribution to this one.
+ *
+ * <p>
  * Example:
  *
  * <pre>
@@ -88,6 +102,9 @@ public class SeasideSystemDistributionPlugin extends AbstractProjectPlugin {
    public static final String DISTRIBUTION_DIRECTORY = "distribution";
    public static final String DISTRIBUTION_CONFIG_NAME = "distribution";
    public static final String ZIP_DISTRIBUTION_TASK = "createSystemDistribution";
+   public static final String LAYERED_DISTRIBUTION_TASK = "createSystemDistributionLayers";
+   public static final String LAYERS_DIRECTORY = "layers";
+   public static final String DELTA_DISTRIBUTION_TASK = "createSystemDistributionDelta";
    public static final String RESOURCES_DIRECTORY = "src/main/resources";
 
    /**
@@ -150,7 +167,8 @@ public class SeasideSystemDistributionPlugin extends AbstractProjectPlugin {
          }
       });
 
-      tasks.create(ZIP_DISTRIBUTION_TASK, Zip.class, task -> {
+      SystemDistributionZipTask zipDistribution =
+            tasks.create(ZIP_DISTRIBUTION_TASK, SystemDistributionZipTask.class, task -> {
          task.setDescription("Creates the distribution zip");
          task.dependsOn(createWindowsScript, createLinuxScript);
          tasks.getByName(LifecycleBasePlugin.BUILD_TASK_NAME).dependsOn(task);
@@ -160,21 +178,65 @@ public class SeasideSystemDistributionPlugin extends AbstractProjectPlugin {
 
          project.afterEvaluate(__ -> {
             task.setArchiveName(extension.getDistributionName());
+            String archiveName = task.getArchiveName();
+            archiveName = archiveName.substring(0, archiveName.length() - task.getExtension().length() - 1);
+            task.getExplodedDirectory().set(new File(task.getDestinationDir(), archiveName));
             task.from(createWindowsScript.getDestinationDir());
             task.from(createLinuxScript.getDestinationDir());
             distConfig.getResolvedConfiguration().getResolvedArtifacts().forEach(artifact -> {
-               task.from(project.zipTree(artifact.getFile()), spec -> spec.into(distributionFolder(artifact)));
+               String version = artifact.getModuleVersion().getId().getVersion();
+               task.distribution(artifact.getFile(), distributionFolder(artifact, version));
             });
          });
+      });
 
-         // Unzip the distribution
-         task.doLast(__ -> {
-            project.copy(spec -> {
-               String archiveName = task.getArchiveName();
-               archiveName = archiveName.substring(0, archiveName.length() - task.getExtension().length() - 1);
-               spec.from(project.zipTree(task.getArchivePath()));
-               spec.into(project.getBuildDir() + "/" + DISTRIBUTION_DIRECTORY + "/" + archiveName);
-            });
+      tasks.create(LAYERED_DISTRIBUTION_TASK, LayeredDistributionTask.class, task -> {
+         task.setDescription("Splits the distribution into layers that can be deployed separately");
+         task.dependsOn(zipDistribution);
+         task.getDistributionDirectory().set(zipDistribution.getExplodedDirectory());
+         task.getDestinationDirectory().set(
+               project.getLayout().getBuildDirectory().dir(DISTRIBUTION_DIRECTORY + "/" + LAYERS_DIRECTORY));
+         task.onlyIf(__ -> extension.isLayered());
+
+         project.afterEvaluate(__ -> {
+            if (extension.isLayered()) {
+               tasks.getByName(LifecycleBasePlugin.BUILD_TASK_NAME).dependsOn(task);
+            }
+            List<String> platforms = new ArrayList<>();
+            List<String> bundles = new ArrayList<>();
+            List<String> configurations = new ArrayList<>(Collections.singletonList(""));
+            for (String directory : zipDistribution.getDistributionDirectories()) {
+               platforms.add(directory + "/" + SeasideFelixServiceDistributionPlugin.PLATFORM_DIRECTORY + "/");
+               bundles.add(directory + "/" + SeasideFelixServiceDistributionPlugin.BUNDLES_DIRECTORY + "/");
+               configurations.add(directory + "/" + SeasideFelixServiceDistributionPlugin.CONFIG_DIRECTORY + "/");
+            }
+            task.layer("platform", platforms.toArray(new String[0]));
+            task.layer("bundles", bundles.toArray(new String[0]));
+            task.layer("configuration", configurations.toArray(new String[0]));
+         });
+      });
+
+      tasks.create(DELTA_DISTRIBUTION_TASK, DistributionDeltaTask.class, task -> {
+         task.setDescription("Creates a package that upgrades the previous distribution to this one");
+         task.dependsOn(zipDistribution);
+         task.getArchive().set(project.getLayout().file(project.provider(zipDistribution::getArchivePath)));
+         task.getPreviousArchive().set(project.getLayout().file(project.provider(
+               () -> project.files(extension.getPreviousDistribution()).getSingleFile())));
+         task.getDeltaFile().set(project.getLayout().file(project.provider(() -> {
+            String archiveName = zipDistribution.getArchiveName();
+            archiveName = archiveName.substring(0, archiveName.length() - zipDistribution.getExtension().length() - 1);
+            return new File(zipDistribution.getDestinationDir(), archiveName + "-delta.zip");
+         })));
+         task.onlyIf(__ -> extension.getPreviousDistribution() != null);
+
+         project.afterEvaluate(__ -> {
+            if (extension.getPreviousDistribution() != null) {
+               tasks.getByName(LifecycleBasePlugin.BUILD_TASK_NAME).dependsOn(task);
+               // Compare the sub-distributions regardless of their version
+               distConfig.getResolvedConfiguration().getResolvedArtifacts().forEach(artifact -> {
+                  task.versionedDirectory(distributionFolder(artifact, DistributionDeltaTask.VERSION_PLACEHOLDER));
+               });
+            }
          });
       });
    }
@@ -183,12 +245,13 @@ public class SeasideSystemDistributionPlugin extends AbstractProjectPlugin {
     * Renames the bundle file to ensure that the group id is included in the filename.
     *
     * @param artifact bundle artifact
+    * @param version the version in the filename
     * @return the renamed bundle filename
     */
-   private String distributionFolder(ResolvedArtifact artifact) {
+   private String distributionFolder(ResolvedArtifact artifact, String version) {
       StringBuilder name = new StringBuilder();
       ModuleVersionIdentifier id = artifact.getModuleVersion().getId();
-      name.append(id.getGroup()).append('.').append(id.getName()).append('-').append(id.getVersion());
+      name.append(id.getGroup()).append('.').append(id.getName()).append('-').append(version);
       if (artifact.getClassifier() != null) {
          name.append('-').append(artifact.getClassifier());
       }
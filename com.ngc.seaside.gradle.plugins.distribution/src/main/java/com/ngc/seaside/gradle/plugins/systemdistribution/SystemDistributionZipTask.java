@@ -0,0 +1,208 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.systemdistribution;
+
+import com.google.common.base.Preconditions;
+import com.ngc.seaside.gradle.plugins.distribution.ExplodedZipTask;
+import com.ngc.seaside.gradle.util.ZipArchive;
+import com.ngc.seaside.gradle.util.ZipArchiveWriter;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.file.archive.ZipCopyAction;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.WorkResults;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link ExplodedZipTask} that also includes the contents of other distribution zips, each in its own directory.
+ *
+ * <p>
+ * The entries of the distributions are not extracted and compressed again. After the files of this task's copy spec
+ * have been written, the compressed entries of the distributions are copied as-is into the archive with
+ * {@link ZipArchiveWriter}, which only rewrites the entry names and the central directory. At the same time, the
+ * distributions are extracted in parallel directly from their archives into the
+ * {@link #getExplodedDirectory() exploded directory}.
+ */
+public class SystemDistributionZipTask extends ExplodedZipTask {
+
+   /**
+    * The maximum number of threads used to extract distributions.
+    */
+   private static final int MAX_EXTRACT_THREADS = 8;
+
+   private final Map<String, File> distributions = new LinkedHashMap<>();
+
+   /**
+    * Adds the given distribution zip to this archive, placing its contents in the given directory.
+    *
+    * @param archive the distribution zip
+    * @param directory the directory in this archive for the contents of the distribution
+    */
+   public void distribution(File archive, String directory) {
+      Preconditions.checkNotNull(archive, "archive may not be null!");
+      Preconditions.checkNotNull(directory, "directory may not be null!");
+      distributions.put(directory, archive);
+   }
+
+   /**
+    * Returns the distribution zips included in this archive.
+    *
+    * @return the distribution zips
+    */
+   @InputFiles
+   public FileCollection getDistributionArchives() {
+      return getProject().files(distributions.values());
+   }
+
+   /**
+    * Returns the directories of the distributions in this archive.
+    *
+    * @return the directories of the distributions
+    */
+   @Input
+   public List<String> getDistributionDirectories() {
+      return Collections.unmodifiableList(new ArrayList<>(distributions.keySet()));
+   }
+
+   @Override
+   protected CopyAction createCopyAction() {
+      CopyAction copyAction = super.createCopyAction();
+      return stream -> {
+         copyAction.execute(stream);
+         mergeDistributions();
+         return WorkResults.didWork(true);
+      };
+   }
+
+   private void mergeDistributions() {
+      File archive = getArchivePath();
+      File merged = new File(getTemporaryDir(), archive.getName());
+      Path explodedDirectory = getExplodedDirectory().get().getAsFile().toPath();
+      long time = isPreserveFileTimestamps() ? System.currentTimeMillis()
+               : ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES;
+      List<ZipArchive> sources = new ArrayList<>();
+      ExecutorService executor = createExecutor();
+      try {
+         List<Future<?>> extractions = new ArrayList<>();
+         for (Map.Entry<String, File> distribution : distributions.entrySet()) {
+            ZipArchive source = ZipArchive.open(distribution.getValue());
+            sources.add(source);
+            Path directory = explodedDirectory.resolve(distribution.getKey());
+            for (ZipArchive.Entry entry : source.getEntries()) {
+               extractions.add(executor.submit(() -> {
+                  extract(source, entry, directory);
+                  return null;
+               }));
+            }
+         }
+
+         try (ZipArchive files = ZipArchive.open(archive); ZipArchiveWriter writer = new ZipArchiveWriter(merged)) {
+            for (ZipArchive.Entry entry : files.getEntries()) {
+               writer.copyEntry(files, entry, entry.getName());
+            }
+            List<String> directories = getDistributionDirectories();
+            for (int i = 0; i < sources.size(); i++) {
+               ZipArchive source = sources.get(i);
+               String directory = directories.get(i) + '/';
+               writer.writeDirectory(directory, 0755, time);
+               for (ZipArchive.Entry entry : source.getEntries()) {
+                  writer.copyEntry(source, entry, directory + entry.getName());
+               }
+            }
+         }
+         Files.move(merged.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+         for (Future<?> extraction : extractions) {
+            extraction.get();
+         }
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new GradleException("Interrupted while extracting distributions", e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof IOException) {
+            throw new UncheckedIOException(e.getCause());
+         }
+         throw new GradleException("Unable to extract distribution", e.getCause());
+      } finally {
+         executor.shutdownNow();
+         for (ZipArchive source : sources) {
+            try {
+               source.close();
+            } catch (IOException e) {
+               getLogger().debug("Unable to close {}", source.getFile(), e);
+            }
+         }
+      }
+   }
+
+   private static void extract(ZipArchive source, ZipArchive.Entry entry, Path directory) throws IOException {
+      Path target = directory.resolve(entry.getName()).normalize();
+      if (!target.startsWith(directory)) {
+         throw new IOException("Entry " + entry.getName() + " of " + source.getFile() + " is outside of " + directory);
+      }
+      if (entry.isDirectory()) {
+         Files.createDirectories(target);
+         return;
+      }
+      Files.createDirectories(target.getParent());
+      try (InputStream in = source.getInputStream(entry)) {
+         Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      // Directory modes are not applied since files may still be extracted into them concurrently
+      if (entry.getUnixMode() != 0) {
+         setMode(target.toFile(), entry.getUnixMode());
+      }
+   }
+
+   private static ExecutorService createExecutor() {
+      int threads = Math.min(MAX_EXTRACT_THREADS, Runtime.getRuntime().availableProcessors());
+      AtomicInteger threadCount = new AtomicInteger();
+      return Executors.newFixedThreadPool(threads, runnable -> {
+         Thread thread = new Thread(runnable, "distribution-extractor-" + threadCount.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+}
@@ -30,6 +30,8 @@ set CWD=%~dp0
 rem Set environment.
 for %%? in ("%~dp0..") do set NG_FW_HOME=%%~f?
 
+${FELIX_JVM_PROFILE}
+
 rem The system properties that are set when the JVM is started.
 set FRAMEWORK_OPTS=-DNG_FW_HOME="%NG_FW_HOME%" -Djavax.xml.accessExternalSchema=all -Dfelix.config.properties="file:%NG_FW_HOME%/platform/configuration/config.properties" ${FELIX_JVM_PROPERTIES}
 
@@ -38,11 +40,12 @@ set FELIX_OPTS="%NG_FW_HOME%/platform/cache" -b "%NG_FW_HOME%/platform" ${FELIX_
 
 rem The main jar for running Felix
 for /f %%i in ('dir "%NG_FW_HOME%\\platform\\org.apache.felix.main-*.jar" /s /b') do set MAIN_JAR=%%i
+${FELIX_CLASS_DATA_SHARING}
 
 rem Require JAVA_HOME to be set.
 if "%JAVA_HOME%" == "" goto :javaHomeNotSet
 
-"%JAVA_HOME%\\bin\\java" %* %FRAMEWORK_OPTS% -jar "%MAIN_JAR%" %FELIX_OPTS%
+"%JAVA_HOME%\\bin\\java" %JVM_PROFILE_OPTS% %* %FRAMEWORK_OPTS% -jar "%MAIN_JAR%" %FELIX_OPTS%
 goto :eof
 
 :javaHomeNotSet
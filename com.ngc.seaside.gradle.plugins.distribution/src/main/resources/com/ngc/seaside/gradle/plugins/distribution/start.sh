@@ -27,11 +27,13 @@
 
 SCRIPT_DIRECTORY="\$( cd "\$( dirname "\${BASH_SOURCE[0]}" )" && pwd )"
 export NG_FW_HOME=`dirname "\$SCRIPT_DIRECTORY"`
-FRAMEWORK_OPTS="-DNG_FW_HOME=\$NG_FW_HOME -Djavax.xml.accessExternalSchema=all -Dfelix.config.properties=file:\$NG_FW_HOME/platform/configuration/config.properties" ${FELIX_JVM_PROPERTIES}
-FELIX_OPTS="\$NG_FW_HOME/platform/cache -b \$NG_FW_HOME/platform" ${FELIX_PROGRAM_ARGUMENTS}
+${FELIX_JVM_PROFILE}
+FRAMEWORK_OPTS="-DNG_FW_HOME=\$NG_FW_HOME -Djavax.xml.accessExternalSchema=all -Dfelix.config.properties=file:\$NG_FW_HOME/platform/configuration/config.properties ${FELIX_JVM_PROPERTIES}"
+FELIX_OPTS="\$NG_FW_HOME/platform/cache -b \$NG_FW_HOME/platform ${FELIX_PROGRAM_ARGUMENTS}"
 MAIN_JAR="\$( find "\$NG_FW_HOME/platform" -name 'org.apache.felix.main-*.jar' | head -1 )"
+${FELIX_CLASS_DATA_SHARING}
 
 # Require JAVA_HOME to be set.
 : \${JAVA_HOME:?"Environment variable JAVA_HOME not set!  This variable must be set."}
 
-"\$JAVA_HOME/bin/java" "\$@" \$FRAMEWORK_OPTS -jar "\$MAIN_JAR" \$FELIX_OPTS
+"\$JAVA_HOME/bin/java" \$JVM_PROFILE_OPTS "\$@" \$FRAMEWORK_OPTS -jar "\$MAIN_JAR" \$FELIX_OPTS
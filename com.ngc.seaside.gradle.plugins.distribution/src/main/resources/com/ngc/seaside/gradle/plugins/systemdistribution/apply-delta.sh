@@ -0,0 +1,82 @@
+#!/bin/sh
+#
+# UNCLASSIFIED
+#
+# Copyright 2020 Northrop Grumman Systems Corporation
+#
+# Permission is hereby granted, free of charge, to any person obtaining a copy of
+# this software and associated documentation files (the "Software"), to deal in
+# the Software without restriction, including without limitation the rights to use,
+# copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+# Software, and to permit persons to whom the Software is furnished to do so,
+# subject to the following conditions:
+#
+# The above copyright notice and this permission notice shall be included in
+# all copies or substantial portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+# INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+# PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+# HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+# OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+# SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+#
+
+
+# Run this script to upgrade an installed distribution with the delta package it is in.
+# Usage: apply-delta.sh <distribution directory>
+
+set -e
+
+deltaDir="$( cd "$( dirname "$0" )" && pwd )"
+targetDir="${1:?Usage: apply-delta.sh <distribution directory>}"
+
+# reject entries that are absolute or could resolve outside of the distribution directory
+checkEntry() {
+   case "$1" in
+      /*|..|../*|*/..|*/../*)
+         printf 'Invalid entry in delta package: %s\n' "$1" >&2
+         exit 1
+         ;;
+   esac
+}
+
+verify() {
+   # sha256sum fails on an empty list of checksums
+   if [ -s "$1" ]; then
+      ( cd "$targetDir" && sha256sum --check --quiet "$1" )
+   fi
+}
+
+# make sure the installed distribution is the one the delta package was created from
+printf 'Verifying %s ...\n' "$targetDir"
+verify "$deltaDir/base.sha256"
+
+printf "Renaming versioned directories ...\n"
+while IFS=' ' read -r from to; do
+   [ -n "$from" ] || continue
+   checkEntry "$from"
+   checkEntry "$to"
+   if [ -e "$targetDir/$to" ]; then
+      printf '%s already exists\n' "$targetDir/$to" >&2
+      exit 1
+   fi
+   mv "$targetDir/$from" "$targetDir/$to"
+done < "$deltaDir/renamed.txt"
+
+printf "Removing deleted files ...\n"
+while IFS= read -r entry; do
+   checkEntry "$entry"
+   case "$entry" in
+      */) rmdir "$targetDir/$entry" 2>/dev/null || true ;;
+      ?*) rm -f "$targetDir/$entry" ;;
+   esac
+done < "$deltaDir/removed.txt"
+
+printf "Copying added and changed files ...\n"
+if [ -d "$deltaDir/files" ]; then
+   cp -Rp "$deltaDir/files/." "$targetDir/"
+fi
+
+verify "$deltaDir/checksums.sha256"
+printf 'Applied delta package to %s\n' "$targetDir"
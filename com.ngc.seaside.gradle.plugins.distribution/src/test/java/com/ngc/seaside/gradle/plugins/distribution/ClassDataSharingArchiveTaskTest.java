@@ -0,0 +1,171 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Project;
+import org.gradle.api.internal.file.archive.ZipCopyAction;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+public class ClassDataSharingArchiveTaskTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private ClassDataSharingArchiveTask task;
+   private File mainJar;
+   private File archive;
+
+   @Before
+   public void setup() throws Throwable {
+      String version = System.getProperty("java.specification.version");
+      assumeFalse("class path classes can only be archived with Java 10 or later",
+                  version.startsWith("1.") || version.equals("9"));
+      Project project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      File bundles = folder.newFolder("bundles");
+      Files.write(new File(bundles, "bundle.jar").toPath(), new byte[0]);
+      File config = folder.newFile("config.properties");
+      File platform = folder.newFolder("platform");
+      mainJar = new File(platform, ClassDataSharingArchiveTask.FELIX_MAIN_JAR_PREFIX + "5.6.10.jar");
+      createMainJar(mainJar, Training.class);
+      archive = new File(folder.getRoot(), "archive/felix.jsa");
+
+      task = project.getTasks().create("createArchive", ClassDataSharingArchiveTask.class);
+      task.getBundlesDirectory().set(bundles);
+      task.getPlatformFiles().from(mainJar);
+      task.getConfigFiles().from(config);
+      task.getArchiveFile().set(archive);
+      task.getJvmArguments().add("-Dtraining.property=value");
+      task.getProgramArguments().add("-argument");
+      task.setTrainingQuietPeriod(1);
+   }
+
+   @Test
+   public void testDoesCreateArchiveFromTrainingRun() throws Throwable {
+      long start = System.nanoTime();
+      task.createArchive();
+      long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+
+      assertTrue(archive.isFile());
+      assertTrue(archive.length() > 0);
+      assertTrue("the training run should stop once it stops loading classes, not after the timeout",
+                 seconds < ClassDataSharingArchiveTask.DEFAULT_TRAINING_TIMEOUT);
+      File home = new File(task.getTemporaryDir(), "home");
+      String log = new String(Files.readAllBytes(new File(task.getTemporaryDir(), "training.log").toPath()),
+                              StandardCharsets.UTF_8);
+      assertEquals(home.getAbsolutePath() + "\n"
+                   + new File(home, "bundles/bundle.jar").isFile() + "\n"
+                   + "value\n"
+                   + "-argument",
+                   log.trim());
+   }
+
+   @Test
+   public void testDoesArchiveClassesOfMainJar() throws Throwable {
+      task.setPreserveFileTimestamps(false);
+      task.createArchive();
+
+      // Installs the main jar the same way as extracting the distribution zip
+      File home = folder.newFolder("installed");
+      File jar = new File(home, "platform/" + mainJar.getName());
+      assertTrue(jar.getParentFile().mkdirs());
+      Files.copy(mainJar.toPath(), jar.toPath());
+      assertTrue(jar.setLastModified(ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES));
+
+      // Fails instead of starting without the archive if the archive does not match the main jar
+      Process process = new ProcessBuilder(
+            new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(),
+            "-Xshare:on",
+            "-XX:SharedArchiveFile=" + archive.getAbsolutePath(),
+            "-Xlog:class+load=info",
+            "-D" + Training.EXIT_PROPERTY + "=true",
+            "-DNG_FW_HOME=" + home.getAbsolutePath(),
+            "-jar",
+            "platform/" + jar.getName(),
+            "-argument")
+            .directory(home)
+            .redirectErrorStream(true)
+            .start();
+      String output;
+      try (InputStream in = process.getInputStream()) {
+         output = IOUtils.toString(in, StandardCharsets.UTF_8);
+      }
+      assertEquals(output, 0, process.waitFor());
+      assertTrue(output, output.contains(Training.class.getName() + " source: shared objects file"));
+   }
+
+   private static void createMainJar(File jar, Class<?> mainClass) throws Throwable {
+      Manifest manifest = new Manifest();
+      manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass.getName());
+      String entryName = mainClass.getName().replace('.', '/') + ".class";
+      try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest);
+               InputStream in = mainClass.getClassLoader().getResourceAsStream(entryName)) {
+         out.putNextEntry(new JarEntry(entryName));
+         byte[] buffer = new byte[4096];
+         int read;
+         while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+         }
+         out.closeEntry();
+      }
+   }
+
+   /**
+    * Stands in for the Felix main class in the training run. Like Felix, it does not exit by itself.
+    */
+   public static class Training {
+
+      static final String EXIT_PROPERTY = "training.exit";
+
+      public static void main(String[] args) throws InterruptedException {
+         String home = System.getProperty("NG_FW_HOME");
+         System.out.println(home);
+         System.out.println(new File(home, "bundles/bundle.jar").isFile());
+         System.out.println(System.getProperty("training.property"));
+         System.out.println(args[args.length - 1]);
+         if (!Boolean.getBoolean(EXIT_PROPERTY)) {
+            Thread.sleep(Long.MAX_VALUE);
+         }
+      }
+   }
+}
@@ -0,0 +1,139 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.internal.file.archive.ZipCopyAction;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExplodedZipTaskTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project project;
+   private File source;
+
+   @Before
+   public void setup() throws Throwable {
+      project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      source = folder.newFolder("source");
+      Files.createDirectories(source.toPath().resolve("bin"));
+      Files.createDirectories(source.toPath().resolve("resources"));
+      Files.write(source.toPath().resolve("bin/start.sh"), "echo start".getBytes(StandardCharsets.UTF_8));
+      Files.write(source.toPath().resolve("bundles.txt"), "bundles".getBytes(StandardCharsets.UTF_8));
+   }
+
+   @Test
+   public void testDoesWriteArchiveAndExplodedDirectory() throws Throwable {
+      File exploded = new File(project.getBuildDir(), "exploded");
+      Files.createDirectories(exploded.toPath());
+      File staleFile = new File(exploded, "stale.txt");
+      Files.write(staleFile.toPath(), "stale".getBytes(StandardCharsets.UTF_8));
+
+      ExplodedZipTask task = project.getTasks().create("zip", ExplodedZipTask.class, zip -> {
+         zip.from(source);
+         zip.setIncludeEmptyDirs(true);
+         zip.setArchiveName("distribution.zip");
+         zip.setDestinationDir(project.getBuildDir());
+         zip.getExplodedDirectory().set(exploded);
+         zip.eachFile(details -> {
+            if (details.getName().endsWith(".sh")) {
+               details.setMode(0755);
+            }
+         });
+      });
+      createArchive(task);
+
+      assertFalse(staleFile.exists());
+      assertTrue(new File(exploded, "resources").isDirectory());
+      try (ZipFile zip = new ZipFile(task.getArchivePath())) {
+         for (String name : new String[] { "bin/start.sh", "bundles.txt" }) {
+            ZipEntry entry = zip.getEntry(name);
+            assertNotNull(name, entry);
+            byte[] expected = Files.readAllBytes(source.toPath().resolve(name));
+            byte[] archived = new byte[expected.length];
+            new DataInputStream(zip.getInputStream(entry)).readFully(archived);
+            assertArrayEquals(expected, archived);
+            CRC32 crc = new CRC32();
+            crc.update(expected);
+            assertEquals(name, crc.getValue(), entry.getCrc());
+            assertEquals(name, expected.length, entry.getSize());
+            assertArrayEquals(expected, Files.readAllBytes(exploded.toPath().resolve(name)));
+         }
+         assertNotNull(zip.getEntry("resources/"));
+      }
+      if (File.separatorChar == '/') {
+         assertTrue(Files.isExecutable(exploded.toPath().resolve("bin/start.sh")));
+      }
+   }
+
+   @Test
+   public void testDoesWriteConstantTimestampsWhenTimestampsAreNotPreserved() throws Throwable {
+      ExplodedZipTask task = project.getTasks().create("zip", ExplodedZipTask.class, zip -> {
+         zip.from(source);
+         zip.setArchiveName("distribution.zip");
+         zip.setDestinationDir(project.getBuildDir());
+         zip.setPreserveFileTimestamps(false);
+         zip.setEntryCompression(ZipEntryCompression.STORED);
+         zip.getExplodedDirectory().set(new File(project.getBuildDir(), "exploded"));
+      });
+      createArchive(task);
+
+      try (ZipFile zip = new ZipFile(task.getArchivePath())) {
+         ZipEntry entry = zip.getEntry("bundles.txt");
+         assertNotNull(entry);
+         assertEquals(ZipCopyAction.CONSTANT_TIME_FOR_ZIP_ENTRIES, entry.getTime());
+      }
+   }
+
+   /**
+    * Runs the actions of the given task.
+    */
+   private static void createArchive(ExplodedZipTask task) {
+      for (Action<? super Task> action : task.getActions()) {
+         action.execute(task);
+      }
+   }
+}
@@ -0,0 +1,155 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class LayeredDistributionTaskTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project project;
+   private Path distribution;
+   private File core;
+
+   @Before
+   public void setup() throws Throwable {
+      project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      distribution = folder.newFolder("distribution").toPath();
+      core = folder.newFile("core-1.0.jar");
+      Files.write(core.toPath(), "core".getBytes(StandardCharsets.UTF_8));
+      write("bin/start.sh", "start");
+      write("platform/felix.jar", "felix");
+      write("platform/configuration/config.properties", "config");
+      write("bundles/core_1.0.0.jar", "core");
+      write("bundles/app_1.0.0.jar", "app");
+      Files.createDirectories(distribution.resolve("resources"));
+   }
+
+   @Test
+   public void testDoesSplitDistributionIntoLayers() throws Throwable {
+      File destination = createLayers("layers1");
+
+      Properties index = readIndex(destination);
+      assertEquals("platform,core,application,configuration", index.getProperty("layers"));
+      assertEquals(entries("platform/", "platform/felix.jar"), readTarEntries(destination, "platform"));
+      assertEquals(entries("bundles/", "bundles/core_1.0.0.jar"), readTarEntries(destination, "core"));
+      assertEquals(entries("bundles/", "bundles/app_1.0.0.jar"), readTarEntries(destination, "application"));
+      assertEquals(entries("bin/", "bin/start.sh", "platform/", "platform/configuration/",
+                           "platform/configuration/config.properties", "resources/"),
+                   readTarEntries(destination, "configuration"));
+      assertEquals(Long.toString(new File(destination, "core.tar.gz").length()), index.getProperty("core.size"));
+   }
+
+   @Test
+   public void testDoesOnlyChangeDigestsOfChangedLayers() throws Throwable {
+      Properties before = readIndex(createLayers("layers1"));
+      write("bundles/app_1.0.0.jar", "app 2");
+      Properties after = readIndex(createLayers("layers2"));
+
+      assertNotEquals(before.getProperty("application.digest"), after.getProperty("application.digest"));
+      for (String layer : Arrays.asList("platform", "core", "configuration")) {
+         assertEquals(layer, before.getProperty(layer + ".digest"), after.getProperty(layer + ".digest"));
+      }
+   }
+
+   private File createLayers(String name) {
+      File destination = new File(folder.getRoot(), name);
+      LayeredDistributionTask task = project.getTasks().create(name, LayeredDistributionTask.class);
+      task.getDistributionDirectory().set(distribution.toFile());
+      task.getDestinationDirectory().set(destination);
+      task.layer("platform", "platform/");
+      task.contentLayer("core", "bundles", core);
+      task.layer("application", "bundles/");
+      task.layer("configuration", "", "platform/configuration/");
+      task.createLayers();
+      return destination;
+   }
+
+   private void write(String name, String contents) throws IOException {
+      Path file = distribution.resolve(name);
+      Files.createDirectories(file.getParent());
+      Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+   }
+
+   private static Set<String> entries(String... names) {
+      return new LinkedHashSet<>(Arrays.asList(names));
+   }
+
+   private static Properties readIndex(File destination) throws IOException {
+      Properties index = new Properties();
+      try (InputStream in = Files.newInputStream(new File(destination, LayeredDistributionTask.INDEX_FILE_NAME)
+                                                          .toPath())) {
+         index.load(in);
+      }
+      return index;
+   }
+
+   /**
+    * Reads the names of the entries of a layer in order.
+    */
+   private static Set<String> readTarEntries(File destination, String layer) throws IOException {
+      Set<String> entries = new LinkedHashSet<>();
+      File file = new File(destination, layer + "." + LayeredDistributionTask.LAYER_EXTENSION);
+      try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+         DataInputStream data = new DataInputStream(in);
+         byte[] header = new byte[512];
+         while (true) {
+            try {
+               data.readFully(header);
+            } catch (EOFException e) {
+               break;
+            }
+            if (header[0] != 0) {
+               long size = Long.parseLong(new String(header, 124, 11, StandardCharsets.US_ASCII), 8);
+               entries.add(new String(header, 0, 100, StandardCharsets.UTF_8).replaceAll("\u0000.*", ""));
+               data.readFully(new byte[(int) ((size + 511) / 512 * 512)]);
+            }
+         }
+      }
+      return entries;
+   }
+}
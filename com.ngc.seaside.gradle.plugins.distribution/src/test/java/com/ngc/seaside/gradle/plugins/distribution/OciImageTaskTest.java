@@ -0,0 +1,278 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.google.common.hash.Hashing;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class OciImageTaskTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project project;
+   private Path distribution;
+   private String baseLayerDigest;
+
+   @Before
+   public void setup() throws Throwable {
+      project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      distribution = folder.newFolder("distribution").toPath();
+      write("bin/start.sh", "start");
+      write("platform/felix.jar", "felix");
+      write("bundles/app_1.0.0.jar", "app");
+   }
+
+   @Test
+   public void testDoesCreateImageLayout() throws Throwable {
+      File image = createImage("image1", null);
+
+      Map<String, byte[]> entries = readTar(Files.readAllBytes(image.toPath()));
+      assertEquals("{\"imageLayoutVersion\":\"1.0.0\"}", new String(entries.get("oci-layout"), StandardCharsets.UTF_8));
+      Map<String, Object> index = parse(entries.get("index.json"));
+      Map<String, Object> manifestDescriptor = first(index, "manifests");
+      assertEquals("1.0", get(manifestDescriptor, "annotations").get(OciImageTask.REF_NAME_ANNOTATION));
+      Map<String, Object> manifest = parse(blob(entries, manifestDescriptor));
+      Map<String, Object> config = parse(blob(entries, get(manifest, "config")));
+      assertEquals("amd64", config.get("architecture"));
+      assertEquals(Arrays.asList("/bin/bash", "/opt/app/bin/start.sh"), get(config, "config").get("Entrypoint"));
+
+      List<?> layers = (List<?>) manifest.get("layers");
+      List<?> diffIds = (List<?>) get(config, "rootfs").get("diff_ids");
+      assertEquals(2, layers.size());
+      assertEquals(2, diffIds.size());
+      byte[] applicationLayer = blob(entries, get(manifest, "layers", 1));
+      byte[] uncompressed = gunzip(applicationLayer);
+      assertEquals(sha256(uncompressed), diffIds.get(1));
+      assertEquals(Arrays.asList("opt/", "opt/app/", "opt/app/bin/", "opt/app/bin/start.sh", "opt/app/bundles/",
+                                 "opt/app/bundles/app_1.0.0.jar"),
+                   Arrays.asList(readTar(uncompressed).keySet().toArray()));
+   }
+
+   @Test
+   public void testDoesAddLayersToBaseImage() throws Throwable {
+      Path base = createBaseImage();
+      File image = createImage("image1", base.toFile());
+
+      Map<String, byte[]> entries = readTar(Files.readAllBytes(image.toPath()));
+      Map<String, Object> manifest = parse(blob(entries, first(parse(entries.get("index.json")), "manifests")));
+      Map<String, Object> config = parse(blob(entries, get(manifest, "config")));
+      assertEquals(3, ((List<?>) manifest.get("layers")).size());
+      assertEquals(3, ((List<?>) get(config, "rootfs").get("diff_ids")).size());
+      assertEquals(Collections.singletonList("JAVA_HOME=/opt/java"), get(config, "config").get("Env"));
+      assertEquals("/opt/app", get(config, "config").get("WorkingDir"));
+      assertEquals(baseLayerDigest, get(manifest, "layers", 0).get("digest"));
+      assertFalse(config.containsKey("created"));
+   }
+
+   @Test
+   public void testDoesCreateReproducibleImages() throws Throwable {
+      File image1 = createImage("image1", null);
+      File image2 = createImage("image2", null);
+
+      assertArrayEquals(Files.readAllBytes(image1.toPath()), Files.readAllBytes(image2.toPath()));
+   }
+
+   private File createImage(String name, File baseImage) {
+      File image = new File(folder.getRoot(), name + ".tar");
+      OciImageTask task = project.getTasks().create(name, OciImageTask.class);
+      task.getDistributionDirectory().set(distribution.toFile());
+      task.getDestinationDirectory().set(new File(folder.getRoot(), name));
+      task.getImageFile().set(image);
+      if (baseImage != null) {
+         task.getBaseImage().set(baseImage);
+      }
+      task.setPathPrefix("opt/app");
+      task.setWorkingDirectory("/opt/app");
+      task.setEntrypoint(Arrays.asList("/bin/bash", "/opt/app/bin/start.sh"));
+      task.setTag("1.0");
+      task.layer("platform", "platform/");
+      task.layer("application", "");
+      task.createLayers();
+      return image;
+   }
+
+   /**
+    * Creates an image layout with a single layer and an image index that selects between two architectures.
+    */
+   private Path createBaseImage() throws IOException {
+      Path base = folder.newFolder("base").toPath();
+      ByteArrayOutputStream layerTar = new ByteArrayOutputStream();
+      layerTar.write(ParallelArchiver.createTarHeader("opt/java/".getBytes(StandardCharsets.UTF_8), 0755, 0, '5'));
+      layerTar.write(new byte[ParallelArchiver.TAR_RECORD_SIZE - ParallelArchiver.TAR_BLOCK_SIZE]);
+      ByteArrayOutputStream layer = new ByteArrayOutputStream();
+      try (GZIPOutputStream out = new GZIPOutputStream(layer)) {
+         out.write(layerTar.toByteArray());
+      }
+      baseLayerDigest = writeBlob(base, layer.toByteArray());
+
+      Map<String, Object> config = new LinkedHashMap<>();
+      config.put("architecture", "amd64");
+      config.put("os", "linux");
+      config.put("created", "2020-01-01T00:00:00Z");
+      config.put("config", Collections.singletonMap("Env", Collections.singletonList("JAVA_HOME=/opt/java")));
+      config.put("rootfs", map("type", "layers", "diff_ids",
+                               Collections.singletonList(sha256(layerTar.toByteArray()))));
+      byte[] configBytes = JsonOutput.toJson(config).getBytes(StandardCharsets.UTF_8);
+      Map<String, Object> manifest = map(
+            "schemaVersion", 2,
+            "config", map("mediaType", OciImageTask.CONFIG_MEDIA_TYPE, "digest", writeBlob(base, configBytes),
+                          "size", configBytes.length),
+            "layers", Collections.singletonList(map("mediaType", OciImageTask.LAYER_MEDIA_TYPE,
+                                                    "digest", baseLayerDigest, "size", layer.size())));
+      byte[] manifestBytes = JsonOutput.toJson(manifest).getBytes(StandardCharsets.UTF_8);
+      Map<String, Object> armManifest = map(
+            "mediaType", OciImageTask.MANIFEST_MEDIA_TYPE, "digest", "sha256:" + zeros(), "size", 1,
+            "platform", map("architecture", "arm64", "os", "linux"));
+      Map<String, Object> amdManifest = map(
+            "mediaType", OciImageTask.MANIFEST_MEDIA_TYPE, "digest", writeBlob(base, manifestBytes),
+            "size", manifestBytes.length, "platform", map("architecture", "amd64", "os", "linux"));
+      byte[] imageIndex = JsonOutput.toJson(map("schemaVersion", 2, "mediaType", OciImageTask.INDEX_MEDIA_TYPE,
+                                                "manifests", Arrays.asList(armManifest, amdManifest)))
+            .getBytes(StandardCharsets.UTF_8);
+      Files.write(base.resolve("index.json"), JsonOutput.toJson(
+            map("schemaVersion", 2, "manifests", Collections.singletonList(
+                  map("mediaType", OciImageTask.INDEX_MEDIA_TYPE, "digest", writeBlob(base, imageIndex),
+                      "size", imageIndex.length)))).getBytes(StandardCharsets.UTF_8));
+      return base;
+   }
+
+   private void write(String name, String contents) throws IOException {
+      Path file = distribution.resolve(name);
+      Files.createDirectories(file.getParent());
+      Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+   }
+
+   private static String writeBlob(Path image, byte[] contents) throws IOException {
+      String digest = sha256(contents);
+      Path file = image.resolve("blobs/sha256/" + digest.substring("sha256:".length()));
+      Files.createDirectories(file.getParent());
+      Files.write(file, contents);
+      return digest;
+   }
+
+   private static byte[] blob(Map<String, byte[]> entries, Map<String, Object> descriptor) {
+      String digest = descriptor.get("digest").toString();
+      byte[] blob = entries.get("blobs/sha256/" + digest.substring("sha256:".length()));
+      assertEquals(digest, sha256(blob));
+      assertEquals(((Number) descriptor.get("size")).longValue(), blob.length);
+      return blob;
+   }
+
+   private static String sha256(byte[] bytes) {
+      return "sha256:" + Hashing.sha256().hashBytes(bytes);
+   }
+
+   private static String zeros() {
+      return String.join("", Collections.nCopies(64, "0"));
+   }
+
+   private static Map<String, Object> map(Object... keysAndValues) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      for (int i = 0; i < keysAndValues.length; i += 2) {
+         map.put(keysAndValues[i].toString(), keysAndValues[i + 1]);
+      }
+      return map;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, Object> parse(byte[] json) {
+      return (Map<String, Object>) new JsonSlurper().parse(json);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, Object> get(Map<String, Object> map, String key) {
+      return (Map<String, Object>) map.get(key);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, Object> get(Map<String, Object> map, String key, int index) {
+      return (Map<String, Object>) ((List<?>) map.get(key)).get(index);
+   }
+
+   private static Map<String, Object> first(Map<String, Object> map, String key) {
+      return get(map, key, 0);
+   }
+
+   private static byte[] gunzip(byte[] bytes) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+         byte[] buffer = new byte[8192];
+         int read;
+         while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+         }
+      }
+      return out.toByteArray();
+   }
+
+   /**
+    * Reads the entries of an uncompressed tar archive in order.
+    */
+   private static Map<String, byte[]> readTar(byte[] tar) throws IOException {
+      Map<String, byte[]> entries = new LinkedHashMap<>();
+      DataInputStream data = new DataInputStream(new ByteArrayInputStream(tar));
+      byte[] header = new byte[512];
+      while (data.available() >= header.length) {
+         data.readFully(header);
+         if (header[0] != 0) {
+            int size = Integer.parseInt(new String(header, 124, 11, StandardCharsets.US_ASCII), 8);
+            byte[] contents = new byte[size];
+            data.readFully(contents);
+            data.readFully(new byte[(512 - size % 512) % 512]);
+            entries.put(new String(header, 0, 100, StandardCharsets.UTF_8).replaceAll("\u0000.*", ""), contents);
+         }
+      }
+      return entries;
+   }
+}
@@ -0,0 +1,208 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelArchiverTest {
+
+   private static final String LONG_NAME = "resources/" + String.join("", Collections.nCopies(12, "long-name-"))
+            + ".txt";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Path source;
+   private final Map<String, byte[]> files = new LinkedHashMap<>();
+
+   @Before
+   public void setup() throws Throwable {
+      source = folder.newFolder("source").toPath();
+      Files.createDirectories(source.resolve("bin"));
+      Files.createDirectories(source.resolve("resources"));
+      Files.createDirectories(source.resolve("empty"));
+      byte[] large = new byte[5 * BlockCompressor.BLOCK_SIZE + 123];
+      Random random = new Random(0);
+      for (int i = 0; i < large.length; i++) {
+         // Compressible but not trivially repetitive content
+         large[i] = (byte) ('a' + random.nextInt(4));
+      }
+      files.put("bin/start", "echo start".getBytes(StandardCharsets.UTF_8));
+      files.put("bundles/large.jar", large);
+      files.put("empty.txt", new byte[0]);
+      files.put(LONG_NAME, "long".getBytes(StandardCharsets.UTF_8));
+      for (Map.Entry<String, byte[]> file : files.entrySet()) {
+         Path path = source.resolve(file.getKey());
+         Files.createDirectories(path.getParent());
+         Files.write(path, file.getValue());
+      }
+   }
+
+   @Test
+   public void testDoesCreateReadableArchives() throws Throwable {
+      File tar = folder.newFile("distribution.tar.gz");
+      File zip = folder.newFile("distribution.zip");
+      ParallelArchiver archiver = new ParallelArchiver(Deflater.DEFAULT_COMPRESSION, 4);
+      archiver.archiveTar(source, "", name -> true, tar.toPath());
+      archiver.archiveZip(source, "", name -> true, zip.toPath());
+
+      try (ZipFile zipFile = new ZipFile(zip)) {
+         for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            ZipEntry entry = zipFile.getEntry(file.getKey());
+            assertNotNull(file.getKey(), entry);
+            byte[] archived = new byte[file.getValue().length];
+            new DataInputStream(zipFile.getInputStream(entry)).readFully(archived);
+            assertArrayEquals(file.getKey(), file.getValue(), archived);
+         }
+         assertNotNull(zipFile.getEntry("empty/"));
+      }
+
+      Map<String, byte[]> tarEntries = readTar(tar);
+      for (Map.Entry<String, byte[]> file : files.entrySet()) {
+         assertArrayEquals(file.getKey(), file.getValue(), tarEntries.get(file.getKey()));
+      }
+      assertTrue(tarEntries.containsKey("empty/"));
+   }
+
+   @Test
+   public void testDoesCreateReproducibleArchives() throws Throwable {
+      File tar1 = folder.newFile("distribution1.tar.gz");
+      File zip1 = folder.newFile("distribution1.zip");
+      ParallelArchiver archiver1 = new ParallelArchiver(Deflater.DEFAULT_COMPRESSION, 1);
+      archiver1.archiveTar(source, "", name -> true, tar1.toPath());
+      archiver1.archiveZip(source, "", name -> true, zip1.toPath());
+
+      Files.setLastModifiedTime(source.resolve("bin/start"), FileTime.fromMillis(0));
+      File tar2 = folder.newFile("distribution2.tar.gz");
+      File zip2 = folder.newFile("distribution2.zip");
+      ParallelArchiver archiver8 = new ParallelArchiver(Deflater.DEFAULT_COMPRESSION, 8);
+      archiver8.archiveTar(source, "", name -> true, tar2.toPath());
+      archiver8.archiveZip(source, "", name -> true, zip2.toPath());
+
+      assertArrayEquals(Files.readAllBytes(tar1.toPath()), Files.readAllBytes(tar2.toPath()));
+      assertArrayEquals(Files.readAllBytes(zip1.toPath()), Files.readAllBytes(zip2.toPath()));
+   }
+
+   @Test
+   public void testDoesCreateArchivesFromArchiveTasks() throws Throwable {
+      Project project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      ParallelTarTask tarTask = project.getTasks().create("tar", ParallelTarTask.class, tar -> {
+         tar.from(source);
+         tar.setArchiveName("distribution.tar.gz");
+         tar.setDestinationDir(project.getBuildDir());
+      });
+      ParallelZipTask zipTask = project.getTasks().create("zip", ParallelZipTask.class, zip -> {
+         zip.from(source);
+         zip.setArchiveName("distribution.zip");
+         zip.setDestinationDir(project.getBuildDir());
+      });
+      runActions(tarTask);
+      runActions(zipTask);
+
+      Map<String, byte[]> tarEntries = readTar(tarTask.getArchivePath());
+      try (ZipFile zipFile = new ZipFile(zipTask.getArchivePath())) {
+         for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            assertArrayEquals(file.getKey(), file.getValue(), tarEntries.get(file.getKey()));
+            ZipEntry entry = zipFile.getEntry(file.getKey());
+            assertNotNull(file.getKey(), entry);
+            byte[] archived = new byte[file.getValue().length];
+            new DataInputStream(zipFile.getInputStream(entry)).readFully(archived);
+            assertArrayEquals(file.getKey(), file.getValue(), archived);
+         }
+      }
+   }
+
+   /**
+    * Runs the actions of the given task.
+    */
+   private static void runActions(Task task) {
+      for (Action<? super Task> action : task.getActions()) {
+         action.execute(task);
+      }
+   }
+
+   /**
+    * Reads the entries of a gzipped tar archive, resolving GNU long names.
+    */
+   private static Map<String, byte[]> readTar(File file) throws IOException {
+      Map<String, byte[]> entries = new LinkedHashMap<>();
+      try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+         DataInputStream data = new DataInputStream(in);
+         byte[] header = new byte[512];
+         String longName = null;
+         while (true) {
+            try {
+               data.readFully(header);
+            } catch (EOFException e) {
+               break;
+            }
+            if (header[0] == 0) {
+               continue;
+            }
+            String name = new String(header, 0, 100, StandardCharsets.UTF_8).replaceAll("\u0000.*", "");
+            long size = Long.parseLong(new String(header, 124, 11, StandardCharsets.US_ASCII), 8);
+            byte[] content = new byte[(int) size];
+            data.readFully(content);
+            data.readFully(new byte[(int) ((512 - size % 512) % 512)]);
+            if (header[156] == 'L') {
+               longName = new String(content, 0, content.length - 1, StandardCharsets.UTF_8);
+            } else {
+               entries.put(longName == null ? name : longName, content);
+               longName = null;
+            }
+         }
+      }
+      assertEquals(LONG_NAME, entries.keySet().stream().filter(name -> name.length() > 100).findFirst().orElse(null));
+      return entries;
+   }
+}
@@ -0,0 +1,198 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResolveBundlesTaskTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project project;
+   private File bundles;
+   private File platform;
+   private File config;
+
+   @Before
+   public void setup() throws Throwable {
+      project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      bundles = folder.newFolder("bundles");
+      platform = folder.newFolder("platform");
+      config = folder.newFile("config.properties");
+      String properties = "org.osgi.framework.system.packages.extra=sun.misc; version=0.0.0, \\\n"
+               + "  com.example.extra\n";
+      Files.write(config.toPath(), properties.getBytes(StandardCharsets.UTF_8));
+      createBundle(platform, "platform.log", "Export-Package", "org.example.log;version=\"1.3\"",
+                   "Provide-Capability", "osgi.extender;osgi.extender=osgi.component;version:Version=\"1.3\"");
+   }
+
+   @Test
+   public void testDoesWriteStartPlanInDependencyOrder() throws Throwable {
+      createBundle(bundles, "api", "Export-Package", "com.example.api;version=\"1.0.0\"",
+                   "Import-Package", "org.example.log;version=\"[1.0,2)\",sun.misc,com.example.extra,javax.swing",
+                   "Require-Capability", "osgi.extender;filter:=\"(&(osgi.extender=osgi.component)(version>=1.0))\"");
+      createBundle(bundles, "impl", "Import-Package", "com.example.api;version=\"[1,2)\",com.example.missing;"
+               + "resolution:=optional", "Export-Package", "com.example.impl");
+      createBundle(bundles, "app", "Require-Bundle", "impl;bundle-version=\"[1,2)\"");
+      createBundle(bundles, "api.fragment", "Fragment-Host", "api");
+      createBundle(bundles, "cycle.a", "Import-Package", "com.example.cycle.b", "Export-Package",
+                   "com.example.cycle.a");
+      createBundle(bundles, "cycle.b", "Import-Package", "com.example.cycle.a,com.example.impl", "Export-Package",
+                   "com.example.cycle.b");
+
+      Properties plan = execute(true);
+
+      assertEquals("4", plan.getProperty("org.osgi.framework.startlevel.beginning"));
+      assertEquals(location("api"), plan.getProperty("felix.auto.start.2"));
+      assertEquals(location("impl"), plan.getProperty("felix.auto.start.3"));
+      assertEquals(location("app") + " " + location("cycle.a") + " " + location("cycle.b"),
+                   plan.getProperty("felix.auto.start.4"));
+      assertEquals(location("api.fragment"), plan.getProperty("felix.auto.install.2"));
+   }
+
+   @Test
+   public void testDoesFailOnUnresolvableBundlesByDefault() throws Throwable {
+      createBundle(bundles, "api", "Export-Package", "com.example.api;version=\"2.0.0\"");
+      createBundle(bundles, "impl", "Import-Package", "com.example.api;version=\"[1,2)\"");
+      try {
+         execute();
+         fail("should have failed to resolve the bundles");
+      } catch (GradleException e) {
+         String message = e.getMessage();
+         assertTrue(message, message.contains("impl_1.0.0.jar: Unable to resolve impl"));
+         assertTrue(message, message.contains("(osgi.wiring.package=com.example.api)(version>=1.0.0)"));
+      }
+   }
+
+   @Test
+   public void testDoesFailOnUsesConstraintViolations() throws Throwable {
+      createBundle(bundles, "api.v1", "Export-Package", "com.example.api;version=\"1.0.0\"");
+      createBundle(bundles, "api.v2", "Export-Package", "com.example.api;version=\"2.0.0\"");
+      createBundle(bundles, "lib", "Export-Package", "com.example.lib;uses:=\"com.example.api\"",
+                   "Import-Package", "com.example.api;version=\"[2,3)\"");
+      createBundle(bundles, "app", "Import-Package", "com.example.api;version=\"[1,2)\",com.example.lib");
+      try {
+         execute();
+         fail("should have failed to resolve the bundles");
+      } catch (GradleException e) {
+         String message = e.getMessage();
+         assertTrue(message, message.contains("app_1.0.0.jar: Uses constraint violation"));
+      }
+   }
+
+   @Test
+   public void testDoesNotFailOnUnresolvableBundlesIfDisabled() throws Throwable {
+      String properties = "org.osgi.framework.startlevel.beginning=5\n";
+      Files.write(config.toPath(), properties.getBytes(StandardCharsets.UTF_8));
+      createBundle(bundles, "api", "Export-Package", "com.example.api;version=\"1.0.0\"");
+      createBundle(bundles, "app", "Import-Package", "com.example.api;version=\"[1,2)\"");
+      createBundle(bundles, "impl", "Import-Package", "com.example.api;version=\"[1,2)\",com.example.missing");
+      createBundle(bundles, "invalid", "Import-Package", "com.example.api;version=\"[1,2\"");
+
+      Properties plan = execute(false);
+
+      assertEquals("5", plan.getProperty("org.osgi.framework.startlevel.beginning"));
+      assertEquals(location("api") + " " + location("impl"), plan.getProperty("felix.auto.start.2"));
+      assertEquals(location("app"), plan.getProperty("felix.auto.start.3"));
+   }
+
+   @Test
+   public void testDoesResolveAgainstConfiguredSystemPackages() throws Throwable {
+      String properties = "org.osgi.framework.system.packages=javax.net\n";
+      Files.write(config.toPath(), properties.getBytes(StandardCharsets.UTF_8));
+      createBundle(bundles, "impl", "Import-Package", "javax.net,javax.swing");
+      try {
+         execute();
+         fail("should have failed to resolve the bundles");
+      } catch (GradleException e) {
+         String message = e.getMessage();
+         assertTrue(message, message.contains("(osgi.wiring.package=javax.swing)"));
+         assertFalse(message, message.contains("(osgi.wiring.package=javax.net)"));
+      }
+   }
+
+   private Properties execute() throws IOException {
+      return execute(true);
+   }
+
+   private Properties execute(boolean failOnUnresolved) throws IOException {
+      File startPlan = new File(project.getBuildDir(), ResolveBundlesTask.START_PLAN_FILE_NAME);
+      ResolveBundlesTask task = project.getTasks().create("resolve", ResolveBundlesTask.class, resolve -> {
+         resolve.getBundlesDirectory().set(bundles);
+         resolve.getPlatformFiles().from(project.fileTree(platform));
+         resolve.getConfigFiles().from(config);
+         resolve.getStartPlanFile().set(startPlan);
+      });
+      if (!failOnUnresolved) {
+         task.setFailOnUnresolved(false);
+      }
+      task.resolveBundles();
+      Properties properties = new Properties();
+      try (InputStream in = Files.newInputStream(startPlan.toPath())) {
+         properties.load(in);
+      }
+      return properties;
+   }
+
+   private static String location(String name) {
+      return '"' + ResolveBundlesTask.BUNDLE_LOCATION_PREFIX + name + "_1.0.0.jar\"";
+   }
+
+   private static void createBundle(File directory, String name, String... headers) throws IOException {
+      Manifest manifest = new Manifest();
+      Attributes attributes = manifest.getMainAttributes();
+      attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      attributes.putValue(BundleResolver.BUNDLE_MANIFEST_VERSION, "2");
+      attributes.putValue(BundleResolver.BUNDLE_SYMBOLIC_NAME, name);
+      attributes.putValue(BundleResolver.BUNDLE_VERSION, "1.0.0");
+      for (int i = 0; i < headers.length; i += 2) {
+         attributes.putValue(headers[i], headers[i + 1]);
+      }
+      File jar = new File(directory, name + "_1.0.0.jar");
+      try (JarOutputStream ignored = new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest)) {
+         // Only the manifest is needed.
+      }
+   }
+}
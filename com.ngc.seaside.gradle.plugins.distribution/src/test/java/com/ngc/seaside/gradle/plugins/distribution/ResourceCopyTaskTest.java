@@ -0,0 +1,156 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceCopyTaskTest {
+
+   /**
+    * A resource in a jar on the test classpath.
+    */
+   private static final String JAR_RESOURCE = "org/junit/Test.class";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project rootProject;
+   private File cacheDirectory;
+
+   @Before
+   public void setup() throws Throwable {
+      rootProject = ProjectBuilder.builder().withProjectDir(folder.newFolder("root")).build();
+      cacheDirectory = new File(rootProject.getBuildDir(), ResourceCopyTask.CACHE_DIRECTORY_NAME);
+   }
+
+   @Test
+   public void testDoesMaterializeResourcesLazilyInSharedCache() throws Throwable {
+      ResourceCopyTask task1 = createTask("project1");
+      ResourceCopyTask task2 = createTask("project2");
+      assertFalse("resources should not be written at configuration time", cacheDirectory.exists());
+
+      copy(task1);
+      copy(task2);
+
+      byte[] expected;
+      try (InputStream in = getClass().getClassLoader().getResourceAsStream(JAR_RESOURCE)) {
+         expected = IOUtils.toByteArray(in);
+      }
+      assertArrayEquals(expected, Files.readAllBytes(new File(task1.getDestinationDir(), "Test.class").toPath()));
+      assertArrayEquals(expected, Files.readAllBytes(new File(task2.getDestinationDir(), "Test.class").toPath()));
+      assertEquals("stream", new String(Files.readAllBytes(new File(task2.getDestinationDir(), "stream.txt").toPath()),
+                                        StandardCharsets.UTF_8));
+      // The jar resource and the stream resource are each cached once for both projects
+      File[] cached = cacheDirectory.listFiles();
+      assertEquals(2, cached == null ? 0 : cached.length);
+      assertTrue(cached[0].isDirectory());
+   }
+
+   @Test
+   public void testDoesMaterializeResourcesFromJarsThatAreNotFiles() throws Throwable {
+      URL url = new URL(null, "jar:http://example.invalid/plugin.jar!/remote.txt", new URLStreamHandler() {
+         @Override
+         protected URLConnection openConnection(URL u) throws IOException {
+            return new JarURLConnection(u) {
+               @Override
+               public JarFile getJarFile() {
+                  throw new UnsupportedOperationException();
+               }
+
+               @Override
+               public void connect() {
+               }
+
+               @Override
+               public InputStream getInputStream() {
+                  return new ByteArrayInputStream("remote".getBytes(StandardCharsets.UTF_8));
+               }
+            };
+         }
+      });
+      ResourceCopyTask task = rootProject.getTasks().create("copyRemoteResource", ResourceCopyTask.class);
+      task.setDestinationDir(new File(rootProject.getBuildDir(), "resources"));
+      Map<String, Object> options = new HashMap<>();
+      options.put(ResourceCopyTask.RESOURCE_KEY, url);
+      options.put(ResourceCopyTask.NAME_KEY, "remote.txt");
+      task.fromResource(options);
+
+      copy(task);
+
+      assertEquals("remote", new String(Files.readAllBytes(new File(task.getDestinationDir(), "remote.txt").toPath()),
+                                        StandardCharsets.UTF_8));
+   }
+
+   /**
+    * Runs the actions of the given task.
+    */
+   private static void copy(ResourceCopyTask task) {
+      for (Action<? super Task> action : task.getActions()) {
+         action.execute(task);
+      }
+   }
+
+   private ResourceCopyTask createTask(String name) throws Throwable {
+      Project project = ProjectBuilder.builder()
+               .withName(name)
+               .withParent(rootProject)
+               .withProjectDir(folder.newFolder(name))
+               .build();
+      ResourceCopyTask task = project.getTasks().create("copyResources", ResourceCopyTask.class);
+      task.setDestinationDir(new File(project.getBuildDir(), "resources"));
+      task.fromResource(Collections.singletonMap(ResourceCopyTask.RESOURCE_KEY, JAR_RESOURCE));
+      Map<String, Object> stream = new HashMap<>();
+      stream.put(ResourceCopyTask.RESOURCE_KEY, new ByteArrayInputStream("stream".getBytes(StandardCharsets.UTF_8)));
+      stream.put(ResourceCopyTask.NAME_KEY, "stream.txt");
+      task.fromResource(stream);
+      return task;
+   }
+}
@@ -22,20 +22,43 @@
  */
 package com.ngc.seaside.gradle.plugins.distribution;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
+import groovy.text.SimpleTemplateEngine;
+
+import org.apache.commons.io.IOUtils;
 import org.gradle.api.Project;
 import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
+import org.gradle.language.base.plugins.LifecycleBasePlugin;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.ngc.seaside.gradle.plugins.ci.SeasideCiPlugin;
 import com.ngc.seaside.gradle.plugins.repository.SeasideRepositoryPlugin;
+import com.ngc.seaside.gradle.util.JvmProfile;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class SeasideFelixServiceDistributionPluginTest {
-   
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
    private Project project;
 
    @Before
@@ -52,4 +75,93 @@ public class SeasideFelixServiceDistributionPluginTest {
       assertNotNull(project.getPlugins().getPlugin(SeasideCiPlugin.class));
    }
 
+   @Test
+   public void testJvmArgumentsIncludeClassDataSharingArchiveWhenEnabled() {
+      SeasideFelixServiceDistributionExtension extension =
+            project.getExtensions().getByType(SeasideFelixServiceDistributionExtension.class);
+      extension.systemProperty("key", "value");
+      assertEquals("-Dkey=value", extension.getJvmArgumentsString("felix.jsa"));
+
+      extension.setClassDataSharing(true);
+      assertEquals("-XX:SharedArchiveFile=felix.jsa -Xshare:auto -Dkey=value",
+                   extension.getJvmArgumentsString("felix.jsa"));
+      assertNotNull(project.getTasks().findByName(
+            SeasideFelixServiceDistributionPlugin.CLASS_DATA_SHARING_ARCHIVE_TASK));
+   }
+
+   @Test
+   public void testJvmArgumentsIncludeStartPlanWhenEnabled() {
+      SeasideFelixServiceDistributionExtension extension =
+            project.getExtensions().getByType(SeasideFelixServiceDistributionExtension.class);
+      extension.systemProperty("key", "value");
+      assertEquals("-Dkey=value", extension.getJvmArgumentsString("felix.jsa", "file:start-plan.properties"));
+
+      extension.setStartPlan(true);
+      assertEquals("-Dfelix.system.properties=file:start-plan.properties -Dkey=value",
+                   extension.getJvmArgumentsString("felix.jsa", "file:start-plan.properties"));
+   }
+
+   @Test
+   public void testCheckResolvesBundlesAndFailsOnUnresolvedBundlesByDefault() {
+      ResolveBundlesTask task = (ResolveBundlesTask) project.getTasks().getByName(
+            SeasideFelixServiceDistributionPlugin.RESOLVE_BUNDLES_TASK);
+      assertTrue(task.isFailOnUnresolved());
+      assertTrue(project.getTasks().getByName(LifecycleBasePlugin.CHECK_TASK_NAME).getDependsOn().contains(task));
+   }
+
+   @Test
+   public void testImageInstallsDistributionInOpt() {
+      OciImageTask task = (OciImageTask) project.getTasks().getByName(SeasideFelixServiceDistributionPlugin.IMAGE_TASK);
+      assertEquals("opt/" + project.getName() + "/", task.getPathPrefix());
+      assertEquals("/opt/" + project.getName(), task.getWorkingDirectory());
+      assertEquals("/opt/" + project.getName() + "/bin/start.sh", task.getEntrypoint().get(1));
+   }
+
+   @Test
+   public void testJvmProfileCanBeSetByName() {
+      SeasideFelixServiceDistributionExtension extension =
+            project.getExtensions().getByType(SeasideFelixServiceDistributionExtension.class);
+      extension.setJvmProfile("small-footprint");
+      assertEquals(JvmProfile.SMALL_FOOTPRINT, extension.getJvmProfile());
+   }
+
+   @Test
+   public void testStartScriptPassesJvmPropertiesAndProgramArgumentsToJava() throws Exception {
+      assumeTrue("bash is required to run start.sh", new File("/bin/bash").canExecute());
+      File home = folder.newFolder("distribution");
+      File bin = new File(home, "bin");
+      File platform = new File(home, "platform");
+      File javaHome = folder.newFolder("jdk");
+      assertTrue(bin.mkdirs() && platform.mkdirs() && new File(javaHome, "bin").mkdirs());
+      Files.createFile(new File(platform, "org.apache.felix.main-6.0.0.jar").toPath());
+      File java = new File(javaHome, "bin/java");
+      Files.write(java.toPath(), "#!/bin/sh\nprintf '%s\\n' \"$@\"\n".getBytes(StandardCharsets.UTF_8));
+      assertTrue(java.setExecutable(true));
+
+      Map<String, String> properties = new HashMap<>();
+      properties.put(SeasideFelixServiceDistributionPlugin.JVM_PROPERTIES_SCRIPT_IDENTIFIER, "-Dkey=value");
+      properties.put(SeasideFelixServiceDistributionPlugin.PROGRAM_ARGUMENTS_SCRIPT_IDENTIFIER, "-consoleLog");
+      properties.put(SeasideFelixServiceDistributionPlugin.JVM_PROFILE_SCRIPT_IDENTIFIER, "");
+      properties.put(SeasideFelixServiceDistributionPlugin.CLASS_DATA_SHARING_SCRIPT_IDENTIFIER, "");
+      File script = new File(bin, "start.sh");
+      try (Reader template = new InputStreamReader(
+            SeasideFelixServiceDistributionPlugin.class.getResourceAsStream("start.sh"), StandardCharsets.UTF_8)) {
+         Files.write(script.toPath(), new SimpleTemplateEngine().createTemplate(template).make(properties).toString()
+               .getBytes(StandardCharsets.UTF_8));
+      }
+
+      ProcessBuilder builder = new ProcessBuilder("/bin/bash", script.getAbsolutePath()).redirectErrorStream(true);
+      builder.environment().put("JAVA_HOME", javaHome.getAbsolutePath());
+      Process process = builder.start();
+      String output;
+      try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+         output = IOUtils.toString(reader);
+      }
+      assertEquals(output, 0, process.waitFor());
+
+      List<String> arguments = Arrays.asList(output.trim().split("\n"));
+      int jar = arguments.indexOf("-jar");
+      assertEquals(output, "-Dkey=value", arguments.get(jar - 1));
+      assertEquals(output, "-consoleLog", arguments.get(arguments.size() - 1));
+   }
 }
@@ -0,0 +1,216 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.distribution;
+
+import com.ngc.seaside.gradle.util.OsgiResolver;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StageBundlesTaskTest {
+
+   private static final String GROUP = "com.ngc.example";
+   private static final String MODULE_ATTRIBUTE = "Module-Name";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project project;
+
+   @Before
+   public void setup() throws Throwable {
+      File repository = folder.newFolder("repository");
+      createModule(repository, "bundle1", "1.0.0", true);
+      createModule(repository, "bundle1", "1.1.0", true);
+      createModule(repository, "bundle2", "1.0.0", true);
+      createModule(repository, "plain", "1.0.0", false);
+      createModule(repository, "duplicate1", "1.0.0", GROUP + ".duplicate");
+      createModule(repository, "duplicate2", "1.0.0", GROUP + ".duplicate");
+      project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      project.getRepositories().maven(maven -> maven.setUrl(repository.toURI()));
+   }
+
+   @Test
+   public void testDoesStageBundles() throws Throwable {
+      Configuration bundles = project.getConfigurations().create("bundles");
+      for (String dependency : Arrays.asList("bundle1:1.0.0", "bundle1:1.1.0", "bundle2:1.0.0", "plain:1.0.0")) {
+         project.getDependencies().add("bundles", GROUP + ":" + dependency);
+      }
+      File directory = new File(project.getBuildDir(), "staged");
+
+      StageBundlesTask task = project.getTasks().create("stage", StageBundlesTask.class, stage -> {
+         stage.bundleConfiguration(bundles);
+         stage.getBlacklist().set(Collections.singleton(GROUP + ":bundle2:1.0.0"));
+         stage.getDestinationDirectory().set(directory);
+      });
+      task.stageBundles(new FakeIncrementalTaskInputs(false, Collections.emptyList()));
+
+      Set<String> staged = Files.list(directory.toPath())
+               .map(path -> path.getFileName().toString())
+               .collect(Collectors.toSet());
+      assertEquals(new HashSet<>(Arrays.asList(GROUP + ".bundle1_1.0.0.jar", GROUP + ".bundle1_1.1.0.jar")), staged);
+   }
+
+   @Test
+   public void testDoesRestageBundleWithSameNameWhenBundleIsRemoved() throws Throwable {
+      Configuration bundles = project.getConfigurations().create("bundles");
+      for (String dependency : Arrays.asList("duplicate1:1.0.0", "duplicate2:1.0.0")) {
+         project.getDependencies().add("bundles", GROUP + ":" + dependency);
+      }
+      File directory = new File(project.getBuildDir(), "staged");
+      File staged = new File(directory, GROUP + ".duplicate_1.0.0.jar");
+
+      StageBundlesTask task = project.getTasks().create("stage", StageBundlesTask.class, stage -> {
+         stage.bundleConfiguration(bundles);
+         stage.getDestinationDirectory().set(directory);
+      });
+      task.stageBundles(new FakeIncrementalTaskInputs(false, Collections.emptyList()));
+
+      // Both bundles are staged with the same name, so only one of them is in the staging directory
+      String survivor = getModuleName(staged);
+      File removed = task.getBundles()
+               .getFiles()
+               .stream()
+               .filter(file -> file.getName().startsWith(survivor + "-"))
+               .findFirst()
+               .get();
+      task.stageBundles(new FakeIncrementalTaskInputs(true, Collections.singletonList(removed)));
+
+      assertTrue(staged.isFile());
+      assertNotEquals(survivor, getModuleName(staged));
+   }
+
+   private static String getModuleName(File jar) throws IOException {
+      try (JarFile file = new JarFile(jar)) {
+         return file.getManifest().getMainAttributes().getValue(MODULE_ATTRIBUTE);
+      }
+   }
+
+   private static void createModule(File repository, String name, String version, boolean bundle)
+            throws IOException {
+      createModule(repository, name, version, bundle ? GROUP + "." + name : null);
+   }
+
+   private static void createModule(File repository, String name, String version, String symbolicName)
+            throws IOException {
+      File directory = new File(repository, GROUP.replace('.', '/') + "/" + name + "/" + version);
+      Files.createDirectories(directory.toPath());
+      String pom = "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+               + "  <modelVersion>4.0.0</modelVersion>\n"
+               + "  <groupId>" + GROUP + "</groupId>\n"
+               + "  <artifactId>" + name + "</artifactId>\n"
+               + "  <version>" + version + "</version>\n"
+               + "</project>\n";
+      Files.write(new File(directory, name + "-" + version + ".pom").toPath(), pom.getBytes(StandardCharsets.UTF_8));
+
+      Manifest manifest = new Manifest();
+      Attributes attributes = manifest.getMainAttributes();
+      attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      attributes.putValue(MODULE_ATTRIBUTE, name);
+      if (symbolicName != null) {
+         attributes.putValue(OsgiResolver.BUNDLE_SYMBOLIC_NAME_PROPERTY, symbolicName);
+         attributes.putValue(OsgiResolver.BUNDLE_VERSION_PROPERTY, version);
+      }
+      File jar = new File(directory, name + "-" + version + ".jar");
+      try (JarOutputStream ignored = new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest)) {
+         // Only the manifest is needed.
+      }
+   }
+
+   /**
+    * Incremental inputs in which the given files were removed.
+    */
+   private static class FakeIncrementalTaskInputs implements IncrementalTaskInputs {
+
+      private final boolean incremental;
+      private final List<File> removed;
+
+      private FakeIncrementalTaskInputs(boolean incremental, List<File> removed) {
+         this.incremental = incremental;
+         this.removed = removed;
+      }
+
+      @Override
+      public boolean isIncremental() {
+         return incremental;
+      }
+
+      @Override
+      public void outOfDate(Action<? super InputFileDetails> outOfDateAction) {
+      }
+
+      @Override
+      public void removed(Action<? super InputFileDetails> removedAction) {
+         for (File file : removed) {
+            removedAction.execute(new InputFileDetails() {
+               @Override
+               public boolean isAdded() {
+                  return false;
+               }
+
+               @Override
+               public boolean isModified() {
+                  return false;
+               }
+
+               @Override
+               public boolean isRemoved() {
+                  return true;
+               }
+
+               @Override
+               public File getFile() {
+                  return file;
+               }
+            });
+         }
+      }
+   }
+}
@@ -0,0 +1,232 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.systemdistribution;
+
+import com.google.common.io.ByteStreams;
+import com.ngc.seaside.gradle.util.ZipArchive;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class DistributionDeltaTaskTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project project;
+   private File previous;
+   private File current;
+   private File delta;
+
+   @Before
+   public void setup() throws Throwable {
+      project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      Map<String, String> previousFiles = new LinkedHashMap<>();
+      previousFiles.put("bin/", null);
+      previousFiles.put("bin/start.sh", "echo start");
+      previousFiles.put("bundles/", null);
+      previousFiles.put("bundles/core.jar", "core");
+      previousFiles.put("bundles/app.jar", "app 1");
+      previousFiles.put("old/", null);
+      previousFiles.put("old/removed.jar", "removed");
+      previous = createZip("previous.zip", previousFiles);
+
+      Map<String, String> currentFiles = new LinkedHashMap<>();
+      currentFiles.put("bin/", null);
+      currentFiles.put("bin/start.sh", "echo start");
+      currentFiles.put("bundles/", null);
+      currentFiles.put("bundles/core.jar", "core");
+      currentFiles.put("bundles/app.jar", "app 2");
+      currentFiles.put("bundles/added.jar", "added");
+      current = createZip("current.zip", currentFiles);
+
+      delta = createDelta("delta", previous, current);
+   }
+
+   @Test
+   public void testDoesOnlyIncludeChangedEntries() throws Throwable {
+      try (ZipFile zip = new ZipFile(delta)) {
+         assertNotNull(zip.getEntry("files/bundles/app.jar"));
+         assertNotNull(zip.getEntry("files/bundles/added.jar"));
+         assertNull(zip.getEntry("files/bundles/core.jar"));
+         assertNull(zip.getEntry("files/bin/start.sh"));
+         assertEquals("old/removed.jar\nold/\n", read(zip, DistributionDeltaTask.REMOVED_FILE_NAME));
+         String checksums = read(zip, DistributionDeltaTask.CHECKSUMS_FILE_NAME);
+         assertEquals(2, checksums.split("\n").length);
+         String baseChecksums = read(zip, DistributionDeltaTask.BASE_CHECKSUMS_FILE_NAME);
+         assertEquals(2, baseChecksums.split("\n").length);
+      }
+      try (ZipArchive zip = ZipArchive.open(delta)) {
+         ZipArchive.Entry script = zip.getEntries().stream()
+                  .filter(entry -> entry.getName().equals(DistributionDeltaTask.APPLY_SCRIPT_NAME))
+                  .findFirst()
+                  .get();
+         assertEquals(0755, script.getUnixMode() & 07777);
+      }
+   }
+
+   @Test
+   public void testApplyScriptUpgradesPreviousDistribution() throws Throwable {
+      Path installation = applyDelta(previous, delta);
+
+      assertEquals("app 2", new String(Files.readAllBytes(installation.resolve("bundles/app.jar")),
+                                       StandardCharsets.UTF_8));
+      assertEquals("added", new String(Files.readAllBytes(installation.resolve("bundles/added.jar")),
+                                       StandardCharsets.UTF_8));
+      assertFalse(Files.exists(installation.resolve("old")));
+   }
+
+   @Test
+   public void testDoesMatchEntriesOfVersionedDirectories() throws Throwable {
+      Map<String, String> previousFiles = new LinkedHashMap<>();
+      previousFiles.put("com.ngc.example.service-1.0/", null);
+      previousFiles.put("com.ngc.example.service-1.0/bundles/", null);
+      previousFiles.put("com.ngc.example.service-1.0/bundles/core.jar", "core");
+      previousFiles.put("com.ngc.example.service-1.0/bundles/app.jar", "app 1");
+      previousFiles.put("com.ngc.example.service-1.0/bundles/removed.jar", "removed");
+      previousFiles.put("com.ngc.example.service.extra-1.0/", null);
+      File previousVersion = createZip("previous-1.0.zip", previousFiles);
+
+      Map<String, String> currentFiles = new LinkedHashMap<>();
+      currentFiles.put("com.ngc.example.service-1.1/", null);
+      currentFiles.put("com.ngc.example.service-1.1/bundles/", null);
+      currentFiles.put("com.ngc.example.service-1.1/bundles/core.jar", "core");
+      currentFiles.put("com.ngc.example.service-1.1/bundles/app.jar", "app 2");
+      File currentVersion = createZip("current-1.1.zip", currentFiles);
+
+      File versionedDelta = createDelta("versionedDelta", previousVersion, currentVersion,
+                                        "com.ngc.example.service-" + DistributionDeltaTask.VERSION_PLACEHOLDER);
+
+      try (ZipFile zip = new ZipFile(versionedDelta)) {
+         assertNotNull(zip.getEntry("files/com.ngc.example.service-1.1/bundles/app.jar"));
+         assertNull(zip.getEntry("files/com.ngc.example.service-1.1/bundles/core.jar"));
+         assertNull(zip.getEntry("files/com.ngc.example.service-1.1/"));
+         assertEquals("com.ngc.example.service-1.0 com.ngc.example.service-1.1\n",
+                      read(zip, DistributionDeltaTask.RENAMED_FILE_NAME));
+         assertEquals("com.ngc.example.service.extra-1.0/\ncom.ngc.example.service-1.1/bundles/removed.jar\n",
+                      read(zip, DistributionDeltaTask.REMOVED_FILE_NAME));
+      }
+
+      Path installation = applyDelta(previousVersion, versionedDelta);
+      assertFalse(Files.exists(installation.resolve("com.ngc.example.service-1.0")));
+      assertFalse(Files.exists(installation.resolve("com.ngc.example.service-1.1/bundles/removed.jar")));
+      assertEquals("core", new String(Files.readAllBytes(
+               installation.resolve("com.ngc.example.service-1.1/bundles/core.jar")), StandardCharsets.UTF_8));
+      assertEquals("app 2", new String(Files.readAllBytes(
+               installation.resolve("com.ngc.example.service-1.1/bundles/app.jar")), StandardCharsets.UTF_8));
+   }
+
+   private File createDelta(String name, File previousArchive, File archive, String... versionedDirectories) {
+      File file = new File(folder.getRoot(), name + ".zip");
+      DistributionDeltaTask task = project.getTasks().create(name, DistributionDeltaTask.class);
+      task.getPreviousArchive().set(previousArchive);
+      task.getArchive().set(archive);
+      task.getDeltaFile().set(file);
+      for (String versionedDirectory : versionedDirectories) {
+         task.versionedDirectory(versionedDirectory);
+      }
+      task.createDelta();
+      return file;
+   }
+
+   private Path applyDelta(File previousArchive, File deltaArchive) throws IOException, InterruptedException {
+      Assume.assumeTrue(new File("/bin/sh").canExecute());
+      Path installation = folder.newFolder().toPath();
+      Path deltaDirectory = folder.newFolder().toPath();
+      unzip(previousArchive, installation);
+      unzip(deltaArchive, deltaDirectory);
+
+      Process process = new ProcessBuilder("/bin/sh",
+                                           deltaDirectory.resolve(DistributionDeltaTask.APPLY_SCRIPT_NAME).toString(),
+                                           installation.toString())
+               .redirectErrorStream(true)
+               .start();
+      String output;
+      try (InputStream in = process.getInputStream()) {
+         output = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+      }
+      assertEquals(output, 0, process.waitFor());
+      return installation;
+   }
+
+   private File createZip(String name, Map<String, String> files) throws IOException {
+      File file = folder.newFile(name);
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+         for (Map.Entry<String, String> entry : files.entrySet()) {
+            out.putNextEntry(new ZipEntry(entry.getKey()));
+            if (entry.getValue() != null) {
+               out.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+            out.closeEntry();
+         }
+      }
+      return file;
+   }
+
+   private static String read(ZipFile zip, String name) throws IOException {
+      try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+         return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+      }
+   }
+
+   private static void unzip(File file, Path directory) throws IOException {
+      try (ZipFile zip = new ZipFile(file)) {
+         Enumeration<? extends ZipEntry> entries = zip.entries();
+         while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            Path target = directory.resolve(entry.getName());
+            if (entry.isDirectory()) {
+               Files.createDirectories(target);
+            } else {
+               Files.createDirectories(target.getParent());
+               try (InputStream in = zip.getInputStream(entry)) {
+                  Files.copy(in, target);
+               }
+            }
+         }
+      }
+   }
+}
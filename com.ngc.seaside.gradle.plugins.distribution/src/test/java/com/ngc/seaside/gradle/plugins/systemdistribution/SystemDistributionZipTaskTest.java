@@ -0,0 +1,110 @@
+/**
+ * UNCLASSIFIED
+ *
+ * Copyright 2020 Northrop Grumman Systems Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the
+ * Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.ngc.seaside.gradle.plugins.systemdistribution;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SystemDistributionZipTaskTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private Project project;
+   private File distribution;
+
+   @Before
+   public void setup() throws Throwable {
+      project = ProjectBuilder.builder().withProjectDir(folder.newFolder("project")).build();
+      distribution = folder.newFile("service.zip");
+      try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(distribution.toPath()))) {
+         out.putNextEntry(new ZipEntry("bin/"));
+         out.closeEntry();
+         out.putNextEntry(new ZipEntry("bin/start.sh"));
+         out.write("echo start".getBytes(StandardCharsets.UTF_8));
+         out.closeEntry();
+         out.putNextEntry(new ZipEntry("bundles/bundle.jar"));
+         out.write("bundle".getBytes(StandardCharsets.UTF_8));
+         out.closeEntry();
+      }
+   }
+
+   @Test
+   public void testDoesMergeDistributions() throws Throwable {
+      File scripts = folder.newFolder("scripts");
+      Files.write(scripts.toPath().resolve("start.sh"), "start all".getBytes(StandardCharsets.UTF_8));
+      File exploded = new File(project.getBuildDir(), "exploded");
+
+      SystemDistributionZipTask task = project.getTasks().create("zip", SystemDistributionZipTask.class, zip -> {
+         zip.from(scripts);
+         zip.setArchiveName("system.zip");
+         zip.setDestinationDir(project.getBuildDir());
+         zip.getExplodedDirectory().set(exploded);
+         zip.distribution(distribution, "com.ngc.service-1.0");
+      });
+      createArchive(task);
+
+      try (ZipFile original = new ZipFile(distribution); ZipFile zip = new ZipFile(task.getArchivePath())) {
+         assertNotNull(zip.getEntry("start.sh"));
+         assertTrue(zip.getEntry("com.ngc.service-1.0/").isDirectory());
+         for (String name : new String[] { "bin/start.sh", "bundles/bundle.jar" }) {
+            ZipEntry entry = zip.getEntry("com.ngc.service-1.0/" + name);
+            assertNotNull(name, entry);
+            assertEquals(original.getEntry(name).getCrc(), entry.getCrc());
+            assertEquals(original.getEntry(name).getCompressedSize(), entry.getCompressedSize());
+         }
+      }
+      assertArrayEquals("start all".getBytes(StandardCharsets.UTF_8),
+                        Files.readAllBytes(exploded.toPath().resolve("start.sh")));
+      assertArrayEquals("bundle".getBytes(StandardCharsets.UTF_8),
+                        Files.readAllBytes(exploded.toPath().resolve("com.ngc.service-1.0/bundles/bundle.jar")));
+      assertTrue(Files.isDirectory(exploded.toPath().resolve("com.ngc.service-1.0/bin")));
+   }
+
+   /**
+    * Runs the actions of the given task.
+    */
+   private static void createArchive(SystemDistributionZipTask task) {
+      for (Action<? super Task> action : task.getActions()) {
+         action.execute(task);
+      }
+   }
+}
@@ -23,6 +23,8 @@
 package com.ngc.seaside.gradle.plugins.eclipse;
 
 import com.ngc.seaside.gradle.api.AbstractProjectPlugin;
+import com.ngc.seaside.gradle.util.BundleManifestCache;
+import com.ngc.seaside.gradle.util.OsgiBundleMetadata;
 import com.ngc.seaside.gradle.util.OsgiResolver;
 
 import org.apache.commons.io.FilenameUtils;
@@ -87,6 +89,7 @@ public class BaseEclipsePlugin extends AbstractProjectPlugin {
 
    @Override
    protected void doApply(Project project) {
+      BundleManifestCache.getInstance().attach(project.getGradle());
       BaseEclipseExtension extension =
             project.getExtensions().create(EXTENSION_NAME, BaseEclipseExtension.class, project);
 
@@ -124,9 +127,21 @@ public class BaseEclipsePlugin extends AbstractProjectPlugin {
     * @return a valid eclipse file name
     */
    public static Optional<String> getValidEclipseName(File file) {
-      Optional<String> symbolicName = OsgiResolver.getOsgiSymbolicName(file);
+      return getValidEclipseName(file, OsgiResolver.getBundleMetadata(file));
+   }
+
+   /**
+    * Returns a valid eclipse file name for the given OSGi bundle jar with the given metadata, or
+    * {@link Optional#empty()} if the file is not a valid OSGi bundle.
+    *
+    * @param file     OSGi bundle jar
+    * @param metadata the OSGi metadata of the jar
+    * @return a valid eclipse file name
+    */
+   public static Optional<String> getValidEclipseName(File file, OsgiBundleMetadata metadata) {
+      Optional<String> symbolicName = metadata.getSymbolicName();
       if (symbolicName.isPresent()) {
-         String version = OsgiResolver.getOsgiVersion(file).get();
+         String version = metadata.getVersion().get();
          // In some cases, the version in the bundle's manifest is only a major and minor version.  IE, 1.1.  In this
          // case, Eclipse still demands a patch version number.  So we insert a version of .0 if necessary.
          if (version.split("\\.").length == 2) {
@@ -23,6 +23,7 @@
 package com.ngc.seaside.gradle.plugins.eclipse.p2;
 
 import com.ngc.seaside.gradle.plugins.eclipse.updatesite.feature.EclipseFeature;
+import com.ngc.seaside.gradle.util.ManifestReader;
 import com.ngc.seaside.gradle.util.OsgiResolver;
 
 import groovy.lang.Closure;
@@ -34,17 +35,17 @@ import org.gradle.api.file.Directory;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.provider.Provider;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 public class ExternalP2Repository {
@@ -182,15 +183,11 @@ public class ExternalP2Repository {
    }
 
    private static EclipseFeature fromJar(Path jar) {
-      URI fileUri = jar.toUri();
-      URI zipUri;
       try {
-         zipUri = new URI("jar:" + fileUri.getScheme(), fileUri.getPath(), null);
-      } catch (URISyntaxException e) {
-         throw new IllegalArgumentException(e);
-      }
-      try (FileSystem fs = FileSystems.newFileSystem(zipUri, Collections.singletonMap("create", "true"))) {
-         return EclipseFeature.fromXml(Files.newBufferedReader(fs.getPath("feature.xml")));
+         byte[] xml = ManifestReader.readEntry(jar.toFile(), "feature.xml")
+                  .orElseThrow(() -> new NoSuchFileException(jar + "!/feature.xml"));
+         return EclipseFeature.fromXml(
+                  new InputStreamReader(new ByteArrayInputStream(xml), StandardCharsets.UTF_8));
       } catch (IOException e) {
          throw new UncheckedIOException(e);
       }
@@ -211,15 +208,9 @@ public class ExternalP2Repository {
        */
       private ExternalPlugin(Path jar) {
          this.jar = jar;
-         URI fileUri = jar.toUri();
-         URI zipUri;
          try {
-            zipUri = new URI("jar:" + fileUri.getScheme(), fileUri.getPath(), null);
-         } catch (URISyntaxException e) {
-            throw new IllegalArgumentException(e);
-         }
-         try (FileSystem fs = FileSystems.newFileSystem(zipUri, Collections.singletonMap("create", "true"))) {
-            this.manifest = new Manifest(Files.newInputStream(fs.getPath("META-INF", "MANIFEST.MF")));
+            this.manifest = ManifestReader.readManifest(jar.toFile())
+                     .orElseThrow(() -> new NoSuchFileException(jar + "!/" + JarFile.MANIFEST_NAME));
          } catch (IOException e) {
             throw new UncheckedIOException(e);
          }
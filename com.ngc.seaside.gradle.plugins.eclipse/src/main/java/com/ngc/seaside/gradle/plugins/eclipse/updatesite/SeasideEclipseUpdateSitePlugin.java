@@ -265,8 +265,8 @@ public class SeasideEclipseUpdateSitePlugin extends AbstractProjectPlugin {
          Provider<Directory> pluginsDirectory = extension.getUpdateSiteDirectory().map(dir -> dir.dir("plugins"));
          task.doFirst(__ -> pluginsDirectory.get().getAsFile().mkdirs());
          OsgiResolver osgiResolver = new OsgiResolver(project, versionSelectorscheme);
-         osgiResolver.resolveAllVersions(plugins, (identifier, file) -> {
-            Optional<String> name = BaseEclipsePlugin.getValidEclipseName(file);
+         osgiResolver.resolveAllBundles(plugins, (identifier, file, metadata) -> {
+            Optional<String> name = BaseEclipsePlugin.getValidEclipseName(file, metadata);
             if (name.isPresent() && !extension.getBlacklist().get().contains(identifier.getDisplayName())) {
                task.from(file, spec -> spec.rename(___ -> name.get()));
             } else if (!name.isPresent()) {